@@ -0,0 +1,65 @@
+-- Adds the line item status counters to stats.delivery_progress_reports as typed columns, so the summary and token
+-- spend jobs aggregate plain columns instead of extracting them from the line_item_status JSON on every run.
+-- New rows get the columns filled in at ingest; the procedure below backfills the rows stored before the upgrade.
+-- It walks report_timestamp in ranges of step_minutes along its index, committing each range on its own and pausing
+-- pause_seconds in between, so ingest is never held up by one long UPDATE. Run it once every instance stores the
+-- counters at ingest; running it again, or resuming it after an interruption, is harmless.
+USE stats;
+
+ALTER TABLE `delivery_progress_reports`
+  ADD COLUMN `account_auctions` int(11) NOT NULL DEFAULT '0' AFTER `line_item_status`,
+  ADD COLUMN `domain_matched` int(11) NOT NULL DEFAULT '0' AFTER `account_auctions`,
+  ADD COLUMN `target_matched` int(11) NOT NULL DEFAULT '0' AFTER `domain_matched`,
+  ADD COLUMN `target_matched_but_fcapped` int(11) NOT NULL DEFAULT '0' AFTER `target_matched`,
+  ADD COLUMN `target_matched_but_fcap_lookup_failed` int(11) NOT NULL DEFAULT '0' AFTER `target_matched_but_fcapped`,
+  ADD COLUMN `pacing_deferred` int(11) NOT NULL DEFAULT '0' AFTER `target_matched_but_fcap_lookup_failed`,
+  ADD COLUMN `sent_to_bidder` int(11) NOT NULL DEFAULT '0' AFTER `pacing_deferred`,
+  ADD COLUMN `sent_to_bidder_as_top_match` int(11) NOT NULL DEFAULT '0' AFTER `sent_to_bidder`,
+  ADD COLUMN `received_from_bidder_invalidated` int(11) NOT NULL DEFAULT '0' AFTER `sent_to_bidder_as_top_match`,
+  ADD COLUMN `received_from_bidder` int(11) NOT NULL DEFAULT '0' AFTER `received_from_bidder_invalidated`,
+  ADD COLUMN `sent_to_client` int(11) NOT NULL DEFAULT '0' AFTER `received_from_bidder`,
+  ADD COLUMN `sent_to_client_as_top_match` int(11) NOT NULL DEFAULT '0' AFTER `sent_to_client`,
+  ADD COLUMN `win_events` int(11) NOT NULL DEFAULT '0' AFTER `sent_to_client_as_top_match`,
+  ADD COLUMN `first_plan_id` varchar(64) DEFAULT NULL AFTER `win_events`,
+  ADD COLUMN `first_plan_tokens_spent` int(11) NOT NULL DEFAULT '0' AFTER `first_plan_id`,
+  ADD COLUMN `second_plan_id` varchar(64) DEFAULT NULL AFTER `first_plan_tokens_spent`;
+
+DROP PROCEDURE IF EXISTS `backfill_delivery_progress_reports_counters`;
+
+DELIMITER //
+CREATE PROCEDURE `backfill_delivery_progress_reports_counters`(IN step_minutes INT, IN pause_seconds DOUBLE)
+BEGIN
+  DECLARE range_start TIMESTAMP;
+  DECLARE range_end TIMESTAMP;
+  SELECT MIN(`report_timestamp`) INTO range_start FROM `delivery_progress_reports`;
+  WHILE range_start IS NOT NULL AND range_start <= CURRENT_TIMESTAMP DO
+    SET range_end = range_start + INTERVAL step_minutes MINUTE;
+    START TRANSACTION;
+    UPDATE `delivery_progress_reports` SET
+      `account_auctions` = COALESCE(line_item_status->"$.accountAuctions", 0),
+      `domain_matched` = COALESCE(line_item_status->"$.domainMatched", 0),
+      `target_matched` = COALESCE(line_item_status->"$.targetMatched", 0),
+      `target_matched_but_fcapped` = COALESCE(line_item_status->"$.targetMatchedButFcapped", 0),
+      `target_matched_but_fcap_lookup_failed` = COALESCE(line_item_status->"$.targetMatchedButFcapLookupFailed", 0),
+      `pacing_deferred` = COALESCE(line_item_status->"$.pacingDeferred", 0),
+      `sent_to_bidder` = COALESCE(line_item_status->"$.sentToBidder", 0),
+      `sent_to_bidder_as_top_match` = COALESCE(line_item_status->"$.sentToBidderAsTopMatch", 0),
+      `received_from_bidder_invalidated` = COALESCE(line_item_status->"$.receivedFromBidderInvalidated", 0),
+      `received_from_bidder` = COALESCE(line_item_status->"$.receivedFromBidder", 0),
+      `sent_to_client` = COALESCE(line_item_status->"$.sentToClient", 0),
+      `sent_to_client_as_top_match` = COALESCE(line_item_status->"$.sentToClientAsTopMatch", 0),
+      `win_events` = COALESCE(line_item_status->"$.events[0].count", 0),
+      `first_plan_id` = TRIM(BOTH '"' FROM line_item_status->"$.deliverySchedule[0].planId"),
+      `first_plan_tokens_spent` = COALESCE(line_item_status->"$.deliverySchedule[0].tokens[0].spent", 0),
+      `second_plan_id` = TRIM(BOTH '"' FROM line_item_status->"$.deliverySchedule[1].planId")
+    WHERE `report_timestamp` >= range_start AND `report_timestamp` < range_end;
+    COMMIT;
+    SET range_start = range_end;
+    DO SLEEP(pause_seconds);
+  END WHILE;
+END //
+DELIMITER ;
+
+CALL `backfill_delivery_progress_reports_counters`(10, 0.5);
+
+DROP PROCEDURE `backfill_delivery_progress_reports_counters`;
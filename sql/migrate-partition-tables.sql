@@ -0,0 +1,33 @@
+-- Opt-in migration for services.partition-rotation, which drops expired data a partition at a time. sql/schema.sql
+-- keeps the tables unpartitioned.
+-- Partitions stats.delivery_progress_reports by data_window_start_timestamp and stats.delivery_progress_reports_summary
+-- by report_window_start_timestamp. MySQL requires the partitioning column in every unique key, hence the widened
+-- primary keys. The data window start comes from the report itself, so a re-posted report has the same
+-- (report_id, line_item_id, data_window_start_timestamp) key as the original and is still rejected as a duplicate.
+-- Existing rows land in p_start, bounded at the start of tomorrow (UTC), which is dropped once it has expired.
+-- The job adds the following partitions by splitting them off p_future, which must stay empty for that to be cheap.
+-- Reports with a data window ending beyond services.validation.max-future-skew-sec are rejected to keep it so, and
+-- the job alerts instead of splitting p_future should it hold rows.
+USE stats;
+
+SET @p_start_bound = UNIX_TIMESTAMP(CONVERT_TZ(DATE(UTC_TIMESTAMP()) + INTERVAL 1 DAY, '+00:00', @@session.time_zone));
+
+ALTER TABLE `delivery_progress_reports`
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (`report_id`,`line_item_id`,`data_window_start_timestamp`);
+
+SET @partition_sql = CONCAT('ALTER TABLE `delivery_progress_reports` PARTITION BY RANGE (UNIX_TIMESTAMP(`data_window_start_timestamp`)) ('
+  'PARTITION p_start VALUES LESS THAN (', @p_start_bound, '), PARTITION p_future VALUES LESS THAN MAXVALUE)');
+PREPARE partition_stmt FROM @partition_sql;
+EXECUTE partition_stmt;
+DEALLOCATE PREPARE partition_stmt;
+
+ALTER TABLE `delivery_progress_reports_summary`
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (`id`,`report_window_start_timestamp`);
+
+SET @partition_sql = CONCAT('ALTER TABLE `delivery_progress_reports_summary` PARTITION BY RANGE (UNIX_TIMESTAMP(`report_window_start_timestamp`)) ('
+  'PARTITION p_start VALUES LESS THAN (', @p_start_bound, '), PARTITION p_future VALUES LESS THAN MAXVALUE)');
+PREPARE partition_stmt FROM @partition_sql;
+EXECUTE partition_stmt;
+DEALLOCATE PREPARE partition_stmt;
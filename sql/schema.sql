@@ -15,6 +15,22 @@ CREATE TABLE `delivery_progress_reports` (
   `report_timestamp` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
   `client_auctions` int(11) NOT NULL DEFAULT '0',
   `line_item_status` json NOT NULL,
+  `account_auctions` int(11) NOT NULL DEFAULT '0',
+  `domain_matched` int(11) NOT NULL DEFAULT '0',
+  `target_matched` int(11) NOT NULL DEFAULT '0',
+  `target_matched_but_fcapped` int(11) NOT NULL DEFAULT '0',
+  `target_matched_but_fcap_lookup_failed` int(11) NOT NULL DEFAULT '0',
+  `pacing_deferred` int(11) NOT NULL DEFAULT '0',
+  `sent_to_bidder` int(11) NOT NULL DEFAULT '0',
+  `sent_to_bidder_as_top_match` int(11) NOT NULL DEFAULT '0',
+  `received_from_bidder_invalidated` int(11) NOT NULL DEFAULT '0',
+  `received_from_bidder` int(11) NOT NULL DEFAULT '0',
+  `sent_to_client` int(11) NOT NULL DEFAULT '0',
+  `sent_to_client_as_top_match` int(11) NOT NULL DEFAULT '0',
+  `win_events` int(11) NOT NULL DEFAULT '0',
+  `first_plan_id` varchar(64) DEFAULT NULL,
+  `first_plan_tokens_spent` int(11) NOT NULL DEFAULT '0',
+  `second_plan_id` varchar(64) DEFAULT NULL,
   `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
 PRIMARY KEY (`report_id`,`line_item_id`),
 KEY `delivery_progress_reports_report_timestamp` (`report_timestamp`),
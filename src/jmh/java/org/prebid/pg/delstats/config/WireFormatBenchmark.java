@@ -0,0 +1,87 @@
+package org.prebid.pg.delstats.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.prebid.pg.delstats.config.ApplicationConfiguration.BinaryMapperFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares encoding and decoding the sample payloads under docs/samples in JSON, Smile and CBOR. The size of each
+ * payload, as is and gzipped as responses are, is printed when the benchmark is set up. Run from the project directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"post_delivery_report_request_sample.json", "get_delivery_report_v1_response_sample.json",
+            "get_delivery_report_v2_response_sample.json", "get_token_spend_response_sample.json"})
+    private String sample;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+
+    private JsonNode tree;
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper jsonMapper = new ObjectMapper();
+        BinaryMapperFactory binaryMapperFactory = new BinaryMapperFactory(new Jackson2ObjectMapperBuilder());
+        switch (format) {
+            case "smile":
+                objectMapper = binaryMapperFactory.getSmileMapper();
+                break;
+            case "cbor":
+                objectMapper = binaryMapperFactory.getCborMapper();
+                break;
+            default:
+                objectMapper = jsonMapper;
+        }
+        tree = jsonMapper.readTree(Files.readAllBytes(Paths.get("docs", "samples", sample)));
+        payload = objectMapper.writeValueAsBytes(tree);
+        System.out.printf("%n%s as %s: %d bytes, %d gzipped%n", sample, format, payload.length, gzip(payload).length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return objectMapper.writeValueAsBytes(tree);
+    }
+
+    @Benchmark
+    public JsonNode decode() throws IOException {
+        return objectMapper.readTree(payload);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+package org.prebid.pg.delstats.controller.filter;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares reading a gzip compressed Delivery Progress Report of 1000 line items through the pooled Inflaters of
+ * {@link RequestDecompressionFilter} against a {@link GZIPInputStream} per body, for input buffers of several sizes, the
+ * smallest being the one the Jetty GzipHandler was configured with. The report is read in chunks of the size Jackson
+ * asks for. Decompressing the same report compressed with zstd does not depend on the buffer size, zstd-jni sizing its
+ * own buffers, and is measured alongside for reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestDecompressionBenchmark {
+
+    private static final int LINES = 1000;
+
+    private static final int READ_SIZE = 8000;
+
+    @Param({"1", "512", "4096", "16384", "65536"})
+    private int bufferSize;
+
+    private InflaterPool inflaterPool;
+
+    private byte[] gzipped;
+
+    private byte[] zstdCompressed;
+
+    private final byte[] readBuffer = new byte[READ_SIZE];
+
+    @Setup
+    public void setup() throws IOException {
+        inflaterPool = new InflaterPool(bufferSize, 1);
+        byte[] report = makeReport().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(report);
+        }
+        gzipped = out.toByteArray();
+        zstdCompressed = Zstd.compress(report);
+        System.out.printf("%nReport of %d bytes, %d gzipped, %d with zstd%n", report.length, gzipped.length,
+                zstdCompressed.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        inflaterPool.clear();
+    }
+
+    @Benchmark
+    public long pooledInflater() throws IOException {
+        try (InputStream in = new GzipInflatingInputStream(new ByteArrayInputStream(gzipped), inflaterPool)) {
+            return readAll(in);
+        }
+    }
+
+    @Benchmark
+    public long gzipInputStream() throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped), bufferSize)) {
+            return readAll(in);
+        }
+    }
+
+    @Benchmark
+    public long zstd() throws IOException {
+        try (InputStream in = new ZstdInputStreamNoFinalizer(new ByteArrayInputStream(zstdCompressed),
+                RecyclingBufferPool.INSTANCE)) {
+            return readAll(in);
+        }
+    }
+
+    private long readAll(InputStream in) throws IOException {
+        long total = 0;
+        for (int n = in.read(readBuffer); n != -1; n = in.read(readBuffer)) {
+            total += n;
+        }
+        return total;
+    }
+
+    private static String makeReport() {
+        StringBuilder report = new StringBuilder("{\"reportId\":\"benchmark\",\"instanceId\":\"instance\","
+                + "\"vendor\":\"vendor\",\"region\":\"region\",\"clientAuctions\":1000,"
+                + "\"reportTimeStamp\":\"2019-02-01T07:15:00.000Z\","
+                + "\"dataWindowStartTimeStamp\":\"2019-02-01T07:14:00.000Z\","
+                + "\"dataWindowEndTimeStamp\":\"2019-02-01T07:15:00.000Z\",\"lineItemStatus\":[");
+        for (int line = 0; line < LINES; line++) {
+            report.append(line == 0 ? "" : ",")
+                    .append("{\"lineItemSource\":\"bidderPG\",\"lineItemId\":\"bidderPG-").append(line)
+                    .append("\",\"extLineItemId\":\"").append(line)
+                    .append("\",\"accountAuctions\":").append(100 + line % 17)
+                    .append(",\"domainMatched\":").append(90 + line % 13)
+                    .append(",\"targetMatched\":").append(80 + line % 11)
+                    .append(",\"pacingDeferred\":").append(line % 7)
+                    .append(",\"sentToBidder\":").append(70 + line % 5)
+                    .append(",\"receivedFromBidder\":").append(50 + line % 3)
+                    .append(",\"sentToClient\":").append(40 + line % 19)
+                    .append(",\"events\":[{\"type\":\"win\",\"count\":").append(20 + line % 23).append("}]")
+                    .append(",\"deliverySchedule\":[{\"planId\":\"").append(line * 3)
+                    .append("\",\"planStartTimeStamp\":\"2019-02-01T07:00:00.000Z\"")
+                    .append(",\"planExpirationTimeStamp\":\"2019-02-01T08:00:00.000Z\"")
+                    .append(",\"planUpdatedTimeStamp\":\"2019-02-01T06:00:00.000Z\"")
+                    .append(",\"tokens\":[{\"class\":1,\"total\":100,\"spent\":").append(line % 29)
+                    .append("},{\"class\":2,\"total\":50,\"spent\":").append(line % 31).append("}]}]}");
+        }
+        return report.append("]}").toString();
+    }
+}
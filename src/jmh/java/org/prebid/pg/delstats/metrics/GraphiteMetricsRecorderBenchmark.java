@@ -0,0 +1,118 @@
+package org.prebid.pg.delstats.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.prebid.pg.delstats.config.GraphiteConfig;
+import org.prebid.pg.delstats.repository.RepositoryItem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares marking request and item counters and timing an operation through the handles the recorder resolves once,
+ * against the synchronized lookup building each metric name with regular expressions it replaced, with 8 threads
+ * marking the same metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class GraphiteMetricsRecorderBenchmark {
+
+    private GraphiteMetricsRecorder recorder;
+
+    private LegacyLookup legacyLookup;
+
+    @Setup
+    public void setup() {
+        recorder = new GraphiteMetricsRecorder(new GraphiteConfig());
+        legacyLookup = new LegacyLookup();
+    }
+
+    @Benchmark
+    public void markRequest() {
+        recorder.markPostRequestForDeliveryReport();
+    }
+
+    @Benchmark
+    public void markItems() {
+        recorder.markDeliveryReportRecordsStored(10);
+    }
+
+    @Benchmark
+    public void time() {
+        recorder.postDeliveryReportPerformanceTimer().ifPresent(Timer.Context::stop);
+    }
+
+    @Benchmark
+    public void legacyMarkRequest() {
+        legacyLookup.markMeterForTag(MetricService.DELIVERY_REPORT, MetricEndpoint.POST_DELIVERY_REPORT,
+                MetricOperation.REQUEST, null, MetricTag.SERVICE_ENDPOINT_OPERATION, 1);
+    }
+
+    @Benchmark
+    public void legacyMarkItems() {
+        legacyLookup.markMeterForTag(MetricService.DELIVERY_REPORT, null, MetricOperation.STORE,
+                RepositoryItem.DELIVERY_REPORTS, MetricTag.SERVICE_OPERATION_ITEM, 10);
+    }
+
+    @Benchmark
+    public void legacyTime() {
+        legacyLookup.getTimer(MetricEndpoint.POST_DELIVERY_REPORT, MetricOperation.PROCESSING_TIME).time().stop();
+    }
+
+    /**
+     * The lookup as it was before the handles.
+     */
+    private static final class LegacyLookup {
+
+        private final MetricRegistry registry = new MetricRegistry();
+
+        synchronized void markMeterForTag(MetricService service, MetricEndpoint endpoint, MetricOperation operation,
+                                          RepositoryItem item, MetricTag metricTag, int increment) {
+            getMeterForTag(service, endpoint, operation, item, metricTag).inc(increment);
+        }
+
+        private Counter getMeterForTag(MetricService service, MetricEndpoint endpoint, MetricOperation operation,
+                                       RepositoryItem item, MetricTag measurementTag) {
+            String meterName = measurementTag.getTag();
+            if (service != null) {
+                meterName = meterName.replaceAll("\\$\\{service\\}", service.name());
+            }
+            if (endpoint != null) {
+                meterName = meterName.replaceAll("\\$\\{endpoint\\}", endpoint.name());
+            }
+            if (operation != null) {
+                meterName = meterName.replaceAll("\\$\\{operation\\}", operation.name());
+            }
+            if (item != null) {
+                meterName = meterName.replaceAll("\\$\\{item\\}", item.name());
+            }
+            return registry.counter(fixUpEnumName(meterName), ResettingCounter::new);
+        }
+
+        Timer getTimer(MetricEndpoint endpoint, MetricOperation operation) {
+            return registry.timer(MetricTag.SERVICE_OPERATION_LATENCY.getTag()
+                    .replaceAll("\\$\\{service\\}", fixUpEnumName(endpoint.name()))
+                    .replaceAll("\\$\\{operation\\}", fixUpEnumName(operation.name())));
+        }
+
+        private static String fixUpEnumName(String name) {
+            return name.toLowerCase().replace("_", "-");
+        }
+    }
+}
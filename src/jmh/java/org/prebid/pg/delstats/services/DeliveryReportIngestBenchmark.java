@@ -0,0 +1,85 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.DeploymentConfiguration;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.model.dto.Tracer;
+import org.prebid.pg.delstats.utils.BenchmarkSamples;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Validation and conversion of the line item status entries of a posted Delivery Progress Report, scaled up from the
+ * sample report to the size sent by a PBS instance serving many line items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeliveryReportIngestBenchmark {
+
+    @Param({"10000"})
+    private int lines;
+
+    private DeliveryReportProcessor deliveryReportProcessor;
+
+    private DeliveryReportFromPbsDto deliveryReportFromPbsDto;
+
+    private Timestamp now;
+
+    @Setup
+    public void setup() throws IOException {
+        Configurator.setLevel(DeliveryReportProcessor.class.getName(), Level.WARN);
+        ServerConfiguration configuration = new ServerConfiguration();
+        configuration.setValidationEnabled(true);
+        configuration.setLineItemBidderCodeSeparator("-");
+        SystemService systemService = new SystemService(mock(DeploymentConfiguration.class), new Tracer(),
+                new Shutdown(), mock(AlertProxyHttpClient.class), mock(GraphiteMetricsRecorder.class),
+                new ObjectMapper());
+        deliveryReportProcessor = new DeliveryReportProcessor(configuration, systemService);
+        deliveryReportFromPbsDto = BenchmarkSamples.deliveryReport(systemService.getObjectMapper(), lines);
+        now = Timestamp.from(Instant.now());
+    }
+
+    @Benchmark
+    public void validateDeliveryReport() {
+        deliveryReportProcessor.validateDeliveryReport(deliveryReportFromPbsDto);
+    }
+
+    @Benchmark
+    public void processLineItemStatus(Blackhole blackhole) {
+        List<Exception> capturedExceptions = new LinkedList<>();
+        for (JsonNode lineItemStatusJson : deliveryReportFromPbsDto.getLineItemStatus()) {
+            blackhole.consume(deliveryReportProcessor.processLineItemStatus(deliveryReportFromPbsDto,
+                    lineItemStatusJson, now, capturedExceptions));
+        }
+    }
+}
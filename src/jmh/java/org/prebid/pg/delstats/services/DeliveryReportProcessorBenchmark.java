@@ -0,0 +1,206 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.DeploymentConfiguration;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.model.dto.Tracer;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
+import org.prebid.pg.delstats.utils.JacksonUtil;
+import org.prebid.pg.delstats.utils.LineItemStatusUtils;
+import org.prebid.pg.delstats.utils.TimestampUtils;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares converting the line item status entries of a Delivery Progress Report in a single pass that also validates
+ * their timestamps against the previous recursive validation pass followed by a conversion pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeliveryReportProcessorBenchmark {
+
+    private static final String TIMESTAMP = "2019-02-01T07:14:00.000Z";
+
+    @Param({"100", "1000"})
+    private int lines;
+
+    private DeliveryReportProcessor deliveryReportProcessor;
+
+    private ObjectMapper objectMapper;
+
+    private DeliveryReportFromPbsDto deliveryReportFromPbsDto;
+
+    private Timestamp now;
+
+    @Setup
+    public void setup() {
+        Configurator.setLevel(DeliveryReportProcessor.class.getName(), Level.WARN);
+        ServerConfiguration configuration = new ServerConfiguration();
+        configuration.setValidationEnabled(true);
+        configuration.setLineItemBidderCodeSeparator("-");
+        // A real tracer, as a mock one would record every call made on it while the benchmark runs
+        SystemService systemService = new SystemService(mock(DeploymentConfiguration.class), new Tracer(),
+                new Shutdown(), mock(AlertProxyHttpClient.class), mock(GraphiteMetricsRecorder.class),
+                new ObjectMapper());
+        deliveryReportProcessor = new DeliveryReportProcessor(configuration, systemService);
+        objectMapper = systemService.getObjectMapper();
+        now = Timestamp.from(Instant.now());
+
+        List<JsonNode> lineItemStatus = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            lineItemStatus.add(makeLineItemStatus(i));
+        }
+        deliveryReportFromPbsDto = DeliveryReportFromPbsDto.builder()
+                .reportId("benchmark")
+                .vendor("vendor")
+                .region("region")
+                .instanceId("instance")
+                .reportTimeStamp(now)
+                .dataWindowStartTimeStamp(Timestamp.from(now.toInstant().minusSeconds(60)))
+                .dataWindowEndTimeStamp(now)
+                .clientAuctions(1000)
+                .lineItemStatus(lineItemStatus)
+                .build();
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        List<Exception> capturedExceptions = new LinkedList<>();
+        deliveryReportProcessor.validateDeliveryReportWindow(deliveryReportFromPbsDto);
+        for (JsonNode lineItemStatusJson : deliveryReportFromPbsDto.getLineItemStatus()) {
+            blackhole.consume(deliveryReportProcessor.processLineItemStatus(deliveryReportFromPbsDto,
+                    lineItemStatusJson, now, capturedExceptions));
+        }
+    }
+
+    @Benchmark
+    public void twoPass(Blackhole blackhole) throws JsonProcessingException {
+        deliveryReportProcessor.validateDeliveryReportWindow(deliveryReportFromPbsDto);
+        for (JsonNode lineItemStatusJson : deliveryReportFromPbsDto.getLineItemStatus()) {
+            checkNodesRecursivelyForValidTimestamps("root", lineItemStatusJson);
+        }
+        for (JsonNode lineItemStatusJson : deliveryReportFromPbsDto.getLineItemStatus()) {
+            blackhole.consume(convert(lineItemStatusJson));
+        }
+    }
+
+    /**
+     * The validation pass as it was before being folded into the conversion.
+     */
+    private static void checkNodesRecursivelyForValidTimestamps(String name, JsonNode node) {
+        if (node.isObject()) {
+            node.fields().forEachRemaining(field ->
+                    checkNodesRecursivelyForValidTimestamps(field.getKey(), field.getValue()));
+        } else if (node.isArray()) {
+            node.elements().forEachRemaining(element -> checkNodesRecursivelyForValidTimestamps("[]", element));
+        } else if (node.isValueNode() && name.toLowerCase().endsWith("timestamp")) {
+            TimestampUtils.convertStringTimeToTimestamp(node.asText(), name);
+        }
+    }
+
+    /**
+     * The conversion pass as it was before, each field lookup and the counters walking the entry again.
+     */
+    private String convert(JsonNode lineItemStatusJson) throws JsonProcessingException {
+        String lineItemId = JacksonUtil.nullSafeGet(objectMapper, lineItemStatusJson, "lineItemId");
+        String lineItemSource = JacksonUtil.nullSafeGet(objectMapper, lineItemStatusJson, "lineItemSource");
+        DeliveryReport deliveryReport = DeliveryReport.builder()
+                .reportId(deliveryReportFromPbsDto.getReportId())
+                .vendor(deliveryReportFromPbsDto.getVendor())
+                .region(deliveryReportFromPbsDto.getRegion())
+                .instanceId(deliveryReportFromPbsDto.getInstanceId())
+                .bidderCode(lineItemSource)
+                .lineItemId(lineItemId)
+                .extLineItemId(LineItemStatusUtils.getExtLineItemId(lineItemId, "-"))
+                .dataWindowStartTimestamp(deliveryReportFromPbsDto.getDataWindowStartTimeStamp())
+                .dataWindowEndTimestamp(deliveryReportFromPbsDto.getDataWindowEndTimeStamp())
+                .reportTimestamp(now)
+                .clientAuctions(deliveryReportFromPbsDto.getClientAuctions())
+                .lineItemStatus(objectMapper.writeValueAsString(lineItemStatusJson))
+                .counters(getCounters(lineItemStatusJson))
+                .build();
+        // Matches the logging of the built record in the processor
+        return deliveryReport.toString();
+    }
+
+    /**
+     * The counters as they were pulled out before, in a walk of their own over the entry.
+     */
+    private static LineItemStatusCounters getCounters(JsonNode lineItemStatusJson) {
+        LineItemStatusCounters counters = new LineItemStatusCounters();
+        lineItemStatusJson.fields().forEachRemaining(field -> {
+            if (field.getValue().isNumber()) {
+                counters.setTopLevelCounter(field.getKey(), field.getValue().asInt());
+            }
+        });
+        LineItemStatusUtils.setNestedCounters(counters, lineItemStatusJson);
+        return counters;
+    }
+
+    private ObjectNode makeLineItemStatus(int line) {
+        ObjectNode lineItemStatus = objectMapper.createObjectNode();
+        lineItemStatus.put("lineItemSource", "bidderPG");
+        lineItemStatus.put("lineItemId", "bidderPG-" + line);
+        lineItemStatus.put("extLineItemId", String.valueOf(line));
+        lineItemStatus.put("accountAuctions", 100);
+        lineItemStatus.put("domainMatched", 90);
+        lineItemStatus.put("targetMatched", 80);
+        lineItemStatus.put("targetMatchedButFcapped", 1);
+        lineItemStatus.put("targetMatchedButFcapLookupFailed", 0);
+        lineItemStatus.put("pacingDeferred", 2);
+        lineItemStatus.put("sentToBidder", 70);
+        lineItemStatus.put("sentToBidderAsTopMatch", 60);
+        lineItemStatus.put("receivedFromBidderInvalidated", 0);
+        lineItemStatus.put("receivedFromBidder", 50);
+        lineItemStatus.put("sentToClient", 40);
+        lineItemStatus.put("sentToClientAsTopMatch", 30);
+        lineItemStatus.putArray("events").addObject().put("type", "win").put("count", 20);
+        ArrayNode deliverySchedule = lineItemStatus.putArray("deliverySchedule");
+        for (int plan = 0; plan < 3; plan++) {
+            ObjectNode schedule = deliverySchedule.addObject();
+            schedule.put("planId", String.valueOf(plan));
+            schedule.put("planStartTimeStamp", TIMESTAMP);
+            schedule.put("planExpirationTimeStamp", TIMESTAMP);
+            schedule.put("planUpdatedTimeStamp", TIMESTAMP);
+            ArrayNode tokens = schedule.putArray("tokens");
+            for (int tokenClass = 1; tokenClass <= 2; tokenClass++) {
+                tokens.addObject().put("class", tokenClass).put("total", 100).put("spent", 10);
+            }
+        }
+        return lineItemStatus;
+    }
+}
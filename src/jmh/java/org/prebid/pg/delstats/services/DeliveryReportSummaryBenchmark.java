@@ -0,0 +1,150 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.ApplicationConfiguration.CsvMapperFactory;
+import org.prebid.pg.delstats.config.DeploymentConfiguration;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.DeliveryReportSummaryToPlannerAdapterDto;
+import org.prebid.pg.delstats.model.dto.LineItemSummaryReport;
+import org.prebid.pg.delstats.model.dto.PlanDataSummary;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.model.dto.Tracer;
+import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
+import org.prebid.pg.delstats.repository.DeliveryReportSummaryBulkRepository;
+import org.prebid.pg.delstats.repository.DeliveryReportSummaryRepository;
+import org.prebid.pg.delstats.repository.SystemStateRepository;
+import org.prebid.pg.delstats.utils.BenchmarkSamples;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Building the line item summary report and the planner adapter report out of the hourly line item summaries, scaled
+ * up from the sample report to the rows a busy day of line items adds up to. The repository is stubbed, so only the
+ * work done in the service on the rows it returns is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeliveryReportSummaryBenchmark {
+
+    private static final int INTERVAL_MINUTES = 60;
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"2000"})
+    private int lines;
+
+    private DeliveryReportSummaryService deliveryReportSummaryService;
+
+    private ObjectWriter csvWriter;
+
+    private Instant startTime;
+
+    private Instant endTime;
+
+    private Set<String> metrics;
+
+    private List<DeliveryReportSummary> reports;
+
+    private List<List<DeliveryReportSummary>> intervalReports;
+
+    private Map<String, Map<String, Integer>> lineToPlanTokensSpent;
+
+    private List<Map<String, Object>> lineItemSummaries;
+
+    @Setup
+    public void setup() throws IOException {
+        Configurator.setLevel(DeliveryReportSummaryService.class.getName(), Level.WARN);
+        SystemService systemService = new SystemService(mock(DeploymentConfiguration.class), new Tracer(),
+                new Shutdown(), mock(AlertProxyHttpClient.class), mock(GraphiteMetricsRecorder.class),
+                new ObjectMapper());
+        startTime = Instant.parse("2020-09-17T00:00:00.000Z");
+        endTime = startTime.plus(rows / lines, ChronoUnit.HOURS);
+        reports = BenchmarkSamples.deliveryReportSummaries(systemService.getObjectMapper(), rows, lines, startTime);
+        List<PlanDataSummary> planDataSummaries = reports.stream()
+                .map(report -> new PlanDataSummary(report.getLineItemId(), report.getPlanData()))
+                .collect(Collectors.toList());
+        // Stub only, as a mock would remember every call made on it while the benchmark runs
+        DeliveryReportSummaryRepository repository =
+                mock(DeliveryReportSummaryRepository.class, withSettings().stubOnly());
+        when(repository.findPlanDataByReportWindowHour(any(), any())).thenReturn(planDataSummaries);
+
+        deliveryReportSummaryService = new DeliveryReportSummaryService(repository,
+                mock(DeliveryReportSummaryBulkRepository.class), mock(DeliveryReportsDataService.class),
+                mock(LineItemSummaryPreAggregator.class), mock(ShardedLineSummaryWriter.class),
+                mock(SystemStateRepository.class), mock(PlatformTransactionManager.class), new ServerConfiguration(),
+                systemService);
+        metrics = LineItemSummaryReport.getMetricsFields();
+        csvWriter = new CsvMapperFactory().getCsvMapper().writerFor(List.class)
+                .with(LineItemSummaryReport.csvSchema(metrics));
+        intervalReports = deliveryReportSummaryService.groupByIntervals(reports, INTERVAL_MINUTES, startTime, endTime);
+        lineToPlanTokensSpent = deliveryReportSummaryService.retrieveLineToPlanTokensSpent(startTime, endTime);
+        lineItemSummaries = buildLineItemSummaryIntervalReport();
+    }
+
+    @Benchmark
+    public List<List<DeliveryReportSummary>> groupByIntervals() {
+        return deliveryReportSummaryService.groupByIntervals(reports, INTERVAL_MINUTES, startTime, endTime);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> buildLineItemSummaryIntervalReport() {
+        List<Map<String, Object>> summaries = new ArrayList<>(rows);
+        for (int index = 0; index < intervalReports.size(); index++) {
+            summaries.addAll(deliveryReportSummaryService.buildLineItemSummaryIntervalReport(
+                    intervalReports.get(index), metrics, index));
+        }
+        return summaries;
+    }
+
+    @Benchmark
+    public Map<String, Map<String, Integer>> retrieveLineToPlanTokensSpent() {
+        return deliveryReportSummaryService.retrieveLineToPlanTokensSpent(startTime, endTime);
+    }
+
+    @Benchmark
+    public DeliveryReportSummaryToPlannerAdapterDto buildPlannerAdapterDto() {
+        return DeliveryReportSummaryToPlannerAdapterDto.buildDto(startTime, endTime, reports, lineToPlanTokensSpent);
+    }
+
+    @Benchmark
+    public void writeLineItemSummaryCsv(Blackhole blackhole) throws JsonProcessingException {
+        blackhole.consume(csvWriter.writeValueAsString(lineItemSummaries));
+    }
+}
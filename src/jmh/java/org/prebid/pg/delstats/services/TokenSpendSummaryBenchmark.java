@@ -0,0 +1,70 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.DeploymentConfiguration;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.model.dto.Tracer;
+import org.prebid.pg.delstats.persistence.LatestTokenSpendSummary;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsRepository;
+import org.prebid.pg.delstats.repository.LatestTokenSpendSummaryRepository;
+import org.prebid.pg.delstats.repository.SystemStateRepository;
+import org.prebid.pg.delstats.utils.BenchmarkSamples;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Mapping the latest token spend summaries to the lines of the token spend report, scaled up from the sample token
+ * spend response to a line per line item and PBS instance of a region.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenSpendSummaryBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    private TokenSpendDataService tokenSpendDataService;
+
+    private List<LatestTokenSpendSummary> latestTokenSpendSummaries;
+
+    @Setup
+    public void setup() throws IOException {
+        SystemService systemService = new SystemService(mock(DeploymentConfiguration.class), new Tracer(),
+                new Shutdown(), mock(AlertProxyHttpClient.class), mock(GraphiteMetricsRecorder.class),
+                new ObjectMapper());
+        tokenSpendDataService = new TokenSpendDataService(mock(LatestTokenSpendSummaryRepository.class),
+                mock(DeliveryProgressReportsRepository.class), mock(SystemStateRepository.class),
+                new ServerConfiguration(), systemService);
+        latestTokenSpendSummaries = BenchmarkSamples.latestTokenSpendSummaries(systemService.getObjectMapper(), rows);
+    }
+
+    @Benchmark
+    public void mapTokenSpendSummaryLines(Blackhole blackhole) {
+        for (LatestTokenSpendSummary summary : latestTokenSpendSummaries) {
+            blackhole.consume(tokenSpendDataService.mapTokenSpendSummaryLineDtoFromLatestTokenSpendSummary(summary));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.prebid.pg.delstats.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
+import org.prebid.pg.delstats.persistence.LatestTokenSpendSummary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inputs of the benchmarks, scaled up from the sample payloads under docs/samples to the sizes seen in production.
+ * Each generated line item is a copy of the first one of the sample with its own line item id and slightly different
+ * counters. Benchmarks using them have to be run from the project directory.
+ */
+public final class BenchmarkSamples {
+
+    private static final String DELIVERY_REPORT_SAMPLE = "post_delivery_report_request_sample.json";
+
+    private static final String TOKEN_SPEND_SAMPLE = "get_token_spend_response_sample.json";
+
+    private static final String[] COUNTERS = {"accountAuctions", "domainMatched", "targetMatched",
+        "targetMatchedButFcapped", "targetMatchedButFcapLookupFailed", "pacingDeferred", "sentToBidder",
+        "sentToBidderAsTopMatch", "receivedFromBidderInvalidated", "receivedFromBidder", "sentToClient",
+        "sentToClientAsTopMatch"};
+
+    private static final int PLANS_PER_LINE = 3;
+
+    private BenchmarkSamples() {
+    }
+
+    /**
+     * A Delivery Progress Report of the sample PBS instance with the given number of line item status entries.
+     */
+    public static DeliveryReportFromPbsDto deliveryReport(ObjectMapper objectMapper, int lines) throws IOException {
+        ObjectNode sample = (ObjectNode) readSample(objectMapper, DELIVERY_REPORT_SAMPLE);
+        ObjectNode lineItemStatus = (ObjectNode) sample.get("lineItemStatus").get(0);
+        ArrayNode lineItemStatuses = sample.putArray("lineItemStatus");
+        for (int line = 0; line < lines; line++) {
+            ObjectNode copy = lineItemStatus.deepCopy();
+            lineItemStatuses.add(copy);
+            copy.put("lineItemId", "bidderPG-" + line);
+            copy.put("extLineItemId", String.valueOf(line));
+            for (String counter : COUNTERS) {
+                copy.put(counter, copy.path(counter).asInt() + line % 100);
+            }
+        }
+        return objectMapper.treeToValue(sample, DeliveryReportFromPbsDto.class);
+    }
+
+    /**
+     * Hourly line item summaries of the sample report, ordered as the summary repository returns them: by hour, then
+     * by line item id. Each line spends tokens of a few plans.
+     *
+     * @param rows total number of summaries, a multiple of the lines
+     * @param lines number of line items summarized every hour
+     * @param start start of the first hour
+     */
+    public static List<DeliveryReportSummary> deliveryReportSummaries(ObjectMapper objectMapper, int rows, int lines,
+                                                                      Instant start) throws IOException {
+        JsonNode lineItemStatus = readSample(objectMapper, DELIVERY_REPORT_SAMPLE).get("lineItemStatus").get(0);
+        JsonNode schedule = lineItemStatus.get("deliverySchedule").get(0);
+        long planId = schedule.get("planId").asLong();
+        int spent = schedule.get("tokens").get(0).get("spent").asInt();
+        int wins = lineItemStatus.get("events").get(0).get("count").asInt();
+        List<DeliveryReportSummary> summaries = new ArrayList<>(rows);
+        for (int hour = 0; hour < rows / lines; hour++) {
+            Instant hourStart = start.plus(hour, ChronoUnit.HOURS);
+            for (int line = 0; line < lines; line++) {
+                int counter = lineItemStatus.path("targetMatched").asInt() + line % 100;
+                StringBuilder planData = new StringBuilder();
+                for (int plan = 0; plan < PLANS_PER_LINE; plan++) {
+                    planData.append(plan == 0 ? "" : ",").append(planId + plan).append(',').append(spent + plan);
+                }
+                summaries.add(DeliveryReportSummary.builder()
+                        .reportWindowStartTimestamp(hourStart)
+                        .reportWindowEndTimestamp(hourStart.plus(1, ChronoUnit.HOURS))
+                        .dataWindowStartTimestamp(hourStart)
+                        .dataWindowEndTimestamp(hourStart.plus(59, ChronoUnit.MINUTES))
+                        .lineItemId(String.format("bidderPG-%06d", line))
+                        .extLineItemId(String.valueOf(line))
+                        .bidderCode(lineItemStatus.get("lineItemSource").asText())
+                        .lineItemSource(lineItemStatus.get("lineItemSource").asText())
+                        .accountAuctions(counter * 10)
+                        .domainMatched(counter * 5)
+                        .targetMatched(counter)
+                        .pacingDeferred(counter % 7)
+                        .sentToBidder(counter)
+                        .sentToBidderAsTopMatch(counter)
+                        .receivedFromBidder(counter / 2)
+                        .sentToClient(counter / 2)
+                        .sentToClientAsTopMatch(counter / 2)
+                        .winEvents(wins + counter / 4)
+                        .planData(planData.toString())
+                        .build());
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Latest token spend summaries cycling through the lines of the sample token spend response.
+     */
+    public static List<LatestTokenSpendSummary> latestTokenSpendSummaries(ObjectMapper objectMapper, int rows)
+            throws IOException {
+        JsonNode sampleLines = readSample(objectMapper, TOKEN_SPEND_SAMPLE).get("tokenSpendSummaryLines");
+        List<LatestTokenSpendSummary> summaries = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            JsonNode sampleLine = sampleLines.get(row % sampleLines.size());
+            summaries.add(LatestTokenSpendSummary.builder()
+                    .vendor(sampleLine.get("vendor").asText())
+                    .region(sampleLine.get("region").asText())
+                    .instanceId(sampleLine.get("instanceId").asText())
+                    .bidderCode(sampleLine.get("bidderCode").asText())
+                    .lineItemId(sampleLine.get("bidderCode").asText() + "-" + row)
+                    .extLineItemId(String.valueOf(row))
+                    .dataWindowStartTimestamp(timestamp(sampleLine, "dataWindowStartTimestamp"))
+                    .dataWindowEndTimestamp(timestamp(sampleLine, "dataWindowEndTimestamp"))
+                    .reportTimestamp(timestamp(sampleLine, "reportTimestamp"))
+                    .serviceInstanceId(sampleLine.get("serviceInstanceId").asText())
+                    .summaryData(objectMapper.writeValueAsString(sampleLine.get("summaryData")))
+                    .build());
+        }
+        return summaries;
+    }
+
+    private static JsonNode readSample(ObjectMapper objectMapper, String sample) throws IOException {
+        return objectMapper.readTree(Files.readAllBytes(Paths.get("docs", "samples", sample)));
+    }
+
+    private static Timestamp timestamp(JsonNode line, String field) {
+        return Timestamp.from(Instant.parse(line.get(field).asText()));
+    }
+}
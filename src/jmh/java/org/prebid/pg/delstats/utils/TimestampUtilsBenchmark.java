@@ -0,0 +1,41 @@
+package org.prebid.pg.delstats.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares converting timestamp strings of the usual shapes directly against the chain of lenient parsers they all
+ * used to go through, which reaches the later parsers by way of the exceptions of the earlier ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampUtilsBenchmark {
+
+    @Param({"2019-02-01T06:59:59.999Z", "2019-02-01T06:59:59-05:00", "2019-02-01 06:59:59", "2019-02-01"})
+    private String time;
+
+    @Benchmark
+    public Timestamp direct() {
+        return TimestampUtils.convertStringTimeToTimestamp(time, "time");
+    }
+
+    @Benchmark
+    public Timestamp fallbackChain() {
+        return TimestampUtils.convertUnusualStringTimeToTimestamp(time, "time");
+    }
+}
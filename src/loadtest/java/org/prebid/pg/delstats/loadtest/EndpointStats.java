@@ -0,0 +1,72 @@
+package org.prebid.pg.delstats.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of the requests a load test made to one endpoint.
+ */
+public class EndpointStats {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String name;
+
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(5), 3);
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder items = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    public EndpointStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a request.
+     *
+     * @param startNanos when the request was sent
+     * @param succeeded whether a 2xx response was received
+     * @param requestItems reports or lines sent or received
+     * @param requestBytes bytes sent or received
+     */
+    public void record(long startNanos, boolean succeeded, long requestItems, long requestBytes) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        latencies.recordValue(Math.min(micros, latencies.getHighestTrackableValue()));
+        if (succeeded) {
+            items.add(requestItems);
+            bytes.add(requestBytes);
+        } else {
+            errors.increment();
+        }
+    }
+
+    public long getRequests() {
+        return latencies.getTotalCount();
+    }
+
+    public long getItems() {
+        return items.sum();
+    }
+
+    public void print(PrintStream out, String itemName, double seconds) {
+        long requests = getRequests();
+        out.printf("%-24s %8d requests %6d errors %9.1f req/s %11.1f %s/s %8.1f KiB/s%n", name, requests,
+                errors.sum(), requests / seconds, items.sum() / seconds, itemName, bytes.sum() / seconds / 1024);
+        if (requests == 0) {
+            return;
+        }
+        out.printf("%-24s latency ms:", "");
+        for (double percentile : PERCENTILES) {
+            out.printf(" p%s=%.1f", percentile % 1 == 0 ? String.valueOf((int) percentile) : String.valueOf(percentile),
+                    latencies.getValueAtPercentile(percentile) / 1000.0);
+        }
+        out.printf(" max=%.1f%n", latencies.getMaxValue() / 1000.0);
+    }
+}
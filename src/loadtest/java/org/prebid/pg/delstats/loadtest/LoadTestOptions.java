@@ -0,0 +1,125 @@
+package org.prebid.pg.delstats.loadtest;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Options of a load test, given as {@code --name=value} arguments. Arguments that are not load test options are kept
+ * for the server when it is started in process.
+ */
+@Getter
+public class LoadTestOptions {
+
+    private String baseUrl = "http://localhost:8080/del-stats/api";
+
+    private boolean embedded;
+
+    private int port = 8080;
+
+    private int instances = 20;
+
+    private List<String> vendors = Arrays.asList("vendor1", "vendor2");
+
+    private List<String> regions = Arrays.asList("us-east-1", "us-west-2");
+
+    private int lines = 1000;
+
+    private int reportIntervalSec = 60;
+
+    private int durationSec = 300;
+
+    private int plannerAdapterPollIntervalSec = 60;
+
+    private int generalPlannerPollIntervalSec = 30;
+
+    private String bidderCode = "bidderPG";
+
+    private String pbsCredentials = "user1:password1";
+
+    private String plannerAdapterCredentials = "user2:password2";
+
+    private String generalPlannerCredentials = "user3:password3";
+
+    private final List<String> serverArgs = new ArrayList<>();
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator < 0 ? arg : arg.substring(0, separator);
+            String value = separator < 0 ? "true" : arg.substring(separator + 1);
+            if (!options.set(name, value)) {
+                options.serverArgs.add(arg);
+            }
+        }
+        if (options.embedded) {
+            options.baseUrl = "http://localhost:" + options.port + "/del-stats/api";
+            options.serverArgs.add("--server.port=" + options.port);
+        }
+        return options;
+    }
+
+    private boolean set(String name, String value) {
+        switch (name) {
+            case "--base-url":
+                baseUrl = value;
+                break;
+            case "--embedded":
+                embedded = Boolean.parseBoolean(value);
+                break;
+            case "--port":
+                port = Integer.parseInt(value);
+                break;
+            case "--instances":
+                instances = Integer.parseInt(value);
+                break;
+            case "--vendors":
+                vendors = Arrays.asList(value.split(","));
+                break;
+            case "--regions":
+                regions = Arrays.asList(value.split(","));
+                break;
+            case "--lines":
+                lines = Integer.parseInt(value);
+                break;
+            case "--report-interval-sec":
+                reportIntervalSec = Integer.parseInt(value);
+                break;
+            case "--duration-sec":
+                durationSec = Integer.parseInt(value);
+                break;
+            case "--pa-poll-interval-sec":
+                plannerAdapterPollIntervalSec = Integer.parseInt(value);
+                break;
+            case "--gp-poll-interval-sec":
+                generalPlannerPollIntervalSec = Integer.parseInt(value);
+                break;
+            case "--bidder-code":
+                bidderCode = value;
+                break;
+            case "--pbs-credentials":
+                pbsCredentials = value;
+                break;
+            case "--pa-credentials":
+                plannerAdapterCredentials = value;
+                break;
+            case "--gp-credentials":
+                generalPlannerCredentials = value;
+                break;
+            default:
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d PBS instances over %s x %s posting %d lines every %ds to %s for %ds, "
+                        + "Planning Adapter polling every %ds, General Planner polling every %ds",
+                instances, vendors, regions, lines, reportIntervalSec, baseUrl, durationSec,
+                plannerAdapterPollIntervalSec, generalPlannerPollIntervalSec);
+    }
+}
@@ -0,0 +1,222 @@
+package org.prebid.pg.delstats.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.prebid.pg.delstats.DeliveryStatsServer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Capacity test of the service: a fleet of simulated PBS instances, spread over vendors and regions, post Delivery
+ * Progress Reports at a steady rate while the Planning Adapter polls the delivery summaries and the General Planner
+ * polls the token spend report. Once the test has run for its duration the sustained ingest throughput, the latency
+ * percentiles of each endpoint and the duration of the summary job runs seen by the server are printed.
+ *
+ * <p>The service is either already running, on MySQL, or started in process on the embedded H2 database of the tests
+ * with {@code --embedded}. Run from the project directory, as the reports are built from docs/samples.</p>
+ */
+public class PbsFleetLoadGenerator {
+
+    private static final String SAMPLE_REPORT = "post_delivery_report_request_sample.json";
+
+    private static final Pattern SUMMARY_JOB_TIMER = Pattern.compile(
+            "^\\S*post_delivery_summary_processing_time_seconds(_count|_sum|\\{quantile=\"0\\.999\"}) (\\S+)$",
+            Pattern.MULTILINE);
+
+    private final LoadTestOptions options;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final EndpointStats ingestStats = new EndpointStats("post-delivery-report");
+
+    private final EndpointStats plannerAdapterStats = new EndpointStats("get-delivery-report-v2");
+
+    private final EndpointStats generalPlannerStats = new EndpointStats("get-token-spend-report");
+
+    private final RestTemplate pbsClient;
+
+    private final RestTemplate plannerAdapterClient;
+
+    private final RestTemplate generalPlannerClient;
+
+    private final RestTemplate metricsClient;
+
+    public PbsFleetLoadGenerator(LoadTestOptions options) {
+        this.options = options;
+        this.pbsClient = client(options.getPbsCredentials());
+        this.plannerAdapterClient = client(options.getPlannerAdapterCredentials());
+        this.generalPlannerClient = client(options.getGeneralPlannerCredentials());
+        this.metricsClient = new RestTemplate();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext server = null;
+        if (options.isEmbedded()) {
+            List<String> serverArgs = new ArrayList<>(options.getServerArgs());
+            addDefault(serverArgs, "--server-auth.enabled", "false");
+            addDefault(serverArgs, "--services.delivery-summary.enabled", "true");
+            addDefault(serverArgs, "--management.endpoints.web.base-path", "/del-stats/api/v1/");
+            addDefault(serverArgs, "--management.endpoints.web.exposure.include", "prometheus");
+            addDefault(serverArgs, "--management.endpoint.prometheus.enabled", "true");
+            server = SpringApplication.run(DeliveryStatsServer.class, serverArgs.toArray(new String[0]));
+        }
+        try {
+            new PbsFleetLoadGenerator(options).run();
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        System.out.printf("%nLoad test: %s%n", options);
+        JsonNode sampleReport = objectMapper.readTree(Files.readAllBytes(Paths.get("docs", "samples", SAMPLE_REPORT)));
+        Instant startTime = Instant.now();
+        List<SimulatedPbsInstance> fleet = new ArrayList<>(options.getInstances());
+        for (int instance = 0; instance < options.getInstances(); instance++) {
+            String vendor = options.getVendors().get(instance % options.getVendors().size());
+            String region = options.getRegions().get(
+                    instance / options.getVendors().size() % options.getRegions().size());
+            fleet.add(new SimulatedPbsInstance(objectMapper, sampleReport, vendor, region,
+                    String.format("pbs-%s-%s-%04d", vendor, region, instance), options.getBidderCode(),
+                    options.getLines(), startTime));
+        }
+        double[] summaryJobBefore = scrapeSummaryJobTimer();
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(Math.min(fleet.size(), 64) + 2);
+        long reportIntervalMillis = TimeUnit.SECONDS.toMillis(options.getReportIntervalSec());
+        for (int instance = 0; instance < fleet.size(); instance++) {
+            SimulatedPbsInstance pbsInstance = fleet.get(instance);
+            executor.scheduleAtFixedRate(() -> postReport(pbsInstance),
+                    instance * reportIntervalMillis / fleet.size(), reportIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        executor.scheduleAtFixedRate(this::pollDeliverySummaries,
+                0, options.getPlannerAdapterPollIntervalSec(), TimeUnit.SECONDS);
+        executor.scheduleAtFixedRate(this::pollTokenSpend,
+                0, options.getGeneralPlannerPollIntervalSec(), TimeUnit.SECONDS);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.getDurationSec()));
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        double seconds = (System.currentTimeMillis() - startTime.toEpochMilli()) / 1000.0;
+
+        System.out.printf("%nAfter %.0f seconds:%n", seconds);
+        ingestStats.print(System.out, "lines", seconds);
+        plannerAdapterStats.print(System.out, "lines", seconds);
+        generalPlannerStats.print(System.out, "lines", seconds);
+        System.out.printf("Sustained ingest: %.1f reports/s, %.1f lines/s%n",
+                ingestStats.getRequests() / seconds, ingestStats.getItems() / seconds);
+        printSummaryJob(summaryJobBefore, scrapeSummaryJobTimer());
+    }
+
+    private void postReport(SimulatedPbsInstance pbsInstance) {
+        byte[] report;
+        try {
+            report = pbsInstance.nextReport(Instant.now());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        long startNanos = System.nanoTime();
+        try {
+            pbsClient.postForEntity(options.getBaseUrl() + "/v1/report/delivery", new HttpEntity<>(report, headers),
+                    Void.class);
+            ingestStats.record(startNanos, true, pbsInstance.getLines(), report.length);
+        } catch (RestClientException ex) {
+            ingestStats.record(startNanos, false, 0, 0);
+        }
+    }
+
+    private void pollDeliverySummaries() {
+        poll(plannerAdapterClient, plannerAdapterStats, "deliveryReports",
+                "/v2/report/delivery?bidderCode=" + options.getBidderCode());
+    }
+
+    private void pollTokenSpend() {
+        poll(generalPlannerClient, generalPlannerStats, "tokenSpendSummaryLines", "/v1/report/token-spend");
+    }
+
+    private void poll(RestTemplate client, EndpointStats stats, String linesField, String path) {
+        long startNanos = System.nanoTime();
+        try {
+            ResponseEntity<byte[]> response = client.getForEntity(options.getBaseUrl() + path, byte[].class);
+            byte[] body = response.getBody() == null ? new byte[0] : response.getBody();
+            int lines = body.length == 0 ? 0 : objectMapper.readTree(body).path(linesField).size();
+            stats.record(startNanos, true, lines, body.length);
+        } catch (RestClientException | IOException ex) {
+            stats.record(startNanos, false, 0, 0);
+        }
+    }
+
+    /**
+     * Count, total seconds and 99.9th percentile of the summary job timer of the server, from its Prometheus scrape.
+     */
+    private double[] scrapeSummaryJobTimer() {
+        double[] timer = new double[3];
+        try {
+            String scrape = metricsClient.getForObject(options.getBaseUrl() + "/v1/prometheus", String.class);
+            Matcher matcher = SUMMARY_JOB_TIMER.matcher(scrape == null ? "" : scrape);
+            while (matcher.find()) {
+                double value = Double.parseDouble(matcher.group(2));
+                switch (matcher.group(1)) {
+                    case "_count":
+                        timer[0] = value;
+                        break;
+                    case "_sum":
+                        timer[1] = value;
+                        break;
+                    default:
+                        timer[2] = value;
+                }
+            }
+        } catch (RestClientException ex) {
+            System.out.printf("Unable to scrape the summary job timer: %s%n", ex.getMessage());
+        }
+        return timer;
+    }
+
+    private static void printSummaryJob(double[] before, double[] after) {
+        long runs = Math.round(after[0] - before[0]);
+        if (runs <= 0) {
+            System.out.println("Summary job: no run during the test");
+            return;
+        }
+        System.out.printf("Summary job: %d run(s), mean %.3f s, p99.9 %.3f s%n",
+                runs, (after[1] - before[1]) / runs, after[2]);
+    }
+
+    private static RestTemplate client(String credentials) {
+        int separator = credentials.indexOf(':');
+        return new RestTemplateBuilder()
+                .basicAuthentication(credentials.substring(0, separator), credentials.substring(separator + 1))
+                .build();
+    }
+
+    private static void addDefault(List<String> serverArgs, String name, String value) {
+        if (serverArgs.stream().noneMatch(arg -> arg.startsWith(name + "="))) {
+            serverArgs.add(name + "=" + value);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.prebid.pg.delstats.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A PBS instance of the fleet, building the Delivery Progress Reports it posts out of the sample report under
+ * docs/samples. Each report covers the time since the previous one, with counters for every line item the instance
+ * serves and tokens spent on the plan of each line.
+ */
+public class SimulatedPbsInstance {
+
+    private static final String[] COUNTERS = {"accountAuctions", "domainMatched", "targetMatched",
+        "targetMatchedButFcapped", "targetMatchedButFcapLookupFailed", "pacingDeferred", "sentToBidder",
+        "sentToBidderAsTopMatch", "receivedFromBidderInvalidated", "receivedFromBidder", "sentToClient",
+        "sentToClientAsTopMatch"};
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectNode report;
+
+    @Getter
+    private final int lines;
+
+    private Instant lastReportTime;
+
+    public SimulatedPbsInstance(ObjectMapper objectMapper, JsonNode sampleReport, String vendor, String region,
+                                String instanceId, String bidderCode, int lines, Instant startTime) {
+        this.objectMapper = objectMapper;
+        this.lines = lines;
+        this.lastReportTime = startTime;
+        this.report = sampleReport.deepCopy();
+        report.put("vendor", vendor);
+        report.put("region", region);
+        report.put("instanceId", instanceId);
+        ObjectNode sampleLine = (ObjectNode) sampleReport.get("lineItemStatus").get(0);
+        ArrayNode lineItemStatus = report.putArray("lineItemStatus");
+        for (int line = 0; line < lines; line++) {
+            ObjectNode lineItem = sampleLine.deepCopy();
+            lineItem.put("lineItemSource", bidderCode);
+            lineItem.put("lineItemId", bidderCode + "-" + line);
+            lineItem.put("extLineItemId", String.valueOf(line));
+            lineItemStatus.add(lineItem);
+        }
+    }
+
+    /**
+     * The next report of the instance, covering the time since the previous one.
+     *
+     * @param now
+     * @return the report as JSON
+     * @throws IOException
+     */
+    public synchronized byte[] nextReport(Instant now) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        report.put("reportId", UUID.randomUUID().toString());
+        report.put("reportTimeStamp", TIMESTAMP_FORMAT.format(now));
+        report.put("dataWindowStartTimeStamp", TIMESTAMP_FORMAT.format(lastReportTime));
+        report.put("dataWindowEndTimeStamp", TIMESTAMP_FORMAT.format(now.minusMillis(1)));
+        report.put("clientAuctions", random.nextInt(1000, 5000));
+        for (JsonNode lineItem : report.get("lineItemStatus")) {
+            int matched = random.nextInt(100);
+            for (String counter : COUNTERS) {
+                ((ObjectNode) lineItem).put(counter, matched);
+            }
+            ((ObjectNode) lineItem.get("events").get(0)).put("count", random.nextInt(matched + 1));
+            for (JsonNode token : lineItem.get("deliverySchedule").get(0).get("tokens")) {
+                ((ObjectNode) token).put("spent", random.nextInt(3));
+            }
+        }
+        lastReportTime = now;
+        return objectMapper.writeValueAsBytes(report);
+    }
+}
@@ -1,14 +1,11 @@
 package org.prebid.pg.delstats;
 
-import org.eclipse.jetty.server.handler.HandlerCollection;
-import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.prebid.pg.delstats.alerts.AlertName;
 import org.prebid.pg.delstats.alerts.AlertPriority;
 import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
 import org.prebid.pg.delstats.config.AlertProxyConfiguration;
 import org.prebid.pg.delstats.config.CorsConfiguration;
 import org.prebid.pg.delstats.config.ServerAuthDataConfiguration;
-import org.prebid.pg.delstats.config.ServerConfiguration;
 import org.prebid.pg.delstats.controller.filter.PeekFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,7 +13,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.boot.web.embedded.jetty.JettyServletWebServerFactory;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -41,9 +37,6 @@ public class DeliveryStatsServer {
     @Autowired
     private CorsConfiguration corsConfiguration;
 
-    @Autowired
-    private ServerConfiguration serverConfiguration;
-
     @PostConstruct
     public void init() {
         TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
@@ -58,22 +51,6 @@ public class DeliveryStatsServer {
         logger.info("Application ready, Start up notice prepared");
     }
 
-    @Bean
-    public JettyServletWebServerFactory jettyServletWebServerFactory() {
-        JettyServletWebServerFactory factory = new JettyServletWebServerFactory();
-        logger.info("JettyGzipHandlerEnabled={}", serverConfiguration.isJettyGzipHandlerEnabled());
-        if (serverConfiguration.isJettyGzipHandlerEnabled()) {
-            factory.addServerCustomizers(server -> {
-                GzipHandler gzipHandler = new GzipHandler();
-                gzipHandler.setInflateBufferSize(1);
-                gzipHandler.setHandler(server.getHandler());
-                HandlerCollection handlerCollection = new HandlerCollection(gzipHandler);
-                server.setHandler(handlerCollection);
-            });
-        }
-        return factory;
-    }
-
     @Bean
     public WebMvcConfigurer corsConfigurer() {
         return new WebMvcConfigurer() {
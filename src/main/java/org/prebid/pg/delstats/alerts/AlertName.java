@@ -7,6 +7,8 @@ public enum AlertName {
     ERROR,
     GET_REPORT_ERROR,
     JSON_ERROR,
+    PARTITION_ROTATION_ERROR,
+    PURGE_ERROR,
     REPORT_PARSE_ERROR,
     STORE_ERROR,
     TOKEN_SUMMARY_AGGR_ERROR
@@ -1,11 +1,31 @@
 package org.prebid.pg.delstats.config;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.prebid.pg.delstats.model.dto.DeliveryReportLineDto;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.TimeZone;
 
 @Configuration
@@ -16,6 +36,22 @@ public class ApplicationConfiguration {
         return new CsvMapperFactory();
     }
 
+    @Bean
+    public BinaryMapperFactory binaryMapperFactory(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new BinaryMapperFactory(objectMapperBuilder);
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            BinaryMapperFactory binaryMapperFactory) {
+        return new MappingJackson2SmileHttpMessageConverter(binaryMapperFactory.getSmileMapper());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(BinaryMapperFactory binaryMapperFactory) {
+        return new MappingJackson2CborHttpMessageConverter(binaryMapperFactory.getCborMapper());
+    }
+
     public static class CsvMapperFactory {
         private CsvMapper csvMapper;
 
@@ -32,5 +68,129 @@ public class ApplicationConfiguration {
         }
     }
 
-}
+    /**
+     * Mappers for the binary formats Delivery Reports can be exchanged in besides JSON, Smile and CBOR. They are built
+     * by the same builder as the JSON mapper, so dates and everything else come out as they do in JSON.
+     */
+    public static class BinaryMapperFactory {
+
+        public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+        public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+        public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+        public static final MediaType APPLICATION_CBOR = MediaType.valueOf(APPLICATION_CBOR_VALUE);
+
+        private static final List<MediaType> PRODUCIBLE_MEDIA_TYPES =
+                Arrays.asList(MediaType.APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR);
+
+        private ObjectMapper smileMapper;
+
+        private ObjectMapper cborMapper;
+
+        public BinaryMapperFactory(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+            // Line item status is stored as JSON text, which only a JSON generator can write through raw
+            objectMapperBuilder.mixIn(DeliveryReportLineDto.class, DeliveryReportLineDtoMixIn.class);
+            smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+            cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+        }
+
+        public ObjectMapper getSmileMapper() {
+            return smileMapper;
+        }
+
+        public ObjectMapper getCborMapper() {
+            return cborMapper;
+        }
+
+        /**
+         * The mapper for a media type, or the JSON mapper given for JSON and any type that is not Smile or CBOR.
+         *
+         * @param mediaType
+         * @param jsonMapper
+         * @return
+         */
+        public ObjectMapper getMapper(MediaType mediaType, ObjectMapper jsonMapper) {
+            if (mediaType == null) {
+                return jsonMapper;
+            }
+            if (APPLICATION_SMILE.equalsTypeAndSubtype(mediaType)) {
+                return smileMapper;
+            }
+            if (APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+                return cborMapper;
+            }
+            return jsonMapper;
+        }
+
+        /**
+         * The mapper for the format a request body is in according to its Content-Type header, JSON if there is none.
+         *
+         * @param contentType
+         * @param jsonMapper
+         * @return
+         */
+        public ObjectMapper getMapperForContentType(String contentType, ObjectMapper jsonMapper) {
+            if (StringUtils.isEmpty(contentType)) {
+                return jsonMapper;
+            }
+            try {
+                return getMapper(MediaType.parseMediaType(contentType), jsonMapper);
+            } catch (InvalidMediaTypeException e) {
+                return jsonMapper;
+            }
+        }
+
+        /**
+         * The format an Accept header prefers among JSON, Smile and CBOR, JSON when it accepts any or none of them.
+         *
+         * @param accept
+         * @return
+         */
+        public MediaType selectMediaType(String accept) {
+            List<MediaType> acceptedMediaTypes;
+            try {
+                acceptedMediaTypes = StringUtils.isEmpty(accept)
+                        ? Collections.emptyList() : MediaType.parseMediaTypes(accept);
+            } catch (InvalidMediaTypeException e) {
+                return MediaType.APPLICATION_JSON;
+            }
+            MediaType.sortBySpecificityAndQuality(acceptedMediaTypes);
+            for (MediaType acceptedMediaType : acceptedMediaTypes) {
+                for (MediaType producibleMediaType : PRODUCIBLE_MEDIA_TYPES) {
+                    if (acceptedMediaType.isCompatibleWith(producibleMediaType)) {
+                        return producibleMediaType;
+                    }
+                }
+            }
+            return MediaType.APPLICATION_JSON;
+        }
+    }
 
+    abstract static class DeliveryReportLineDtoMixIn {
+        @JsonSerialize(using = JsonTextSerializer.class)
+        String lineItemStatus;
+    }
+
+    /**
+     * Writes a JSON text as the structure it holds, so that it can be written by generators of other formats.
+     */
+    static class JsonTextSerializer extends StdSerializer<String> {
+
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+        JsonTextSerializer() {
+            super(String.class);
+        }
+
+        @Override
+        public void serialize(String json, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            }
+        }
+    }
+
+}
@@ -16,4 +16,5 @@ public class GraphiteConfig {
     private int port;
     private String prefix;
     private boolean enabled;
+    private int histogramIntervalSec = 60;
 }
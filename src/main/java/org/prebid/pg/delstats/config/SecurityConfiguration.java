@@ -48,6 +48,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Value("${server-api-roles.get-delivery-summary-freshness}")
     private String getDeliverySummaryFreshnessRoles;
 
+    @Value("${server-api-roles.get-pbs-instance-freshness}")
+    private String getPbsInstanceFreshnessRoles;
+
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
         logger.info("serverAuthDataConfiguration={}", serverAuthDataConfiguration);
@@ -78,6 +81,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                     .hasAnyRole(getRoles(getDeliveryReportRoles))
                 .antMatchers(HttpMethod.POST, baseUrl + "/v1/report/delivery")
                     .hasAnyRole(getRoles(postDeliveryReportRoles))
+                .antMatchers(HttpMethod.POST, baseUrl + "/v1/report/delivery/batch")
+                    .hasAnyRole(getRoles(postDeliveryReportRoles))
                 .antMatchers(HttpMethod.GET, baseUrl + "/v1/report/line-item-summary")
                     .hasAnyRole(getRoles(getLineItemSummaryRoles))
                 .antMatchers(HttpMethod.POST, baseUrl + "/v1/prep-for-shutdown")
@@ -88,8 +93,12 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                     .hasRole(ADMIN_ROLE)
                 .antMatchers(HttpMethod.GET, baseUrl + "/v1/report/summary/freshness")
                     .hasAnyRole(getRoles(getDeliverySummaryFreshnessRoles))
+                .antMatchers(HttpMethod.GET, baseUrl + "/v1/report/pbs-instance/freshness")
+                    .hasAnyRole(getRoles(getPbsInstanceFreshnessRoles))
                 .antMatchers(HttpMethod.GET, baseUrl + "/v1/create/line-item-summary")
                     .hasRole(ADMIN_ROLE)
+                .antMatchers(baseUrl + "/v1/flight-recording/**")
+                    .hasRole(ADMIN_ROLE)
             .and()
                 .httpBasic()
             .and()
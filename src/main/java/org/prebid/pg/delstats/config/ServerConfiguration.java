@@ -30,6 +30,15 @@ public class ServerConfiguration {
     @Value("${api.delivery-summary-freshness.enabled}")
     private boolean deliverySummaryFreshnessApiEnabled;
 
+    @Value("${api.post-delivery-report-batch.enabled}")
+    private boolean deliveryReportBatchApiEnabled;
+
+    @Value("${api.post-delivery-report-batch.max-reports}")
+    private int deliveryReportBatchApiMaxReports;
+
+    @Value("${api.pbs-instance-freshness.enabled}")
+    private boolean pbsInstanceFreshnessApiEnabled;
+
     @Value("${api.get-line-item-summary.enabled}")
     private boolean sumApiEnabled;
 
@@ -60,9 +69,24 @@ public class ServerConfiguration {
     @Value("${services.delivery-summary.max-summary-intervals}")
     private long deliverySummaryServiceMaxSummaryIntervals;
 
+    @Value("${services.delivery-summary.cron}")
+    private String deliverySummaryServiceCron;
+
     @Value("${services.delivery-summary.enabled}")
     private boolean deliverySummaryServiceEnabled;
 
+    @Value("${services.delivery-summary.pre-aggregation-enabled}")
+    private boolean deliverySummaryServicePreAggregationEnabled;
+
+    @Value("${services.delivery-summary.shards}")
+    private int deliverySummaryServiceShards;
+
+    @Value("${services.delivery-summary.shard-timeout-sec}")
+    private int deliverySummaryServiceShardTimeoutSeconds;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size}")
+    private int datasourceMaximumPoolSize;
+
     @Value("${services.token-aggr.enabled}")
     private boolean aggregationEnabled;
 
@@ -93,18 +117,170 @@ public class ServerConfiguration {
     @Value("${services.delivery-report.instance-name-cache.expiration-unit}")
     private ChronoUnit deliveryReportInstanceNameCacheExpirationUnit;
 
+    @Value("${services.delivery-report.streaming-ingest.enabled}")
+    private boolean deliveryReportStreamingIngestEnabled;
+
+    @Value("${services.delivery-report.stage-timing.enabled}")
+    private boolean deliveryReportStageTimingEnabled;
+
+    @Value("${services.delivery-report.stage-timing.slow-request-threshold-ms}")
+    private long deliveryReportStageTimingSlowRequestThresholdMillis;
+
+    @Value("${services.delivery-report.bulk-insert.chunk-size}")
+    private int deliveryReportBulkInsertChunkSize;
+
+    @Value("${services.delivery-report.async-ingest.enabled}")
+    private boolean deliveryReportAsyncIngestEnabled;
+
+    @Value("${services.delivery-report.async-ingest.queue-capacity}")
+    private int deliveryReportAsyncIngestQueueCapacity;
+
+    @Value("${services.delivery-report.async-ingest.writer-threads}")
+    private int deliveryReportAsyncIngestWriterThreads;
+
+    @Value("${services.delivery-report.async-ingest.max-batch-reports}")
+    private int deliveryReportAsyncIngestMaxBatchReports;
+
+    @Value("${services.delivery-report.async-ingest.back-pressure}")
+    private BackPressurePolicy deliveryReportAsyncIngestBackPressure;
+
+    @Value("${services.delivery-report.async-ingest.block-timeout-ms}")
+    private long deliveryReportAsyncIngestBlockTimeoutMillis;
+
+    @Value("${services.delivery-report.async-ingest.shutdown-timeout-sec}")
+    private long deliveryReportAsyncIngestShutdownTimeoutSeconds;
+
+    @Value("${services.delivery-report.async-ingest.max-retries}")
+    private int deliveryReportAsyncIngestMaxRetries;
+
+    @Value("${services.delivery-report.async-ingest.retry-backoff-ms}")
+    private long deliveryReportAsyncIngestRetryBackoffMillis;
+
+    @Value("${services.delivery-report.spool.enabled}")
+    private boolean deliveryReportSpoolEnabled;
+
+    @Value("${services.delivery-report.spool.directory}")
+    private String deliveryReportSpoolDirectory;
+
+    @Value("${services.delivery-report.spool.segment-size-bytes}")
+    private int deliveryReportSpoolSegmentSizeBytes;
+
+    @Value("${services.delivery-report.spool.replay-batch-reports}")
+    private int deliveryReportSpoolReplayBatchReports;
+
+    @Value("${services.delivery-report.idempotency.enabled}")
+    private boolean deliveryReportIdempotencyEnabled;
+
+    @Value("${services.delivery-report.idempotency.ttl-sec}")
+    private long deliveryReportIdempotencyTtlSeconds;
+
+    @Value("${services.delivery-report.idempotency.max-report-ids}")
+    private int deliveryReportIdempotencyMaxReportIds;
+
+    @Value("${services.delivery-report.pbs-instance-registry.enabled}")
+    private boolean pbsInstanceRegistryEnabled;
+
+    @Value("${services.delivery-report.pbs-instance-registry.retention-hours}")
+    private long pbsInstanceRegistryRetentionHours;
+
+    @Value("${services.delivery-report.pbs-instance-registry.max-instances}")
+    private int pbsInstanceRegistryMaxInstances;
+
+    @Value("${services.delivery-report.pbs-instance-registry.max-lag-metrics}")
+    private int pbsInstanceRegistryMaxLagMetrics;
+
     @Value("${services.validation.enabled}")
     private boolean validationEnabled;
 
+    @Value("${services.validation.max-future-skew-sec}")
+    private long validationMaxFutureSkewSec;
+
     @Value("${services.delivery-summary-freshness-alert.enabled}")
     private boolean deliverySummaryFreshnessAlertEnabled;
 
+    @Value("${services.partition-rotation.enabled}")
+    private boolean partitionRotationEnabled;
+
+    @Value("${services.partition-rotation.partition-hours}")
+    private int partitionRotationPartitionHours;
+
+    @Value("${services.partition-rotation.future-partitions}")
+    private int partitionRotationFuturePartitions;
+
+    @Value("${services.partition-rotation.delivery-progress-reports-retention-hours}")
+    private long partitionRotationDeliveryProgressReportsRetentionHours;
+
+    @Value("${services.partition-rotation.delivery-progress-reports-summary-retention-hours}")
+    private long partitionRotationDeliveryProgressReportsSummaryRetentionHours;
+
+    @Value("${services.purge.enabled}")
+    private boolean purgeEnabled;
+
+    @Value("${services.purge.max-run-minutes}")
+    private long purgeMaxRunMinutes;
+
+    @Value("${services.purge.chunk-size}")
+    private int purgeChunkSize;
+
+    @Value("${services.purge.rows-per-second}")
+    private int purgeRowsPerSecond;
+
+    @Value("${services.purge.summary-guard-minutes}")
+    private long purgeSummaryGuardMinutes;
+
+    @Value("${services.purge.max-ingest-latency-ms}")
+    private long purgeMaxIngestLatencyMillis;
+
+    @Value("${services.purge.latency-pause-ms}")
+    private long purgeLatencyPauseMillis;
+
+    @Value("${services.purge.delivery-progress-reports-retention-hours}")
+    private long purgeDeliveryProgressReportsRetentionHours;
+
+    @Value("${services.purge.latest-token-spend-summary-retention-hours}")
+    private long purgeLatestTokenSpendSummaryRetentionHours;
+
+    @Value("${services.purge.system-state-retention-hours}")
+    private long purgeSystemStateRetentionHours;
+
     @Value("${api.recreate-line-item-summary.enabled}")
     private boolean recreateLineItemSummaryApiEnabled;
 
     @Value("${api.recreate-line-item-summary.max-look-back-in-days}")
     private int recreateLineItemSummaryApiMaxLookBackInDays;
 
-    @Value("${api.jetty-gzip-handler.enabled}")
-    private boolean jettyGzipHandlerEnabled;
+    @Value("${api.flight-recording.enabled}")
+    private boolean flightRecordingApiEnabled;
+
+    @Value("${services.flight-recording.continuous}")
+    private boolean flightRecordingContinuous;
+
+    @Value("${services.flight-recording.settings}")
+    private String flightRecordingSettings;
+
+    @Value("${services.flight-recording.directory}")
+    private String flightRecordingDirectory;
+
+    @Value("${services.flight-recording.max-age-minutes}")
+    private long flightRecordingMaxAgeMinutes;
+
+    @Value("${services.flight-recording.max-size-bytes}")
+    private long flightRecordingMaxSizeBytes;
+
+    @Value("${api.request-decompression.enabled}")
+    private boolean requestDecompressionEnabled;
+
+    @Value("${api.request-decompression.buffer-size}")
+    private int requestDecompressionBufferSize;
+
+    @Value("${api.request-decompression.pool-size}")
+    private int requestDecompressionPoolSize;
+
+    @Value("${api.request-decompression.max-inflated-bytes}")
+    private long requestDecompressionMaxInflatedBytes;
+
+    public enum BackPressurePolicy {
+        REJECT,
+        BLOCK
+    }
 }
@@ -0,0 +1,86 @@
+package org.prebid.pg.delstats.controller;
+
+import io.swagger.annotations.Api;
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.ApiNotActiveException;
+import org.prebid.pg.delstats.model.dto.FlightRecordingState;
+import org.prebid.pg.delstats.services.FlightRecordingService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * A controller for admin users to start a Java Flight Recorder recording of the service and dump it to a file.
+ */
+@Slf4j
+@RestController
+@RequestMapping("${services.admin-base-url}")
+@Api(tags = {"admin"})
+public class FlightRecordingAdminController {
+
+    private static final String FLIGHT_RECORDING_PATH = "/v1/flight-recording";
+
+    private final ServerConfiguration serverConfiguration;
+
+    private final FlightRecordingService flightRecordingService;
+
+    public FlightRecordingAdminController(ServerConfiguration serverConfiguration,
+                                          FlightRecordingService flightRecordingService) {
+        this.serverConfiguration = serverConfiguration;
+        this.flightRecordingService = flightRecordingService;
+    }
+
+    @GetMapping(path = FLIGHT_RECORDING_PATH)
+    public FlightRecordingState getFlightRecording() {
+        checkApiEnabled();
+        return flightRecordingService.getState();
+    }
+
+    /**
+     * Starts a recording.
+     *
+     * @param settings name of the JFR settings, default or profile, the configured ones if not given
+     * @return
+     */
+    @PostMapping(path = FLIGHT_RECORDING_PATH + "/start")
+    public FlightRecordingState startFlightRecording(
+            @RequestParam(value = "settings", required = false) String settings) {
+        checkApiEnabled();
+        return flightRecordingService.start(settings);
+    }
+
+    /**
+     * Dumps the running recording to a file in the configured directory, and keeps it running.
+     *
+     * @return
+     * @throws IOException
+     */
+    @PostMapping(path = FLIGHT_RECORDING_PATH + "/dump")
+    public FlightRecordingState dumpFlightRecording() throws IOException {
+        checkApiEnabled();
+        return flightRecordingService.dump();
+    }
+
+    /**
+     * Stops the running recording and dumps it to a file in the configured directory.
+     *
+     * @return
+     * @throws IOException
+     */
+    @PostMapping(path = FLIGHT_RECORDING_PATH + "/stop")
+    public FlightRecordingState stopFlightRecording() throws IOException {
+        checkApiEnabled();
+        return flightRecordingService.stop();
+    }
+
+    private void checkApiEnabled() {
+        if (!serverConfiguration.isFlightRecordingApiEnabled()) {
+            throw new ApiNotActiveException(FLIGHT_RECORDING_PATH + " is not active");
+        }
+    }
+}
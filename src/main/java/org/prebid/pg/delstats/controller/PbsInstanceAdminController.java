@@ -0,0 +1,50 @@
+package org.prebid.pg.delstats.controller;
+
+import io.swagger.annotations.Api;
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.ApiNotActiveException;
+import org.prebid.pg.delstats.model.dto.PbsInstanceStates;
+import org.prebid.pg.delstats.services.PbsInstanceRegistry;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * A controller for admin users to find PBS instances that stopped sending Delivery Progress Reports, or send them late.
+ */
+@Slf4j
+@RestController
+@RequestMapping("${services.admin-base-url}")
+@Api(tags = {"read-only"})
+public class PbsInstanceAdminController {
+
+    private final ServerConfiguration serverConfiguration;
+
+    private final PbsInstanceRegistry pbsInstanceRegistry;
+
+    public PbsInstanceAdminController(ServerConfiguration serverConfiguration,
+                                      PbsInstanceRegistry pbsInstanceRegistry) {
+        this.serverConfiguration = serverConfiguration;
+        this.pbsInstanceRegistry = pbsInstanceRegistry;
+    }
+
+    /**
+     * The last Delivery Progress Report received from each PBS instance, optionally of one vendor or region, the
+     * instances that have not reported for the longest time first.
+     *
+     * @param vendor
+     * @param region
+     * @return
+     */
+    @GetMapping(path = "/v1/report/pbs-instance/freshness")
+    public PbsInstanceStates getPbsInstanceFreshness(
+            @RequestParam(value = "vendor", required = false) String vendor,
+            @RequestParam(value = "region", required = false) String region) {
+        if (!serverConfiguration.isPbsInstanceFreshnessApiEnabled()) {
+            throw new ApiNotActiveException("/v1/report/pbs-instance/freshness is not active");
+        }
+        return pbsInstanceRegistry.getPbsInstanceStates(vendor, region);
+    }
+}
@@ -1,50 +1,81 @@
 package org.prebid.pg.delstats.controller;
 
 import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.Example;
 import io.swagger.annotations.ExampleProperty;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.CountingInputStream;
 import org.prebid.pg.delstats.alerts.AlertName;
 import org.prebid.pg.delstats.alerts.AlertPriority;
 import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.ApplicationConfiguration.BinaryMapperFactory;
 import org.prebid.pg.delstats.config.ApplicationConfiguration.CsvMapperFactory;
 import org.prebid.pg.delstats.config.DeploymentConfiguration;
 import org.prebid.pg.delstats.config.SecurityConfiguration;
 import org.prebid.pg.delstats.config.ServerConfiguration;
 import org.prebid.pg.delstats.exception.ApiNotActiveException;
 import org.prebid.pg.delstats.exception.DeliveryReportProcessingException;
+import org.prebid.pg.delstats.exception.DeliveryReportInFlightException;
+import org.prebid.pg.delstats.exception.DeliveryReportQueueFullException;
 import org.prebid.pg.delstats.exception.DeliveryReportValidationException;
+import org.prebid.pg.delstats.exception.InvalidRequestException;
+import org.prebid.pg.delstats.metrics.DeliveryReportQueryEvent;
 import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.metrics.IngestPipelineTracer;
+import org.prebid.pg.delstats.metrics.IngestStage;
+import org.prebid.pg.delstats.metrics.IngestTrace;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse.ReportResult;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse.Status;
 import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
 import org.prebid.pg.delstats.model.dto.DeliveryReportSummaryToPlannerAdapterDto;
 import org.prebid.pg.delstats.model.dto.DeliveryReportToPlannerAdapterDto;
 import org.prebid.pg.delstats.model.dto.LineItemSummaryReport;
 import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReport;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReportToPlannerAdapter;
 import org.prebid.pg.delstats.model.dto.TokenSpendSummaryDto;
 import org.prebid.pg.delstats.model.dto.Tracer;
+import org.prebid.pg.delstats.services.DeliveryReportJsonWriter;
+import org.prebid.pg.delstats.services.DeliveryReportStreamingParser;
 import org.prebid.pg.delstats.services.DeliveryReportSummaryService;
 import org.prebid.pg.delstats.services.DeliveryReportsDataService;
+import org.prebid.pg.delstats.services.PbsInstanceRegistry;
 import org.prebid.pg.delstats.services.SystemService;
 import org.prebid.pg.delstats.services.TokenSpendDataService;
 import org.prebid.pg.delstats.utils.TracerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import springfox.documentation.annotations.ApiIgnore;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -67,6 +98,8 @@ public class ServiceController {
 
     private CsvMapperFactory csvMapperFactory;
 
+    private BinaryMapperFactory binaryMapperFactory;
+
     private ServerConfiguration serverConfiguration;
 
     private DeploymentConfiguration deploymentConfiguration;
@@ -79,48 +112,250 @@ public class ServiceController {
 
     private AlertProxyHttpClient alertProxyHttpClient;
 
+    private DeliveryReportStreamingParser deliveryReportStreamingParser;
+
+    private DeliveryReportJsonWriter deliveryReportJsonWriter;
+
+    private PbsInstanceRegistry pbsInstanceRegistry;
+
+    private IngestPipelineTracer ingestPipelineTracer;
+
+    private ObjectMapper objectMapper;
+
     public ServiceController(
             @Autowired TokenSpendDataService tokenSpendDataService,
             DeliveryReportsDataService deliveryReportsDataService,
             DeliveryReportSummaryService deliverySummaryService,
             CsvMapperFactory csvMapperFactory,
+            BinaryMapperFactory binaryMapperFactory,
             ServerConfiguration serverConfiguration,
             DeploymentConfiguration deploymentConfiguration,
+            DeliveryReportStreamingParser deliveryReportStreamingParser,
+            DeliveryReportJsonWriter deliveryReportJsonWriter,
+            PbsInstanceRegistry pbsInstanceRegistry,
+            IngestPipelineTracer ingestPipelineTracer,
             SystemService systemService
     ) {
         this.tokenSpendDataService = tokenSpendDataService;
         this.deliveryReportsDataService = deliveryReportsDataService;
         this.deliverySummaryService = deliverySummaryService;
         this.csvMapperFactory = csvMapperFactory;
+        this.binaryMapperFactory = binaryMapperFactory;
         this.serverConfiguration = serverConfiguration;
         this.deploymentConfiguration = deploymentConfiguration;
         this.tracer = systemService.getTracer();
         this.shutdown = systemService.getShutdown();
         this.recorder = systemService.getRecorder();
         this.alertProxyHttpClient = systemService.getAlertProxyHttpClient();
+        this.deliveryReportStreamingParser = deliveryReportStreamingParser;
+        this.deliveryReportJsonWriter = deliveryReportJsonWriter;
+        this.pbsInstanceRegistry = pbsInstanceRegistry;
+        this.ingestPipelineTracer = ingestPipelineTracer;
+        this.objectMapper = systemService.getObjectMapper();
     }
 
     /**
      * Endpoint to accept Delivery Progress Reports from PBS instances and store them in a central repository
-     * to be summarized in the background at a later time.
+     * to be summarized in the background at a later time. Depending on configuration the request body is either
+     * read with the streaming ingest parser or bound to a {@link DeliveryReportFromPbsDto}. With asynchronous ingest
+     * enabled the report is validated and queued, and 202 Accepted is returned before it is stored. Besides JSON the
+     * report can be posted in Smile or CBOR, as told by the Content-Type header. When stage timing is enabled the time
+     * spent in each stage of storing the report is traced by an {@link IngestTrace}.
      *
-     * @param deliveryReportFromPbsDto
+     * @param requestBody
+     * @param contentType
+     * @return
+     * @throws IOException
      */
     @PostMapping(value = "/v1/report/delivery")
-    @ResponseStatus(HttpStatus.OK)
-    @ApiOperation(value = "postDeliveryReport", tags = {"pbs"}, consumes = "application/json", notes =
+    @ApiOperation(value = "postDeliveryReport", tags = {"pbs"},
+            consumes = "application/json, application/x-jackson-smile, application/cbor", notes =
             "On a scheduled basis, each PBS instance will send a Delivery Report for each line active"
                     + " since the last report was sent.")
-    @ApiResponses(
-            @ApiResponse(code = 400, message = "Delivery Report validation failed.")
+    @ApiImplicitParams(
+            @ApiImplicitParam(name = "deliveryReportFromPbsDto", paramType = "body", required = true,
+                    dataTypeClass = DeliveryReportFromPbsDto.class)
     )
-    public void storeReport(
-            @RequestBody DeliveryReportFromPbsDto deliveryReportFromPbsDto
-    ) {
+    @ApiResponses({
+            @ApiResponse(code = 202, message = "Delivery Report queued for storage."),
+            @ApiResponse(code = 400, message = "Delivery Report validation failed."),
+            @ApiResponse(code = 413, message = "Delivery Report decompresses to more than allowed."),
+            @ApiResponse(code = 429, message = "Delivery Report queue is full."),
+            @ApiResponse(code = 503, message = "Delivery Report is still being stored by an earlier delivery.")
+    })
+    public ResponseEntity<Void> postDeliveryReport(
+            @ApiIgnore InputStream requestBody,
+            @ApiIgnore @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType
+    ) throws IOException {
+        CountingInputStream countingRequestBody = new CountingInputStream(requestBody);
+        ObjectMapper inputMapper = binaryMapperFactory.getMapperForContentType(contentType, objectMapper);
+        IngestTrace trace = ingestPipelineTracer.start(false);
+        try {
+            if (serverConfiguration.isDeliveryReportStreamingIngestEnabled()) {
+                StreamedDeliveryReport streamedDeliveryReport =
+                        deliveryReportStreamingParser.parse(countingRequestBody, inputMapper.getFactory());
+                IngestTrace.lap(IngestStage.PARSE);
+                trace.addReport(streamedDeliveryReport.getMetadata().getReportId(),
+                        streamedDeliveryReport.getLineItemStatus().size(), countingRequestBody.getByteCount());
+                storeStreamedReport(streamedDeliveryReport, countingRequestBody.getByteCount());
+            } else {
+                DeliveryReportFromPbsDto deliveryReportFromPbsDto =
+                        inputMapper.readValue(countingRequestBody, DeliveryReportFromPbsDto.class);
+                IngestTrace.lap(IngestStage.PARSE);
+                if (deliveryReportFromPbsDto != null && deliveryReportFromPbsDto.getLineItemStatus() != null) {
+                    trace.addReport(deliveryReportFromPbsDto.getReportId(),
+                            deliveryReportFromPbsDto.getLineItemStatus().size(), countingRequestBody.getByteCount());
+                }
+                storeReport(deliveryReportFromPbsDto, countingRequestBody.getByteCount());
+            }
+        } finally {
+            ingestPipelineTracer.finish(trace);
+        }
+        return ResponseEntity.status(serverConfiguration.isDeliveryReportAsyncIngestEnabled()
+                ? HttpStatus.ACCEPTED : HttpStatus.OK).build();
+    }
+
+    /**
+     * Endpoint to accept a batch of Delivery Progress Reports, one JSON document per line (NDJSON), as posted by a
+     * sidecar collecting the reports of several PBS processes. Each report is validated on its own, and its outcome
+     * returned in the order of the lines; the lines of all the reports accepted are stored together.
+     *
+     * @param requestBody
+     * @return
+     * @throws IOException
+     */
+    @PostMapping(value = "/v1/report/delivery/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "postDeliveryReportBatch", tags = {"pbs"}, consumes = "application/x-ndjson",
+            response = DeliveryReportBatchResponse.class, notes =
+            "Delivery Reports of several PBS instances, one per line. The response holds the outcome of each report.")
+    @ApiResponses({
+            @ApiResponse(code = 200, message = "Outcome of each Delivery Report of the batch."),
+            @ApiResponse(code = 400, message = "Too many Delivery Reports in the batch.")
+    })
+    public DeliveryReportBatchResponse postDeliveryReportBatch(@ApiIgnore InputStream requestBody)
+            throws IOException {
+        if (!serverConfiguration.isDeliveryReportBatchApiEnabled()) {
+            throw new ApiNotActiveException("/v1/report/delivery/batch is not active");
+        }
+        if (DeploymentConfiguration.ProfileType.ALGOTEST.equals(deploymentConfiguration.getProfile())) {
+            log.error("Received Delivery Report batch in Sim Mode without Sim Time header.");
+            throw new DeliveryReportValidationException("Missing Simulation Time header.");
+        }
+        checkForShutdown();
+        recorder.markPostRequestForDeliveryReportBatch();
+        Optional<Timer.Context> optionalContext = recorder.postDeliveryReportBatchPerformanceTimer();
+        IngestTrace trace = ingestPipelineTracer.start(true);
+        try {
+            List<ReportResult> results = new ArrayList<>();
+            List<DeliveryReportFromPbsDto> validReports = new ArrayList<>();
+            List<Integer> validReportLines = new ArrayList<>();
+            List<Integer> validReportBytes = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(requestBody, StandardCharsets.UTF_8));
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (results.size() + validReports.size() >= serverConfiguration.getDeliveryReportBatchApiMaxReports()) {
+                    throw new InvalidRequestException(String.format("More than %d Delivery Reports in batch",
+                            serverConfiguration.getDeliveryReportBatchApiMaxReports()));
+                }
+                try {
+                    DeliveryReportFromPbsDto deliveryReportFromPbsDto =
+                            objectMapper.readValue(line, DeliveryReportFromPbsDto.class);
+                    IngestTrace.lap(IngestStage.PARSE);
+                    validateDeliveryReportMetadata(deliveryReportFromPbsDto);
+                    IngestTrace.lap(IngestStage.VALIDATE);
+                    TracerUtils.logIfActiveRaw(log, tracer, String.format("Delivery Report received in batch (%s)",
+                            deliveryReportFromPbsDto.getInstanceId()), deliveryReportFromPbsDto);
+                    validReports.add(deliveryReportFromPbsDto);
+                    validReportLines.add(lineNumber);
+                    validReportBytes.add(line.getBytes(StandardCharsets.UTF_8).length);
+                    trace.addReport(deliveryReportFromPbsDto.getReportId(),
+                            deliveryReportFromPbsDto.getLineItemStatus() == null
+                                    ? 0 : deliveryReportFromPbsDto.getLineItemStatus().size(),
+                            validReportBytes.get(validReportBytes.size() - 1));
+                } catch (IOException | DeliveryReportValidationException ex) {
+                    log.info("Rejected Delivery Report on line {} of batch: {}", lineNumber, ex.getMessage());
+                    results.add(ReportResult.builder().line(lineNumber).status(Status.REJECTED)
+                            .message(ex.getMessage()).build());
+                }
+            }
+            log.info("Received Delivery Report batch with {} valid and {} invalid reports",
+                    validReports.size(), results.size());
+
+            List<ReportResult> storedResults = storeReportBatch(validReports);
+            for (int i = 0; i < storedResults.size(); i++) {
+                ReportResult result = storedResults.get(i);
+                result.setLine(validReportLines.get(i));
+                if (result.getStatus().isAccepted()) {
+                    pbsInstanceRegistry.recordReport(validReports.get(i),
+                            validReports.get(i).getLineItemStatus() == null
+                                    ? 0 : validReports.get(i).getLineItemStatus().size(),
+                            validReportBytes.get(i));
+                }
+            }
+            results.addAll(storedResults);
+            results.sort(Comparator.comparingInt(ReportResult::getLine));
+            int accepted = (int) results.stream().filter(result -> result.getStatus().isAccepted()).count();
+            return DeliveryReportBatchResponse.builder()
+                    .accepted(accepted)
+                    .rejected(results.size() - accepted)
+                    .results(results)
+                    .build();
+        } finally {
+            ingestPipelineTracer.finish(trace);
+            optionalContext.ifPresent(Timer.Context::close);
+        }
+    }
+
+    private List<ReportResult> storeReportBatch(List<DeliveryReportFromPbsDto> deliveryReports) {
+        if (deliveryReports.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return deliveryReportsDataService.storeReportBatch(deliveryReports);
+        } catch (Exception e) {
+            String msg = "storeReportBatch::Unexpected exception";
+            alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.HIGH, e);
+            throw new DeliveryReportProcessingException(e.getMessage());
+        }
+    }
+
+    /**
+     * Stores a Delivery Progress Report bound to a {@link DeliveryReportFromPbsDto}.
+     *
+     * @param deliveryReportFromPbsDto
+     */
+    public void storeReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto) {
+        storeReport(deliveryReportFromPbsDto, 0);
+    }
+
+    private void storeReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto, long bytesReceived) {
         if (deliveryReportFromPbsDto == null) {
             throw new DeliveryReportValidationException("No Delivery Report contents");
         }
+        doStoreReport(deliveryReportFromPbsDto, deliveryReportFromPbsDto.getLineItemStatus().size(), bytesReceived,
+                () -> deliveryReportsDataService.storeReport(deliveryReportFromPbsDto));
+    }
 
+    /**
+     * Stores a Delivery Progress Report read by the streaming ingest parser.
+     *
+     * @param streamedDeliveryReport
+     */
+    public void storeStreamedReport(StreamedDeliveryReport streamedDeliveryReport) {
+        storeStreamedReport(streamedDeliveryReport, 0);
+    }
+
+    private void storeStreamedReport(StreamedDeliveryReport streamedDeliveryReport, long bytesReceived) {
+        doStoreReport(streamedDeliveryReport.getMetadata(), streamedDeliveryReport.getLineItemStatus().size(),
+                bytesReceived, () -> deliveryReportsDataService.storeStreamedReport(streamedDeliveryReport));
+    }
+
+    private void doStoreReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto, int lineItemStatusCount,
+                               long bytesReceived, Runnable storeReport) {
         if (DeploymentConfiguration.ProfileType.ALGOTEST.equals(deploymentConfiguration.getProfile())) {
             log.error("Received Delivery Report in Sim Mode without Sim Time header.");
             throw new DeliveryReportValidationException("Missing Simulation Time header.");
@@ -131,16 +366,20 @@ public class ServiceController {
                 deliveryReportFromPbsDto.getInstanceId()
         );
         log.info("Received Delivery Report {} with {} lines from {}", deliveryReportFromPbsDto.getReportId(),
-                deliveryReportFromPbsDto.getLineItemStatus().size(), source);
+                lineItemStatusCount, source);
         checkForShutdown();
         validateDeliveryReportMetadata(deliveryReportFromPbsDto);
+        IngestTrace.lap(IngestStage.VALIDATE);
         log.info("Validated meta data in Delivery Report {}", deliveryReportFromPbsDto.getReportId());
         recorder.markPostRequestForDeliveryReport();
         TracerUtils.logIfActiveRaw(log, tracer, String.format("Delivery Report received (%s)", source),
                 deliveryReportFromPbsDto);
         Optional<Timer.Context> optionalContext = recorder.postDeliveryReportPerformanceTimer();
         try {
-            deliveryReportsDataService.storeReport(deliveryReportFromPbsDto);
+            storeReport.run();
+            pbsInstanceRegistry.recordReport(deliveryReportFromPbsDto, lineItemStatusCount, bytesReceived);
+        } catch (DeliveryReportQueueFullException | DeliveryReportInFlightException e) {
+            throw e;
         } catch (Exception e) {
             String msg = "storeReport::Unexpected exception";
             alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.HIGH, e);
@@ -153,23 +392,31 @@ public class ServiceController {
     /**
      * Endpoint to fetch raw Delivery Progress Reports for Planning Adapters. The results can be filtered on
      * bidderCode and start and end times. If not provided, configurable settings are used to determine the time frame
-     * based on the system clock. Because of the volume of data that can be returned, the results will be compressed.
+     * based on the system clock. Because of the volume of data that can be returned, the results will be compressed,
+     * and are written out as they are read from the DB instead of being collected first. They are written in JSON,
+     * Smile or CBOR, whichever the Accept header prefers.
      *
      * @param authentication
      * @param bidderCode
      * @param startTime
      * @param endTime
+     * @param accept
      * @return
      */
-    @GetMapping(value = "/v1/report/delivery", produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.OK)
-    @ApiOperation(value = "getDeliveryReports", tags = {"pa"}, produces = "application/json", notes =
+    @GetMapping(value = "/v1/report/delivery", produces = {MediaType.APPLICATION_JSON_VALUE,
+            BinaryMapperFactory.APPLICATION_SMILE_VALUE, BinaryMapperFactory.APPLICATION_CBOR_VALUE})
+    @ApiOperation(value = "getDeliveryReports", tags = {"pa"},
+            produces = "application/json, application/x-jackson-smile, application/cbor",
+            response = DeliveryReportToPlannerAdapterDto.class, notes =
             "Set of all delivery reports sent by PBS instances with matching bidder code from the startTime"
                     + " (inclusive) to the end time (exclusive).")
-    public DeliveryReportToPlannerAdapterDto getDeliveryReports(@ApiIgnore Authentication authentication,
-                                                                @RequestParam String bidderCode,
-                                                                @RequestParam(required = false) String startTime,
-                                                                @RequestParam(required = false) String endTime) {
+    public ResponseEntity<StreamingResponseBody> getDeliveryReports(
+            @ApiIgnore Authentication authentication,
+            @RequestParam String bidderCode,
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String endTime,
+            @ApiIgnore @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
         if (!serverConfiguration.isPaApiEnabled()) {
             throw new ApiNotActiveException("/v1/report/delivery is not active");
         }
@@ -181,23 +428,44 @@ public class ServiceController {
                 startTime, endTime, bidderCode
         );
 
-        DeliveryReportToPlannerAdapterDto deliveryReportToPlannerAdapterDto;
+        StreamedDeliveryReportToPlannerAdapter deliveryReport;
+        DeliveryReportQueryEvent event = beginQueryEvent("/v1/report/delivery", bidderCode, null, null,
+                startTime, endTime);
         Optional<Timer.Context> optionalContext = recorder.getDeliveryReportsPerformanceTimer();
-        int recordsReturned = 0;
         try {
-            deliveryReportToPlannerAdapterDto =
-                    deliveryReportsDataService.retrieveByBidderCode(bidderCode, startTime, endTime);
-            recordsReturned = deliveryReportToPlannerAdapterDto.getDeliveryReports().size();
+            deliveryReport = deliveryReportsDataService.streamByBidderCode(bidderCode, startTime, endTime);
         } catch (Exception e) {
+            optionalContext.ifPresent(Timer.Context::stop);
+            commitQueryEvent(event, 0);
             String msg = "getReport::Unexpected exception";
             alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.HIGH, e);
             throw new DeliveryReportProcessingException(e.getMessage());
+        }
+        MediaType mediaType = binaryMapperFactory.selectMediaType(accept);
+        ObjectMapper outputMapper = binaryMapperFactory.getMapper(mediaType, objectMapper);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(out -> writeDeliveryReports(deliveryReport, out, outputMapper, optionalContext, event));
+    }
+
+    void writeDeliveryReports(StreamedDeliveryReportToPlannerAdapter deliveryReport, OutputStream out,
+                              ObjectMapper outputMapper, Optional<Timer.Context> optionalContext,
+                              DeliveryReportQueryEvent event) throws IOException {
+        int recordsReturned = 0;
+        try {
+            recordsReturned = deliveryReportJsonWriter.write(deliveryReport, out, outputMapper);
+            recorder.markDeliveryReportRecordsFetched(recordsReturned);
+        } catch (IOException | RuntimeException e) {
+            // The response is committed by now, so failing the write is all that can tell the client
+            String msg = "getReport::Unexpected exception writing Delivery Reports";
+            alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.HIGH, e);
+            throw e;
         } finally {
+            commitQueryEvent(event, recordsReturned);
             String millisSpent = String.format("%.03f",
                     optionalContext.map(Timer.Context::stop).orElse(0L) / 1_000_000.0);
             log.info("Returned {} Delivery Reports after {} milliseconds", recordsReturned, millisSpent);
         }
-        return deliveryReportToPlannerAdapterDto;
     }
 
     boolean validateRoleForBidderCode(Authentication authentication, @RequestParam String bidderCode) {
@@ -226,9 +494,11 @@ public class ServiceController {
      * @param region
      * @return
      */
-    @GetMapping("/v1/report/token-spend")
+    @GetMapping(value = "/v1/report/token-spend", produces = {MediaType.APPLICATION_JSON_VALUE,
+            BinaryMapperFactory.APPLICATION_SMILE_VALUE, BinaryMapperFactory.APPLICATION_CBOR_VALUE})
     @ResponseStatus(HttpStatus.OK)
-    @ApiOperation(value = "getTokenSpend", tags = {"gp"}, produces = "application/json", notes =
+    @ApiOperation(value = "getTokenSpend", tags = {"gp"},
+            produces = "application/json, application/x-jackson-smile, application/cbor", notes =
             "Set of all token spend reports aggregated since last request or since a requested time.")
     public TokenSpendSummaryDto getTokenSpendReports(@RequestParam(required = false) String since,
                                                      @RequestParam(required = false) String vendor,
@@ -248,10 +518,11 @@ public class ServiceController {
         recorder.markGetRequestForTokenSpend();
         TracerUtils.traceAsInfoOrlogAsInfo(log, tracer, String.format("Token Spend Summary requested since %s", since));
 
+        DeliveryReportQueryEvent event = beginQueryEvent("/v1/report/token-spend", null, vendor, region, since, null);
         Optional<Timer.Context> optionalContext = recorder.getTokenSpendPerformanceTimer();
+        int size = 0;
         try {
             TokenSpendSummaryDto dto = tokenSpendDataService.getTokenSpendSummary(since, vendor, region);
-            int size = 0;
             if (dto != null && dto.getTokenSpendSummaryLines() != null) {
                 size = dto.getTokenSpendSummaryLines().size();
             }
@@ -262,6 +533,7 @@ public class ServiceController {
             alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.HIGH, e);
             throw new DeliveryReportProcessingException(e.getMessage());
         } finally {
+            commitQueryEvent(event, size);
             optionalContext.ifPresent(Timer.Context::close);
         }
     }
@@ -277,9 +549,11 @@ public class ServiceController {
      * @param endTime
      * @return
      */
-    @GetMapping(value = "/v2/report/delivery", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/v2/report/delivery", produces = {MediaType.APPLICATION_JSON_VALUE,
+            BinaryMapperFactory.APPLICATION_SMILE_VALUE, BinaryMapperFactory.APPLICATION_CBOR_VALUE})
     @ResponseStatus(HttpStatus.OK)
-    @ApiOperation(value = "getSummarizedDeliveryReports", tags = {"pa"}, produces = "application/json", notes =
+    @ApiOperation(value = "getSummarizedDeliveryReports", tags = {"pa"},
+            produces = "application/json, application/x-jackson-smile, application/cbor", notes =
             "Summarized set of all delivery reports sent by PBS instances with matching bidder code from the startTime"
                     + " (inclusive) to the end time (exclusive).")
     public DeliveryReportSummaryToPlannerAdapterDto getDeliveryReportsV2(
@@ -299,14 +573,23 @@ public class ServiceController {
                 startTime, endTime, bidderCode
         );
 
+        DeliveryReportQueryEvent event = beginQueryEvent("/v2/report/delivery", bidderCode, null, null,
+                startTime, endTime);
         Optional<Timer.Context> optionalContext = recorder.getDeliveryReportsPerformanceTimer();
+        int recordsReturned = 0;
         try {
-            return deliverySummaryService.getDeliverySummaryReport(startTime, endTime);
+            DeliveryReportSummaryToPlannerAdapterDto dto =
+                    deliverySummaryService.getDeliverySummaryReport(startTime, endTime);
+            if (dto != null && dto.getLineDeliverySummaries() != null) {
+                recordsReturned = dto.getLineDeliverySummaries().size();
+            }
+            return dto;
         } catch (Exception e) {
             String msg = "getReportV2::Unexpected exception";
             alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.HIGH, e);
             throw new DeliveryReportProcessingException(e.getMessage());
         } finally {
+            commitQueryEvent(event, recordsReturned);
             String millisSpent = String.format("%.03f",
                     optionalContext.map(Timer.Context::stop).orElse(0L) / 1_000_000.0);
             log.info("Returned V2 Delivery Reports after {} milliseconds", millisSpent);
@@ -353,8 +636,10 @@ public class ServiceController {
         TracerUtils.logIfActiveMatchLineItemIds(log, tracer, lineItemIds,
                 String.format("Delivery Progress Reports Stats requested from %s for lineItemIds = %s",
                         startTime, lineItemIds));
+        DeliveryReportQueryEvent event = beginQueryEvent("/v1/report/line-item-summary", null, null, null,
+                startTime, null);
         Optional<Timer.Context> optionalContext = recorder.getDeliveryReportLinesPerformanceTimer();
-
+        int recordsReturned = 0;
         try {
             LineItemSummaryReport.LineItemSummaryRequest req = LineItemSummaryReport.validateLineItemSummaryRequest(
                     metrics, startTime, null, 60, serverConfiguration);
@@ -362,6 +647,7 @@ public class ServiceController {
                     req.getStartTime(), req.getEndTime(), req.getInterval(), lineItemIds);
             List<Map<String, Object>> lineItemSummaries = deliverySummaryService.getLineItemSummaryReport(
                     lineItemIds, req.getStartTime(), req.getEndTime(), req.getMetrics(), req.getInterval());
+            recordsReturned = lineItemSummaries.size();
             return csvMapperFactory.getCsvMapper().writerFor(List.class)
                     .with(LineItemSummaryReport.csvSchema(req.getMetrics()))
                     .writeValueAsString(lineItemSummaries);
@@ -371,10 +657,29 @@ public class ServiceController {
             alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.HIGH, e);
             throw new DeliveryReportProcessingException(e.getMessage());
         } finally {
+            commitQueryEvent(event, recordsReturned);
             optionalContext.ifPresent(Timer.Context::close);
         }
     }
 
+    private static DeliveryReportQueryEvent beginQueryEvent(String endpoint, String bidderCode, String vendor,
+                                                            String region, String startTime, String endTime) {
+        DeliveryReportQueryEvent event = new DeliveryReportQueryEvent();
+        event.setEndpoint(endpoint);
+        event.setBidderCode(bidderCode);
+        event.setVendor(vendor);
+        event.setRegion(region);
+        event.setStartTime(startTime);
+        event.setEndTime(endTime);
+        event.begin();
+        return event;
+    }
+
+    private static void commitQueryEvent(DeliveryReportQueryEvent event, int recordsReturned) {
+        event.setRecordsReturned(recordsReturned);
+        event.commit();
+    }
+
     /**
      * Provides basic validation of Delivery Progress Reports received from PBS instances. A configurable setting can
      * be used to disabled this validation if needed.
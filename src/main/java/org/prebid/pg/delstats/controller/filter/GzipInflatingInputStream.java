@@ -0,0 +1,212 @@
+package org.prebid.pg.delstats.controller.filter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads gzip data (RFC 1952), of one or more members one after the other, inflating it with an Inflater and input
+ * buffer borrowed from an {@link InflaterPool} until the stream is closed. Unlike
+ * {@link java.util.zip.GZIPInputStream}, which creates an Inflater per stream, nothing is allocated per request but
+ * this object. The header is only read on the first read, so that a malformed body fails whoever reads it rather than
+ * the code wrapping it. Closing the stream also closes the stream it reads from.
+ */
+final class GzipInflatingInputStream extends InputStream {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final int DEFLATE_METHOD = 8;
+
+    private static final int FHCRC = 2;
+
+    private static final int FEXTRA = 4;
+
+    private static final int FNAME = 8;
+
+    private static final int FCOMMENT = 16;
+
+    // MTIME, XFL and OS
+    private static final int HEADER_FIELDS_SKIPPED = 6;
+
+    private final InputStream in;
+
+    private final InflaterPool inflaterPool;
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] singleByte = new byte[1];
+
+    private InflaterPool.PooledInflater pooledInflater;
+
+    private Inflater inflater;
+
+    private byte[] buffer;
+
+    // Bytes of the buffer before position were given to the inflater or read as header or trailer
+    private int position;
+
+    private int limit;
+
+    private boolean headerRead;
+
+    private boolean endOfStream;
+
+    GzipInflatingInputStream(InputStream in, InflaterPool inflaterPool) {
+        this.in = in;
+        this.inflaterPool = inflaterPool;
+        this.pooledInflater = inflaterPool.acquire();
+        this.inflater = pooledInflater.getInflater();
+        this.buffer = pooledInflater.getBuffer();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (pooledInflater == null) {
+            throw new IOException("Stream closed");
+        }
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!headerRead) {
+            startMember();
+            headerRead = true;
+        }
+        while (!endOfStream) {
+            if (inflater.needsInput()) {
+                if (fill() == -1) {
+                    throw new EOFException("Unexpected end of gzip data");
+                }
+                inflater.setInput(buffer, 0, limit);
+                position = limit;
+            }
+            int inflated;
+            try {
+                inflated = inflater.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid gzip data");
+            }
+            if (inflated > 0) {
+                crc.update(b, off, inflated);
+                return inflated;
+            }
+            if (inflater.finished()) {
+                position = limit - inflater.getRemaining();
+                readTrailer();
+                if (hasMoreInput()) {
+                    inflater.reset();
+                    crc.reset();
+                    startMember();
+                } else {
+                    endOfStream = true;
+                }
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("Preset dictionaries are not supported in gzip data");
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pooledInflater != null) {
+            InflaterPool.PooledInflater released = pooledInflater;
+            pooledInflater = null;
+            inflater = null;
+            buffer = null;
+            inflaterPool.release(released);
+        }
+        in.close();
+    }
+
+    /**
+     * Reads the header of a member and hands the bytes already buffered after it to the inflater.
+     */
+    private void startMember() throws IOException {
+        if (readUnsignedShort() != GZIP_MAGIC) {
+            throw new ZipException("Not in gzip format");
+        }
+        if (readUnsignedByte() != DEFLATE_METHOD) {
+            throw new ZipException("Unsupported gzip compression method");
+        }
+        int flags = readUnsignedByte();
+        skipBytes(HEADER_FIELDS_SKIPPED);
+        if ((flags & FEXTRA) != 0) {
+            skipBytes(readUnsignedShort());
+        }
+        if ((flags & FNAME) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FHCRC) != 0) {
+            skipBytes(2);
+        }
+        if (position < limit) {
+            inflater.setInput(buffer, position, limit - position);
+            position = limit;
+        }
+    }
+
+    private void readTrailer() throws IOException {
+        long expectedCrc = readUnsignedInt();
+        long expectedSize = readUnsignedInt();
+        if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("Corrupt gzip trailer");
+        }
+    }
+
+    private boolean hasMoreInput() throws IOException {
+        return position < limit || fill() != -1;
+    }
+
+    private int fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = in.read(buffer, 0, buffer.length);
+        }
+        position = 0;
+        limit = Math.max(read, 0);
+        return read;
+    }
+
+    private int readUnsignedByte() throws IOException {
+        if (position == limit && fill() == -1) {
+            throw new EOFException("Unexpected end of gzip data");
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private int readUnsignedShort() throws IOException {
+        return readUnsignedByte() | (readUnsignedByte() << 8);
+    }
+
+    private long readUnsignedInt() throws IOException {
+        return readUnsignedShort() | ((long) readUnsignedShort() << 16);
+    }
+
+    private void skipBytes(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readUnsignedByte();
+        }
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        int b = readUnsignedByte();
+        while (b != 0) {
+            b = readUnsignedByte();
+        }
+    }
+}
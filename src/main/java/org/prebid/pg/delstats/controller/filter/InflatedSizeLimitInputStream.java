@@ -0,0 +1,38 @@
+package org.prebid.pg.delstats.controller.filter;
+
+import org.apache.commons.io.input.ProxyInputStream;
+import org.prebid.pg.delstats.exception.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a decompressing stream, failing the read that takes them past a limit, so that a small
+ * body inflating into a huge one is stopped before the parsers reading it have built it up in memory.
+ */
+final class InflatedSizeLimitInputStream extends ProxyInputStream {
+
+    private final long maxBytes;
+
+    private long byteCount;
+
+    InflatedSizeLimitInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    protected void afterRead(int n) throws IOException {
+        if (n > 0) {
+            byteCount += n;
+            if (byteCount > maxBytes) {
+                throw new PayloadTooLargeException(
+                        String.format("Request body inflates to more than %d bytes", maxBytes));
+            }
+        }
+    }
+
+    long getByteCount() {
+        return byteCount;
+    }
+}
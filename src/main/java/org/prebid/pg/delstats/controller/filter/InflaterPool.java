@@ -0,0 +1,68 @@
+package org.prebid.pg.delstats.controller.filter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps Inflaters for raw deflate data, each with an input buffer, for reuse by the request bodies decompressed one
+ * after the other. Creating an Inflater allocates native memory that is only freed by end() or finalization, so
+ * reusing them spares both the allocation and the finalizer. At most maxIdle of them are kept; any more given back are
+ * ended.
+ */
+final class InflaterPool {
+
+    private final int bufferSize;
+
+    private final BlockingQueue<PooledInflater> idle;
+
+    InflaterPool(int bufferSize, int maxIdle) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    PooledInflater acquire() {
+        PooledInflater pooledInflater = idle.poll();
+        return pooledInflater != null ? pooledInflater : new PooledInflater(new Inflater(true), new byte[bufferSize]);
+    }
+
+    void release(PooledInflater pooledInflater) {
+        pooledInflater.getInflater().reset();
+        if (!idle.offer(pooledInflater)) {
+            pooledInflater.getInflater().end();
+        }
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    void clear() {
+        for (PooledInflater pooledInflater = idle.poll(); pooledInflater != null; pooledInflater = idle.poll()) {
+            pooledInflater.getInflater().end();
+        }
+    }
+
+    static final class PooledInflater {
+
+        private final Inflater inflater;
+
+        private final byte[] buffer;
+
+        private PooledInflater(Inflater inflater, byte[] buffer) {
+            this.inflater = inflater;
+            this.buffer = buffer;
+        }
+
+        Inflater getInflater() {
+            return inflater;
+        }
+
+        byte[] getBuffer() {
+            return buffer;
+        }
+    }
+}
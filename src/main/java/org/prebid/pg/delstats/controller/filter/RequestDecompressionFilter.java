@@ -0,0 +1,229 @@
+package org.prebid.pg.delstats.controller.filter;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.services.SystemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Decompresses request bodies sent with a Content-Encoding of gzip or zstd while the controllers read them, so that
+ * they only ever see the JSON (or Smile or CBOR) itself. Gzip is inflated with Inflaters and input buffers of the
+ * configured size taken from a pool, zstd with the buffers zstd-jni recycles. Reading more decompressed bytes than
+ * configured fails the request with 413 Payload Too Large, and any other encoding is refused with 415. The bytes
+ * received and inflated are counted per encoding.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(RequestDecompressionFilter.class);
+
+    static final String GZIP = "gzip";
+
+    static final String X_GZIP = "x-gzip";
+
+    static final String ZSTD = "zstd";
+
+    static final String IDENTITY = "identity";
+
+    private final ServerConfiguration configuration;
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final InflaterPool inflaterPool;
+
+    public RequestDecompressionFilter(ServerConfiguration configuration, SystemService systemService) {
+        this.configuration = configuration;
+        this.recorder = systemService.getRecorder();
+        this.inflaterPool = new InflaterPool(configuration.getRequestDecompressionBufferSize(),
+                configuration.getRequestDecompressionPoolSize());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !configuration.isRequestDecompressionEnabled()
+                || request.getHeader(HttpHeaders.CONTENT_ENCODING) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING).trim().toLowerCase(Locale.ROOT);
+        if (encoding.isEmpty() || IDENTITY.equals(encoding)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!GZIP.equals(encoding) && !X_GZIP.equals(encoding) && !ZSTD.equals(encoding)) {
+            logger.info("Refused request body with Content-Encoding {}", encoding);
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+                    String.format("Content-Encoding %s is not supported", encoding));
+            return;
+        }
+
+        // The servlet container owns the request stream, so closing the decompressing streams leaves it open
+        CountingInputStream compressed = new CountingInputStream(new CloseShieldInputStream(request.getInputStream()));
+        InputStream decompressing = ZSTD.equals(encoding)
+                ? new ZstdInputStreamNoFinalizer(compressed, RecyclingBufferPool.INSTANCE)
+                : new GzipInflatingInputStream(compressed, inflaterPool);
+        InflatedSizeLimitInputStream inflated = new InflatedSizeLimitInputStream(decompressing,
+                configuration.getRequestDecompressionMaxInflatedBytes());
+        try {
+            filterChain.doFilter(new DecompressedRequest(request, inflated), response);
+        } finally {
+            inflated.close();
+            recorder.markRequestBytesDecompressed(ZSTD.equals(encoding) ? ZSTD : GZIP, compressed.getByteCount(),
+                    inflated.getByteCount());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        inflaterPool.clear();
+    }
+
+    int getIdleInflaterCount() {
+        return inflaterPool.getIdleCount();
+    }
+
+    /**
+     * The request as if it had been sent without Content-Encoding, of a length unknown until read.
+     */
+    private static final class DecompressedRequest extends HttpServletRequestWrapper {
+
+        private final DecompressedInputStream inputStream;
+
+        private BufferedReader reader;
+
+        DecompressedRequest(HttpServletRequest request, InputStream inflated) {
+            super(request);
+            this.inputStream = new DecompressedInputStream(inflated);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            if (reader == null) {
+                String characterEncoding = getCharacterEncoding();
+                Charset charset = characterEncoding != null
+                        ? Charset.forName(characterEncoding) : StandardCharsets.UTF_8;
+                reader = new BufferedReader(new InputStreamReader(inputStream, charset));
+            }
+            return reader;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isHidden(name))
+                    .collect(Collectors.toList());
+            return Collections.enumeration(names);
+        }
+
+        @Override
+        public int getIntHeader(String name) {
+            return isHidden(name) ? -1 : super.getIntHeader(name);
+        }
+
+        private static boolean isHidden(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                    || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    private static final class DecompressedInputStream extends ServletInputStream {
+
+        private final InputStream in;
+
+        private boolean finished;
+
+        DecompressedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            finished = b == -1;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            finished = n == -1;
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Decompressed request bodies are only read blocking");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
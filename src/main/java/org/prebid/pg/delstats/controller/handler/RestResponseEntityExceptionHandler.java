@@ -1,15 +1,19 @@
 package org.prebid.pg.delstats.controller.handler;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import org.hibernate.exception.ConstraintViolationException;
 import org.prebid.pg.delstats.exception.ApiNotActiveException;
+import org.prebid.pg.delstats.exception.DeliveryReportInFlightException;
 import org.prebid.pg.delstats.exception.DeliveryReportProcessingException;
+import org.prebid.pg.delstats.exception.DeliveryReportQueueFullException;
 import org.prebid.pg.delstats.exception.DeliveryReportValidationException;
 import org.prebid.pg.delstats.exception.InvalidLineItemIdFormatException;
 import org.prebid.pg.delstats.exception.InvalidRequestException;
 import org.prebid.pg.delstats.exception.InvalidTimestampFormatException;
 import org.prebid.pg.delstats.exception.MissingTransactionIdException;
+import org.prebid.pg.delstats.exception.PayloadTooLargeException;
 import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -103,6 +107,17 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
                 new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
     }
 
+    @ExceptionHandler(value = { DeliveryReportQueueFullException.class })
+    protected ResponseEntity<Object> handleDeliveryReportQueueFullException(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.TOO_MANY_REQUESTS, request);
+    }
+
+    @ExceptionHandler(value = { DeliveryReportInFlightException.class })
+    protected ResponseEntity<Object> handleDeliveryReportInFlightException(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE,
+                request);
+    }
+
     @ExceptionHandler(value = { MissingTransactionIdException.class })
     protected ResponseEntity<Object> handleMissingTransactionIds(RuntimeException ex, WebRequest request) {
         graphiteMetricsRecorder.markMissingTransactionIdMeter();
@@ -145,6 +160,30 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
         return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
     }
 
+    @ExceptionHandler(value = { PayloadTooLargeException.class })
+    protected ResponseEntity<Object> handlePayloadTooLarge(PayloadTooLargeException ex, WebRequest request) {
+        graphiteMetricsRecorder.markRequestTooLargeMeter();
+        return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.PAYLOAD_TOO_LARGE, request);
+    }
+
+    /**
+     * Bodies read directly off the request stream (rather than through a message converter) surface Jackson
+     * failures as-is, so answer them the same way {@link #handleHttpMessageNotReadable} does.
+     */
+    @ExceptionHandler(value = { JsonProcessingException.class })
+    protected ResponseEntity<Object> handleJsonProcessingException(JsonProcessingException ex, WebRequest request) {
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof PayloadTooLargeException) {
+                return handlePayloadTooLarge((PayloadTooLargeException) cause, request);
+            }
+        }
+        graphiteMetricsRecorder.markInvalidRequestMeter();
+        String bodyOfResponse = ex instanceof JsonMappingException
+                ? INVALID_JSON_MAPPING_MESSAGE_PREFIX + ex.getMessage()
+                : INVALID_JSON_PARSING_MESSAGE_PREFIX + ex.getMessage();
+        return handleExceptionInternal(ex, bodyOfResponse, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
     @Override
     protected ResponseEntity<Object> handleHttpMessageNotReadable(
             HttpMessageNotReadableException ex, HttpHeaders headers, HttpStatus status, WebRequest request) {
@@ -0,0 +1,7 @@
+package org.prebid.pg.delstats.exception;
+
+public class DeliveryReportInFlightException extends RuntimeException {
+    public DeliveryReportInFlightException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,7 @@
+package org.prebid.pg.delstats.exception;
+
+public class DeliveryReportQueueFullException extends RuntimeException {
+    public DeliveryReportQueueFullException(String errorMessage) {
+        super(errorMessage);
+    }
+}
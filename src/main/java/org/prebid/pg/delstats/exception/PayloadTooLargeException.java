@@ -0,0 +1,15 @@
+package org.prebid.pg.delstats.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown while a request body is read, so that it passes through the parsers reading it like any other failure to
+ * read the body.
+ */
+public class PayloadTooLargeException extends IOException {
+
+    public PayloadTooLargeException(String errorMessage) {
+        super(errorMessage);
+    }
+
+}
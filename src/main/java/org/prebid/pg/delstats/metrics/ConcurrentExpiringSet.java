@@ -0,0 +1,95 @@
+package org.prebid.pg.delstats.metrics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalUnit;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Set whose entries expire a fixed time after they were last added, keeping the time each entry was last seen in a
+ * concurrent map. Expired entries are swept lazily: at most once every quarter of the expiration time, by whichever
+ * thread adds an entry or asks for the size first after that, without blocking the others. The size is therefore
+ * approximate, possibly counting entries that expired since the last sweep, while contains is exact.
+ *
+ * @param <T>
+ */
+public class ConcurrentExpiringSet<T> {
+
+    private static final int SWEEPS_PER_EXPIRATION = 4;
+
+    private final long expirationMillis;
+
+    private final long sweepIntervalMillis;
+
+    private final ConcurrentHashMap<T, Long> lastSeenMillis = new ConcurrentHashMap<>();
+
+    private final AtomicLong nextSweepMillis = new AtomicLong();
+
+    private Clock clock = Clock.systemUTC();
+
+    public ConcurrentExpiringSet(int expirationTimeAmount, TemporalUnit expirationTimeUnit) {
+        Objects.requireNonNull(expirationTimeUnit);
+        this.expirationMillis = Duration.of(expirationTimeAmount, expirationTimeUnit).toMillis();
+        this.sweepIntervalMillis = Math.max(1, expirationMillis / SWEEPS_PER_EXPIRATION);
+    }
+
+    public ConcurrentExpiringSet() {
+        this(1, ChronoUnit.HOURS);
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Add an entry, or restart its expiration time if already present. Null entries are ignored.
+     *
+     * @param entry
+     * @return true if the entry was not in the set
+     */
+    public boolean add(T entry) {
+        if (entry == null) {
+            return false;
+        }
+        long now = clock.millis();
+        Long previous = lastSeenMillis.put(entry, now);
+        sweepIfDue(now);
+        return previous == null || isExpired(previous, now);
+    }
+
+    public boolean contains(T entry) {
+        if (entry == null) {
+            return false;
+        }
+        Long lastSeen = lastSeenMillis.get(entry);
+        return lastSeen != null && !isExpired(lastSeen, clock.millis());
+    }
+
+    public int size() {
+        sweepIfDue(clock.millis());
+        return lastSeenMillis.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private void sweepIfDue(long now) {
+        long nextSweep = nextSweepMillis.get();
+        if (now >= nextSweep && nextSweepMillis.compareAndSet(nextSweep, now + sweepIntervalMillis)) {
+            // Only removes an entry if it was not added again since it was read
+            lastSeenMillis.forEach((entry, lastSeen) -> {
+                if (isExpired(lastSeen, now)) {
+                    lastSeenMillis.remove(entry, lastSeen);
+                }
+            });
+        }
+    }
+
+    private boolean isExpired(long lastSeen, long now) {
+        return now - lastSeen >= expirationMillis;
+    }
+}
@@ -0,0 +1,43 @@
+package org.prebid.pg.delstats.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * Flight Recorder event spanning a request to one of the GET endpoints, until its response is written. The start and
+ * end times are those requested, if any.
+ */
+@Name("org.prebid.pg.delstats.DeliveryReportQuery")
+@Label("Delivery Report Query")
+@Category({"PG Delivery Stats", "Query"})
+@Description("Request to a GET endpoint for Delivery Reports, summaries or token spend")
+@StackTrace(false)
+@Setter
+public class DeliveryReportQueryEvent extends Event {
+
+    @Label("Endpoint")
+    private String endpoint;
+
+    @Label("Bidder Code")
+    private String bidderCode;
+
+    @Label("Vendor")
+    private String vendor;
+
+    @Label("Region")
+    private String region;
+
+    @Label("Start Time")
+    private String startTime;
+
+    @Label("End Time")
+    private String endTime;
+
+    @Label("Records Returned")
+    private int recordsReturned;
+}
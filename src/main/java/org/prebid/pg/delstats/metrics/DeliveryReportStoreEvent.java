@@ -0,0 +1,47 @@
+package org.prebid.pg.delstats.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * Flight Recorder event spanning the validation, conversion and storage of the line item status entries of posted
+ * Delivery Reports, or their queueing when asynchronous ingest is enabled. A batch is recorded as one event, without
+ * the report id and source of any one report.
+ */
+@Name("org.prebid.pg.delstats.DeliveryReportStore")
+@Label("Delivery Report Store")
+@Category({"PG Delivery Stats", "Ingest"})
+@Description("Validation, conversion and storage of posted Delivery Reports")
+@StackTrace(false)
+@Setter
+public class DeliveryReportStoreEvent extends Event {
+
+    @Label("Report Id")
+    private String reportId;
+
+    @Label("Vendor")
+    private String vendor;
+
+    @Label("Region")
+    private String region;
+
+    @Label("Instance Id")
+    private String instanceId;
+
+    @Label("Reports")
+    private int reports;
+
+    @Label("Line Item Status Entries")
+    private int lineItemStatusCount;
+
+    @Label("Lines Converted")
+    private int linesConverted;
+
+    @Label("Write Behind")
+    private boolean writeBehind;
+}
@@ -0,0 +1,37 @@
+package org.prebid.pg.delstats.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+import lombok.Setter;
+
+/**
+ * Flight Recorder event spanning the summary of the Delivery Reports of one interval into line item summaries.
+ */
+@Name("org.prebid.pg.delstats.DeliverySummary")
+@Label("Delivery Summary")
+@Category({"PG Delivery Stats", "Summary"})
+@Description("Summary of the Delivery Reports of an interval")
+@StackTrace(false)
+@Setter
+public class DeliverySummaryEvent extends Event {
+
+    @Label("Interval Start")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    private long intervalStart;
+
+    @Label("Interval End")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    private long intervalEnd;
+
+    @Label("Fresh Reports")
+    @Description("Whether the interval was summarized by the scheduled job rather than recreated")
+    private boolean freshReports;
+
+    @Label("Summaries Stored")
+    private int summariesStored;
+}
@@ -2,6 +2,7 @@ package org.prebid.pg.delstats.metrics;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -20,10 +21,19 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Records the metrics of the service and reports them to Graphite. The names of the request, item and error counters
+ * and of the timers are built when the recorder is created, into maps keyed by the enums naming them, so that marking
+ * one takes no lock and no string work. Dropwizard counters add up in a LongAdder, so threads marking the same counter
+ * do not contend either. Timers and histograms record every value into an {@link HdrHistogramReservoir}, for
+ * percentiles of all the values of each interval, which {@link PrometheusEndpoint} exposes too.
+ */
 @Slf4j
 @Component
 public class GraphiteMetricsRecorder {
@@ -32,9 +42,20 @@ public class GraphiteMetricsRecorder {
     private static final String ENDPOINT_PLACEHOLDER = "\\$\\{endpoint\\}";
     private static final String OPERATION_PLACEHOLDER = "\\$\\{operation\\}";
     private static final String ITEM_PLACEHOLDER = "\\$\\{item\\}";
+    private static final String VENDOR_PLACEHOLDER = "\\$\\{vendor\\}";
+    private static final String REGION_PLACEHOLDER = "\\$\\{region\\}";
+    private static final String ENCODING_PLACEHOLDER = "\\$\\{encoding\\}";
+    private static final String SHARD_PLACEHOLDER = "\\$\\{shard\\}";
+    private static final String INVALID_NAME_CHARACTERS = "[^A-Za-z0-9_-]";
 
     private final MetricRegistry registry;
     private final GraphiteConfig graphiteConfig;
+    private final Map<MetricTag, MetricHandle<Counter>> tagCounters;
+    private final Map<MetricService, Map<MetricEndpoint, MetricHandle<Counter>>> requestCounters;
+    private final Map<MetricService, Map<MetricOperation, Map<RepositoryItem, MetricHandle<Counter>>>> itemCounters;
+    private final Map<MetricEndpoint, Map<MetricOperation, MetricHandle<Timer>>> timers;
+    private final MetricHandle<Histogram> ingestLineItemsHistogram;
+    private final MetricHandle<Histogram> ingestSizeHistogram;
 
     private static Function<GraphiteConfig, Graphite> graphiteSupplier =
             config -> new Graphite(new InetSocketAddress(config.getHost(), config.getPort()));
@@ -43,6 +64,44 @@ public class GraphiteMetricsRecorder {
     public GraphiteMetricsRecorder(final GraphiteConfig graphiteConfig) {
         this.registry = new MetricRegistry();
         this.graphiteConfig = graphiteConfig;
+        this.tagCounters = new EnumMap<>(MetricTag.class);
+        for (MetricTag tag : MetricTag.values()) {
+            if (!tag.getTag().contains("${")) {
+                tagCounters.put(tag, counterHandle(fixUpEnumName(tag.getTag())));
+            }
+        }
+        this.requestCounters = new EnumMap<>(MetricService.class);
+        this.itemCounters = new EnumMap<>(MetricService.class);
+        for (MetricService service : MetricService.values()) {
+            Map<MetricEndpoint, MetricHandle<Counter>> endpointCounters = new EnumMap<>(MetricEndpoint.class);
+            for (MetricEndpoint endpoint : MetricEndpoint.values()) {
+                endpointCounters.put(endpoint, counterHandle(meterName(service, endpoint, MetricOperation.REQUEST,
+                        null, MetricTag.SERVICE_ENDPOINT_OPERATION)));
+            }
+            requestCounters.put(service, endpointCounters);
+            Map<MetricOperation, Map<RepositoryItem, MetricHandle<Counter>>> operationCounters =
+                    new EnumMap<>(MetricOperation.class);
+            for (MetricOperation operation : MetricOperation.values()) {
+                Map<RepositoryItem, MetricHandle<Counter>> counters = new EnumMap<>(RepositoryItem.class);
+                for (RepositoryItem item : RepositoryItem.values()) {
+                    counters.put(item, counterHandle(meterName(service, null, operation, item,
+                            MetricTag.SERVICE_OPERATION_ITEM)));
+                }
+                operationCounters.put(operation, counters);
+            }
+            itemCounters.put(service, operationCounters);
+        }
+        this.timers = new EnumMap<>(MetricEndpoint.class);
+        for (MetricEndpoint endpoint : MetricEndpoint.values()) {
+            Map<MetricOperation, MetricHandle<Timer>> operationTimers = new EnumMap<>(MetricOperation.class);
+            for (MetricOperation operation : MetricOperation.values()) {
+                operationTimers.put(operation, new MetricHandle<>(timerName(endpoint, operation),
+                        timerName -> registry.timer(timerName, () -> new Timer(newReservoir()))));
+            }
+            timers.put(endpoint, operationTimers);
+        }
+        this.ingestLineItemsHistogram = histogramHandle(fixUpEnumName(MetricTag.INGEST_REPORT_LINE_ITEMS.getTag()));
+        this.ingestSizeHistogram = histogramHandle(fixUpEnumName(MetricTag.INGEST_REPORT_SIZE.getTag()));
     }
 
     @PostConstruct
@@ -75,32 +134,73 @@ public class GraphiteMetricsRecorder {
         registry.gauge(fixUpEnumName(MetricTag.UNIQUE_PBS_INSTANCES.getTag()), () -> gauge);
     }
 
+    public void registerAsyncIngestQueueDepthGauge(Gauge<Integer> gauge) {
+        registry.gauge(fixUpEnumName(MetricTag.ASYNC_INGEST_QUEUE_DEPTH.getTag()), () -> gauge);
+    }
+
+    public void registerSpoolSizeGauge(Gauge<Long> gauge) {
+        registry.gauge(fixUpEnumName(MetricTag.SPOOL_SIZE.getTag()), () -> gauge);
+    }
+
+    public void registerSpoolReplayLagGauge(Gauge<Long> gauge) {
+        registry.gauge(fixUpEnumName(MetricTag.SPOOL_REPLAY_LAG.getTag()), () -> gauge);
+    }
+
+    public void registerPurgeLagGauge(RepositoryItem item, Gauge<Long> gauge) {
+        registry.gauge(fixUpEnumName(MetricTag.PURGE_LAG.getTag().replaceAll(ITEM_PLACEHOLDER, item.name())),
+                () -> gauge);
+    }
+
+    public void markPurgePaused() {
+        getCounterForTag(MetricTag.PURGE_PAUSED).inc();
+    }
+
+    /**
+     * 95th percentile of the recent Delivery Report store latencies, in milliseconds
+     */
+    public double getDeliveryReportStoreLatencyMillis() {
+        return getTimerForEndpointOperation(MetricEndpoint.POST_DELIVERY_REPORT, MetricOperation.STORE)
+                .getSnapshot().get95thPercentile() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
     /**
      * Exception Metrics
      */
 
     public void markDataAccessErrorMeter() {
-        registry.counter(fixUpEnumName(MetricTag.DATA_ACCESS_ERROR.getTag()), ResettingCounter::new).inc();
+        getCounterForTag(MetricTag.DATA_ACCESS_ERROR).inc();
     }
 
     public void markDuplicateKeyErrorMeter() {
-        registry.counter(fixUpEnumName(MetricTag.DUPLICATE_KEY_ERROR.getTag()), ResettingCounter::new).inc();
+        getCounterForTag(MetricTag.DUPLICATE_KEY_ERROR).inc();
     }
 
     public void markInvalidRequestMeter() {
-        registry.counter(fixUpEnumName(MetricTag.REQUEST_INVALID.getTag()), ResettingCounter::new).inc();
+        getCounterForTag(MetricTag.REQUEST_INVALID).inc();
+    }
+
+    public void markRequestTooLargeMeter() {
+        getCounterForTag(MetricTag.REQUEST_TOO_LARGE).inc();
     }
 
     public void markMissingTransactionIdMeter() {
-        registry.counter(fixUpEnumName(MetricTag.REQUEST_MISSING_TRANSACTION_ID.getTag()), ResettingCounter::new).inc();
+        getCounterForTag(MetricTag.REQUEST_MISSING_TRANSACTION_ID).inc();
     }
 
     public void markQueryTimedOutMeter() {
-        registry.counter(fixUpEnumName(MetricTag.QUERY_TIMED_OUT.getTag()), ResettingCounter::new).inc();
+        getCounterForTag(MetricTag.QUERY_TIMED_OUT).inc();
+    }
+
+    public void markSpoolCorruptRecord() {
+        getCounterForTag(MetricTag.SPOOL_CORRUPT_RECORD).inc();
+    }
+
+    public void markPreAggregateMismatch() {
+        getCounterForTag(MetricTag.PRE_AGGREGATE_MISMATCH).inc();
     }
 
     public void markUnknownErrorMeter() {
-        registry.counter(fixUpEnumName(MetricTag.UNKNOWN_ERROR.getTag()), ResettingCounter::new).inc();
+        getCounterForTag(MetricTag.UNKNOWN_ERROR).inc();
     }
 
     public void markExceptionMeter(Exception ex) {
@@ -146,6 +246,10 @@ public class GraphiteMetricsRecorder {
         markMeterForRequests(MetricService.DELIVERY_REPORT, MetricEndpoint.POST_DELIVERY_REPORT);
     }
 
+    public void markPostRequestForDeliveryReportBatch() {
+        markMeterForRequests(MetricService.DELIVERY_REPORT, MetricEndpoint.POST_DELIVERY_REPORT_BATCH);
+    }
+
     public void markGetRequestForTokenSpend() {
         markMeterForRequests(MetricService.TOKEN_SPEND, MetricEndpoint.GET_TOKEN_SPEND_SUMMARY);
     }
@@ -187,6 +291,32 @@ public class GraphiteMetricsRecorder {
                 RepositoryItem.LATEST_TOKEN_SPEND_SUMMARIES, inc);
     }
 
+    public void markAsyncIngestReportsDrained(int inc) {
+        markMeterForItems(MetricService.DELIVERY_REPORT, MetricOperation.DRAIN, RepositoryItem.DELIVERY_REPORTS, inc);
+    }
+
+    public void markAsyncIngestReportRejected() {
+        markMeterForItems(MetricService.DELIVERY_REPORT, MetricOperation.REJECT, RepositoryItem.DELIVERY_REPORTS, 1);
+    }
+
+    public void markDuplicateDeliveryReportsSuppressed() {
+        markMeterForItems(MetricService.DELIVERY_REPORT, MetricOperation.SUPPRESS_DUPLICATE,
+                RepositoryItem.DELIVERY_REPORTS, 1);
+    }
+
+    public void markSpooledDeliveryReports(int inc) {
+        markMeterForItems(MetricService.DELIVERY_REPORT, MetricOperation.SPOOL, RepositoryItem.DELIVERY_REPORTS, inc);
+    }
+
+    public void markSpoolReplayedDeliveryReports(int inc) {
+        markMeterForItems(MetricService.DELIVERY_REPORT, MetricOperation.REPLAY, RepositoryItem.DELIVERY_REPORTS, inc);
+    }
+
+    public void markSpoolQuarantinedDeliveryReports(int inc) {
+        markMeterForItems(MetricService.DELIVERY_REPORT, MetricOperation.QUARANTINE, RepositoryItem.DELIVERY_REPORTS,
+                inc);
+    }
+
     public void markDeliverySummariesDeleted(int inc) {
         markMeterForItems(MetricService.DELIVERY_SUMMARY, MetricOperation.DELETE,
                 RepositoryItem.DELIVERY_SUMMARY_REPORTS, inc);
@@ -197,6 +327,24 @@ public class GraphiteMetricsRecorder {
                 RepositoryItem.DELIVERY_SUMMARY_REPORTS, inc);
     }
 
+    public void markPreAggregatedDeliverySummariesStored(int inc) {
+        markMeterForItems(MetricService.DELIVERY_SUMMARY, MetricOperation.PRE_AGGREGATE,
+                RepositoryItem.DELIVERY_SUMMARY_REPORTS, inc);
+    }
+
+    public void markDeliveryReportRecordsPurged(int inc) {
+        markMeterForItems(MetricService.DELIVERY_REPORT, MetricOperation.PURGE, RepositoryItem.DELIVERY_REPORTS, inc);
+    }
+
+    public void markLatestTokenSpendSummariesPurged(int inc) {
+        markMeterForItems(MetricService.TOKEN_SPEND, MetricOperation.PURGE,
+                RepositoryItem.LATEST_TOKEN_SPEND_SUMMARIES, inc);
+    }
+
+    public void markSystemStatesPurged(int inc) {
+        markMeterForItems(MetricService.DELIVERY_SUMMARY, MetricOperation.PURGE, RepositoryItem.SYSTEM_STATES, inc);
+    }
+
     /**
      * Request Endpoint Timer Metrics
      */
@@ -221,6 +369,11 @@ public class GraphiteMetricsRecorder {
                 MetricEndpoint.POST_DELIVERY_REPORT, MetricOperation.PROCESSING_TIME);
     }
 
+    public Optional<Timer.Context> postDeliveryReportBatchPerformanceTimer() {
+        return getTimerContextForEndpointOperation(
+                MetricEndpoint.POST_DELIVERY_REPORT_BATCH, MetricOperation.PROCESSING_TIME);
+    }
+
     public Optional<Timer.Context> getTokenSpendPerformanceTimer() {
         return getTimerContextForEndpointOperation(
                 MetricEndpoint.GET_TOKEN_SPEND_SUMMARY, MetricOperation.PROCESSING_TIME);
@@ -245,6 +398,60 @@ public class GraphiteMetricsRecorder {
                 MetricEndpoint.POST_DELIVERY_SUMMARY, MetricOperation.PROCESSING_TIME);
     }
 
+    /**
+     * Time from a Delivery Report entering the write-behind queue until its lines are committed
+     */
+    public void updateAsyncIngestEnqueueToCommitTimer(long durationNanos) {
+        getTimerForEndpointOperation(MetricEndpoint.POST_DELIVERY_REPORT, MetricOperation.ENQUEUE_TO_COMMIT)
+                .update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time from the end of the data window of a Delivery Report until it was received, per PBS vendor and region
+     */
+    public void updatePbsReportLagHistogram(String vendor, String region, long lagMillis) {
+        registry.histogram(MetricTag.PBS_REPORT_LAG.getTag()
+                .replaceAll(VENDOR_PLACEHOLDER, toNamePart(vendor))
+                .replaceAll(REGION_PLACEHOLDER, toNamePart(region)), () -> new Histogram(newReservoir()))
+                .update(lagMillis);
+    }
+
+    /**
+     * Time spent summarizing one shard of the line items of a Delivery Report summary interval
+     */
+    public void updateDeliverySummaryShardTimer(int shard, long durationNanos) {
+        registry.timer(MetricTag.DELIVERY_SUMMARY_SHARD_LATENCY.getTag()
+                .replaceAll(SHARD_PLACEHOLDER, String.valueOf(shard)), () -> new Timer(newReservoir()))
+                .update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time spent in a stage of storing the Delivery Reports of a request, as lapped by its {@link IngestTrace}
+     */
+    public void updateIngestStageTimer(IngestStage stage, boolean batch, long durationNanos) {
+        getTimerForEndpointOperation(batch ? MetricEndpoint.POST_DELIVERY_REPORT_BATCH
+                : MetricEndpoint.POST_DELIVERY_REPORT, stage.getOperation())
+                .update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Number of line item status entries and bytes received of each Delivery Report posted
+     */
+    public void updateIngestReportSizeHistograms(int lineItemStatusCount, long bytesReceived) {
+        ingestLineItemsHistogram.get().update(lineItemStatusCount);
+        ingestSizeHistogram.get().update(bytesReceived);
+    }
+
+    /**
+     * Bytes of a request body as received and as decompressed, counted per Content-Encoding.
+     */
+    public void markRequestBytesDecompressed(String encoding, long bytesIn, long bytesInflated) {
+        registry.counter(MetricTag.REQUEST_BYTES_IN.getTag().replaceAll(ENCODING_PLACEHOLDER, toNamePart(encoding)),
+                ResettingCounter::new).inc(bytesIn);
+        registry.counter(MetricTag.REQUEST_BYTES_INFLATED.getTag()
+                .replaceAll(ENCODING_PLACEHOLDER, toNamePart(encoding)), ResettingCounter::new).inc(bytesInflated);
+    }
+
     /**
      * Data Access Timer Metrics
      */
@@ -273,32 +480,54 @@ public class GraphiteMetricsRecorder {
      */
 
     private void markMeterForRequests(final MetricService service, final MetricEndpoint endpoint) {
-        markMeterForTag(
-                service, endpoint, MetricOperation.REQUEST, null, MetricTag.SERVICE_ENDPOINT_OPERATION, 1
-        );
+        requestCounters.get(service).get(endpoint).get().inc();
     }
 
     private void markMeterForItems(final MetricService service,
                                    final MetricOperation operation,
                                    final RepositoryItem item, int inc) {
-        markMeterForTag(service, null, operation, item, MetricTag.SERVICE_OPERATION_ITEM, inc);
+        itemCounters.get(service).get(operation).get(item).get().inc(inc);
+    }
+
+    private Counter getCounterForTag(final MetricTag metricTag) {
+        return tagCounters.get(metricTag).get();
     }
 
-    private synchronized void markMeterForTag(final MetricService service,
-                                 final MetricEndpoint endpoint,
-                                 final MetricOperation operation,
-                                 final RepositoryItem repositoryItem,
-                                 final MetricTag metricTag,
-                                 final int increment
+    private Optional<Timer.Context> getTimerContextForEndpointOperation(
+            final MetricEndpoint metricEndpoint,
+            final MetricOperation metricOperation
     ) {
-        getMeterForTag(service, endpoint, operation, repositoryItem, metricTag).inc(increment);
+        final Timer timer = getTimerForEndpointOperation(metricEndpoint, metricOperation);
+        if (timer != null) {
+            return Optional.of(timer.time());
+        }
+        return Optional.empty();
     }
 
-    private Counter getMeterForTag(final MetricService service,
-                                   final MetricEndpoint endpoint,
-                                   final MetricOperation operation,
-                                   final RepositoryItem item,
-                                   final MetricTag measurementTag
+    private Timer getTimerForEndpointOperation(
+            final MetricEndpoint metricEndpoint,
+            final MetricOperation metricOperation) {
+        return timers.get(metricEndpoint).get(metricOperation).get();
+    }
+
+    private HdrHistogramReservoir newReservoir() {
+        return new HdrHistogramReservoir(graphiteConfig.getHistogramIntervalSec(), TimeUnit.SECONDS);
+    }
+
+    private MetricHandle<Histogram> histogramHandle(String name) {
+        return new MetricHandle<>(name, histogramName -> registry.histogram(histogramName,
+                () -> new Histogram(newReservoir())));
+    }
+
+    private MetricHandle<Counter> counterHandle(String name) {
+        return new MetricHandle<>(name, counterName -> registry.counter(counterName, ResettingCounter::new));
+    }
+
+    private static String meterName(final MetricService service,
+                                    final MetricEndpoint endpoint,
+                                    final MetricOperation operation,
+                                    final RepositoryItem item,
+                                    final MetricTag measurementTag
     ) {
         String meterName = measurementTag.getTag();
         if (service != null) {
@@ -313,27 +542,20 @@ public class GraphiteMetricsRecorder {
         if (item != null) {
             meterName = meterName.replaceAll(ITEM_PLACEHOLDER, item.name());
         }
-        return registry.counter(fixUpEnumName(meterName), ResettingCounter::new);
+        return fixUpEnumName(meterName);
     }
 
-    private Optional<Timer.Context> getTimerContextForEndpointOperation(
-            final MetricEndpoint metricEndpoint,
-            final MetricOperation metricOperation
-    ) {
-        final Timer timer = getTimerForEndpointOperation(metricEndpoint, metricOperation);
-        if (timer != null) {
-            return Optional.of(timer.time());
-        }
-        return Optional.empty();
+    private static String timerName(final MetricEndpoint metricEndpoint, final MetricOperation metricOperation) {
+        return MetricTag.SERVICE_OPERATION_LATENCY.getTag()
+                .replaceAll(SERVICE_PLACEHOLDER, fixUpEnumName(metricEndpoint.name()))
+                .replaceAll(OPERATION_PLACEHOLDER, fixUpEnumName(metricOperation.name()));
     }
 
-    private Timer getTimerForEndpointOperation(
-            final MetricEndpoint metricEndpoint,
-            final MetricOperation metricOperation) {
-        String service = fixUpEnumName(metricEndpoint.name());
-        return registry.timer(MetricTag.SERVICE_OPERATION_LATENCY.getTag()
-                .replaceAll(SERVICE_PLACEHOLDER, service)
-                .replaceAll(OPERATION_PLACEHOLDER, fixUpEnumName(metricOperation.name())));
+    /**
+     * Keeps a value sent by PBS from adding levels to a metric name, or from being read as a replacement pattern.
+     */
+    private static String toNamePart(String value) {
+        return value == null || value.isEmpty() ? "unknown" : value.replaceAll(INVALID_NAME_CHARACTERS, "_");
     }
 
     private static String fixUpEnumName(String name) {
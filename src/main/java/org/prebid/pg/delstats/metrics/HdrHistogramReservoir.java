@@ -0,0 +1,170 @@
+package org.prebid.pg.delstats.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Reservoir for timers and histograms recording every value into an HdrHistogram, to 3 significant digits, instead
+ * of sampling them, so that the 99th and 99.9th percentiles are those of all the values recorded. Values are recorded
+ * wait-free into a {@link Recorder}; its interval histogram is taken at most once per interval, by the first reader
+ * after the interval elapsed, and every reader until the next one gets the same snapshot of it. The Graphite reporter
+ * and a Prometheus scrape reading the same metric therefore see the same interval rather than each taking the values
+ * recorded since the other read. An interval of zero takes a new interval on every read.
+ */
+final class HdrHistogramReservoir implements Reservoir {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final long intervalNanos;
+
+    private final LongSupplier nanoTime;
+
+    private Histogram recycled;
+
+    private long intervalStartNanos;
+
+    private volatile HdrSnapshot snapshot;
+
+    HdrHistogramReservoir(long interval, TimeUnit intervalUnit) {
+        this(interval, intervalUnit, System::nanoTime);
+    }
+
+    HdrHistogramReservoir(long interval, TimeUnit intervalUnit, LongSupplier nanoTime) {
+        this.intervalNanos = intervalUnit.toNanos(interval);
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        long recorded = Math.max(0, value);
+        recorder.recordValue(recorded);
+        count.increment();
+        sum.add(recorded);
+    }
+
+    @Override
+    public HdrSnapshot getSnapshot() {
+        synchronized (this) {
+            long now = nanoTime.getAsLong();
+            if (snapshot == null || now - intervalStartNanos >= intervalNanos) {
+                Histogram interval = recorder.getIntervalHistogram(recycled);
+                snapshot = new HdrSnapshot(interval.copy(), count.sum(), sum.sum());
+                recycled = interval;
+                intervalStartNanos = now;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * The values of one interval, along with the number and sum of all the values recorded until it was taken.
+     */
+    static final class HdrSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        private final long totalCount;
+
+        private final long totalSum;
+
+        private HdrSnapshot(Histogram histogram, long totalCount, long totalSum) {
+            this.histogram = histogram;
+            this.totalCount = totalCount;
+            this.totalSum = totalSum;
+        }
+
+        long getTotalCount() {
+            return totalCount;
+        }
+
+        long getTotalSum() {
+            return totalSum;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        /**
+         * The distinct values of the interval, each as the highest value equivalent to it at the recorded precision.
+         */
+        @Override
+        public long[] getValues() {
+            long[] values = new long[countDistinctValues()];
+            int i = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                values[i++] = value.getValueIteratedTo();
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+        }
+
+        /**
+         * The lowest value equivalent to the highest one recorded, which is the value recorded whenever that is exact
+         * at the recorded precision.
+         */
+        @Override
+        public long getMax() {
+            return histogram.lowestEquivalentValue(histogram.getMaxValue());
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+
+        private int countDistinctValues() {
+            int distinct = 0;
+            for (HistogramIterationValue ignored : histogram.recordedValues()) {
+                distinct++;
+            }
+            return distinct;
+        }
+    }
+}
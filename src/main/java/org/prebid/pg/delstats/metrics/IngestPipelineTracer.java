@@ -0,0 +1,66 @@
+package org.prebid.pg.delstats.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts and finishes the {@link IngestTrace} of the requests posting Delivery Reports. A finished trace updates a
+ * timer per stage lapped, and requests taking longer than the configured threshold are logged with the time spent in
+ * each stage. While stage timing is disabled every request shares a trace that records nothing.
+ */
+@Slf4j
+@Component
+public class IngestPipelineTracer {
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final boolean enabled;
+
+    private final long slowRequestThresholdNanos;
+
+    public IngestPipelineTracer(ServerConfiguration configuration, GraphiteMetricsRecorder recorder) {
+        this.recorder = recorder;
+        this.enabled = configuration.isDeliveryReportStageTimingEnabled();
+        this.slowRequestThresholdNanos =
+                TimeUnit.MILLISECONDS.toNanos(configuration.getDeliveryReportStageTimingSlowRequestThresholdMillis());
+    }
+
+    /**
+     * Starts the trace of a request on the current thread.
+     *
+     * @param batch whether the request posts a batch of Delivery Reports
+     * @return the trace to count the reports of the request on and to finish
+     */
+    public IngestTrace start(boolean batch) {
+        if (!enabled) {
+            return IngestTrace.DISABLED;
+        }
+        IngestTrace trace = new IngestTrace(recorder, batch, System.nanoTime());
+        trace.bind();
+        return trace;
+    }
+
+    /**
+     * Finishes the trace of a request, whether it succeeded or not, and unbinds it from the current thread.
+     *
+     * @param trace
+     */
+    public void finish(IngestTrace trace) {
+        if (trace == IngestTrace.DISABLED) {
+            return;
+        }
+        trace.unbind();
+        long totalNanos = System.nanoTime() - trace.getStartNanos();
+        for (IngestStage stage : IngestStage.values()) {
+            if (trace.isLapped(stage)) {
+                recorder.updateIngestStageTimer(stage, trace.isBatch(), trace.getStageNanos(stage));
+            }
+        }
+        if (slowRequestThresholdNanos > 0 && totalNanos >= slowRequestThresholdNanos) {
+            log.warn("Slow ingest: {}", trace.describe(totalNanos));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.prebid.pg.delstats.metrics;
+
+/**
+ * Stages of storing posted Delivery Reports, each timed on its own by an {@link IngestTrace}.
+ */
+public enum IngestStage {
+    PARSE(MetricOperation.INGEST_PARSE),
+    VALIDATE(MetricOperation.INGEST_VALIDATE),
+    CONVERT(MetricOperation.INGEST_CONVERT),
+    PERSIST(MetricOperation.INGEST_PERSIST),
+    COMMIT(MetricOperation.INGEST_COMMIT);
+
+    private final MetricOperation operation;
+
+    IngestStage(MetricOperation operation) {
+        this.operation = operation;
+    }
+
+    MetricOperation getOperation() {
+        return operation;
+    }
+}
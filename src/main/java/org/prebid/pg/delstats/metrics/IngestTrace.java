@@ -0,0 +1,145 @@
+package org.prebid.pg.delstats.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the stages of one request posting Delivery Reports. The trace is bound to the request thread by
+ * {@link IngestPipelineTracer#start}, and each step of the pipeline calls {@link #lap} once it is done, which adds the
+ * time since the previous lap to its stage, so a stage can be lapped several times, once per report of a batch. Laps
+ * on threads without a trace, like the write-behind writer threads, or while stage timing is disabled, only cost a
+ * thread local lookup.
+ */
+public final class IngestTrace {
+
+    private static final IngestStage[] STAGES = IngestStage.values();
+
+    private static final ThreadLocal<IngestTrace> CURRENT = new ThreadLocal<>();
+
+    static final IngestTrace DISABLED = new IngestTrace(null, false, 0);
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final boolean batch;
+
+    private final long startNanos;
+
+    private final long[] stageNanos = new long[STAGES.length];
+
+    private int lappedStages;
+
+    private long lapStartNanos;
+
+    private String firstReportId;
+
+    private int reports;
+
+    private long lineItems;
+
+    private long bytes;
+
+    IngestTrace(GraphiteMetricsRecorder recorder, boolean batch, long startNanos) {
+        this.recorder = recorder;
+        this.batch = batch;
+        this.startNanos = startNanos;
+        this.lapStartNanos = startNanos;
+    }
+
+    /**
+     * Adds the time since the previous lap of the trace of the current thread, if any, to the given stage.
+     *
+     * @param stage
+     */
+    public static void lap(IngestStage stage) {
+        IngestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.lapAt(stage, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records the size of a Delivery Report posted in the request, and counts it for the slow request log.
+     *
+     * @param reportId
+     * @param lineItemStatusCount
+     * @param bytesReceived
+     */
+    public void addReport(String reportId, int lineItemStatusCount, long bytesReceived) {
+        if (this == DISABLED) {
+            return;
+        }
+        if (firstReportId == null) {
+            firstReportId = reportId;
+        }
+        recorder.updateIngestReportSizeHistograms(lineItemStatusCount, bytesReceived);
+        reports++;
+        lineItems += lineItemStatusCount;
+        bytes += bytesReceived;
+    }
+
+    void bind() {
+        CURRENT.set(this);
+    }
+
+    void unbind() {
+        CURRENT.remove();
+    }
+
+    void lapAt(IngestStage stage, long nowNanos) {
+        stageNanos[stage.ordinal()] += nowNanos - lapStartNanos;
+        lappedStages |= 1 << stage.ordinal();
+        lapStartNanos = nowNanos;
+    }
+
+    boolean isBatch() {
+        return batch;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    boolean isLapped(IngestStage stage) {
+        return (lappedStages & (1 << stage.ordinal())) != 0;
+    }
+
+    long getStageNanos(IngestStage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    int getReports() {
+        return reports;
+    }
+
+    long getLineItems() {
+        return lineItems;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Breakdown of the request for the slow request log. Time not lapped to any stage, like that spent checking for
+     * duplicates or pre-aggregating the stored lines, is shown as other.
+     */
+    String describe(long totalNanos) {
+        StringBuilder description = new StringBuilder()
+                .append(batch ? "Delivery Report batch starting with " : "Delivery Report ").append(firstReportId)
+                .append(" (").append(reports).append(" report(s), ")
+                .append(lineItems).append(" line item status entries, ")
+                .append(bytes).append(" bytes) took ").append(toMillis(totalNanos)).append(" ms:");
+        long lappedNanos = 0;
+        for (IngestStage stage : STAGES) {
+            if (isLapped(stage)) {
+                description.append(' ').append(stage.name().toLowerCase()).append('=')
+                        .append(toMillis(stageNanos[stage.ordinal()]));
+                lappedNanos += stageNanos[stage.ordinal()];
+            }
+        }
+        return description.append(" other=").append(toMillis(totalNanos - lappedNanos)).toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.03f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
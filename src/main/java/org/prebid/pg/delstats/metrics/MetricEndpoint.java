@@ -6,6 +6,7 @@ enum MetricEndpoint {
     GET_DELIVERY_STATS,
     GET_DELIVERY_REPORTS,
     POST_DELIVERY_REPORT,
+    POST_DELIVERY_REPORT_BATCH,
     POST_DELIVERY_SUMMARY,
     RECREATE_LINE_ITEM_SUMMARY,
     // Token Spend Endpoints
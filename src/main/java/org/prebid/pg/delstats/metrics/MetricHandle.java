@@ -0,0 +1,39 @@
+package org.prebid.pg.delstats.metrics;
+
+import com.codahale.metrics.Metric;
+
+import java.util.function.Function;
+
+/**
+ * A metric whose name is built once, when the recorder is created, and which is registered the first time it is
+ * used, so that only the metrics in use are reported, under the names they always had. Threads racing to register it
+ * get the same metric back from the registry, so no lock is needed.
+ *
+ * @param <T>
+ */
+final class MetricHandle<T extends Metric> {
+
+    private final String name;
+
+    private final Function<String, T> registration;
+
+    private volatile T metric;
+
+    MetricHandle(String name, Function<String, T> registration) {
+        this.name = name;
+        this.registration = registration;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    T get() {
+        T registered = metric;
+        if (registered == null) {
+            registered = registration.apply(name);
+            metric = registered;
+        }
+        return registered;
+    }
+}
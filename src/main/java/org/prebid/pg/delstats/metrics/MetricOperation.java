@@ -5,5 +5,19 @@ enum MetricOperation {
     REQUEST,
     STORE,
     DELETE,
-    PROCESSING_TIME
+    DRAIN,
+    REJECT,
+    SPOOL,
+    REPLAY,
+    QUARANTINE,
+    PRE_AGGREGATE,
+    PURGE,
+    SUPPRESS_DUPLICATE,
+    PROCESSING_TIME,
+    ENQUEUE_TO_COMMIT,
+    INGEST_PARSE,
+    INGEST_VALIDATE,
+    INGEST_CONVERT,
+    INGEST_PERSIST,
+    INGEST_COMMIT
 }
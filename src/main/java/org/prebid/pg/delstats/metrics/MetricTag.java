@@ -10,11 +10,26 @@ enum MetricTag {
     UNKNOWN_ERROR("error.unknown"),
     REQUEST_MISSING_TRANSACTION_ID("error.request.missing-transaction-id"),
     REQUEST_INVALID("error.request.invalid"),
+    REQUEST_TOO_LARGE("error.request.too-large"),
+    SPOOL_CORRUPT_RECORD("error.spool.corrupt-record"),
+    PRE_AGGREGATE_MISMATCH("error.delivery-summary.pre-aggregate-mismatch"),
     // TIMERS
     //SERVICE_OPERATION_LATENCY("${service}.${operation}.processing-time"),
     SERVICE_OPERATION_LATENCY("${service}.${operation}"),
+    DELIVERY_SUMMARY_SHARD_LATENCY("post-delivery-summary.shard-${shard}.processing-time"),
+    // HISTOGRAMS
+    PBS_REPORT_LAG("pbs.${vendor}.${region}.report-lag-ms"),
+    INGEST_REPORT_LINE_ITEMS("delivery-report.ingest.line-items"),
+    INGEST_REPORT_SIZE("delivery-report.ingest.size-bytes"),
     // COUNTERS
     UNIQUE_PBS_INSTANCES("pbs.instances"),
+    ASYNC_INGEST_QUEUE_DEPTH("delivery-report.async-ingest.queue-depth"),
+    SPOOL_SIZE("delivery-report.spool.size-bytes"),
+    SPOOL_REPLAY_LAG("delivery-report.spool.replay-lag-sec"),
+    PURGE_LAG("purge.${item}.lag-sec"),
+    PURGE_PAUSED("purge.paused"),
+    REQUEST_BYTES_IN("request.decompression.${encoding}.bytes-in"),
+    REQUEST_BYTES_INFLATED("request.decompression.${encoding}.bytes-inflated"),
     SERVICE_OPERATION_ITEM("${service}.${operation}.${item}"),
     SERVICE_ENDPOINT_OPERATION("${service}.${endpoint}.${operation}");
 
@@ -0,0 +1,29 @@
+package org.prebid.pg.delstats.metrics;
+
+import org.prebid.pg.delstats.config.GraphiteConfig;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for Prometheus to scrape the metrics Graphite gets, prefixed the same way, so that alerts can be
+ * set on the tail latencies the HdrHistogram backed timers record.
+ */
+@Component
+@WebEndpoint(id = "prometheus")
+public class PrometheusEndpoint {
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final GraphiteConfig graphiteConfig;
+
+    public PrometheusEndpoint(GraphiteMetricsRecorder recorder, GraphiteConfig graphiteConfig) {
+        this.recorder = recorder;
+        this.graphiteConfig = graphiteConfig;
+    }
+
+    @ReadOperation(produces = PrometheusTextFormat.CONTENT_TYPE)
+    public String scrape() {
+        return PrometheusTextFormat.write(recorder.getRegistry(), graphiteConfig.getPrefix());
+    }
+}
@@ -0,0 +1,106 @@
+package org.prebid.pg.delstats.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of a registry in the Prometheus text exposition format (version 0.0.4), under the names they have
+ * in Graphite with the characters Prometheus does not allow replaced by underscores:
+ * <ul>
+ *     <li>counters as counters of their total since start, so that reading them does not reset what Graphite gets</li>
+ *     <li>numeric gauges as gauges</li>
+ *     <li>timers, in seconds, and histograms as summaries of the quantiles Graphite gets, along with the count and sum
+ *     of all the values recorded</li>
+ * </ul>
+ */
+final class PrometheusTextFormat {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private PrometheusTextFormat() {
+    }
+
+    static String write(MetricRegistry registry, String prefix) {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Counter> entry : registry.getCounters().entrySet()) {
+            Counter counter = entry.getValue();
+            long total = counter instanceof ResettingCounter
+                    ? ((ResettingCounter) counter).getTotal() : counter.getCount();
+            String name = toMetricName(prefix, entry.getKey()) + "_total";
+            writeType(out, name, "counter");
+            writeSample(out, name, "", total);
+        }
+        for (Map.Entry<String, Gauge> entry : registry.getGauges().entrySet()) {
+            Object value = entry.getValue().getValue();
+            if (value instanceof Number) {
+                String name = toMetricName(prefix, entry.getKey());
+                writeType(out, name, "gauge");
+                writeSample(out, name, "", ((Number) value).doubleValue());
+            }
+        }
+        for (Map.Entry<String, Timer> entry : registry.getTimers().entrySet()) {
+            Timer timer = entry.getValue();
+            writeSummary(out, toMetricName(prefix, entry.getKey()) + "_seconds", timer.getSnapshot(),
+                    timer.getCount(), NANOS_PER_SECOND);
+        }
+        for (Map.Entry<String, Histogram> entry : registry.getHistograms().entrySet()) {
+            Histogram histogram = entry.getValue();
+            writeSummary(out, toMetricName(prefix, entry.getKey()), histogram.getSnapshot(), histogram.getCount(), 1);
+        }
+        return out.toString();
+    }
+
+    static String toMetricName(String prefix, String name) {
+        String metricName = prefix == null || prefix.isEmpty() ? name : prefix + "_" + name;
+        metricName = metricName.replaceAll("[^a-zA-Z0-9_:]", "_");
+        return Character.isDigit(metricName.charAt(0)) ? "_" + metricName : metricName;
+    }
+
+    /**
+     * The sum is only known for snapshots of an {@link HdrHistogramReservoir}, which also hold the count to go with it.
+     */
+    private static void writeSummary(StringBuilder out, String name, Snapshot snapshot, long count, double unit) {
+        writeType(out, name, "summary");
+        for (double quantile : QUANTILES) {
+            writeSample(out, name, "{quantile=\"" + quantile + "\"}", snapshot.getValue(quantile) / unit);
+        }
+        if (snapshot instanceof HdrHistogramReservoir.HdrSnapshot) {
+            HdrHistogramReservoir.HdrSnapshot hdrSnapshot = (HdrHistogramReservoir.HdrSnapshot) snapshot;
+            writeSample(out, name + "_sum", "", hdrSnapshot.getTotalSum() / unit);
+            writeSample(out, name + "_count", "", hdrSnapshot.getTotalCount());
+        } else {
+            writeSample(out, name + "_count", "", count);
+        }
+    }
+
+    private static void writeType(StringBuilder out, String name, String type) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+}
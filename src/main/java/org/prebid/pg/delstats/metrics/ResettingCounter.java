@@ -2,12 +2,35 @@ package org.prebid.pg.delstats.metrics;
 
 import com.codahale.metrics.Counter;
 
+import java.util.concurrent.atomic.LongAdder;
+
 public class ResettingCounter extends Counter {
+    private final LongAdder total = new LongAdder();
+
+    @Override
+    public void inc(long n) {
+        super.inc(n);
+        total.add(n);
+    }
+
+    @Override
+    public void dec(long n) {
+        super.dec(n);
+        total.add(-n);
+    }
+
     @Override
     public long getCount() {
         final long currentCount = super.getCount();
-        dec(currentCount);
+        super.dec(currentCount);
         return currentCount;
     }
 
+    /**
+     * Count since the counter was created, which reading it does not reset, for readers other than Graphite.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
 }
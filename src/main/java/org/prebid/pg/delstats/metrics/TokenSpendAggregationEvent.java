@@ -0,0 +1,36 @@
+package org.prebid.pg.delstats.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+import lombok.Setter;
+
+/**
+ * Flight Recorder event spanning the aggregation of token spend summaries in the DB for one interval.
+ */
+@Name("org.prebid.pg.delstats.TokenSpendAggregation")
+@Label("Token Spend Aggregation")
+@Category({"PG Delivery Stats", "Summary"})
+@Description("Aggregation of the token spend summaries of an interval in the DB")
+@StackTrace(false)
+@Setter
+public class TokenSpendAggregationEvent extends Event {
+
+    @Label("Interval Start")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    private long intervalStart;
+
+    @Label("Interval End")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    private long intervalEnd;
+
+    @Label("Vendor Regions")
+    private int vendorRegions;
+
+    @Label("Summaries Updated")
+    private int summariesUpdated;
+}
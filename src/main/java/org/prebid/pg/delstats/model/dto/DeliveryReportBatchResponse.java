@@ -0,0 +1,49 @@
+package org.prebid.pg.delstats.model.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of each Delivery Progress Report posted in a batch, in the order they were posted.
+ */
+@Getter
+@Builder
+public class DeliveryReportBatchResponse {
+
+    private int accepted;
+
+    private int rejected;
+
+    private List<ReportResult> results;
+
+    @Data
+    @Builder
+    public static class ReportResult {
+
+        // Line of the request body the report was read from, starting at 1
+        private int line;
+
+        private String reportId;
+
+        private Status status;
+
+        private String message;
+    }
+
+    public enum Status {
+        STORED,
+        QUEUED,
+        SPOOLED,
+        DUPLICATE,
+        IN_FLIGHT,
+        REJECTED,
+        FAILED;
+
+        public boolean isAccepted() {
+            return this != IN_FLIGHT && this != REJECTED && this != FAILED;
+        }
+    }
+}
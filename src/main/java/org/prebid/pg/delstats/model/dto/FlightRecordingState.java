@@ -0,0 +1,23 @@
+package org.prebid.pg.delstats.model.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class FlightRecordingState {
+
+    private boolean running;
+
+    private String name;
+
+    private String settings;
+
+    private String startTime;
+
+    private long maxAgeMinutes;
+
+    private long maxSizeBytes;
+
+    private String lastDumpFile;
+}
@@ -5,8 +5,6 @@ import lombok.Builder;
 import lombok.Getter;
 import org.prebid.pg.delstats.config.ServerConfiguration;
 import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.util.StringUtils;
 
 import java.time.Instant;
@@ -14,6 +12,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -144,8 +143,12 @@ public final class LineItemSummaryReport {
         summaryMap.put(field, val);
     }
 
+    /**
+     * Reads all summaries of the comma separated line items, or of all line items if none are given, from the cursor
+     * the function opens.
+     */
     public static <T> List<T> retrieveLineItemSummaries(String lineItemIds, Instant startTime, Instant endTime,
-            Pageable page, RetrievalLineItemSummary<T> function) {
+            RetrievalLineItemSummary<T> function) {
         List<T> reports = new ArrayList<>();
         List<String> lineIds = StringUtils.isEmpty(lineItemIds)
                 ? Collections.emptyList()
@@ -154,22 +157,13 @@ public final class LineItemSummaryReport {
                 .map(String::trim)
                 .collect(Collectors.toCollection(LinkedList::new));
 
-        while (true) {
-            Page<T> reportPage = function.retrieve(lineIds, startTime, endTime, page);
-            if (reportPage.hasContent()) {
-                reports.addAll(reportPage.getContent());
-            }
-            if (!reportPage.hasNext()) {
-                break;
-            }
-            page = reportPage.nextPageable();
-        }
+        function.retrieve(lineIds, startTime, endTime).forEachRemaining(reports::add);
         return reports;
     }
 
     @FunctionalInterface
     public interface RetrievalLineItemSummary<T> {
-        Page<T> retrieve(List<String> lineIds, Instant startTime, Instant endTime, Pageable page);
+        Iterator<T> retrieve(List<String> lineIds, Instant startTime, Instant endTime);
     }
 
     private static Set<String> parseMetrics(String metrics) {
@@ -0,0 +1,48 @@
+package org.prebid.pg.delstats.model.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class PbsInstanceStates {
+
+    private String ts;
+
+    private List<PbsInstanceFreshness> pbsInstances;
+
+    @Data
+    @Builder
+    @EqualsAndHashCode
+    public static class PbsInstanceFreshness {
+
+        private String vendor;
+
+        private String region;
+
+        private String instanceId;
+
+        private String lastReportId;
+
+        private String lastReportTimestamp;
+
+        private String lastDataWindowEndTimestamp;
+
+        private long secondsSinceLastReport;
+
+        private long lastReportLagMillis;
+
+        private int lastReportLines;
+
+        private long lastReportBytes;
+
+        private long reportsReceived;
+
+        private long bytesReceived;
+    }
+
+}
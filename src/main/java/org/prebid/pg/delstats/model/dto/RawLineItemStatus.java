@@ -0,0 +1,24 @@
+package org.prebid.pg.delstats.model.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Value;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
+
+/**
+ * A single Line Item Status entry captured by the streaming ingest parser: the identifying fields pulled out on the way
+ * through along with the entry's counters and JSON text, ready to be stored as is.
+ */
+@Value
+@Getter
+@Builder
+public class RawLineItemStatus {
+
+    String lineItemId;
+
+    String lineItemSource;
+
+    LineItemStatusCounters counters;
+
+    String json;
+}
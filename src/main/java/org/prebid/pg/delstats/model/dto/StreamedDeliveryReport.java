@@ -0,0 +1,21 @@
+package org.prebid.pg.delstats.model.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A Delivery Progress Report read by the streaming ingest parser. The report level fields are held in a
+ * {@link DeliveryReportFromPbsDto} without line item status entries, which are kept as {@link RawLineItemStatus}.
+ */
+@Value
+@Getter
+@Builder
+public class StreamedDeliveryReport {
+
+    DeliveryReportFromPbsDto metadata;
+
+    List<RawLineItemStatus> lineItemStatus;
+}
@@ -0,0 +1,29 @@
+package org.prebid.pg.delstats.model.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Value;
+
+import java.sql.Timestamp;
+import java.util.Iterator;
+
+/**
+ * A {@link DeliveryReportToPlannerAdapterDto} whose lines are read from the DB as they are iterated, to be written
+ * out by the {@link org.prebid.pg.delstats.services.DeliveryReportJsonWriter} without holding them all in memory.
+ */
+@Value
+@Getter
+@Builder
+public class StreamedDeliveryReportToPlannerAdapter {
+
+    String reportId;
+
+    Timestamp reportTimeStamp;
+
+    Timestamp dataWindowStartTimeStamp;
+
+    Timestamp dataWindowEndTimeStamp;
+
+    Iterator<DeliveryReportLineDto> deliveryReports;
+
+}
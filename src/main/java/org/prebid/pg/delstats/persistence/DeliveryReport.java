@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.IdClass;
@@ -50,6 +51,10 @@ public class DeliveryReport {
 
     Integer clientAuctions;
 
+    @Embedded
+    @Builder.Default
+    LineItemStatusCounters counters = new LineItemStatusCounters();
+
     @Data
     static class IdClass implements Serializable {
         String reportId;
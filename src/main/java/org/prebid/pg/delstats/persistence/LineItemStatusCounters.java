@@ -0,0 +1,108 @@
+package org.prebid.pg.delstats.persistence;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Embeddable;
+
+/**
+ * Counters of a Line Item Status entry that the summary and token spend jobs aggregate, pulled out of the entry at
+ * ingest time and stored in typed columns next to its JSON text.
+ */
+@Data
+@NoArgsConstructor
+@Embeddable
+public class LineItemStatusCounters {
+
+    public static final String EVENTS = "events";
+    public static final String COUNT = "count";
+    public static final String DELIVERY_SCHEDULE = "deliverySchedule";
+    public static final String PLAN_ID = "planId";
+    public static final String TOKENS = "tokens";
+    public static final String SPENT = "spent";
+
+    int accountAuctions;
+
+    int domainMatched;
+
+    int targetMatched;
+
+    int targetMatchedButFcapped;
+
+    int targetMatchedButFcapLookupFailed;
+
+    int pacingDeferred;
+
+    int sentToBidder;
+
+    int sentToBidderAsTopMatch;
+
+    int receivedFromBidderInvalidated;
+
+    int receivedFromBidder;
+
+    int sentToClient;
+
+    int sentToClientAsTopMatch;
+
+    // Count of the first entry in events
+    int winEvents;
+
+    String firstPlanId;
+
+    // Spent count of the first token class of the first delivery schedule
+    int firstPlanTokensSpent;
+
+    String secondPlanId;
+
+    /**
+     * Set the counter kept for a top level field of the Line Item Status entry.
+     *
+     * @param fieldName
+     * @param value
+     * @return false if no counter is kept for the field
+     */
+    public boolean setTopLevelCounter(String fieldName, int value) {
+        switch (fieldName) {
+            case "accountAuctions":
+                accountAuctions = value;
+                break;
+            case "domainMatched":
+                domainMatched = value;
+                break;
+            case "targetMatched":
+                targetMatched = value;
+                break;
+            case "targetMatchedButFcapped":
+                targetMatchedButFcapped = value;
+                break;
+            case "targetMatchedButFcapLookupFailed":
+                targetMatchedButFcapLookupFailed = value;
+                break;
+            case "pacingDeferred":
+                pacingDeferred = value;
+                break;
+            case "sentToBidder":
+                sentToBidder = value;
+                break;
+            case "sentToBidderAsTopMatch":
+                sentToBidderAsTopMatch = value;
+                break;
+            case "receivedFromBidderInvalidated":
+                receivedFromBidderInvalidated = value;
+                break;
+            case "receivedFromBidder":
+                receivedFromBidder = value;
+                break;
+            case "sentToClient":
+                sentToClient = value;
+                break;
+            case "sentToClientAsTopMatch":
+                sentToClientAsTopMatch = value;
+                break;
+            default:
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package org.prebid.pg.delstats.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.IngestStage;
+import org.prebid.pg.delstats.metrics.IngestTrace;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes Delivery Report records with multi-row INSERT statements, bypassing the per row merge JPA performs for
+ * entities with assigned keys. Rows whose primary key is already stored are left as is. The key is
+ * (report_id, line_item_id), widened with data_window_start_timestamp when the table is partitioned; both come from
+ * the report itself, so the lines of a retried report are not stored again.
+ */
+@Slf4j
+@Repository
+public class DeliveryProgressReportsBulkRepository {
+
+    private static final LineItemStatusCounters NO_COUNTERS = new LineItemStatusCounters();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int chunkSize;
+
+    private final String fullChunkSql;
+
+    public DeliveryProgressReportsBulkRepository(JdbcTemplate jdbcTemplate, ServerConfiguration configuration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = Math.max(1, configuration.getDeliveryReportBulkInsertChunkSize());
+        this.fullChunkSql = bulkInsertSql(chunkSize);
+    }
+
+    /**
+     * Insert the Delivery Report records in chunks of the configured size, all within one transaction. The inserts are
+     * lapped as the persist stage of the ingest trace of the request, if any, leaving the commit to the caller to lap.
+     *
+     * @param deliveryReports
+     * @return number of rows reported by the database
+     */
+    @Transactional
+    public int insertIgnoringDuplicates(List<DeliveryReport> deliveryReports) {
+        int rows = 0;
+        Iterator<DeliveryReport> iterator = deliveryReports.iterator();
+        int remaining = deliveryReports.size();
+        while (remaining > 0) {
+            int rowsInChunk = Math.min(chunkSize, remaining);
+            String sql = rowsInChunk == chunkSize ? fullChunkSql : bulkInsertSql(rowsInChunk);
+            rows += jdbcTemplate.update(sql, ps -> setChunkValues(ps, iterator, rowsInChunk));
+            remaining -= rowsInChunk;
+        }
+        IngestTrace.lap(IngestStage.PERSIST);
+        return rows;
+    }
+
+    static String bulkInsertSql(int rowCount) {
+        StringBuilder sql = new StringBuilder(
+                DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_BULK_INSERT_SQL_PREFIX);
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_BULK_INSERT_ROW_VALUES);
+        }
+        sql.append(DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_BULK_INSERT_SQL_SUFFIX);
+        return sql.toString();
+    }
+
+    private static void setChunkValues(PreparedStatement ps, Iterator<DeliveryReport> iterator, int rowsInChunk)
+            throws SQLException {
+        int index = 1;
+        for (int i = 0; i < rowsInChunk; i++) {
+            DeliveryReport deliveryReport = iterator.next();
+            ps.setString(index++, deliveryReport.getReportId());
+            ps.setString(index++, deliveryReport.getLineItemId());
+            ps.setString(index++, deliveryReport.getInstanceId());
+            ps.setString(index++, deliveryReport.getVendor());
+            ps.setString(index++, deliveryReport.getRegion());
+            ps.setString(index++, deliveryReport.getBidderCode());
+            ps.setString(index++, deliveryReport.getExtLineItemId());
+            ps.setTimestamp(index++, deliveryReport.getDataWindowStartTimestamp());
+            ps.setTimestamp(index++, deliveryReport.getDataWindowEndTimestamp());
+            ps.setTimestamp(index++, deliveryReport.getReportTimestamp());
+            ps.setInt(index++, deliveryReport.getClientAuctions() == null ? 0 : deliveryReport.getClientAuctions());
+            ps.setString(index++, deliveryReport.getLineItemStatus());
+            index = setCounterValues(ps, index, deliveryReport.getCounters() == null
+                    ? NO_COUNTERS : deliveryReport.getCounters());
+        }
+    }
+
+    private static int setCounterValues(PreparedStatement ps, int startIndex, LineItemStatusCounters counters)
+            throws SQLException {
+        int index = startIndex;
+        ps.setInt(index++, counters.getAccountAuctions());
+        ps.setInt(index++, counters.getDomainMatched());
+        ps.setInt(index++, counters.getTargetMatched());
+        ps.setInt(index++, counters.getTargetMatchedButFcapped());
+        ps.setInt(index++, counters.getTargetMatchedButFcapLookupFailed());
+        ps.setInt(index++, counters.getPacingDeferred());
+        ps.setInt(index++, counters.getSentToBidder());
+        ps.setInt(index++, counters.getSentToBidderAsTopMatch());
+        ps.setInt(index++, counters.getReceivedFromBidderInvalidated());
+        ps.setInt(index++, counters.getReceivedFromBidder());
+        ps.setInt(index++, counters.getSentToClient());
+        ps.setInt(index++, counters.getSentToClientAsTopMatch());
+        ps.setInt(index++, counters.getWinEvents());
+        ps.setString(index++, counters.getFirstPlanId());
+        ps.setInt(index++, counters.getFirstPlanTokensSpent());
+        ps.setString(index++, counters.getSecondPlanId());
+        return index;
+    }
+}
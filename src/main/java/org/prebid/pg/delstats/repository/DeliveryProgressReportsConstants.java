@@ -16,9 +16,17 @@ public class DeliveryProgressReportsConstants {
                     + ", bidder_code, ext_line_item_id, "
                     + "data_window_start_timestamp, data_window_end_timestamp";
 
+    public static final String DELIVERY_PROGRESS_REPORT_COUNTER_COLUMNS =
+            "account_auctions, domain_matched, target_matched, target_matched_but_fcapped, "
+                    + "target_matched_but_fcap_lookup_failed, pacing_deferred, sent_to_bidder, "
+                    + "sent_to_bidder_as_top_match, received_from_bidder_invalidated, received_from_bidder, "
+                    + "sent_to_client, sent_to_client_as_top_match, win_events, "
+                    + "first_plan_id, first_plan_tokens_spent, second_plan_id";
+
     public static final String DELIVERY_PROGRESS_REPORT_COLUMNS =
             DELIVERY_PROGRESS_REPORT_INDEXED_COLUMNS + ", "
-                    + "report_timestamp, client_auctions, line_item_status";
+                    + "report_timestamp, client_auctions, line_item_status, "
+                    + DELIVERY_PROGRESS_REPORT_COUNTER_COLUMNS;
 
     public static final String DELIVERY_PROGRESS_REPORT_TIMESTAMP_RANGE_CLAUSE =
             "report_timestamp >= :startTime AND report_timestamp < :endTime";
@@ -30,8 +38,7 @@ public class DeliveryProgressReportsConstants {
             "(data_window_end_timestamp >= :startTime AND data_window_end_timestamp < :endTime)";
 
     public static final String DELIVERY_PROGRESS_REPORT_AGGREGATION_SQL = "SELECT "
-            + DELIVERY_PROGRESS_REPORT_INDEXED_COLUMNS
-            + ", report_timestamp, client_auctions, line_item_status"
+            + DELIVERY_PROGRESS_REPORT_COLUMNS
             + " FROM " + DELIVERY_PROGRESS_REPORT_TABLE_NAME
             + " WHERE report_timestamp > :startTime AND report_timestamp <= :endTime";
 
@@ -71,11 +78,39 @@ public class DeliveryProgressReportsConstants {
             DELIVERY_PROGRESS_REPORT_GET_LINES_BY_TIME_RANGE_COUNT_SQL
             + " AND line_item_id in (:lineItemIds)";
 
+    public static final String LINE_ITEM_REPORT_AFTER_KEY_CLAUSE =
+            "(data_window_end_timestamp > :afterTimestamp OR (data_window_end_timestamp = :afterTimestamp"
+                    + " AND (report_id > :afterReportId"
+                    + " OR (report_id = :afterReportId AND line_item_id > :afterLineItemId))))";
+
+    public static final String LINE_ITEM_REPORT_KEY_ORDER =
+            " ORDER BY data_window_end_timestamp, report_id, line_item_id";
+
+    public static final String DELIVERY_PROGRESS_REPORT_GET_LINES_BY_TIME_RANGE_AFTER_KEY_SQL =
+            DELIVERY_PROGRESS_REPORT_GET_LINES_BY_TIME_RANGE_SQL
+            + " AND " + LINE_ITEM_REPORT_AFTER_KEY_CLAUSE
+            + LINE_ITEM_REPORT_KEY_ORDER;
+
+    public static final String DELIVERY_PROGRESS_REPORT_GET_BY_LINES_TIME_RANGE_AFTER_KEY_SQL =
+            DELIVERY_PROGRESS_REPORT_GET_BY_LINES_TIME_RANGE_SQL
+            + " AND " + LINE_ITEM_REPORT_AFTER_KEY_CLAUSE
+            + LINE_ITEM_REPORT_KEY_ORDER;
+
     public static final String DELIVERY_PROGRESS_REPORT_GET_REGION_AND_VENDORS_BY_TIME_RANGE_SQL =
             "SELECT DISTINCT " + DELIVERY_PROGRESS_REPORT_REGION_VENDOR_COLUMNS + " FROM "
                 + DELIVERY_PROGRESS_REPORT_TABLE_NAME
                 + " WHERE " + DELIVERY_PROGRESS_REPORT_TIMESTAMP_RANGE_CLAUSE;
 
+    public static final String DELIVERY_PROGRESS_REPORT_BULK_INSERT_SQL_PREFIX =
+            "INSERT INTO " + DELIVERY_PROGRESS_REPORT_TABLE_NAME
+            + " (" + DELIVERY_PROGRESS_REPORT_COLUMNS + ") VALUES ";
+
+    public static final String DELIVERY_PROGRESS_REPORT_BULK_INSERT_ROW_VALUES =
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public static final String DELIVERY_PROGRESS_REPORT_BULK_INSERT_SQL_SUFFIX =
+            " ON DUPLICATE KEY UPDATE report_id = report_id";
+
     private DeliveryProgressReportsConstants() { }
 
 }
@@ -28,6 +28,28 @@ public interface DeliveryProgressReportsRepository extends JpaRepository<Deliver
             @Param("startTime") Timestamp startTime,
             @Param("endTime") Timestamp endTime, Pageable page);
 
+    /**
+     * A page of a bidder's lines reported in a time range, continuing after the given line in
+     * (report_timestamp, report_id, line_item_id) order. Read through a {@link KeysetCursor}.
+     */
+    @QueryHints(value = {
+            @javax.persistence.QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @javax.persistence.QueryHint(name = "org.hibernate.readOnly", value = "true"),
+            @javax.persistence.QueryHint(name = "javax.persistence.query.timeout", value = "15000") }
+    )
+    @Query(value = "SELECT dr FROM DeliveryReport dr WHERE dr.bidderCode = :bidderCode AND"
+            + " dr.reportTimestamp >= :startTime AND dr.reportTimestamp < :endTime AND"
+            + " (dr.reportTimestamp > :afterTimestamp OR (dr.reportTimestamp = :afterTimestamp AND"
+            + " (dr.reportId > :afterReportId OR (dr.reportId = :afterReportId AND dr.lineItemId > :afterLineItemId))))"
+            + " ORDER BY dr.reportTimestamp, dr.reportId, dr.lineItemId")
+    List<DeliveryReport> findByBidderCodeAndReportTimestampRangeAfter(
+            @Param("bidderCode") String bidderCode,
+            @Param("startTime") Timestamp startTime,
+            @Param("endTime") Timestamp endTime,
+            @Param("afterTimestamp") Timestamp afterTimestamp,
+            @Param("afterReportId") String afterReportId,
+            @Param("afterLineItemId") String afterLineItemId, Pageable limit);
+
     @Query(value = DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_AGGREGATION_SQL,
             countQuery = DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_AGGREGATION_COUNT_SQL,
             nativeQuery = true)
@@ -82,6 +104,36 @@ public interface DeliveryProgressReportsRepository extends JpaRepository<Deliver
             @Param("endTime") Instant endTime,
             Pageable page);
 
+    /**
+     * A page of lines with a data window ending in a time range, continuing after the given line in
+     * (data_window_end_timestamp, report_id, line_item_id) order. Read through a {@link KeysetCursor}.
+     */
+    @Query(value = DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_GET_LINES_BY_TIME_RANGE_AFTER_KEY_SQL,
+            nativeQuery = true)
+    @QueryHints(value = {
+            @javax.persistence.QueryHint(name = "org.hibernate.readOnly", value = "true"),
+            @javax.persistence.QueryHint(name = "javax.persistence.query.timeout", value = "15000") }
+    )
+    List<DeliveryReport> getLineItemReportsWithTimeRangeAfter(@Param("startTime") Instant startTime,
+            @Param("endTime") Instant endTime,
+            @Param("afterTimestamp") Timestamp afterTimestamp,
+            @Param("afterReportId") String afterReportId,
+            @Param("afterLineItemId") String afterLineItemId, Pageable limit);
+
+    @Query(value = DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_GET_BY_LINES_TIME_RANGE_AFTER_KEY_SQL,
+            nativeQuery = true)
+    @QueryHints(value = {
+            @javax.persistence.QueryHint(name = "org.hibernate.readOnly", value = "true"),
+            @javax.persistence.QueryHint(name = "javax.persistence.query.timeout", value = "15000") }
+    )
+    List<DeliveryReport> getLineItemReportsByLineIdsWithTimeRangeAfter(
+            @Param("lineItemIds") List<String> lineItemIds,
+            @Param("startTime") Instant startTime,
+            @Param("endTime") Instant endTime,
+            @Param("afterTimestamp") Timestamp afterTimestamp,
+            @Param("afterReportId") String afterReportId,
+            @Param("afterLineItemId") String afterLineItemId, Pageable limit);
+
     @Query(value = DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_GET_REGION_AND_VENDORS_BY_TIME_RANGE_SQL,
             nativeQuery = true)
     @QueryHints(value = {
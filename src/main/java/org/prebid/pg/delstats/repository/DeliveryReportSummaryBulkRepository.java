@@ -0,0 +1,101 @@
+package org.prebid.pg.delstats.repository;
+
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes line item summaries with multi-row INSERT statements instead of an INSERT and identity read back per row
+ * as JPA does for entities with generated keys. The generated ids are not set on the summaries passed in.
+ */
+@Repository
+public class DeliveryReportSummaryBulkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int chunkSize;
+
+    private final String fullChunkSql;
+
+    public DeliveryReportSummaryBulkRepository(JdbcTemplate jdbcTemplate, ServerConfiguration configuration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = Math.max(1, configuration.getDeliveryReportBulkInsertChunkSize());
+        this.fullChunkSql = bulkInsertSql(chunkSize);
+    }
+
+    /**
+     * Insert the summaries in chunks of the configured size, all within one transaction.
+     *
+     * @param summaries
+     * @return number of rows reported by the database
+     */
+    @Transactional
+    public int insert(List<DeliveryReportSummary> summaries) {
+        int rows = 0;
+        Iterator<DeliveryReportSummary> iterator = summaries.iterator();
+        int remaining = summaries.size();
+        while (remaining > 0) {
+            int rowsInChunk = Math.min(chunkSize, remaining);
+            String sql = rowsInChunk == chunkSize ? fullChunkSql : bulkInsertSql(rowsInChunk);
+            rows += jdbcTemplate.update(sql, ps -> setChunkValues(ps, iterator, rowsInChunk));
+            remaining -= rowsInChunk;
+        }
+        return rows;
+    }
+
+    static String bulkInsertSql(int rowCount) {
+        StringBuilder sql = new StringBuilder(DeliveryReportSummaryConstants.LINE_SUMMARY_BULK_INSERT_SQL_PREFIX);
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(DeliveryReportSummaryConstants.LINE_SUMMARY_BULK_INSERT_ROW_VALUES);
+        }
+        return sql.toString();
+    }
+
+    private static void setChunkValues(PreparedStatement ps, Iterator<DeliveryReportSummary> iterator,
+                                       int rowsInChunk) throws SQLException {
+        int index = 1;
+        for (int i = 0; i < rowsInChunk; i++) {
+            DeliveryReportSummary summary = iterator.next();
+            ps.setTimestamp(index++, toTimestamp(summary.getReportWindowStartTimestamp()));
+            ps.setTimestamp(index++, toTimestamp(summary.getReportWindowEndTimestamp()));
+            ps.setTimestamp(index++, toTimestamp(summary.getDataWindowStartTimestamp()));
+            ps.setTimestamp(index++, toTimestamp(summary.getDataWindowEndTimestamp()));
+            ps.setString(index++, summary.getLineItemId());
+            ps.setString(index++, summary.getExtLineItemId());
+            ps.setString(index++, summary.getBidderCode());
+            ps.setString(index++, summary.getLineItemSource());
+            ps.setInt(index++, summary.getAccountAuctions());
+            ps.setInt(index++, summary.getDomainMatched());
+            ps.setInt(index++, summary.getTargetMatched());
+            ps.setInt(index++, summary.getTargetMatchedButFcapped());
+            ps.setInt(index++, summary.getTargetMatchedButFcapLookupFailed());
+            ps.setInt(index++, summary.getPacingDeferred());
+            ps.setInt(index++, summary.getSentToBidder());
+            ps.setInt(index++, summary.getSentToBidderAsTopMatch());
+            ps.setInt(index++, summary.getReceivedFromBidderInvalidated());
+            ps.setInt(index++, summary.getReceivedFromBidder());
+            ps.setInt(index++, summary.getSentToClient());
+            ps.setInt(index++, summary.getSentToClientAsTopMatch());
+            ps.setString(index++, summary.getPlanData());
+            ps.setInt(index++, summary.getWinEvents());
+            ps.setTimestamp(index++, toTimestamp(summary.getCreatedAt() == null
+                    ? Instant.now() : summary.getCreatedAt()));
+        }
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant == null ? null : Timestamp.from(instant);
+    }
+}
@@ -0,0 +1,111 @@
+package org.prebid.pg.delstats.repository;
+
+public class DeliveryReportSummaryConstants {
+
+    public static final String DELIVERY_REPORT_SUMMARY_TABLE_NAME = "delivery_progress_reports_summary";
+
+    public static final String LINE_SUMMARY_HOUR = "DATE_FORMAT(report_window_start_timestamp, '%Y%m%d%H')";
+
+    public static final String LINE_SUMMARY_BY_HOUR_COLUMNS =
+            "MAX(id) AS id, MIN(report_window_start_timestamp) AS report_window_start_timestamp,"
+            + " MAX(report_window_end_timestamp) AS report_window_end_timestamp,"
+            + " MIN(data_window_start_timestamp) AS data_window_start_timestamp,"
+            + " MAX(data_window_end_timestamp) AS data_window_end_timestamp,"
+            + " line_item_id, ext_line_item_id, bidder_code, line_item_source,"
+            + " SUM(account_auctions) AS account_auctions, SUM(domain_matched) AS domain_matched,"
+            + " SUM(target_matched) AS target_matched, SUM(target_matched_but_fcapped) AS target_matched_but_fcapped,"
+            + " SUM(target_matched_but_fcap_lookup_failed) AS target_matched_but_fcap_lookup_failed,"
+            + " SUM(pacing_deferred) AS pacing_deferred, SUM(sent_to_bidder) AS sent_to_bidder,"
+            + " SUM(sent_to_bidder_as_top_match) AS sent_to_bidder_as_top_match,"
+            + " SUM(received_from_bidder_invalidated) AS received_from_bidder_invalidated,"
+            + " SUM(received_from_bidder) AS received_from_bidder,"
+            + " SUM(sent_to_client) AS sent_to_client, SUM(sent_to_client_as_top_match) AS sent_to_client_as_top_match,"
+            + " SUM(win_events) AS win_events, plan_data, MAX(created_at) AS created_at";
+
+    public static final String LINE_SUMMARY_REPORT_WINDOW_CLAUSE =
+            "report_window_start_timestamp >= :startTime AND report_window_end_timestamp < :endTime";
+
+    /**
+     * Rows after the line of the hour starting at afterHour, as the report window start of the rows is always within
+     * the hour of their group.
+     */
+    public static final String LINE_SUMMARY_AFTER_KEY_CLAUSE = "report_window_start_timestamp >= :afterHour"
+            + " AND (report_window_start_timestamp >= :afterHourEnd OR line_item_id > :afterLineItemId)";
+
+    public static final String LINE_SUMMARY_BY_HOUR_GROUP_ORDER =
+            " GROUP BY " + LINE_SUMMARY_HOUR + ", line_item_id"
+            + " ORDER BY " + LINE_SUMMARY_HOUR + ", line_item_id";
+
+    public static final String LINE_SUMMARY_BY_HOUR_AFTER_KEY_SQL = "SELECT " + LINE_SUMMARY_BY_HOUR_COLUMNS
+            + " FROM " + DELIVERY_REPORT_SUMMARY_TABLE_NAME
+            + " WHERE " + LINE_SUMMARY_REPORT_WINDOW_CLAUSE
+            + " AND " + LINE_SUMMARY_AFTER_KEY_CLAUSE
+            + LINE_SUMMARY_BY_HOUR_GROUP_ORDER;
+
+    public static final String LINE_SUMMARY_BY_LINES_AND_HOUR_AFTER_KEY_SQL = "SELECT " + LINE_SUMMARY_BY_HOUR_COLUMNS
+            + " FROM " + DELIVERY_REPORT_SUMMARY_TABLE_NAME
+            + " WHERE " + LINE_SUMMARY_REPORT_WINDOW_CLAUSE
+            + " AND line_item_id IN (:lineItemIds)"
+            + " AND " + LINE_SUMMARY_AFTER_KEY_CLAUSE
+            + LINE_SUMMARY_BY_HOUR_GROUP_ORDER;
+
+    /**
+     * Summarizes the stored lines of a report window, a line item per row. Ends with the report window clause, so
+     * more conditions on the lines can be appended before grouping them by {@link #INSERT_LINE_SUMMARIES_GROUP_BY}.
+     */
+    public static final String INSERT_LINE_SUMMARIES_SQL = "INSERT INTO " + DELIVERY_REPORT_SUMMARY_TABLE_NAME
+            + " (report_window_start_timestamp, report_window_end_timestamp,"
+            + " data_window_start_timestamp, data_window_end_timestamp,"
+            + " line_item_id, ext_line_item_id, bidder_code, line_item_source,"
+            + " account_auctions, domain_matched,"
+            + " target_matched, target_matched_but_fcapped, target_matched_but_fcap_lookup_failed,"
+            + " pacing_deferred, sent_to_bidder, sent_to_bidder_as_top_match,"
+            + " received_from_bidder_invalidated, received_from_bidder,"
+            + " sent_to_client, sent_to_client_as_top_match, plan_data, win_events) "
+            + "SELECT MIN(report_timestamp) AS report_window_start_timestamp,"
+            + " MAX(report_timestamp) AS report_window_end_timestamp,"
+            + " MIN(data_window_start_timestamp) AS data_window_start_timestamp,"
+            + " MAX(data_window_end_timestamp) AS data_window_end_timestamp,"
+            + " line_item_id, ext_line_item_id, bidder_code,"
+            + " bidder_code AS line_item_source,"
+            + " COALESCE(SUM(account_auctions), 0) AS account_auctions,"
+            + " COALESCE(SUM(domain_matched), 0) AS domain_matched, "
+            + " COALESCE(SUM(target_matched), 0) AS target_matched,"
+            + " COALESCE(SUM(target_matched_but_fcapped), 0) AS target_matched_but_fcapped,"
+            + " COALESCE(SUM(target_matched_but_fcap_lookup_failed), 0) AS target_matched_but_fcap_lookup_failed,"
+            + " COALESCE(SUM(pacing_deferred), 0) AS pacing_deferred,"
+            + " COALESCE(SUM(sent_to_bidder), 0) AS sent_to_bidder,"
+            + " COALESCE(SUM(sent_to_bidder_as_top_match), 0) AS sent_to_bidder_as_top_match,"
+            + " COALESCE(SUM(received_from_bidder_invalidated), 0) AS received_from_bidder_invalidated,"
+            + " COALESCE(SUM(received_from_bidder), 0) AS received_from_bidder,"
+            + " COALESCE(SUM(sent_to_client), 0) AS sent_to_client,"
+            + " COALESCE(SUM(sent_to_client_as_top_match), 0) AS sent_to_client_as_top_match,"
+            + " CONCAT("
+            + "     COALESCE(first_plan_id, ''), ',',"
+            + "     COALESCE(SUM(first_plan_tokens_spent), 0), ',',"
+            + "     COALESCE(second_plan_id, ''), ',',"
+            + "     COALESCE(SUM(first_plan_tokens_spent), 0)"
+            + " ),"
+            + " COALESCE(SUM(win_events), 0) AS win_events"
+            + " FROM delivery_progress_reports"
+            + " WHERE report_timestamp >= :startTime AND report_timestamp < :endTime";
+
+    public static final String INSERT_LINE_SUMMARIES_GROUP_BY = " GROUP BY line_item_id";
+
+    public static final String LINE_SUMMARY_BULK_INSERT_SQL_PREFIX =
+            "INSERT INTO " + DELIVERY_REPORT_SUMMARY_TABLE_NAME
+            + " (report_window_start_timestamp, report_window_end_timestamp,"
+            + " data_window_start_timestamp, data_window_end_timestamp,"
+            + " line_item_id, ext_line_item_id, bidder_code, line_item_source,"
+            + " account_auctions, domain_matched,"
+            + " target_matched, target_matched_but_fcapped, target_matched_but_fcap_lookup_failed,"
+            + " pacing_deferred, sent_to_bidder, sent_to_bidder_as_top_match,"
+            + " received_from_bidder_invalidated, received_from_bidder,"
+            + " sent_to_client, sent_to_client_as_top_match, plan_data, win_events, created_at) VALUES ";
+
+    public static final String LINE_SUMMARY_BULK_INSERT_ROW_VALUES =
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private DeliveryReportSummaryConstants() { }
+
+}
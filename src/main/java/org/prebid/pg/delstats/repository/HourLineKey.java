@@ -0,0 +1,34 @@
+package org.prebid.pg.delstats.repository;
+
+import lombok.Value;
+import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Position of an hourly line item summary in a read ordered by hour, then line item.
+ */
+@Value
+public class HourLineKey {
+
+    private Instant hour;
+
+    private String lineItemId;
+
+    /**
+     * Key before all summaries of the hour of the given time and later.
+     */
+    public static HourLineKey startingAt(Instant time) {
+        return new HourLineKey(time.truncatedTo(ChronoUnit.HOURS), "");
+    }
+
+    public static HourLineKey of(DeliveryReportSummary summary) {
+        return new HourLineKey(
+                summary.getReportWindowStartTimestamp().truncatedTo(ChronoUnit.HOURS), summary.getLineItemId());
+    }
+
+    public Instant getHourEnd() {
+        return hour.plus(1, ChronoUnit.HOURS);
+    }
+}
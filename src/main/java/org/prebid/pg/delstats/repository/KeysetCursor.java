@@ -0,0 +1,79 @@
+package org.prebid.pg.delstats.repository;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the rows of a range query a page at a time, each page continuing after the key of the last row read instead
+ * of skipping an OFFSET, so that every page costs the same however deep into the range it is and no count query is
+ * needed. The page query has to order its rows by the key and return only rows after the key it is given.
+ * Pages are only read as the rows are consumed.
+ *
+ * @param <T> row type
+ * @param <K> key type
+ */
+public class KeysetCursor<T, K> implements Iterator<T> {
+
+    private final BiFunction<K, Pageable, List<T>> pageReader;
+
+    private final Function<T, K> keyExtractor;
+
+    private final Pageable limit;
+
+    private K after;
+
+    private Iterator<T> page = Collections.emptyIterator();
+
+    private boolean lastPage;
+
+    /**
+     * @param first key to start after
+     * @param pageSize rows to read per page
+     * @param keyExtractor key of a row
+     * @param pageReader reads up to the limit of rows after the given key, in key order
+     */
+    public KeysetCursor(K first, int pageSize, Function<T, K> keyExtractor,
+                        BiFunction<K, Pageable, List<T>> pageReader) {
+        this.after = first;
+        this.limit = PageRequest.of(0, Math.max(1, pageSize));
+        this.keyExtractor = keyExtractor;
+        this.pageReader = pageReader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext() && !lastPage) {
+            List<T> rows = pageReader.apply(after, limit);
+            lastPage = rows.size() < limit.getPageSize();
+            if (!rows.isEmpty()) {
+                after = keyExtractor.apply(rows.get(rows.size() - 1));
+            }
+            page = rows.iterator();
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
@@ -55,7 +55,7 @@ public class LatestTokenSpendSummaryConstants {
                     +
                     "JSON_OBJECT('tokenSpent', JSON_ARRAY(JSON_OBJECT('pc', -10, 'class', 1)), "
                     +
-                    "'targetMatched', SUM(line_item_status->\"$.targetMatched\")), "
+                    "'targetMatched', SUM(target_matched)), "
                     +
                     "CURRENT_TIMESTAMP "
                     +
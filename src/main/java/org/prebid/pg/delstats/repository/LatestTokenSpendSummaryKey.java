@@ -0,0 +1,20 @@
+package org.prebid.pg.delstats.repository;
+
+import lombok.Value;
+
+/**
+ * Primary key of a Token Spend Summary.
+ */
+@Value
+public class LatestTokenSpendSummaryKey {
+
+    private String instanceId;
+
+    private String vendor;
+
+    private String region;
+
+    private String bidderCode;
+
+    private String lineItemId;
+}
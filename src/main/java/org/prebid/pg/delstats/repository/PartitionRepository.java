@@ -0,0 +1,86 @@
+package org.prebid.pg.delstats.repository;
+
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reads and changes the RANGE partitions of tables partitioned on UNIX_TIMESTAMP of a timestamp column. Each table
+ * keeps a last partition holding everything from the newest bound up to MAXVALUE, which new partitions are split off.
+ */
+@Repository
+public class PartitionRepository {
+
+    public static final String CATCH_ALL_PARTITION = "p_future";
+
+    private static final String MAXVALUE = "MAXVALUE";
+
+    private static final String FIND_PARTITIONS_SQL = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION"
+            + " FROM information_schema.PARTITIONS"
+            + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL"
+            + " ORDER BY PARTITION_ORDINAL_POSITION";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Partitions of a table in ascending order.
+     *
+     * @param tableName
+     * @return partitions, empty if the table is not partitioned
+     */
+    public List<Partition> findPartitions(String tableName) {
+        return jdbcTemplate.query(FIND_PARTITIONS_SQL, (rs, rowNum) -> {
+            String description = rs.getString(2);
+            return new Partition(rs.getString(1),
+                    description == null || MAXVALUE.equalsIgnoreCase(description) ? null : Long.valueOf(description));
+        }, tableName);
+    }
+
+    /**
+     * Whether the catch-all partition of a table holds no rows, as splitting it otherwise copies them.
+     *
+     * @param tableName
+     * @return true if the catch-all partition is empty
+     */
+    public boolean isCatchAllPartitionEmpty(String tableName) {
+        return jdbcTemplate.queryForList(String.format("SELECT 1 FROM %s PARTITION (%s) LIMIT 1",
+                tableName, CATCH_ALL_PARTITION)).isEmpty();
+    }
+
+    /**
+     * Split new partitions off the catch-all partition. The catch-all partition is expected to be empty, which makes
+     * this a metadata only change.
+     *
+     * @param tableName
+     * @param partitions new partitions in ascending order, all above the current newest bound
+     */
+    public void addPartitions(String tableName, List<Partition> partitions) {
+        String newPartitions = partitions.stream()
+                .map(partition -> String.format("PARTITION %s VALUES LESS THAN (%d)",
+                        partition.getName(), partition.getUpperBound()))
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute(String.format("ALTER TABLE %s REORGANIZE PARTITION %s INTO (%s, PARTITION %s VALUES LESS"
+                + " THAN MAXVALUE)", tableName, CATCH_ALL_PARTITION, newPartitions, CATCH_ALL_PARTITION));
+    }
+
+    public void dropPartitions(String tableName, List<Partition> partitions) {
+        String names = partitions.stream().map(Partition::getName).collect(Collectors.joining(", "));
+        jdbcTemplate.execute(String.format("ALTER TABLE %s DROP PARTITION %s", tableName, names));
+    }
+
+    /**
+     * A RANGE partition holding rows below its upper bound in epoch seconds, or with no bound for the catch-all one.
+     */
+    @Value
+    public static class Partition {
+        String name;
+        Long upperBound;
+    }
+}
@@ -0,0 +1,38 @@
+package org.prebid.pg.delstats.repository;
+
+import lombok.Value;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+
+import java.sql.Timestamp;
+
+/**
+ * Position of a Delivery Report line in a timestamp ordered read, the primary key breaking ties between lines of the
+ * same timestamp. The timestamp indexes of delivery_progress_reports carry the primary key, so this is index order.
+ */
+@Value
+public class ReportLineKey {
+
+    private Timestamp timestamp;
+
+    private String reportId;
+
+    private String lineItemId;
+
+    /**
+     * Key before all lines at or after the given timestamp.
+     */
+    public static ReportLineKey startingAt(Timestamp timestamp) {
+        return new ReportLineKey(timestamp, "", "");
+    }
+
+    public static ReportLineKey ofReportTimestamp(DeliveryReport deliveryReport) {
+        return new ReportLineKey(
+                deliveryReport.getReportTimestamp(), deliveryReport.getReportId(), deliveryReport.getLineItemId());
+    }
+
+    public static ReportLineKey ofDataWindowEnd(DeliveryReport deliveryReport) {
+        return new ReportLineKey(
+                deliveryReport.getDataWindowEndTimestamp(), deliveryReport.getReportId(),
+                deliveryReport.getLineItemId());
+    }
+}
@@ -5,5 +5,6 @@ public enum RepositoryItem {
     DELIVERY_SUMMARY_REPORTS,
     LINE_ITEMS_IN_DELIVERY_REPORTS,
     LATEST_TOKEN_SPEND_SUMMARIES,
+    SYSTEM_STATES,
     TOKEN_SPEND_SUMMARIES
 }
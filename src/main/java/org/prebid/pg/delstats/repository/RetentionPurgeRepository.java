@@ -0,0 +1,143 @@
+package org.prebid.pg.delstats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Deletes expired rows by primary key, a chunk of keys read from the timestamp index at a time, so that each DELETE
+ * only locks the rows it removes. The keys are read without the rows themselves, the timestamp indexes carrying the
+ * primary key. Every DELETE repeats the expiry condition, leaving rows refreshed since they were found in place.
+ */
+@Repository
+public class RetentionPurgeRepository {
+
+    public static final String LATEST_TOKEN_SPEND_SUMMARY_TABLE = "latest_token_spend_summary";
+
+    static final String STALE_LINE_STATE_CONDITION = " WHERE updated_at < ? AND (tag LIKE ? OR tag LIKE ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RetentionPurgeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Keys of Delivery Report lines reported before expired.
+     *
+     * @param expired
+     * @param limit
+     * @return keys in report timestamp order
+     */
+    public List<ReportLineKey> findExpiredDeliveryReportKeys(Timestamp expired, int limit) {
+        return jdbcTemplate.query("SELECT report_timestamp, report_id, line_item_id FROM "
+                + DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_TABLE_NAME
+                + " WHERE report_timestamp < ? ORDER BY report_timestamp, report_id, line_item_id LIMIT ?",
+                (rs, rowNum) -> new ReportLineKey(
+                        rs.getTimestamp("report_timestamp"), rs.getString("report_id"), rs.getString("line_item_id")),
+                expired, limit);
+    }
+
+    public int deleteDeliveryReports(List<ReportLineKey> keys, Timestamp expired) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(expired);
+        for (ReportLineKey key : keys) {
+            args.add(key.getReportId());
+            args.add(key.getLineItemId());
+        }
+        return jdbcTemplate.update(deleteByKeysSql(DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_TABLE_NAME,
+                "report_timestamp", "(report_id = ? AND line_item_id = ?)", keys.size()), args.toArray());
+    }
+
+    /**
+     * Keys of Token Spend Summaries reported before expired.
+     *
+     * @param expired
+     * @param limit
+     * @return keys in report timestamp order
+     */
+    public List<LatestTokenSpendSummaryKey> findExpiredLatestTokenSpendSummaryKeys(Timestamp expired, int limit) {
+        return jdbcTemplate.query("SELECT instance_id, vendor, region, bidder_code, line_item_id FROM "
+                + LATEST_TOKEN_SPEND_SUMMARY_TABLE + " WHERE report_timestamp < ?"
+                + " ORDER BY report_timestamp, instance_id, vendor, region, bidder_code, line_item_id LIMIT ?",
+                (rs, rowNum) -> new LatestTokenSpendSummaryKey(rs.getString("instance_id"), rs.getString("vendor"),
+                        rs.getString("region"), rs.getString("bidder_code"), rs.getString("line_item_id")),
+                expired, limit);
+    }
+
+    public int deleteLatestTokenSpendSummaries(List<LatestTokenSpendSummaryKey> keys, Timestamp expired) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(expired);
+        for (LatestTokenSpendSummaryKey key : keys) {
+            args.add(key.getInstanceId());
+            args.add(key.getVendor());
+            args.add(key.getRegion());
+            args.add(key.getBidderCode());
+            args.add(key.getLineItemId());
+        }
+        return jdbcTemplate.update(deleteByKeysSql(LATEST_TOKEN_SPEND_SUMMARY_TABLE,
+                "report_timestamp",
+                "(instance_id = ? AND vendor = ? AND region = ? AND bidder_code = ? AND line_item_id = ?)",
+                keys.size()), args.toArray());
+    }
+
+    /**
+     * Tags of per line item summary states, as saved by
+     * {@link SystemStateRepository#saveDeliverySummaryReportStates}, that were not updated since expired.
+     *
+     * @param expired
+     * @param limit
+     * @return tags in ascending order
+     */
+    public List<String> findStaleLineStateTags(Timestamp expired, int limit) {
+        return jdbcTemplate.queryForList("SELECT tag FROM " + SystemStateConstants.SYSTEM_STATE_TABLE_NAME
+                + STALE_LINE_STATE_CONDITION + " ORDER BY tag LIMIT ?", String.class,
+                expired, lineStateTagPattern(SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_SUFFIX),
+                lineStateTagPattern(SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_RECREATE_SUFFIX), limit);
+    }
+
+    public int deleteLineStates(List<String> tags, Timestamp expired) {
+        if (tags.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(expired);
+        args.addAll(tags);
+        return jdbcTemplate.update(deleteByKeysSql(SystemStateConstants.SYSTEM_STATE_TABLE_NAME,
+                "updated_at", "tag = ?", tags.size()), args.toArray());
+    }
+
+    /**
+     * Oldest value of an indexed timestamp column, used to tell how far a purge is behind the retention.
+     *
+     * @param tableName
+     * @param columnName
+     * @return oldest timestamp, empty for an empty table
+     */
+    public Optional<Instant> findOldestTimestamp(String tableName, String columnName) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                String.format("SELECT MIN(%s) FROM %s", columnName, tableName), Timestamp.class);
+        return Optional.ofNullable(oldest).map(Timestamp::toInstant);
+    }
+
+    static String deleteByKeysSql(String tableName, String expiryColumn, String keyCondition, int keys) {
+        return "DELETE FROM " + tableName + " WHERE " + expiryColumn + " < ? AND ("
+                + String.join(" OR ", Collections.nCopies(keys, keyCondition)) + ")";
+    }
+
+    private static String lineStateTagPattern(String suffix) {
+        return "%-" + suffix;
+    }
+}
@@ -0,0 +1,144 @@
+package org.prebid.pg.delstats.services;
+
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Clock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the ids of recently stored Delivery Progress Reports, so that a report PBS delivers again after a retry
+ * can be acknowledged without converting and writing it a second time. A report id is reserved as in flight while
+ * its lines are being stored, and only remembered as stored once they are committed, queued or spooled; when storing
+ * them fails the reservation is released. A delivery arriving while an earlier one of the same report is still in
+ * flight is neither stored nor acknowledged, it is told to retry, as the earlier one may still fail. This only dedups
+ * reports delivered to this instance and remembered since it started; it saves the work of storing a retried report
+ * but does not replace the (report_id, line_item_id) key of the DB.
+ *
+ * <p>Stored ids are kept in two generations. The current one is retired once it is older than the TTL or holds half
+ * of the maximum number of ids, and dropped when the one after it is retired, so an id is remembered for at least the
+ * TTL unless ingest outgrows the bound. As the sets hold the ids themselves there are no false positives to verify
+ * against the DB; a report that was not stored, or was stored by another instance or before a restart, is simply let
+ * through. In flight ids are held until their report is settled by {@link #markStored} or {@link #release}.</p>
+ */
+@Component
+public class DeliveryReportIdempotencyFilter {
+
+    public enum Reservation {
+        // The caller is to store the report and settle the reservation
+        RESERVED,
+        // An earlier delivery of the report is still being stored
+        IN_FLIGHT,
+        // The report was stored recently
+        STORED
+    }
+
+    private final ServerConfiguration configuration;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private Clock clock = Clock.systemUTC();
+
+    private volatile Set<String> current = ConcurrentHashMap.newKeySet();
+
+    private volatile Set<String> previous = ConcurrentHashMap.newKeySet();
+
+    private volatile long currentStartMillis;
+
+    public DeliveryReportIdempotencyFilter(ServerConfiguration configuration) {
+        this.configuration = configuration;
+        this.currentStartMillis = clock.millis();
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return configuration.isDeliveryReportIdempotencyEnabled();
+    }
+
+    /**
+     * Reserve the id of a report about to be stored, unless a report with this id was stored within the TTL or is
+     * being stored right now. The id is added to the in flight ids atomically, so only one of concurrent callers gets
+     * it. A {@link Reservation#RESERVED} id must be settled by {@link #markStored} or {@link #release}.
+     *
+     * @param reportId
+     * @return whether to store the report
+     */
+    public Reservation reserve(String reportId) {
+        if (!isEnabled() || StringUtils.isEmpty(reportId)) {
+            return Reservation.RESERVED;
+        }
+        rotateIfDue();
+        if (isStored(reportId)) {
+            return Reservation.STORED;
+        }
+        if (!inFlight.add(reportId)) {
+            return Reservation.IN_FLIGHT;
+        }
+        if (isStored(reportId)) {
+            // A concurrent delivery of the report was marked stored between the two checks
+            inFlight.remove(reportId);
+            return Reservation.STORED;
+        }
+        return Reservation.RESERVED;
+    }
+
+    /**
+     * Remember the id of a report reserved by {@link #reserve(String)} as stored, once its lines were committed,
+     * queued or spooled.
+     *
+     * @param reportId
+     */
+    public void markStored(String reportId) {
+        if (!isEnabled() || StringUtils.isEmpty(reportId)) {
+            return;
+        }
+        rotateIfDue();
+        current.add(reportId);
+        inFlight.remove(reportId);
+    }
+
+    /**
+     * Forget the id of a report whose lines could not be stored, queued or spooled, whether it is still in flight or
+     * was queued and then dropped, so a retry of the report is stored.
+     *
+     * @param reportId
+     */
+    public void release(String reportId) {
+        if (!isEnabled() || StringUtils.isEmpty(reportId)) {
+            return;
+        }
+        current.remove(reportId);
+        previous.remove(reportId);
+        inFlight.remove(reportId);
+    }
+
+    public int size() {
+        return current.size() + previous.size() + inFlight.size();
+    }
+
+    private boolean isStored(String reportId) {
+        return current.contains(reportId) || previous.contains(reportId);
+    }
+
+    private void rotateIfDue() {
+        if (isRotationDue()) {
+            synchronized (this) {
+                if (isRotationDue()) {
+                    previous = current;
+                    current = ConcurrentHashMap.newKeySet();
+                    currentStartMillis = clock.millis();
+                }
+            }
+        }
+    }
+
+    private boolean isRotationDue() {
+        return clock.millis() - currentStartMillis >= configuration.getDeliveryReportIdempotencyTtlSeconds() * 1000L
+                || current.size() >= configuration.getDeliveryReportIdempotencyMaxReportIds() / 2;
+    }
+}
@@ -0,0 +1,97 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.prebid.pg.delstats.model.dto.DeliveryReportLineDto;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReportToPlannerAdapter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Writes Delivery Reports for Planning Adapters with Jackson's streaming generator one line at a time as the lines
+ * are read from the DB, producing the same JSON as serializing a {@link
+ * org.prebid.pg.delstats.model.dto.DeliveryReportToPlannerAdapterDto}. Line item status is copied through raw.
+ * Given the mapper of a binary format, such as Smile or CBOR, the same structure is written in that format instead.
+ */
+@Component
+public class DeliveryReportJsonWriter {
+
+    static final String REPORT_ID = "reportId";
+    static final String REPORT_TIMESTAMP = "reportTimeStamp";
+    static final String DATA_WINDOW_START_TIMESTAMP = "dataWindowStartTimeStamp";
+    static final String DATA_WINDOW_END_TIMESTAMP = "dataWindowEndTimeStamp";
+    static final String DELIVERY_REPORTS = "deliveryReports";
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter valueWriter;
+
+    public DeliveryReportJsonWriter(SystemService systemService) {
+        this.objectMapper = systemService.getObjectMapper();
+        // Leave flushing to the generator's buffer instead of flushing the response after every line
+        this.valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Write the report to the stream, which is left open.
+     *
+     * @param report
+     * @param out
+     * @return number of lines written
+     * @throws IOException
+     */
+    public int write(StreamedDeliveryReportToPlannerAdapter report, OutputStream out) throws IOException {
+        return write(report, out, objectMapper, valueWriter);
+    }
+
+    /**
+     * Write the report to the stream in the format of the mapper, which is left open.
+     *
+     * @param report
+     * @param out
+     * @param outputMapper
+     * @return number of lines written
+     * @throws IOException
+     */
+    public int write(StreamedDeliveryReportToPlannerAdapter report, OutputStream out, ObjectMapper outputMapper)
+            throws IOException {
+        if (outputMapper == objectMapper) {
+            return write(report, out);
+        }
+        return write(report, out, outputMapper,
+                outputMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+    }
+
+    private int write(StreamedDeliveryReportToPlannerAdapter report, OutputStream out, ObjectMapper outputMapper,
+                      ObjectWriter outputWriter) throws IOException {
+        int lines = 0;
+        try (JsonGenerator generator = outputMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            writeField(generator, outputWriter, REPORT_ID, report.getReportId());
+            writeField(generator, outputWriter, REPORT_TIMESTAMP, report.getReportTimeStamp());
+            writeField(generator, outputWriter, DATA_WINDOW_START_TIMESTAMP, report.getDataWindowStartTimeStamp());
+            writeField(generator, outputWriter, DATA_WINDOW_END_TIMESTAMP, report.getDataWindowEndTimeStamp());
+            generator.writeArrayFieldStart(DELIVERY_REPORTS);
+            Iterator<DeliveryReportLineDto> deliveryReports = report.getDeliveryReports();
+            while (deliveryReports.hasNext()) {
+                outputWriter.writeValue(generator, deliveryReports.next());
+                lines++;
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return lines;
+    }
+
+    private static void writeField(JsonGenerator generator, ObjectWriter outputWriter, String name, Object value)
+            throws IOException {
+        generator.writeFieldName(name);
+        outputWriter.writeValue(generator, value);
+    }
+}
@@ -9,10 +9,13 @@ import org.prebid.pg.delstats.alerts.AlertPriority;
 import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
 import org.prebid.pg.delstats.config.ServerConfiguration;
 import org.prebid.pg.delstats.exception.DeliveryReportValidationException;
+import org.prebid.pg.delstats.exception.InvalidTimestampFormatException;
 import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
 import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.model.dto.RawLineItemStatus;
 import org.prebid.pg.delstats.model.dto.Tracer;
 import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
 import org.prebid.pg.delstats.utils.JacksonUtil;
 import org.prebid.pg.delstats.utils.LineItemStatusUtils;
 import org.prebid.pg.delstats.utils.TimestampUtils;
@@ -21,8 +24,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Performs detailed work on Line Item Status entries in  Delivery Progress Reports, converting them from the transfer
@@ -32,6 +38,10 @@ import java.util.List;
 @Slf4j
 public class DeliveryReportProcessor {
 
+    private static final String LINE_ITEM_ID = "lineItemId";
+
+    private static final String LINE_ITEM_SOURCE = "lineItemSource";
+
     private final ServerConfiguration configuration;
 
     private final GraphiteMetricsRecorder recorder;
@@ -52,6 +62,9 @@ public class DeliveryReportProcessor {
 
     /**
      * Convert each line item status element from a Delivery Progress Report into a List of Delivery Report records.
+     * The entry is validated and converted in a single walk over its fields: the line item id and source and the
+     * counters kept in typed columns are picked up while the timestamp fields are checked, when validation is enabled.
+     * An invalid timestamp rejects the whole report, as it did when the report was validated up front.
      *
      * @param deliveryReportFromPbsDto
      * @param lineItemStatusJson
@@ -68,35 +81,31 @@ public class DeliveryReportProcessor {
             TracerUtils.logIfActiveMatchingOnLineItemStatus(log, tracer, objectMapper,
                     "Attempting to store deliveryReportFromPbsDto={}",
                     deliveryReportFromPbsDto, lineItemStatusJson);
-            String lineItemId = JacksonUtil.nullSafeGet(objectMapper, lineItemStatusJson, "lineItemId");
-            String extLineItemId = LineItemStatusUtils.getExtLineItemId(
-                    lineItemId, configuration.getLineItemBidderCodeSeparator());
-            String lineItemSource = JacksonUtil.nullSafeGet(
-                    objectMapper, lineItemStatusJson, "lineItemSource");
-
-            if (StringUtils.isEmpty(lineItemSource)) {
-                log.warn("No lineItemSource present for line item id {} in Line Item Status::{}", lineItemId,
-                        objectMapper.writeValueAsString(lineItemStatusJson));
-                throw new DeliveryReportValidationException(
-                        String.format("No LineItemSource present in Line Item Status for line %s", lineItemId));
-
+            boolean validateTimestamps = configuration.isValidationEnabled();
+            String lineItemId = "";
+            String lineItemSource = "";
+            LineItemStatusCounters counters = new LineItemStatusCounters();
+            Iterator<Map.Entry<String, JsonNode>> fields = lineItemStatusJson.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String fieldName = field.getKey();
+                JsonNode value = field.getValue();
+                if (LINE_ITEM_ID.equals(fieldName)) {
+                    lineItemId = getText(value);
+                } else if (LINE_ITEM_SOURCE.equals(fieldName)) {
+                    lineItemSource = getText(value);
+                } else if (value.isNumber()) {
+                    counters.setTopLevelCounter(fieldName, value.asInt());
+                }
+                if (validateTimestamps) {
+                    checkNodesRecursivelyForValidTimestamps(fieldName, value);
+                }
             }
-            DeliveryReport deliveryReport = DeliveryReport.builder()
-                    .reportId(deliveryReportFromPbsDto.getReportId())
-                    .vendor(deliveryReportFromPbsDto.getVendor())
-                    .region(deliveryReportFromPbsDto.getRegion())
-                    .instanceId(deliveryReportFromPbsDto.getInstanceId())
-                    .bidderCode(lineItemSource)
-                    .lineItemId(lineItemId)
-                    .extLineItemId(extLineItemId)
-                    .dataWindowStartTimestamp(deliveryReportFromPbsDto.getDataWindowStartTimeStamp())
-                    .dataWindowEndTimestamp(deliveryReportFromPbsDto.getDataWindowEndTimeStamp())
-                    .reportTimestamp(now)
-                    .clientAuctions(deliveryReportFromPbsDto.getClientAuctions())
-                    .lineItemStatus(objectMapper.writeValueAsString(lineItemStatusJson))
-                    .build();
-            log.info(deliveryReport.toString());
-            deliveryReports.add(deliveryReport);
+            LineItemStatusUtils.setNestedCounters(counters, lineItemStatusJson);
+            deliveryReports.add(buildDeliveryReport(deliveryReportFromPbsDto, lineItemId, lineItemSource,
+                    objectMapper.writeValueAsString(lineItemStatusJson), counters, now));
+        } catch (InvalidTimestampFormatException ex) {
+            throw ex;
         } catch (DeliveryReportValidationException ex) {
             // Since deliveryReportFromPbsDto was parsed from valid json, this can only happen in test cases
             String msg = "Line Item Status not valid";
@@ -123,13 +132,106 @@ public class DeliveryReportProcessor {
         return deliveryReports;
     }
 
+    /**
+     * Convert a line item status entry captured by the streaming ingest parser into a List of Delivery Report records.
+     * The entry's JSON text is stored as is.
+     *
+     * @param deliveryReportFromPbsDto
+     * @param rawLineItemStatus
+     * @param now
+     * @param capturedExceptions
+     * @return
+     */
+    List<DeliveryReport> processRawLineItemStatus(DeliveryReportFromPbsDto deliveryReportFromPbsDto,
+                                                  RawLineItemStatus rawLineItemStatus,
+                                                  Timestamp now,
+                                                  List<Exception> capturedExceptions) {
+        List<DeliveryReport> deliveryReports = new LinkedList<>();
+        try {
+            TracerUtils.logIfActiveMatchingOnLineItemStatus(log, tracer,
+                    "Attempting to store deliveryReportFromPbsDto={}", deliveryReportFromPbsDto,
+                    rawLineItemStatus.getLineItemSource(), rawLineItemStatus.getLineItemId());
+            deliveryReports.add(buildDeliveryReport(deliveryReportFromPbsDto, rawLineItemStatus.getLineItemId(),
+                    rawLineItemStatus.getLineItemSource(), rawLineItemStatus.getJson(),
+                    rawLineItemStatus.getCounters(), now));
+        } catch (DeliveryReportValidationException ex) {
+            String msg = "Line Item Status not valid";
+            alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.REPORT_PARSE_ERROR, msg,
+                    AlertPriority.MEDIUM, ex, deliveryReportFromPbsDto.toString()
+            );
+            recorder.markExceptionMeter(ex);
+            capturedExceptions.add(ex);
+        } catch (Exception ex) {
+            String msg = "Unexpected problem in parsing delivery report";
+            alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.MEDIUM, ex);
+            recorder.markExceptionMeter(ex);
+            capturedExceptions.add(ex);
+        }
+        return deliveryReports;
+    }
+
+    /**
+     * Text of a line item id or source field, as read by {@link JacksonUtil#nullSafeGet}.
+     */
+    private String getText(JsonNode value) throws JsonProcessingException {
+        return value.isTextual() ? value.asText() : objectMapper.writeValueAsString(value);
+    }
+
+    private DeliveryReport buildDeliveryReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto, String lineItemId,
+                                               String lineItemSource, String lineItemStatus,
+                                               LineItemStatusCounters counters, Timestamp now) {
+        String extLineItemId = LineItemStatusUtils.getExtLineItemId(
+                lineItemId, configuration.getLineItemBidderCodeSeparator());
+        if (StringUtils.isEmpty(lineItemSource)) {
+            log.warn("No lineItemSource present for line item id {} in Line Item Status::{}", lineItemId,
+                    lineItemStatus);
+            throw new DeliveryReportValidationException(
+                    String.format("No LineItemSource present in Line Item Status for line %s", lineItemId));
+        }
+        DeliveryReport deliveryReport = DeliveryReport.builder()
+                .reportId(deliveryReportFromPbsDto.getReportId())
+                .vendor(deliveryReportFromPbsDto.getVendor())
+                .region(deliveryReportFromPbsDto.getRegion())
+                .instanceId(deliveryReportFromPbsDto.getInstanceId())
+                .bidderCode(lineItemSource)
+                .lineItemId(lineItemId)
+                .extLineItemId(extLineItemId)
+                .dataWindowStartTimestamp(deliveryReportFromPbsDto.getDataWindowStartTimeStamp())
+                .dataWindowEndTimestamp(deliveryReportFromPbsDto.getDataWindowEndTimeStamp())
+                .reportTimestamp(now)
+                .clientAuctions(deliveryReportFromPbsDto.getClientAuctions())
+                .lineItemStatus(lineItemStatus)
+                .counters(counters)
+                .build();
+        log.info(deliveryReport.toString());
+        return deliveryReport;
+    }
+
     /**
      * Validates the timestamp fields in the Delivery Progress Report received. This is a recursive operation that can
-     * impact performance for a large number of lines.
+     * impact performance for a large number of lines, so ingest only validates the data window up front and leaves the
+     * line item status entries to {@link #processLineItemStatus}, which checks them while converting them.
      *
      * @param deliveryReportFromPbsDto
      */
     public void validateDeliveryReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto) {
+        if (!configuration.isValidationEnabled()) {
+            return;
+        }
+        validateDeliveryReportWindow(deliveryReportFromPbsDto);
+        deliveryReportFromPbsDto.getLineItemStatus().stream().forEach(lineItemStatus ->
+                checkNodesRecursivelyForValidTimestamps("root", lineItemStatus)
+        );
+    }
+
+    /**
+     * Validates the data window of a Delivery Progress Report, which must not end further in the future than the
+     * allowed clock skew. Used on its own by the streaming ingest path, which checks the line item status timestamp
+     * fields as they are parsed.
+     *
+     * @param deliveryReportFromPbsDto
+     */
+    public void validateDeliveryReportWindow(DeliveryReportFromPbsDto deliveryReportFromPbsDto) {
         if (!configuration.isValidationEnabled()) {
             return;
         }
@@ -143,9 +245,16 @@ public class DeliveryReportProcessor {
             );
             throw new DeliveryReportValidationException("DataWindowEndTimeStamp before DataWindowStartTimeStamp");
         }
-        deliveryReportFromPbsDto.getLineItemStatus().stream().forEach(lineItemStatus ->
-                checkNodesRecursivelyForValidTimestamps("root", lineItemStatus)
-        );
+        Instant latestWindowEnd = Instant.now().plusSeconds(configuration.getValidationMaxFutureSkewSec());
+        if (deliveryReportFromPbsDto.getDataWindowEndTimeStamp().toInstant().isAfter(latestWindowEnd)) {
+            log.error(
+                    "DataWindowEndTimeStamp {} is later than {} in report {}",
+                    deliveryReportFromPbsDto.getDataWindowEndTimeStamp(),
+                    latestWindowEnd,
+                    deliveryReportFromPbsDto.getReportId()
+            );
+            throw new DeliveryReportValidationException("DataWindowEndTimeStamp is in the future");
+        }
     }
 
     void checkNodesRecursivelyForValidTimestamps(String name, JsonNode node) {
@@ -157,7 +266,7 @@ public class DeliveryReportProcessor {
                 node.elements().forEachRemaining(element ->
                         checkNodesRecursivelyForValidTimestamps("[]", element));
             } else {
-                if (node.isValueNode() && name.toLowerCase().endsWith("timestamp")) {
+                if (node.isValueNode() && LineItemStatusUtils.isTimestampField(name)) {
                     TimestampUtils.convertStringTimeToTimestamp(node.asText(), name);
                 }
             }
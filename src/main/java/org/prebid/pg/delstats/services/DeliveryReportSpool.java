@@ -0,0 +1,370 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.SystemInitializationException;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Durable local spool for Delivery Progress Report lines that could not be written to the DB. Lines are appended as
+ * checksummed records to memory-mapped segment files of a fixed size; a new segment is started when a record no
+ * longer fits. On startup the existing segments are scanned and any torn or corrupt tail left by a crash is skipped.
+ * Segments are read back and deleted by the {@link DeliveryReportSpoolReplayer} once the DB is available again. Only
+ * failures reaching the DB are spooled, a report the DB rejects for good would only fail again on replay. Records that
+ * still fail for good on replay are moved to a quarantine file in the spool directory.
+ *
+ * <p>Record layout: payload length (int), CRC32 of the rest of the record (int), append time in epoch millis (long)
+ * and the JSON payload. A zero length marks the end of the data in a segment.</p>
+ */
+@Slf4j
+@Service
+public class DeliveryReportSpool {
+
+    static final int RECORD_HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String QUARANTINE_FILE = "quarantine.ndjson";
+
+    private static final TypeReference<List<DeliveryReport>> DELIVERY_REPORT_LIST =
+            new TypeReference<List<DeliveryReport>>() {
+            };
+
+    private final ServerConfiguration configuration;
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final ObjectMapper objectMapper;
+
+    private final TreeMap<Long, Segment> sealedSegments = new TreeMap<>();
+
+    private Path directory;
+
+    private int segmentSize;
+
+    private Segment activeSegment;
+
+    private long nextSequence;
+
+    public DeliveryReportSpool(ServerConfiguration configuration, SystemService systemService) {
+        this.configuration = configuration;
+        this.recorder = systemService.getRecorder();
+        this.objectMapper = systemService.getObjectMapper();
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!configuration.isDeliveryReportSpoolEnabled()) {
+            return;
+        }
+        this.directory = Paths.get(configuration.getDeliveryReportSpoolDirectory());
+        if (!directory.isAbsolute()) {
+            throw new SystemInitializationException(
+                    "Delivery Report spool directory must be an absolute path: " + directory);
+        }
+        this.segmentSize = configuration.getDeliveryReportSpoolSegmentSizeBytes();
+        Files.createDirectories(directory);
+        recover();
+        recorder.registerSpoolSizeGauge(this::sizeBytes);
+        recorder.registerSpoolReplayLagGauge(() -> replayLagSeconds(System.currentTimeMillis()));
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (activeSegment != null) {
+            activeSegment.buffer.force();
+        }
+    }
+
+    public boolean isEnabled() {
+        return configuration.isDeliveryReportSpoolEnabled();
+    }
+
+    /**
+     * Whether a DB failure may go away when retried later, like a lost connection or a timeout, as opposed to the DB
+     * rejecting the data itself.
+     *
+     * @param ex
+     * @return true for failures worth spooling and replaying
+     */
+    public static boolean isTransient(DataAccessException ex) {
+        // Covers CannotGetJdbcConnectionException too
+        return ex instanceof TransientDataAccessException || ex instanceof DataAccessResourceFailureException;
+    }
+
+    /**
+     * Spool the lines of a Delivery Progress Report that could not be stored because the DB was unavailable.
+     *
+     * @param reportId
+     * @param deliveryReports
+     * @param cause
+     * @return true if the lines are now safely in the spool, false if spooling is disabled or failed, or the failure
+     * is not transient
+     */
+    public boolean trySpool(String reportId, List<DeliveryReport> deliveryReports, DataAccessException cause) {
+        if (!isEnabled() || !isTransient(cause)) {
+            return false;
+        }
+        try {
+            append(deliveryReports);
+            log.warn("DB Problem storing Delivery Report {}, spooled {} line item summaries::{}",
+                    reportId, deliveryReports.size(), cause.getMessage());
+            recorder.markExceptionMeter(cause);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            log.error("Unable to spool Delivery Report {}", reportId, ex);
+            cause.addSuppressed(ex);
+            return false;
+        }
+    }
+
+    /**
+     * Scan the segments left by a previous run. Records after the first invalid one in a segment were never
+     * completely written and are dropped; segments without any valid record are deleted.
+     */
+    synchronized void recover() throws IOException {
+        sealedSegments.clear();
+        activeSegment = null;
+        nextSequence = 0;
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : paths) {
+                long sequence = parseSequence(path);
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                Segment segment = readSegment(path, payload -> {
+                });
+                if (segment.records == 0) {
+                    Files.delete(path);
+                } else {
+                    sealedSegments.put(sequence, segment);
+                }
+            }
+        }
+        if (!sealedSegments.isEmpty()) {
+            log.warn("Recovered {} spooled Delivery Report(s) in {} segment(s) from {}",
+                    sealedSegments.values().stream().mapToLong(segment -> segment.records).sum(),
+                    sealedSegments.size(), directory);
+        }
+    }
+
+    /**
+     * Append the lines of one Delivery Progress Report to the active segment, starting a new segment when the record
+     * does not fit. The record is forced to disk before returning.
+     *
+     * @param deliveryReports
+     * @throws IOException
+     */
+    public synchronized void append(List<DeliveryReport> deliveryReports) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(deliveryReports);
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IOException(String.format("Spool record of %d bytes does not fit in a segment of %d bytes",
+                    recordSize, segmentSize));
+        }
+        if (activeSegment != null && activeSegment.buffer.remaining() < recordSize) {
+            sealActiveSegment();
+        }
+        if (activeSegment == null) {
+            activeSegment = openSegment(nextSequence++);
+        }
+        long appendedAt = System.currentTimeMillis();
+        MappedByteBuffer buffer = activeSegment.buffer;
+        int start = buffer.position();
+        buffer.position(start + Integer.BYTES + Integer.BYTES);
+        buffer.putLong(appendedAt);
+        buffer.put(payload);
+        buffer.putInt(start + Integer.BYTES, checksum(appendedAt, payload));
+        // Length goes in last so a record torn by a crash is never mistaken for a complete one
+        buffer.putInt(start, payload.length);
+        buffer.force();
+        activeSegment.add(recordSize, appendedAt);
+        recorder.markSpooledDeliveryReports(1);
+    }
+
+    /**
+     * Segments ready to be replayed, oldest first. The active segment is sealed only when no older segment is
+     * waiting, so repeated replay attempts during an outage do not keep starting new segments.
+     *
+     * @return paths of the sealed segments
+     */
+    public synchronized List<Path> segmentsToReplay() {
+        if (sealedSegments.isEmpty() && activeSegment != null && activeSegment.records > 0) {
+            sealActiveSegment();
+        }
+        List<Path> paths = new ArrayList<>();
+        for (Segment segment : sealedSegments.values()) {
+            paths.add(segment.path);
+        }
+        return paths;
+    }
+
+    /**
+     * Read the valid records of a sealed segment.
+     *
+     * @param path
+     * @return the Delivery Report lines of each record in append order
+     * @throws IOException
+     */
+    public List<List<DeliveryReport>> read(Path path) throws IOException {
+        List<List<DeliveryReport>> records = new ArrayList<>();
+        readSegment(path, payload -> records.add(objectMapper.readValue(payload, DELIVERY_REPORT_LIST)));
+        return records;
+    }
+
+    /**
+     * Move a spooled record the DB rejects for good aside, as one JSON line of the quarantine file, so it no longer
+     * holds up the records spooled after it.
+     *
+     * @param deliveryReports
+     * @throws IOException
+     */
+    public synchronized void quarantine(List<DeliveryReport> deliveryReports) throws IOException {
+        byte[] line = objectMapper.writeValueAsBytes(deliveryReports);
+        try (FileChannel channel = FileChannel.open(directory.resolve(QUARANTINE_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.allocate(line.length + 1);
+            buffer.put(line).put((byte) '\n');
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        recorder.markSpoolQuarantinedDeliveryReports(1);
+    }
+
+    public synchronized void delete(Path path) throws IOException {
+        sealedSegments.values().removeIf(segment -> segment.path.equals(path));
+        Files.deleteIfExists(path);
+    }
+
+    public synchronized long sizeBytes() {
+        long size = activeSegment == null ? 0 : activeSegment.bytes;
+        for (Segment segment : sealedSegments.values()) {
+            size += segment.bytes;
+        }
+        return size;
+    }
+
+    /**
+     * Age of the oldest record still in the spool.
+     *
+     * @param nowMillis
+     * @return seconds since the oldest record was appended, 0 when the spool is empty
+     */
+    public synchronized long replayLagSeconds(long nowMillis) {
+        Map.Entry<Long, Segment> oldest = sealedSegments.firstEntry();
+        Segment segment = oldest != null ? oldest.getValue() : activeSegment;
+        if (segment == null || segment.records == 0) {
+            return 0;
+        }
+        return Math.max(0, (nowMillis - segment.firstAppendedAt) / 1000);
+    }
+
+    private void sealActiveSegment() {
+        activeSegment.buffer.force();
+        sealedSegments.put(parseSequence(activeSegment.path), activeSegment);
+        activeSegment = null;
+    }
+
+    private Segment openSegment(long sequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private Segment readSegment(Path path, PayloadConsumer consumer) throws IOException {
+        Segment segment = new Segment(path, null);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                if (length == 0) {
+                    break;
+                }
+                int crc = buffer.getInt();
+                long appendedAt = buffer.getLong();
+                if (length < 0 || length > buffer.remaining()) {
+                    log.warn("Skipping torn spool record at offset {} of {}", start, path);
+                    recorder.markSpoolCorruptRecord();
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                if (checksum(appendedAt, payload) != crc) {
+                    log.warn("Skipping spool record with bad checksum at offset {} of {}", start, path);
+                    recorder.markSpoolCorruptRecord();
+                    break;
+                }
+                consumer.accept(payload);
+                segment.add(RECORD_HEADER_SIZE + length, appendedAt);
+            }
+        }
+        return segment;
+    }
+
+    private static int checksum(long appendedAt, byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            crc32.update((int) (appendedAt >>> shift));
+        }
+        crc32.update(payload);
+        return (int) crc32.getValue();
+    }
+
+    private static long parseSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private interface PayloadConsumer {
+        void accept(byte[] payload) throws IOException;
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private long records;
+        private long bytes;
+        private long firstAppendedAt;
+
+        Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        void add(int recordSize, long appendedAt) {
+            if (records == 0) {
+                firstAppendedAt = appendedAt;
+            }
+            records++;
+            bytes += recordSize;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.prebid.pg.delstats.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.alerts.AlertName;
+import org.prebid.pg.delstats.alerts.AlertPriority;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsBulkRepository;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the {@link DeliveryReportSpool} into the delivery_progress_reports table once the DB accepts writes again.
+ * Segments are replayed oldest first and deleted only after every record in them is stored or quarantined; replaying a
+ * segment a second time after a crash is harmless since rows already stored are left as they are. Replayed lines are
+ * stamped with the time of the replay, the way a report retried by PBS would be, so they fall in an interval the
+ * delivery summary job has yet to summarize instead of one summarized during the outage.
+ */
+@Slf4j
+@Service
+public class DeliveryReportSpoolReplayer {
+
+    private final DeliveryReportSpool deliveryReportSpool;
+
+    private final DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository;
+
+    private final ServerConfiguration configuration;
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final AlertProxyHttpClient alertProxyHttpClient;
+
+    private final Shutdown shutdown;
+
+    public DeliveryReportSpoolReplayer(DeliveryReportSpool deliveryReportSpool,
+                                       DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository,
+                                       ServerConfiguration configuration, SystemService systemService) {
+        this.deliveryReportSpool = deliveryReportSpool;
+        this.deliveryProgressReportsBulkRepository = deliveryProgressReportsBulkRepository;
+        this.configuration = configuration;
+        this.recorder = systemService.getRecorder();
+        this.alertProxyHttpClient = systemService.getAlertProxyHttpClient();
+        this.shutdown = systemService.getShutdown();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${services.delivery-report.spool.replay-delay-sec}000",
+            initialDelayString = "${services.delivery-report.spool.replay-delay-sec}000"
+    )
+    public void replay() {
+        if (shutdown.isInitiating() || !deliveryReportSpool.isEnabled()) {
+            return;
+        }
+        for (Path segment : deliveryReportSpool.segmentsToReplay()) {
+            if (!replaySegment(segment)) {
+                return;
+            }
+        }
+    }
+
+    boolean replaySegment(Path segment) {
+        int batchReports = Math.max(1, configuration.getDeliveryReportSpoolReplayBatchReports());
+        try {
+            List<List<DeliveryReport>> records = deliveryReportSpool.read(segment);
+            Timestamp replayedAt = Timestamp.from(Instant.now());
+            records.forEach(record -> record.forEach(line -> line.setReportTimestamp(replayedAt)));
+            for (int start = 0; start < records.size(); start += batchReports) {
+                insertBatch(records.subList(start, Math.min(records.size(), start + batchReports)));
+            }
+            deliveryReportSpool.delete(segment);
+            recorder.markSpoolReplayedDeliveryReports(records.size());
+            log.info("Replayed {} spooled Delivery Report(s) from {}", records.size(), segment);
+            return true;
+        } catch (DataAccessException ex) {
+            log.warn("DB still unavailable for replaying spooled Delivery Reports::{}", ex.getMessage());
+            recorder.markExceptionMeter(ex);
+            return false;
+        } catch (IOException ex) {
+            String msg = String.format("Problem replaying spooled Delivery Reports from %s", segment);
+            alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.STORE_ERROR, msg, AlertPriority.HIGH, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Insert the lines of a batch of spooled records. When the DB rejects the batch for good, the records are
+     * inserted one at a time and the ones rejected on their own are quarantined.
+     */
+    private void insertBatch(List<List<DeliveryReport>> records) throws IOException {
+        try {
+            deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(records.stream()
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList()));
+        } catch (DataAccessException ex) {
+            if (DeliveryReportSpool.isTransient(ex)) {
+                throw ex;
+            }
+            if (records.size() == 1) {
+                quarantine(records.get(0), ex);
+                return;
+            }
+            for (List<DeliveryReport> record : records) {
+                insertBatch(Collections.singletonList(record));
+            }
+        }
+    }
+
+    private void quarantine(List<DeliveryReport> record, DataAccessException ex) throws IOException {
+        deliveryReportSpool.quarantine(record);
+        String msg = String.format("Quarantined spooled Delivery Report %s rejected by the DB",
+                record.isEmpty() ? "" : record.get(0).getReportId());
+        alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.STORE_ERROR, msg, AlertPriority.HIGH, ex);
+    }
+}
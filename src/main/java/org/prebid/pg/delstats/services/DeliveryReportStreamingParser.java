@@ -0,0 +1,260 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.DeliveryReportValidationException;
+import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.model.dto.RawLineItemStatus;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReport;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
+import org.prebid.pg.delstats.utils.LineItemStatusUtils;
+import org.prebid.pg.delstats.utils.TimestampUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads Delivery Progress Reports with Jackson's streaming parser so no JSON tree is built for the line item status
+ * entries. Each entry is copied token by token into its JSON text while the line item id, line item source, the
+ * counters kept in typed columns and any timestamp fields are picked up on the way through. Reports in a binary format,
+ * such as Smile or CBOR, are read with the parser of that format, their entries still being copied into JSON text.
+ * <p>
+ * The JSON text of every entry is held until the whole report has been read, as the report is validated and stored
+ * as a unit and its metadata may follow the entries. The heap taken by a report therefore still grows with its size;
+ * gzip bodies are bounded by {@code api.request-decompression.max-inflated-bytes}.
+ */
+@Component
+@Slf4j
+public class DeliveryReportStreamingParser {
+
+    static final String REPORT_ID = "reportId";
+    static final String REPORT_TIMESTAMP = "reportTimeStamp";
+    static final String DATA_WINDOW_START_TIMESTAMP = "dataWindowStartTimeStamp";
+    static final String DATA_WINDOW_END_TIMESTAMP = "dataWindowEndTimeStamp";
+    static final String VENDOR = "vendor";
+    static final String REGION = "region";
+    static final String INSTANCE_ID = "instanceId";
+    static final String CLIENT_AUCTIONS = "clientAuctions";
+    static final String LINE_ITEM_STATUS = "lineItemStatus";
+    static final String LINE_ITEM_ID = "lineItemId";
+    static final String LINE_ITEM_SOURCE = "lineItemSource";
+
+    private static final int INITIAL_LINE_ITEM_BUFFER_SIZE = 1024;
+
+    private static final int INITIAL_LINE_ITEM_DEPTH = 8;
+
+    private final ServerConfiguration configuration;
+
+    private final ObjectMapper objectMapper;
+
+    private final JsonFactory jsonFactory;
+
+    public DeliveryReportStreamingParser(ServerConfiguration configuration, SystemService systemService) {
+        this.configuration = configuration;
+        this.objectMapper = systemService.getObjectMapper();
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Parse a Delivery Progress Report from the request body. Timestamp fields within the line item status entries
+     * are validated while they are copied when validation is enabled.
+     *
+     * @param inputStream
+     * @return
+     * @throws IOException
+     */
+    public StreamedDeliveryReport parse(InputStream inputStream) throws IOException {
+        return parse(inputStream, jsonFactory);
+    }
+
+    /**
+     * Parse a Delivery Progress Report in the format of the given factory from the request body.
+     *
+     * @param inputStream
+     * @param inputFactory
+     * @return
+     * @throws IOException
+     */
+    public StreamedDeliveryReport parse(InputStream inputStream, JsonFactory inputFactory) throws IOException {
+        try (JsonParser parser = inputFactory.createParser(inputStream)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new DeliveryReportValidationException("No Delivery Report contents");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new DeliveryReportValidationException("Delivery Report is not a JSON object");
+            }
+            boolean validateTimestamps = configuration.isValidationEnabled();
+            DeliveryReportFromPbsDto.DeliveryReportFromPbsDtoBuilder metadata = DeliveryReportFromPbsDto.builder();
+            List<RawLineItemStatus> lineItemStatus = Collections.emptyList();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case REPORT_ID:
+                        metadata.reportId(objectMapper.readValue(parser, String.class));
+                        break;
+                    case REPORT_TIMESTAMP:
+                        metadata.reportTimeStamp(objectMapper.readValue(parser, Timestamp.class));
+                        break;
+                    case DATA_WINDOW_START_TIMESTAMP:
+                        metadata.dataWindowStartTimeStamp(objectMapper.readValue(parser, Timestamp.class));
+                        break;
+                    case DATA_WINDOW_END_TIMESTAMP:
+                        metadata.dataWindowEndTimeStamp(objectMapper.readValue(parser, Timestamp.class));
+                        break;
+                    case VENDOR:
+                        metadata.vendor(objectMapper.readValue(parser, String.class));
+                        break;
+                    case REGION:
+                        metadata.region(objectMapper.readValue(parser, String.class));
+                        break;
+                    case INSTANCE_ID:
+                        metadata.instanceId(objectMapper.readValue(parser, String.class));
+                        break;
+                    case CLIENT_AUCTIONS:
+                        metadata.clientAuctions(objectMapper.readValue(parser, Integer.class));
+                        break;
+                    case LINE_ITEM_STATUS:
+                        lineItemStatus = readLineItemStatusList(parser, validateTimestamps);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return StreamedDeliveryReport.builder()
+                    .metadata(metadata.build())
+                    .lineItemStatus(lineItemStatus)
+                    .build();
+        }
+    }
+
+    private List<RawLineItemStatus> readLineItemStatusList(JsonParser parser, boolean validateTimestamps)
+            throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return Collections.emptyList();
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new DeliveryReportValidationException("Line Item Status is not a JSON array");
+        }
+        List<RawLineItemStatus> lineItemStatus = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            lineItemStatus.add(readLineItemStatus(parser, validateTimestamps));
+        }
+        return lineItemStatus;
+    }
+
+    RawLineItemStatus readLineItemStatus(JsonParser parser, boolean validateTimestamps) throws IOException {
+        StringWriter writer = new StringWriter(INITIAL_LINE_ITEM_BUFFER_SIZE);
+        String lineItemId = "";
+        String lineItemSource = "";
+        LineItemStatusCounters counters = new LineItemStatusCounters();
+        // Index of the current element of the array at each depth, counted here as the Smile parser does not keep
+        // the index of its parsing context up to date
+        int[] elementIndexes = new int[INITIAL_LINE_ITEM_DEPTH];
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            int depth = 0;
+            do {
+                JsonToken token = parser.currentToken();
+                generator.copyCurrentEvent(parser);
+                if (depth > 0 && isArrayElement(parser, token)) {
+                    elementIndexes[depth]++;
+                }
+                if (token.isStructStart()) {
+                    depth++;
+                    if (depth == elementIndexes.length) {
+                        elementIndexes = Arrays.copyOf(elementIndexes, depth * 2);
+                    }
+                    elementIndexes[depth] = -1;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                } else if (token.isScalarValue() && parser.getParsingContext().inObject()) {
+                    String fieldName = parser.getCurrentName();
+                    if (depth == 1 && LINE_ITEM_ID.equals(fieldName)) {
+                        lineItemId = parser.getText();
+                    } else if (depth == 1 && LINE_ITEM_SOURCE.equals(fieldName)) {
+                        lineItemSource = parser.getText();
+                    } else {
+                        collectCounter(parser, token, depth, fieldName, elementIndexes, counters);
+                    }
+                    if (validateTimestamps && isTimestampField(fieldName)) {
+                        TimestampUtils.convertStringTimeToTimestamp(parser.getText(), fieldName);
+                    }
+                }
+            } while (depth > 0 && parser.nextToken() != null);
+        }
+        return RawLineItemStatus.builder()
+                .lineItemId(lineItemId)
+                .lineItemSource(lineItemSource)
+                .counters(counters)
+                .json(writer.toString())
+                .build();
+    }
+
+    private static boolean isArrayElement(JsonParser parser, JsonToken token) {
+        if (token == JsonToken.FIELD_NAME || token.isStructEnd()) {
+            return false;
+        }
+        JsonStreamContext container = token.isStructStart()
+                ? parser.getParsingContext().getParent() : parser.getParsingContext();
+        return container.inArray();
+    }
+
+    /**
+     * Pick up a counter kept in a typed column: a number at the top level of the entry, the count of the first event,
+     * the plan ids of the first two delivery schedules or the spent count of the first token class of the first one.
+     */
+    private static void collectCounter(JsonParser parser, JsonToken token, int depth, String fieldName,
+                                       int[] elementIndexes, LineItemStatusCounters counters) throws IOException {
+        if (depth == 1) {
+            if (token.isNumeric()) {
+                counters.setTopLevelCounter(fieldName, parser.getValueAsInt());
+            }
+            return;
+        }
+        JsonStreamContext array = parser.getParsingContext().getParent();
+        if (!array.inArray()) {
+            return;
+        }
+        int index = elementIndexes[depth - 1];
+        if (depth == 3) {
+            String arrayName = array.getParent().getCurrentName();
+            if (index == 0 && LineItemStatusCounters.COUNT.equals(fieldName)
+                    && LineItemStatusCounters.EVENTS.equals(arrayName)) {
+                counters.setWinEvents(parser.getValueAsInt());
+            } else if (index < 2 && LineItemStatusCounters.PLAN_ID.equals(fieldName)
+                    && LineItemStatusCounters.DELIVERY_SCHEDULE.equals(arrayName) && token != JsonToken.VALUE_NULL) {
+                if (index == 0) {
+                    counters.setFirstPlanId(parser.getText());
+                } else {
+                    counters.setSecondPlanId(parser.getText());
+                }
+            }
+        } else if (depth == 5 && index == 0 && LineItemStatusCounters.SPENT.equals(fieldName)) {
+            JsonStreamContext schedule = array.getParent();
+            JsonStreamContext schedules = schedule.getParent();
+            if (LineItemStatusCounters.TOKENS.equals(schedule.getCurrentName())
+                    && schedules.inArray() && elementIndexes[depth - 3] == 0
+                    && LineItemStatusCounters.DELIVERY_SCHEDULE.equals(schedules.getParent().getCurrentName())) {
+                counters.setFirstPlanTokensSpent(parser.getValueAsInt());
+            }
+        }
+    }
+
+    static boolean isTimestampField(String fieldName) {
+        return LineItemStatusUtils.isTimestampField(fieldName);
+    }
+}
@@ -8,6 +8,7 @@ import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
 import org.prebid.pg.delstats.config.ServerConfiguration;
 import org.prebid.pg.delstats.exception.DeliveryReportProcessingException;
 import org.prebid.pg.delstats.exception.InvalidRequestException;
+import org.prebid.pg.delstats.metrics.DeliverySummaryEvent;
 import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
 import org.prebid.pg.delstats.model.dto.DeliveryReportSummaryToPlannerAdapterDto;
 import org.prebid.pg.delstats.model.dto.LineItemSummaryReport;
@@ -15,17 +16,18 @@ import org.prebid.pg.delstats.model.dto.PlanDataSummary;
 import org.prebid.pg.delstats.model.dto.Tracer;
 import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
 import org.prebid.pg.delstats.persistence.SystemState;
+import org.prebid.pg.delstats.repository.DeliveryReportSummaryBulkRepository;
 import org.prebid.pg.delstats.repository.DeliveryReportSummaryRepository;
+import org.prebid.pg.delstats.repository.HourLineKey;
+import org.prebid.pg.delstats.repository.KeysetCursor;
 import org.prebid.pg.delstats.repository.SystemStateConstants;
 import org.prebid.pg.delstats.repository.SystemStateRepository;
 import org.prebid.pg.delstats.utils.TimestampUtils;
 import org.prebid.pg.delstats.utils.TracerUtils;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.sql.Timestamp;
@@ -34,6 +36,7 @@ import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -48,10 +51,18 @@ public class DeliveryReportSummaryService {
 
     private final DeliveryReportSummaryRepository deliveryReportSummaryRepository;
 
+    private final DeliveryReportSummaryBulkRepository deliveryReportSummaryBulkRepository;
+
     private final DeliveryReportsDataService deliveryReportsDataService;
 
+    private final LineItemSummaryPreAggregator lineItemSummaryPreAggregator;
+
+    private final ShardedLineSummaryWriter shardedLineSummaryWriter;
+
     private final SystemStateRepository systemStateRepository;
 
+    private final TransactionTemplate transactionTemplate;
+
     private final ServerConfiguration serverConfiguration;
 
     private final Tracer tracer;
@@ -66,14 +77,22 @@ public class DeliveryReportSummaryService {
 
     public DeliveryReportSummaryService(
             DeliveryReportSummaryRepository deliveryReportSummaryRepository,
+            DeliveryReportSummaryBulkRepository deliveryReportSummaryBulkRepository,
             DeliveryReportsDataService deliveryReportsDataService,
+            LineItemSummaryPreAggregator lineItemSummaryPreAggregator,
+            ShardedLineSummaryWriter shardedLineSummaryWriter,
             SystemStateRepository systemStateRepository,
+            PlatformTransactionManager transactionManager,
             ServerConfiguration serverConfiguration,
             SystemService systemService) {
         this.deliveryReportSummaryRepository = deliveryReportSummaryRepository;
+        this.deliveryReportSummaryBulkRepository = deliveryReportSummaryBulkRepository;
         this.deliveryReportsDataService = deliveryReportsDataService;
+        this.lineItemSummaryPreAggregator = lineItemSummaryPreAggregator;
+        this.shardedLineSummaryWriter = shardedLineSummaryWriter;
         this.serverConfiguration = serverConfiguration;
         this.systemStateRepository = systemStateRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.recorder = systemService.getRecorder();
         this.tracer = systemService.getTracer();
         this.alertProxyHttpClient = systemService.getAlertProxyHttpClient();
@@ -81,38 +100,46 @@ public class DeliveryReportSummaryService {
         this.serviceInstanceId = systemService.getServiceInstanceId();
     }
 
-    @Transactional
+    /**
+     * Summarize the stored lines of an interval and store the system state markers of the interval. Summaries and
+     * markers are stored in one transaction, joining that of the caller if any, except for sharded summaries where the
+     * shards commit on their own before the markers are stored. Summaries are only read up to the latest interval
+     * with its markers stored, so the interval is published by its markers either way.
+     *
+     * @param startTime
+     * @param endTime
+     * @param freshReports false when recreating the summaries of an earlier interval
+     * @return number of summaries stored
+     */
     public int runDeliveryReportSummary(Timestamp startTime, Timestamp endTime, boolean freshReports) {
         TracerUtils.traceAsInfoOrlogAsInfo(log, tracer, String.format(
                 "Creating Delivery Report Summary from %s to %s.", startTime, endTime));
         recorder.markScheduledDeliverySummary();
 
+        DeliverySummaryEvent event = new DeliverySummaryEvent();
+        event.begin();
         Optional<Timer.Context> optionalContext = recorder.scheduledDeliverySummaryTimer();
         int summariesSaved = 0;
-        String endTimeStr = endTime.toString();
-        int endTimeMinutes = endTime.toInstant().atZone(ZoneOffset.UTC).getMinute();
         try {
-            summariesSaved += deliveryReportSummaryRepository.insertLineSummariesDirectly(startTime, endTime);
-            String summaryReportTagSuffix = freshReports
-                    ? SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_SUFFIX
-                    : SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_RECREATE_SUFFIX;
-            systemStateRepository.saveDeliverySummaryReportStates(
-                    startTime, endTime, serviceInstanceId, endTimeStr, summaryReportTagSuffix);
-
-            String intervalEndFormat = freshReports
-                    ? SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY_INTERVAL_END_FORMAT
-                    : SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY_RECREATE_INTERVAL_END_FORMAT;
-            String tag = String.format(intervalEndFormat, endTimeMinutes);
-            systemStateRepository.store(tag, endTimeStr);
-
-            if (freshReports) {
-                systemStateRepository.store(SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY, endTimeStr);
-            }
+            summariesSaved += freshReports
+                    ? storeLineSummaries(startTime, endTime)
+                    : transactionTemplate.execute(status -> {
+                        int inserted = deliveryReportSummaryRepository.insertLineSummariesDirectly(startTime, endTime);
+                        storeIntervalStates(startTime, endTime, false);
+                        return inserted;
+                    });
             return summariesSaved;
         } catch (Exception e) {
             log.error("Caught exception processing delivery report summaries", e);
             throw new DeliveryReportProcessingException(e.getMessage());
         } finally {
+            if (event.shouldCommit()) {
+                event.setIntervalStart(startTime.getTime());
+                event.setIntervalEnd(endTime.getTime());
+                event.setFreshReports(freshReports);
+                event.setSummariesStored(summariesSaved);
+                event.commit();
+            }
             long nanosToComplete = optionalContext.map(Timer.Context::stop).orElse(0L);
             TracerUtils.traceAsInfoOrlogAsInfo(log, tracer,
                     String.format("Completed scheduled delivery report summary: %d summaries created."
@@ -121,6 +148,93 @@ public class DeliveryReportSummaryService {
         }
     }
 
+    /**
+     * Store the summaries of an interval from the in-memory pre-aggregation when it covers the whole interval and
+     * its line count matches the stored lines, otherwise summarize the stored lines in the DB, split into shards when
+     * configured. Recreated intervals are always summarized in a single query, in the transaction deleting the old
+     * summaries.
+     *
+     * @param startTime
+     * @param endTime
+     * @return number of summaries stored
+     */
+    int storeLineSummaries(Timestamp startTime, Timestamp endTime) {
+        Optional<LineItemSummaryPreAggregator.PreAggregatedInterval> preAggregated =
+                lineItemSummaryPreAggregator.takeInterval(startTime, endTime);
+        if (preAggregated.isPresent() && matchesStoredLines(preAggregated.get(), startTime, endTime)) {
+            List<DeliveryReportSummary> summaries = preAggregated.get().getSummaries();
+            transactionTemplate.execute(status -> {
+                deliveryReportSummaryBulkRepository.insert(summaries);
+                storeIntervalStates(startTime, endTime, true);
+                return null;
+            });
+            recorder.markPreAggregatedDeliverySummariesStored(summaries.size());
+            return summaries.size();
+        }
+        if (shardedLineSummaryWriter.isSharded()) {
+            // Without a transaction held here, as each shard commits in one of its own
+            int summariesSaved = shardedLineSummaryWriter.insertLineSummaries(startTime, endTime);
+            transactionTemplate.execute(status -> {
+                storeIntervalStates(startTime, endTime, true);
+                return null;
+            });
+            return summariesSaved;
+        }
+        return transactionTemplate.execute(status -> {
+            int summariesSaved = deliveryReportSummaryRepository.insertLineSummariesDirectly(startTime, endTime);
+            storeIntervalStates(startTime, endTime, true);
+            return summariesSaved;
+        });
+    }
+
+    private void storeIntervalStates(Timestamp startTime, Timestamp endTime, boolean freshReports) {
+        String endTimeStr = endTime.toString();
+        String summaryReportTagSuffix = freshReports
+                ? SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_SUFFIX
+                : SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_RECREATE_SUFFIX;
+        systemStateRepository.saveDeliverySummaryReportStates(
+                startTime, endTime, serviceInstanceId, endTimeStr, summaryReportTagSuffix);
+
+        String intervalEndFormat = freshReports
+                ? SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY_INTERVAL_END_FORMAT
+                : SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY_RECREATE_INTERVAL_END_FORMAT;
+        int endTimeMinutes = endTime.toInstant().atZone(ZoneOffset.UTC).getMinute();
+        systemStateRepository.store(String.format(intervalEndFormat, endTimeMinutes), endTimeStr);
+
+        if (freshReports) {
+            systemStateRepository.store(SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY, endTimeStr);
+        }
+    }
+
+    /**
+     * End of the latest interval with its summary markers stored, or the given end time when earlier. Summaries of
+     * later intervals may still be written or deleted shard by shard and are not read.
+     *
+     * @param endTime
+     * @return end time to read summaries up to
+     */
+    Instant summarizedUntil(Instant endTime) {
+        SystemState state = systemStateRepository.retrieveByTag(SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY);
+        if (state == null || StringUtils.isEmpty(state.getVal())) {
+            return endTime;
+        }
+        Instant summarizedEnd = TimestampUtils.convertStringTimeToTimestamp(
+                state.getVal(), SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY).toInstant();
+        return summarizedEnd.isBefore(endTime) ? summarizedEnd : endTime;
+    }
+
+    private boolean matchesStoredLines(LineItemSummaryPreAggregator.PreAggregatedInterval preAggregated,
+                                       Timestamp startTime, Timestamp endTime) {
+        long storedLines = deliveryReportSummaryRepository.countLinesByReportWindow(startTime, endTime);
+        if (storedLines == preAggregated.getLineCount()) {
+            return true;
+        }
+        log.warn("Pre-aggregated summary for {} to {} has {} lines but {} lines are stored, summarizing the stored"
+                + " lines instead", startTime, endTime, preAggregated.getLineCount(), storedLines);
+        recorder.markPreAggregateMismatch();
+        return false;
+    }
+
     @Transactional
     public int recreateLineItemSummaryReport(Timestamp startTime, Timestamp endTime, boolean overwrite) {
         if (overwrite) {
@@ -212,7 +326,7 @@ public class DeliveryReportSummaryService {
 
     Map<String, Map<String, Integer>> retrieveLineToPlanTokensSpent(Instant startTime, Instant endTime) {
         List<PlanDataSummary> planDataSummaryList =
-                deliveryReportSummaryRepository.findPlanDataByReportWindowHour(startTime, endTime);
+                deliveryReportSummaryRepository.findPlanDataByReportWindowHour(startTime, summarizedUntil(endTime));
         log.info("planDataSummaryList.size=" + planDataSummaryList.size());
         Map<String, Map<String, Integer>> lineToPlanTokensSpent = new TreeMap<>();
         for (PlanDataSummary planDataSummary : planDataSummaryList) {
@@ -238,7 +352,7 @@ public class DeliveryReportSummaryService {
     List<DeliveryReportSummary> tryRetrieveLineItemSummaries(String lineItemIds, Instant startTime, Instant endTime) {
         Optional<Timer.Context> optionalContext = recorder.repositoryFetchDeliveryReportsSummaryTimer();
         try {
-            return retrieveLineItemSummaries(lineItemIds, startTime, endTime);
+            return retrieveLineItemSummaries(lineItemIds, startTime, summarizedUntil(endTime));
         } catch (Exception ex) {
             String msg = "getDeliveryReportsSummary::Unexpected exception";
             alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.ERROR, msg, AlertPriority.HIGH, ex);
@@ -345,19 +459,19 @@ public class DeliveryReportSummaryService {
     }
 
     private List<DeliveryReportSummary> retrieveLineItemSummaries(String ids, Instant start, Instant end) {
-        Pageable page = PageRequest.of(0,
-                serverConfiguration.getLineItemSummaryPagerSize(),
-                Sort.by(LineItemSummaryReport.REPORT_WINDOW_START_TIMESTAMP_NATIVE).ascending());
-        return LineItemSummaryReport.retrieveLineItemSummaries(ids, start, end, page, this::findLineItemSummaries);
+        return LineItemSummaryReport.retrieveLineItemSummaries(ids, start, end, this::findLineItemSummaries);
     }
 
-    private Page<DeliveryReportSummary> findLineItemSummaries(List<String> ids, Instant startTime, Instant endTime,
-                                                              Pageable page) {
+    private Iterator<DeliveryReportSummary> findLineItemSummaries(List<String> ids, Instant startTime,
+                                                                  Instant endTime) {
         log.info("start=" + startTime + ", end=" + endTime);
-        return ids.isEmpty()
-                ? deliveryReportSummaryRepository.findByReportWindowHour(startTime, endTime, page)
-                : deliveryReportSummaryRepository.findByLineIdAndReportWindowHour(ids, startTime, endTime, page);
-
+        return new KeysetCursor<DeliveryReportSummary, HourLineKey>(HourLineKey.startingAt(startTime),
+                serverConfiguration.getLineItemSummaryPagerSize(), HourLineKey::of,
+                (after, limit) -> ids.isEmpty()
+                        ? deliveryReportSummaryRepository.findByReportWindowHourAfter(
+                                startTime, endTime, after.getHour(), after.getHourEnd(), after.getLineItemId(), limit)
+                        : deliveryReportSummaryRepository.findByLineIdAndReportWindowHourAfter(ids,
+                                startTime, endTime, after.getHour(), after.getHourEnd(), after.getLineItemId(), limit));
     }
 
 }
@@ -0,0 +1,280 @@
+package org.prebid.pg.delstats.services;
+
+import com.codahale.metrics.Timer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.alerts.AlertName;
+import org.prebid.pg.delstats.alerts.AlertPriority;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.DeliveryReportQueueFullException;
+import org.prebid.pg.delstats.exception.SystemInitializationException;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsBulkRepository;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds converted Delivery Progress Reports in a bounded in-memory queue when asynchronous ingest is enabled. Writer
+ * threads drain the queue and merge the line items of several queued reports into one batched insert, so request
+ * threads are not held up by the database. As queued reports have already been acknowledged, a transient DB failure
+ * is retried with exponential backoff and the reports are spooled when it persists; asynchronous ingest therefore
+ * requires the spool to be enabled. A report that can be neither stored nor spooled is dropped with an alert and its
+ * id released from the idempotency filter, so that a resend of the report is stored.
+ */
+@Slf4j
+@Service
+public class DeliveryReportWriteBehindQueue {
+
+    private static final long DRAIN_POLL_MILLIS = 500;
+
+    private final DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository;
+
+    private final DeliveryReportSpool deliveryReportSpool;
+
+    private final DeliveryReportIdempotencyFilter deliveryReportIdempotencyFilter;
+
+    private final LineItemSummaryPreAggregator lineItemSummaryPreAggregator;
+
+    private final ServerConfiguration configuration;
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final AlertProxyHttpClient alertProxyHttpClient;
+
+    private BlockingQueue<PendingReport> queue;
+
+    private ExecutorService writers;
+
+    private int maxBatchReports;
+
+    private volatile boolean running;
+
+    public DeliveryReportWriteBehindQueue(DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository,
+                                          DeliveryReportSpool deliveryReportSpool,
+                                          DeliveryReportIdempotencyFilter deliveryReportIdempotencyFilter,
+                                          LineItemSummaryPreAggregator lineItemSummaryPreAggregator,
+                                          ServerConfiguration configuration, SystemService systemService) {
+        this.deliveryProgressReportsBulkRepository = deliveryProgressReportsBulkRepository;
+        this.deliveryReportSpool = deliveryReportSpool;
+        this.deliveryReportIdempotencyFilter = deliveryReportIdempotencyFilter;
+        this.lineItemSummaryPreAggregator = lineItemSummaryPreAggregator;
+        this.configuration = configuration;
+        this.recorder = systemService.getRecorder();
+        this.alertProxyHttpClient = systemService.getAlertProxyHttpClient();
+    }
+
+    @PostConstruct
+    public void init() {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, configuration.getDeliveryReportAsyncIngestQueueCapacity()));
+        this.maxBatchReports = Math.max(1, configuration.getDeliveryReportAsyncIngestMaxBatchReports());
+        this.recorder.registerAsyncIngestQueueDepthGauge(() -> queue.size());
+        if (!configuration.isDeliveryReportAsyncIngestEnabled()) {
+            return;
+        }
+        if (!configuration.isDeliveryReportSpoolEnabled()) {
+            throw new SystemInitializationException(
+                    "Asynchronous Delivery Report ingest requires the Delivery Report spool to be enabled");
+        }
+        int writerThreads = Math.max(1, configuration.getDeliveryReportAsyncIngestWriterThreads());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerThreads,
+                runnable -> new Thread(runnable, "delivery-report-writer-" + threadCount.incrementAndGet()));
+        this.running = true;
+        for (int i = 0; i < writerThreads; i++) {
+            writers.execute(this::runWriter);
+        }
+        log.info("Started {} Delivery Report writer threads for a queue of {} reports using {} back pressure",
+                writerThreads, queue.remainingCapacity(), configuration.getDeliveryReportAsyncIngestBackPressure());
+    }
+
+    /**
+     * Let the writer threads store the reports still queued, waiting no longer than the configured timeout.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (writers == null) {
+            return;
+        }
+        running = false;
+        writers.shutdown();
+        try {
+            if (!writers.awaitTermination(configuration.getDeliveryReportAsyncIngestShutdownTimeoutSeconds(),
+                    TimeUnit.SECONDS)) {
+                log.error("Delivery Report writers did not finish in time, {} queued reports were not stored",
+                        queue.size());
+                writers.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * Queue the converted line items of a Delivery Progress Report to be stored by a writer thread. Depending on the
+     * back pressure policy a full queue either rejects the report straight away or waits a limited time for space.
+     *
+     * @param reportId
+     * @param source
+     * @param deliveryReports
+     * @param lineItemStatusCount
+     */
+    public void enqueue(String reportId, String source, List<DeliveryReport> deliveryReports,
+                        int lineItemStatusCount) {
+        PendingReport pendingReport = new PendingReport(reportId, source, deliveryReports, lineItemStatusCount,
+                System.nanoTime());
+        boolean queued;
+        if (configuration.getDeliveryReportAsyncIngestBackPressure() == ServerConfiguration.BackPressurePolicy.BLOCK) {
+            try {
+                queued = queue.offer(pendingReport, configuration.getDeliveryReportAsyncIngestBlockTimeoutMillis(),
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = queue.offer(pendingReport);
+        }
+        if (!queued) {
+            recorder.markAsyncIngestReportRejected();
+            log.warn("Delivery Report queue full, rejecting Delivery Report {} from {}", reportId, source);
+            throw new DeliveryReportQueueFullException("Delivery Report queue is full, retry later");
+        }
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        while (running || !queue.isEmpty()) {
+            try {
+                drainOnce();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                log.error("Unexpected problem in Delivery Report writer", ex);
+            }
+        }
+    }
+
+    /**
+     * Wait briefly for a queued report and store it together with whatever else is queued, up to the batch limit.
+     *
+     * @return the number of queued reports taken off the queue
+     * @throws InterruptedException
+     */
+    int drainOnce() throws InterruptedException {
+        PendingReport first = queue.poll(DRAIN_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return 0;
+        }
+        List<PendingReport> batch = new ArrayList<>(maxBatchReports);
+        batch.add(first);
+        queue.drainTo(batch, maxBatchReports - 1);
+        writeBatch(batch);
+        recorder.markAsyncIngestReportsDrained(batch.size());
+        return batch.size();
+    }
+
+    private void writeBatch(List<PendingReport> batch) {
+        List<DeliveryReport> deliveryReports = new ArrayList<>();
+        for (PendingReport pendingReport : batch) {
+            deliveryReports.addAll(pendingReport.getDeliveryReports());
+        }
+        Optional<Timer.Context> optionalContext = recorder.repositoryStoreDeliveryReportLinesTimer();
+        try {
+            int rows = insertRetrying(deliveryReports);
+            // Only committed lines count towards the pre-aggregated summaries, as for lines stored on request threads
+            lineItemSummaryPreAggregator.add(deliveryReports);
+            log.info("Saved {} Delivery Report line item summaries from {} queued Delivery Report(s)",
+                    rows, batch.size());
+            long committedNanos = System.nanoTime();
+            for (PendingReport pendingReport : batch) {
+                recorder.markDeliveryReportRecordsStored(pendingReport.getLineItemStatusCount());
+                recorder.updateAsyncIngestEnqueueToCommitTimer(committedNanos - pendingReport.getEnqueuedNanos());
+            }
+        } catch (Exception ex) {
+            boolean transientFailure = ex instanceof DataAccessException
+                    && DeliveryReportSpool.isTransient((DataAccessException) ex);
+            if (batch.size() > 1 && !transientFailure) {
+                // Keep one bad report from taking the rest of the batch down with it
+                log.warn("Batched insert of {} queued Delivery Reports failed, storing them one at a time",
+                        batch.size());
+                batch.forEach(pendingReport -> writeBatch(Collections.singletonList(pendingReport)));
+                return;
+            }
+            batch.forEach(pendingReport -> spoolOrDrop(pendingReport, ex));
+        } finally {
+            optionalContext.ifPresent(Timer.Context::stop);
+        }
+    }
+
+    /**
+     * Insert the lines, retrying transient DB failures with exponential backoff up to the configured number of
+     * retries. An interrupted writer gives up straight away, failing with the last DB failure.
+     *
+     * @param deliveryReports
+     * @return number of rows reported by the database
+     */
+    private int insertRetrying(List<DeliveryReport> deliveryReports) {
+        long backoffMillis = Math.max(1, configuration.getDeliveryReportAsyncIngestRetryBackoffMillis());
+        for (int retry = 0; ; retry++) {
+            try {
+                return deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(deliveryReports);
+            } catch (DataAccessException ex) {
+                if (retry >= configuration.getDeliveryReportAsyncIngestMaxRetries()
+                        || !DeliveryReportSpool.isTransient(ex) || Thread.currentThread().isInterrupted()) {
+                    throw ex;
+                }
+                log.warn("DB Problem storing {} queued Delivery Report line item summaries, retry {} in {} ms::{}",
+                        deliveryReports.size(), retry + 1, backoffMillis, ex.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    private void spoolOrDrop(PendingReport pendingReport, Exception ex) {
+        if (ex instanceof DataAccessException && deliveryReportSpool.trySpool(pendingReport.getReportId(),
+                pendingReport.getDeliveryReports(), (DataAccessException) ex)) {
+            return;
+        }
+        // The report was acknowledged when it was queued, let a resend of it through
+        deliveryReportIdempotencyFilter.release(pendingReport.getReportId());
+        String msg = String.format("Problem storing queued delivery report %s from %s, dropping it::%s",
+                pendingReport.getReportId(), pendingReport.getSource(), ex.getMessage());
+        alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.STORE_ERROR, msg, AlertPriority.HIGH, ex);
+        recorder.markExceptionMeter(ex);
+    }
+
+    @Value
+    private static class PendingReport {
+        String reportId;
+        String source;
+        List<DeliveryReport> deliveryReports;
+        int lineItemStatusCount;
+        long enqueuedNanos;
+    }
+}
@@ -4,14 +4,23 @@ import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.prebid.pg.delstats.alerts.AlertName;
 import org.prebid.pg.delstats.alerts.AlertPriority;
 import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
 import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.DeliveryReportInFlightException;
+import org.prebid.pg.delstats.exception.DeliveryReportQueueFullException;
+import org.prebid.pg.delstats.exception.DeliveryReportValidationException;
 import org.prebid.pg.delstats.exception.InvalidLineItemStatusException;
+import org.prebid.pg.delstats.metrics.ConcurrentExpiringSet;
+import org.prebid.pg.delstats.metrics.DeliveryReportStoreEvent;
 import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
-import org.prebid.pg.delstats.metrics.SimplisticExpiringSet;
+import org.prebid.pg.delstats.metrics.IngestStage;
+import org.prebid.pg.delstats.metrics.IngestTrace;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse.ReportResult;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse.Status;
 import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
 import org.prebid.pg.delstats.model.dto.DeliveryReportLineDto;
 import org.prebid.pg.delstats.model.dto.DeliveryReportLineStatsDto;
@@ -19,19 +28,20 @@ import org.prebid.pg.delstats.model.dto.DeliveryReportToPlannerAdapterDto;
 import org.prebid.pg.delstats.model.dto.IntervalDeliveryReport;
 import org.prebid.pg.delstats.model.dto.LineItemStatus;
 import org.prebid.pg.delstats.model.dto.LineItemSummaryReport;
+import org.prebid.pg.delstats.model.dto.RawLineItemStatus;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReport;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReportToPlannerAdapter;
 import org.prebid.pg.delstats.model.dto.Tracer;
 import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsBulkRepository;
 import org.prebid.pg.delstats.repository.DeliveryProgressReportsRepository;
+import org.prebid.pg.delstats.repository.KeysetCursor;
+import org.prebid.pg.delstats.repository.ReportLineKey;
+import org.prebid.pg.delstats.services.DeliveryReportIdempotencyFilter.Reservation;
 import org.prebid.pg.delstats.utils.TimestampUtils;
 import org.prebid.pg.delstats.utils.TracerUtils;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
@@ -42,8 +52,11 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -63,8 +76,18 @@ public class DeliveryReportsDataService {
 
     private final DeliveryProgressReportsRepository deliveryProgressReportsRepository;
 
+    private final DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository;
+
     private final DeliveryReportProcessor deliveryReportProcessor;
 
+    private final DeliveryReportWriteBehindQueue deliveryReportWriteBehindQueue;
+
+    private final DeliveryReportSpool deliveryReportSpool;
+
+    private final LineItemSummaryPreAggregator lineItemSummaryPreAggregator;
+
+    private final DeliveryReportIdempotencyFilter deliveryReportIdempotencyFilter;
+
     private final ServerConfiguration configuration;
 
     private final GraphiteMetricsRecorder recorder;
@@ -75,7 +98,7 @@ public class DeliveryReportsDataService {
 
     private final AlertProxyHttpClient alertProxyHttpClient;
 
-    private SimplisticExpiringSet<String> recentPbsInstancesSeen;
+    private ConcurrentExpiringSet<String> recentPbsInstancesSeen;
 
     private static Map<String, Comparator<DeliveryReportLineStatsDto>> deliveryStatsComparatorMapping;
 
@@ -93,10 +116,20 @@ public class DeliveryReportsDataService {
 
     public DeliveryReportsDataService(
             DeliveryProgressReportsRepository deliveryProgressReportsRepository,
+            DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository,
             DeliveryReportProcessor deliveryReportProcessor,
+            DeliveryReportWriteBehindQueue deliveryReportWriteBehindQueue,
+            DeliveryReportSpool deliveryReportSpool,
+            LineItemSummaryPreAggregator lineItemSummaryPreAggregator,
+            DeliveryReportIdempotencyFilter deliveryReportIdempotencyFilter,
             ServerConfiguration configuration, SystemService systemService) {
         this.deliveryProgressReportsRepository = deliveryProgressReportsRepository;
+        this.deliveryProgressReportsBulkRepository = deliveryProgressReportsBulkRepository;
         this.deliveryReportProcessor = deliveryReportProcessor;
+        this.deliveryReportWriteBehindQueue = deliveryReportWriteBehindQueue;
+        this.deliveryReportSpool = deliveryReportSpool;
+        this.lineItemSummaryPreAggregator = lineItemSummaryPreAggregator;
+        this.deliveryReportIdempotencyFilter = deliveryReportIdempotencyFilter;
         this.configuration = configuration;
         this.recorder = systemService.getRecorder();
         this.objectMapper = systemService.getObjectMapper();
@@ -113,24 +146,39 @@ public class DeliveryReportsDataService {
                 }
             });
         }
-        this.recentPbsInstancesSeen = new SimplisticExpiringSet<>();
+        this.recentPbsInstancesSeen = new ConcurrentExpiringSet<>();
         this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
     @PostConstruct
     public void init() {
-        this.recentPbsInstancesSeen = new SimplisticExpiringSet<>(
+        this.recentPbsInstancesSeen = new ConcurrentExpiringSet<>(
                 configuration.getDeliveryReportInstanceNameCacheExpirationAmount(),
                 configuration.getDeliveryReportInstanceNameCacheExpirationUnit());
     }
 
     /**
-     * Store a Delivery Progress Report using the current system clock time for the report timestamp field.
+     * Store a Delivery Progress Report using the current system clock time for the report timestamp field. When
+     * asynchronous ingest is enabled the converted lines are queued for the writer threads instead. A report already
+     * stored under the same id recently, which PBS sends again when retrying, is acknowledged without storing it again,
+     * while a report still being stored under the same id is to be retried.
      *
      * @param deliveryReportFromPbsDto
+     * @throws DeliveryReportInFlightException if the report is still being stored by an earlier delivery
      */
     public void storeReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto) {
-        doStoreReport(deliveryReportFromPbsDto, Timestamp.from(Instant.now()));
+        String reportId = deliveryReportFromPbsDto.getReportId();
+        if (!admitReport(reportId)) {
+            return;
+        }
+        boolean stored = false;
+        try {
+            doStoreReport(deliveryReportFromPbsDto, Timestamp.from(Instant.now()),
+                    configuration.isDeliveryReportAsyncIngestEnabled());
+            stored = true;
+        } finally {
+            settleReportId(reportId, stored);
+        }
     }
 
     /**
@@ -142,48 +190,371 @@ public class DeliveryReportsDataService {
      */
     public void storeReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto, String nowString, String nowParamName) {
         Timestamp now = TimestampUtils.convertStringTimeToTimestamp(nowString, nowParamName);
-        doStoreReport(deliveryReportFromPbsDto, now);
+        doStoreReport(deliveryReportFromPbsDto, now, false);
+    }
+
+    /**
+     * Store a Delivery Progress Report read by the streaming ingest parser using the current system clock time for
+     * the report timestamp field. When asynchronous ingest is enabled the converted lines are queued for the writer
+     * threads instead. Reports stored recently under the same id are acknowledged without storing them again, those
+     * still being stored under the same id are to be retried.
+     *
+     * @param streamedDeliveryReport
+     * @throws DeliveryReportInFlightException if the report is still being stored by an earlier delivery
+     */
+    public void storeStreamedReport(StreamedDeliveryReport streamedDeliveryReport) {
+        String reportId = streamedDeliveryReport.getMetadata().getReportId();
+        if (streamedDeliveryReport.getLineItemStatus().isEmpty()) {
+            log.warn("DeliveryReport {} contained no line item status entries", reportId);
+            return;
+        }
+        if (!admitReport(reportId)) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        boolean writeBehind = configuration.isDeliveryReportAsyncIngestEnabled();
+        boolean stored = false;
+        try {
+            timeStoreLines(streamedDeliveryReport.getLineItemStatus().size(), writeBehind,
+                    () -> storeStreamedLines(streamedDeliveryReport, now, writeBehind));
+            stored = true;
+        } finally {
+            settleReportId(reportId, stored);
+        }
+    }
+
+    /**
+     * Store a batch of Delivery Progress Reports using the current system clock time for the report timestamp field.
+     * Each report is validated and converted on its own, so an invalid report only rejects itself, then the lines of
+     * all the reports accepted are written by a single bulk insert, or queued for the writer threads when
+     * asynchronous ingest is enabled. Reports stored recently under the same id, or posted twice in the batch, are
+     * acknowledged without storing them again, those still being stored under the same id by an earlier delivery are
+     * answered as in flight, to be posted again. When the bulk insert fails the reports are stored or spooled one by
+     * one, and those that could not be are reported as failed rather than failing the whole batch.
+     *
+     * @param deliveryReports
+     * @return the outcome of each report, in the order of the reports
+     */
+    public List<ReportResult> storeReportBatch(List<DeliveryReportFromPbsDto> deliveryReports) {
+        DeliveryReportStoreEvent event = new DeliveryReportStoreEvent();
+        event.begin();
+        Timestamp now = Timestamp.from(Instant.now());
+        boolean writeBehind = configuration.isDeliveryReportAsyncIngestEnabled();
+        List<ReportResult> results = new ArrayList<>(deliveryReports.size());
+        List<ConvertedReport> convertedReports = new ArrayList<>(deliveryReports.size());
+        Set<String> batchReportIds = new HashSet<>();
+        List<ReportResult> reservedResults = new ArrayList<>(deliveryReports.size());
+        int lineItemStatusCount = 0;
+        for (DeliveryReportFromPbsDto deliveryReportFromPbsDto : deliveryReports) {
+            String reportId = deliveryReportFromPbsDto.getReportId();
+            ReportResult result = ReportResult.builder().reportId(reportId).build();
+            results.add(result);
+            Reservation reservation = reportId != null && !batchReportIds.add(reportId)
+                    ? Reservation.STORED : reserveReportId(reportId);
+            if (reservation == Reservation.STORED) {
+                result.setStatus(Status.DUPLICATE);
+                continue;
+            }
+            if (reservation == Reservation.IN_FLIGHT) {
+                result.setStatus(Status.IN_FLIGHT);
+                result.setMessage(inFlightMessage(reportId));
+                continue;
+            }
+            reservedResults.add(result);
+            try {
+                ConvertedReport convertedReport = convertReport(deliveryReportFromPbsDto, now, result);
+                result.setStatus(writeBehind ? Status.QUEUED : Status.STORED);
+                if (!convertedReport.getDeliveryReports().isEmpty()) {
+                    convertedReports.add(convertedReport);
+                    lineItemStatusCount += convertedReport.getLineItemStatusCount();
+                }
+            } catch (DeliveryReportValidationException ex) {
+                log.info("Rejected Delivery Report {} in batch: {}", reportId, ex.getMessage());
+                result.setStatus(Status.REJECTED);
+                result.setMessage(ex.getMessage());
+            }
+        }
+        boolean stored = false;
+        try {
+            if (!convertedReports.isEmpty()) {
+                timeStoreLines(lineItemStatusCount, writeBehind,
+                        () -> storeConvertedReports(convertedReports, writeBehind));
+            }
+            stored = true;
+        } finally {
+            // Reports rejected, by validation or a full write-behind queue, or failing to be stored are to be
+            // delivered again
+            for (ReportResult result : reservedResults) {
+                settleReportId(result.getReportId(), stored && result.getStatus().isAccepted());
+            }
+            if (event.shouldCommit()) {
+                event.setReports(deliveryReports.size());
+                event.setLineItemStatusCount(lineItemStatusCount);
+                event.setLinesConverted(convertedReports.stream()
+                        .mapToInt(convertedReport -> convertedReport.getDeliveryReports().size()).sum());
+                event.setWriteBehind(writeBehind);
+                event.commit();
+            }
+        }
+        return results;
+    }
+
+    private ConvertedReport convertReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto, Timestamp now,
+                                          ReportResult result) {
+        List<JsonNode> lineItemStatus = deliveryReportFromPbsDto.getLineItemStatus();
+        if (lineItemStatus == null || lineItemStatus.isEmpty()) {
+            log.warn("DeliveryReport {} contained no line item status entries", deliveryReportFromPbsDto.getReportId());
+            return new ConvertedReport(deliveryReportFromPbsDto, Collections.emptyList(), 0, result);
+        }
+        deliveryReportProcessor.validateDeliveryReportWindow(deliveryReportFromPbsDto);
+        IngestTrace.lap(IngestStage.VALIDATE);
+        List<DeliveryReport> deliveryReports = new ArrayList<>(lineItemStatus.size());
+        List<Exception> capturedExceptions = new LinkedList<>();
+        for (final JsonNode lineItemStatusJson : lineItemStatus) {
+            deliveryReports.addAll(deliveryReportProcessor.processLineItemStatus(deliveryReportFromPbsDto,
+                    lineItemStatusJson, now, capturedExceptions));
+        }
+        IngestTrace.lap(IngestStage.CONVERT);
+        recentPbsInstancesSeen.add(deliveryReportFromPbsDto.getInstanceId());
+        if (!capturedExceptions.isEmpty()) {
+            recorder.markInvalidRequestMeter();
+            result.setMessage(String.format("%d of %d line item status entries were not valid",
+                    capturedExceptions.size(), lineItemStatus.size()));
+        }
+        return new ConvertedReport(deliveryReportFromPbsDto, deliveryReports, lineItemStatus.size(), result);
+    }
+
+    private void storeConvertedReports(List<ConvertedReport> convertedReports, boolean writeBehind) {
+        if (writeBehind) {
+            for (ConvertedReport convertedReport : convertedReports) {
+                DeliveryReportFromPbsDto deliveryReportFromPbsDto = convertedReport.getDeliveryReportFromPbsDto();
+                try {
+                    deliveryReportWriteBehindQueue.enqueue(deliveryReportFromPbsDto.getReportId(),
+                            getSource(deliveryReportFromPbsDto), convertedReport.getDeliveryReports(),
+                            convertedReport.getLineItemStatusCount());
+                } catch (DeliveryReportQueueFullException ex) {
+                    convertedReport.getResult().setStatus(Status.REJECTED);
+                    convertedReport.getResult().setMessage(ex.getMessage());
+                }
+            }
+            IngestTrace.lap(IngestStage.PERSIST);
+            return;
+        }
+        List<DeliveryReport> deliveryReports = convertedReports.stream()
+                .flatMap(convertedReport -> convertedReport.getDeliveryReports().stream())
+                .collect(Collectors.toList());
+        try {
+            // Lines of a previously delivered report hit its (report_id, line_item_id) key and are left as they are
+            int rows = deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(deliveryReports);
+            IngestTrace.lap(IngestStage.COMMIT);
+            log.info("Saved {} Delivery Report(s) of {} Delivery Reports in a batch.", rows, convertedReports.size());
+        } catch (DataAccessException ex) {
+            storeEachReport(convertedReports, ex);
+            return;
+        }
+        convertedReports.forEach(convertedReport ->
+                lineItemSummaryPreAggregator.add(convertedReport.getDeliveryReports()));
+    }
+
+    /**
+     * Store the reports of a batch whose bulk insert failed one by one, so each report gets its own outcome and PBS
+     * only delivers those that failed again. While the DB is unavailable the reports are spooled instead.
+     *
+     * @param convertedReports
+     * @param batchException
+     */
+    private void storeEachReport(List<ConvertedReport> convertedReports, DataAccessException batchException) {
+        boolean dbAvailable = !DeliveryReportSpool.isTransient(batchException);
+        DataAccessException lastFailure = null;
+        int failed = 0;
+        for (ConvertedReport convertedReport : convertedReports) {
+            String reportId = convertedReport.getDeliveryReportFromPbsDto().getReportId();
+            List<DeliveryReport> deliveryReports = convertedReport.getDeliveryReports();
+            DataAccessException failure = batchException;
+            if (dbAvailable) {
+                try {
+                    deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(deliveryReports);
+                    lineItemSummaryPreAggregator.add(deliveryReports);
+                    continue;
+                } catch (DataAccessException ex) {
+                    failure = ex;
+                    dbAvailable = !DeliveryReportSpool.isTransient(ex);
+                }
+            }
+            // Spooled lines are stored, with a new report timestamp, only once the spool is replayed
+            if (deliveryReportSpool.trySpool(reportId, deliveryReports, failure)) {
+                convertedReport.getResult().setStatus(Status.SPOOLED);
+            } else {
+                convertedReport.getResult().setStatus(Status.FAILED);
+                convertedReport.getResult().setMessage(failure.getMessage());
+                lastFailure = failure;
+                failed++;
+            }
+        }
+        if (lastFailure != null) {
+            String msg = String.format("DB Problem storing %d of %d delivery reports of batch::%s",
+                    failed, convertedReports.size(), lastFailure.getMessage());
+            alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.STORE_ERROR, msg,
+                    AlertPriority.HIGH, lastFailure);
+            recorder.markInvalidRequestMeter();
+        }
+    }
+
+    private static String getSource(DeliveryReportFromPbsDto deliveryReportFromPbsDto) {
+        return String.format("%s|%s|%s", deliveryReportFromPbsDto.getVendor(),
+                deliveryReportFromPbsDto.getRegion(), deliveryReportFromPbsDto.getInstanceId());
+    }
+
+    private Reservation reserveReportId(String reportId) {
+        Reservation reservation = deliveryReportIdempotencyFilter.reserve(reportId);
+        if (reservation == Reservation.STORED) {
+            log.info("DeliveryReport {} was already stored, acknowledging it without storing it again", reportId);
+            recorder.markDuplicateDeliveryReportsSuppressed();
+        } else if (reservation == Reservation.IN_FLIGHT) {
+            log.info("DeliveryReport {} is still being stored, asking for it to be delivered again", reportId);
+        }
+        return reservation;
+    }
+
+    /**
+     * Reserve the id of a single report about to be stored.
+     *
+     * @param reportId
+     * @return false if the report was stored already
+     * @throws DeliveryReportInFlightException if the report is still being stored by an earlier delivery
+     */
+    private boolean admitReport(String reportId) {
+        Reservation reservation = reserveReportId(reportId);
+        if (reservation == Reservation.IN_FLIGHT) {
+            throw new DeliveryReportInFlightException(inFlightMessage(reportId));
+        }
+        return reservation == Reservation.RESERVED;
     }
 
-    private void doStoreReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto, Timestamp now) {
+    private void settleReportId(String reportId, boolean stored) {
+        if (stored) {
+            deliveryReportIdempotencyFilter.markStored(reportId);
+        } else {
+            deliveryReportIdempotencyFilter.release(reportId);
+        }
+    }
+
+    private static String inFlightMessage(String reportId) {
+        return String.format("Delivery Report %s is still being stored, retry later", reportId);
+    }
+
+    private void doStoreReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto, Timestamp now,
+                               boolean writeBehind) {
         if (deliveryReportFromPbsDto.getLineItemStatus() == null
                 || deliveryReportFromPbsDto.getLineItemStatus().isEmpty()) {
             log.warn("DeliveryReport {} contained no line item status entries", deliveryReportFromPbsDto.getReportId());
             return;
         }
+        timeStoreLines(deliveryReportFromPbsDto.getLineItemStatus().size(), writeBehind,
+                () -> storeLines(deliveryReportFromPbsDto, now, writeBehind));
+    }
 
+    private void timeStoreLines(int records, boolean writeBehind, Runnable storeLines) {
         Optional<Timer.Context> optionalContext = recorder.repositoryStoreDeliveryReportLinesTimer();
         Instant start = Instant.now();
         boolean rc = false;
         try {
-            storeLines(deliveryReportFromPbsDto, now);
-            recorder.markDeliveryReportRecordsStored(deliveryReportFromPbsDto.getLineItemStatus().size());
+            storeLines.run();
+            if (!writeBehind) {
+                // Queued lines are counted by the writer threads once they have been committed
+                recorder.markDeliveryReportRecordsStored(records);
+            }
             rc = true;
         } finally {
             optionalContext.ifPresent(Timer.Context::stop);
             long timeSpent = Duration.between(start, Instant.now()).toMillis();
-            String results = rc ? "Stored" : "Rejected";
-            int records = deliveryReportFromPbsDto.getLineItemStatus().size();
+            String results = rc ? (writeBehind ? "Queued" : "Stored") : "Rejected";
             TracerUtils.logIfActive(log, tracer, String.format("%s %d reports in %d ms", results, records, timeSpent));
         }
     }
 
     void storeLines(DeliveryReportFromPbsDto deliveryReportFromPbsDto, Timestamp now) {
+        storeLines(deliveryReportFromPbsDto, now, false);
+    }
+
+    private void storeLines(DeliveryReportFromPbsDto deliveryReportFromPbsDto, Timestamp now, boolean writeBehind) {
         if (deliveryReportFromPbsDto.getLineItemStatus() == null) {
             log.info("No delivery report summaries in request");
             return;
         }
-        deliveryReportProcessor.validateDeliveryReport(deliveryReportFromPbsDto);
-
+        DeliveryReportStoreEvent event = new DeliveryReportStoreEvent();
+        event.begin();
         List<DeliveryReport> deliveryReports = new LinkedList<>();
-        List<Exception> capturedExceptions = new LinkedList<>();
+        try {
+            // Line item status timestamps are validated as each entry is converted
+            deliveryReportProcessor.validateDeliveryReportWindow(deliveryReportFromPbsDto);
+            IngestTrace.lap(IngestStage.VALIDATE);
 
-        for (final JsonNode lineItemStatusJson : deliveryReportFromPbsDto.getLineItemStatus()) {
-            deliveryReports.addAll(deliveryReportProcessor.processLineItemStatus(deliveryReportFromPbsDto,
-                    lineItemStatusJson, now, capturedExceptions));
+            List<Exception> capturedExceptions = new LinkedList<>();
+
+            for (final JsonNode lineItemStatusJson : deliveryReportFromPbsDto.getLineItemStatus()) {
+                deliveryReports.addAll(deliveryReportProcessor.processLineItemStatus(deliveryReportFromPbsDto,
+                        lineItemStatusJson, now, capturedExceptions));
+            }
+            IngestTrace.lap(IngestStage.CONVERT);
+            recentPbsInstancesSeen.add(deliveryReportFromPbsDto.getInstanceId());
+
+            storeProcessedLines(deliveryReportFromPbsDto, deliveryReports,
+                    deliveryReportFromPbsDto.getLineItemStatus().size(), capturedExceptions, writeBehind);
+        } finally {
+            commitStoreEvent(event, deliveryReportFromPbsDto, deliveryReportFromPbsDto.getLineItemStatus().size(),
+                    deliveryReports.size(), writeBehind);
+        }
+    }
+
+    void storeStreamedLines(StreamedDeliveryReport streamedDeliveryReport, Timestamp now, boolean writeBehind) {
+        DeliveryReportStoreEvent event = new DeliveryReportStoreEvent();
+        event.begin();
+        DeliveryReportFromPbsDto deliveryReportFromPbsDto = streamedDeliveryReport.getMetadata();
+        List<DeliveryReport> deliveryReports = new ArrayList<>(streamedDeliveryReport.getLineItemStatus().size());
+        try {
+            deliveryReportProcessor.validateDeliveryReportWindow(deliveryReportFromPbsDto);
+            IngestTrace.lap(IngestStage.VALIDATE);
+
+            List<Exception> capturedExceptions = new LinkedList<>();
+
+            for (final RawLineItemStatus rawLineItemStatus : streamedDeliveryReport.getLineItemStatus()) {
+                deliveryReports.addAll(deliveryReportProcessor.processRawLineItemStatus(deliveryReportFromPbsDto,
+                        rawLineItemStatus, now, capturedExceptions));
+            }
+            IngestTrace.lap(IngestStage.CONVERT);
             recentPbsInstancesSeen.add(deliveryReportFromPbsDto.getInstanceId());
+
+            storeProcessedLines(deliveryReportFromPbsDto, deliveryReports,
+                    streamedDeliveryReport.getLineItemStatus().size(), capturedExceptions, writeBehind);
+        } finally {
+            commitStoreEvent(event, deliveryReportFromPbsDto, streamedDeliveryReport.getLineItemStatus().size(),
+                    deliveryReports.size(), writeBehind);
         }
+    }
 
+    private static void commitStoreEvent(DeliveryReportStoreEvent event,
+                                         DeliveryReportFromPbsDto deliveryReportFromPbsDto,
+                                         int lineItemStatusCount, int linesConverted, boolean writeBehind) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.setReportId(deliveryReportFromPbsDto.getReportId());
+        event.setVendor(deliveryReportFromPbsDto.getVendor());
+        event.setRegion(deliveryReportFromPbsDto.getRegion());
+        event.setInstanceId(deliveryReportFromPbsDto.getInstanceId());
+        event.setReports(1);
+        event.setLineItemStatusCount(lineItemStatusCount);
+        event.setLinesConverted(linesConverted);
+        event.setWriteBehind(writeBehind);
+        event.commit();
+    }
+
+    private void storeProcessedLines(DeliveryReportFromPbsDto deliveryReportFromPbsDto,
+                                     List<DeliveryReport> deliveryReports,
+                                     int lineItemStatusCount,
+                                     List<Exception> capturedExceptions,
+                                     boolean writeBehind) {
         if (!capturedExceptions.isEmpty()) {
             recorder.markInvalidRequestMeter();
         }
@@ -192,12 +563,28 @@ public class DeliveryReportsDataService {
             return;
         }
 
-        storeLinesInDB(deliveryReportFromPbsDto, deliveryReports, capturedExceptions);
+        if (writeBehind) {
+            String source = String.format("%s|%s|%s", deliveryReportFromPbsDto.getVendor(),
+                    deliveryReportFromPbsDto.getRegion(), deliveryReportFromPbsDto.getInstanceId());
+            // The writer thread adds the lines to the pre-aggregated summaries once it has committed them
+            deliveryReportWriteBehindQueue.enqueue(deliveryReportFromPbsDto.getReportId(), source, deliveryReports,
+                    lineItemStatusCount);
+            IngestTrace.lap(IngestStage.PERSIST);
+        } else if (storeLinesInDB(deliveryReportFromPbsDto, deliveryReports, lineItemStatusCount,
+                capturedExceptions)) {
+            // Spooled lines are stored, with a new report timestamp, only once the spool is replayed
+            lineItemSummaryPreAggregator.add(deliveryReports);
+        }
     }
 
-    @Transactional
-    void storeLinesInDB(DeliveryReportFromPbsDto deliveryReportFromPbsDto,
+    /**
+     * Store the converted lines of a Delivery Progress Report, spooling them when the DB is unavailable.
+     *
+     * @return true if the lines were stored, false if they were spooled
+     */
+    boolean storeLinesInDB(DeliveryReportFromPbsDto deliveryReportFromPbsDto,
                         List<DeliveryReport> deliveryReports,
+                        int lineItemStatusCount,
                         List<Exception> capturedExceptions) {
         try {
             String source = String.format("%s|%s|%s", deliveryReportFromPbsDto.getVendor(),
@@ -207,16 +594,17 @@ public class DeliveryReportsDataService {
                         deliveryReports.size(), deliveryReportFromPbsDto.getReportId(), source);
             } else {
                 log.info("Delivery Report {} saving only {} delivery report line item summaries of {} from {}",
-                        deliveryReports.size(), deliveryReportFromPbsDto.getReportId(),
-                        deliveryReportFromPbsDto.getLineItemStatus().size(), source);
+                        deliveryReports.size(), deliveryReportFromPbsDto.getReportId(), lineItemStatusCount, source);
             }
-            List<DeliveryReport> results = deliveryProgressReportsRepository.saveAll(deliveryReports);
-            log.info("Saved {} Delivery Report(s) {} from {}.",
-                    results.size(), deliveryReportFromPbsDto.getReportId(), source);
-        } catch (DataIntegrityViolationException ex) {
-            // Ignoring these errors as they indicate the same report was previously delivered.
-            log.warn("DB Problem storing delivery report::{}", ex.getMessage());
+            // Lines of a previously delivered report hit its (report_id, line_item_id) key and are left as they are
+            int rows = deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(deliveryReports);
+            IngestTrace.lap(IngestStage.COMMIT);
+            log.info("Saved {} Delivery Report(s) {} from {}.", rows, deliveryReportFromPbsDto.getReportId(), source);
+            return true;
         } catch (DataAccessException ex) {
+            if (deliveryReportSpool.trySpool(deliveryReportFromPbsDto.getReportId(), deliveryReports, ex)) {
+                return false;
+            }
             String msg = String.format("DB Problem storing delivery report::%s", ex.getMessage());
             alertProxyHttpClient.raiseEventForExceptionAndLog(AlertName.STORE_ERROR, msg,
                     AlertPriority.HIGH, ex);
@@ -243,6 +631,35 @@ public class DeliveryReportsDataService {
     public DeliveryReportToPlannerAdapterDto retrieveByBidderCode(String bidderCode,
                                                                   String startTime,
                                                                   String endTime) {
+        StreamedDeliveryReportToPlannerAdapter report = streamByBidderCode(bidderCode, startTime, endTime);
+
+        final List<DeliveryReportLineDto> deliveryReportList = new ArrayList<>();
+        Optional<Timer.Context> optionalContext = recorder.repositoryFetchDeliveryReportLinesTimer();
+        report.getDeliveryReports().forEachRemaining(deliveryReportList::add);
+        optionalContext.ifPresent(Timer.Context::stop);
+        recorder.markDeliveryReportRecordsFetched(deliveryReportList.size());
+
+        return DeliveryReportToPlannerAdapterDto.builder()
+                    .reportId(report.getReportId())
+                    .reportTimeStamp(report.getReportTimeStamp())
+                    .dataWindowStartTimeStamp(report.getDataWindowStartTimeStamp())
+                    .dataWindowEndTimeStamp(report.getDataWindowEndTimeStamp())
+                    .deliveryReports(deliveryReportList)
+                    .build();
+    }
+
+    /**
+     * Same as {@link #retrieveByBidderCode} but with the lines read from the DB a page at a time as they are iterated.
+     * The parameters are validated before any line is read.
+     *
+     * @param bidderCode
+     * @param startTime
+     * @param endTime
+     * @return
+     */
+    public StreamedDeliveryReportToPlannerAdapter streamByBidderCode(String bidderCode,
+                                                                     String startTime,
+                                                                     String endTime) {
         if (this.bidderAliasMaps.containsKey(bidderCode)) {
             String prevBidderCode = bidderCode;
             bidderCode = this.bidderAliasMaps.get(bidderCode);
@@ -252,60 +669,36 @@ public class DeliveryReportsDataService {
                 configuration.getGetDeliveryReportStartSincePeriodSeconds(), "startTime");
         final Timestamp endTimestamp = TimestampUtils.convertStringTimeToTimestamp(endTime,
                 configuration.getGetDeliveryReportEndSincePeriodSeconds(), "endTime");
-        final Instant startInstant = startTimestamp.toInstant();
-        final Instant endInstant = endTimestamp.toInstant();
 
         log.info(
                 "Looking for Delivery Progress Reports from {} through {} for bidderCode={}",
                 startTimestamp, endTimestamp, bidderCode
         );
 
-        final List<DeliveryReportLineDto> deliveryReportList = new ArrayList<>();
-        Optional<Timer.Context> optionalContext = recorder.repositoryFetchDeliveryReportLinesTimer();
-        // Break down queries into minute-level queries for performance with a lot of lines from many PBS
-        final long requestRangeMinutes = Duration.between(startInstant, endInstant).toMinutes();
-        for (int fetchMinute = 0; fetchMinute <= requestRangeMinutes; fetchMinute++) {
-            Instant fetchStart = startInstant.plusSeconds(fetchMinute * 60L);
-            Instant fetchEnd = (fetchMinute < requestRangeMinutes) ? fetchStart.plusSeconds(60) : endInstant;
-            if (!fetchStart.isBefore(fetchEnd)) {
-                continue;
-            }
-            deliveryReportList.addAll(fetchDeliveryReports(bidderCode,
-                    Timestamp.from(fetchStart), Timestamp.from(fetchEnd), configuration.getDeliveryReportsPageSize()));
-        }
-
-        optionalContext.ifPresent(Timer.Context::stop);
-        recorder.markDeliveryReportRecordsFetched(deliveryReportList.size());
-
-        return DeliveryReportToPlannerAdapterDto.builder()
+        return StreamedDeliveryReportToPlannerAdapter.builder()
                     .reportId(UUID.randomUUID().toString())
                     .reportTimeStamp(Timestamp.from(Instant.now()))
                     .dataWindowStartTimeStamp(startTimestamp)
                     .dataWindowEndTimeStamp(endTimestamp)
-                    .deliveryReports(deliveryReportList)
+                    .deliveryReports(fetchDeliveryReports(bidderCode, startTimestamp, endTimestamp,
+                            configuration.getDeliveryReportsPageSize()))
                     .build();
     }
 
-    private List<DeliveryReportLineDto> fetchDeliveryReports(String bidderCode, Timestamp startTimestamp,
-                                                             Timestamp endTimestamp, int pageSize) {
-        Pageable page = PageRequest.of(0, pageSize);
-        ArrayList<DeliveryReportLineDto> deliveryReportList = new ArrayList<>();
-        while (true) {
-            Page<DeliveryReport> deliveryReportPage = deliveryProgressReportsRepository
-                    .findByBidderCodeAndReportTimestampRange(
-                            bidderCode, startTimestamp, endTimestamp, page);
-            if (deliveryReportPage.hasContent()) {
-                for (DeliveryReport deliveryReport : deliveryReportPage.getContent()) {
-                    deliveryReportList.add(mapDeliveryReportToDeliveryReportLine(deliveryReport));
-                }
-            }
-            if (deliveryReportPage.hasNext()) {
-                page = deliveryReportPage.nextPageable();
-            } else {
-                break;
-            }
-        }
-        return deliveryReportList;
+    /**
+     * Lines are read in the order of the report_timestamp index over the whole range, each page continuing where the
+     * previous one ended, so the range is no longer split into minute-level queries.
+     */
+    private Iterator<DeliveryReportLineDto> fetchDeliveryReports(String bidderCode, Timestamp startTimestamp,
+                                                                 Timestamp endTimestamp, int pageSize) {
+        return new KeysetCursor<DeliveryReport, ReportLineKey>(ReportLineKey.startingAt(startTimestamp), pageSize,
+                ReportLineKey::ofReportTimestamp,
+                (after, limit) -> deliveryProgressReportsRepository.findByBidderCodeAndReportTimestampRangeAfter(
+                        bidderCode, startTimestamp, endTimestamp,
+                        after.getTimestamp(), after.getReportId(), after.getLineItemId(), limit))
+                .stream()
+                .map(this::mapDeliveryReportToDeliveryReportLine)
+                .iterator();
     }
 
     DeliveryReportLineDto mapDeliveryReportToDeliveryReportLine(DeliveryReport deliveryReport) {
@@ -336,10 +729,8 @@ public class DeliveryReportsDataService {
     public List<DeliveryReport> retrieveLineItemSummaries(String lineItemIds, Instant startTime, Instant endTime) {
         Optional<Timer.Context> optionalContext = recorder.repositoryFetchDeliveryReportLinesTimer();
         List<DeliveryReport> reports = new ArrayList<>();
-        Pageable page = PageRequest.of(0, configuration.getLineItemSummaryPagerSize(),
-                Sort.by("data_window_end_timestamp").ascending());
         try {
-            reports = LineItemSummaryReport.retrieveLineItemSummaries(lineItemIds, startTime, endTime, page,
+            reports = LineItemSummaryReport.retrieveLineItemSummaries(lineItemIds, startTime, endTime,
                     this::findDeliveryReports);
         } catch (Exception e) {
             String msg = "getLineItemSummaries::Unexpected exception";
@@ -463,11 +854,30 @@ public class DeliveryReportsDataService {
         summaries.add(summaryMap);
     }
 
-    private Page<DeliveryReport> findDeliveryReports(List<String> lineIds, Instant startTime, Instant endTime,
-            Pageable page) {
-        return lineIds.isEmpty()
-                ? deliveryProgressReportsRepository.getLineItemReportsWithTimeRange(startTime, endTime, page)
-                : deliveryProgressReportsRepository.getLineItemReportsByLineIdsWithTimeRange(
-                lineIds, startTime, endTime, page);
+    private Iterator<DeliveryReport> findDeliveryReports(List<String> lineIds, Instant startTime, Instant endTime) {
+        return new KeysetCursor<DeliveryReport, ReportLineKey>(ReportLineKey.startingAt(Timestamp.from(startTime)),
+                configuration.getLineItemSummaryPagerSize(), ReportLineKey::ofDataWindowEnd,
+                (after, limit) -> lineIds.isEmpty()
+                        ? deliveryProgressReportsRepository.getLineItemReportsWithTimeRangeAfter(startTime, endTime,
+                                after.getTimestamp(), after.getReportId(), after.getLineItemId(), limit)
+                        : deliveryProgressReportsRepository.getLineItemReportsByLineIdsWithTimeRangeAfter(lineIds,
+                                startTime, endTime, after.getTimestamp(), after.getReportId(), after.getLineItemId(),
+                                limit));
+    }
+
+    /**
+     * The lines of a Delivery Progress Report of a batch, converted and waiting to be written with those of the other
+     * reports of the batch.
+     */
+    @Value
+    private static class ConvertedReport {
+
+        private DeliveryReportFromPbsDto deliveryReportFromPbsDto;
+
+        private List<DeliveryReport> deliveryReports;
+
+        private int lineItemStatusCount;
+
+        private ReportResult result;
     }
 }
@@ -0,0 +1,166 @@
+package org.prebid.pg.delstats.services;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.ApiNotActiveException;
+import org.prebid.pg.delstats.exception.InvalidRequestException;
+import org.prebid.pg.delstats.model.dto.FlightRecordingState;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs a Java Flight Recorder recording of the service, including the custom events of the ingest, summary and query
+ * paths, and dumps it to a file for offline analysis. The recording is either kept running from startup, to dump the
+ * last minutes of a production instance after an incident, or started and stopped on demand through the admin API.
+ */
+@Slf4j
+@Service
+public class FlightRecordingService {
+
+    static final String RECORDING_NAME = "pg-del-stats";
+
+    private static final DateTimeFormatter DUMP_FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final ServerConfiguration configuration;
+
+    private final String serviceInstanceId;
+
+    private Recording recording;
+
+    private String settings;
+
+    private Path lastDumpFile;
+
+    public FlightRecordingService(ServerConfiguration configuration, SystemService systemService) {
+        this.configuration = configuration;
+        this.serviceInstanceId = systemService.getServiceInstanceId();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!configuration.isFlightRecordingContinuous()) {
+            return;
+        }
+        try {
+            start(null);
+        } catch (RuntimeException ex) {
+            log.error("Unable to start the continuous flight recording", ex);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * Starts a recording.
+     *
+     * @param settingsName name of the JFR settings to record with, the configured ones if empty
+     * @return the state of the started recording
+     */
+    public synchronized FlightRecordingState start(String settingsName) {
+        if (recording != null) {
+            throw new InvalidRequestException("A flight recording is already running");
+        }
+        if (!FlightRecorder.isAvailable()) {
+            throw new ApiNotActiveException("Flight Recorder is not available in this JVM");
+        }
+        String name = StringUtils.isEmpty(settingsName) ? configuration.getFlightRecordingSettings() : settingsName;
+        Configuration jfrConfiguration;
+        try {
+            jfrConfiguration = Configuration.getConfiguration(name);
+        } catch (IOException | ParseException ex) {
+            throw new InvalidRequestException(String.format("Unknown flight recording settings %s", name));
+        }
+        Recording started = new Recording(jfrConfiguration);
+        started.setName(RECORDING_NAME);
+        started.setMaxAge(Duration.ofMinutes(configuration.getFlightRecordingMaxAgeMinutes()));
+        started.setMaxSize(configuration.getFlightRecordingMaxSizeBytes());
+        started.setToDisk(true);
+        started.start();
+        recording = started;
+        settings = name;
+        log.info("Started flight recording with {} settings", name);
+        return getState();
+    }
+
+    /**
+     * Dumps the data of the running recording to a new file, and keeps recording.
+     *
+     * @return the state of the recording, with the file dumped to
+     * @throws IOException
+     */
+    public synchronized FlightRecordingState dump() throws IOException {
+        lastDumpFile = dumpRecording(requireRecording());
+        return getState();
+    }
+
+    /**
+     * Stops the running recording and dumps its data to a new file.
+     *
+     * @return the state of the stopped recording, with the file dumped to
+     * @throws IOException
+     */
+    public synchronized FlightRecordingState stop() throws IOException {
+        Recording stopped = requireRecording();
+        stopped.stop();
+        try {
+            lastDumpFile = dumpRecording(stopped);
+        } finally {
+            stopped.close();
+            recording = null;
+        }
+        log.info("Stopped flight recording, dumped to {}", lastDumpFile);
+        return getState();
+    }
+
+    public synchronized FlightRecordingState getState() {
+        FlightRecordingState.FlightRecordingStateBuilder state = FlightRecordingState.builder()
+                .running(recording != null)
+                .lastDumpFile(lastDumpFile == null ? null : lastDumpFile.toString());
+        if (recording != null) {
+            state.name(recording.getName())
+                    .settings(settings)
+                    .startTime(String.valueOf(recording.getStartTime()))
+                    .maxAgeMinutes(recording.getMaxAge().toMinutes())
+                    .maxSizeBytes(recording.getMaxSize());
+        }
+        return state.build();
+    }
+
+    private Recording requireRecording() {
+        if (recording == null) {
+            throw new InvalidRequestException("No flight recording is running");
+        }
+        return recording;
+    }
+
+    private Path dumpRecording(Recording source) throws IOException {
+        Path directory = Paths.get(configuration.getFlightRecordingDirectory());
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("%s-%s-%s.jfr",
+                RECORDING_NAME, serviceInstanceId, DUMP_FILE_TIMESTAMP.format(Instant.now())));
+        source.dump(file);
+        return file.toAbsolutePath();
+    }
+}
@@ -0,0 +1,235 @@
+package org.prebid.pg.delstats.services;
+
+import lombok.Value;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sums the counters of stored Delivery Report lines in memory per summary interval and line item, so the summary of
+ * an interval can be written without reading the interval's lines back from the DB. The sums match those of
+ * {@code DeliveryReportSummaryRepository.insertLineSummariesDirectly}. An interval is only handed out when this
+ * instance was running for all of it; the caller is expected to check the line count against the stored lines.
+ * Only lines stored by this instance are seen, so this is meant for deployments running a single instance; with
+ * more instances the line counts never match and every interval falls back to the SQL summary.
+ */
+@Service
+public class LineItemSummaryPreAggregator {
+
+    private static final int ACCOUNT_AUCTIONS = 0;
+    private static final int DOMAIN_MATCHED = 1;
+    private static final int TARGET_MATCHED = 2;
+    private static final int TARGET_MATCHED_BUT_FCAPPED = 3;
+    private static final int TARGET_MATCHED_BUT_FCAP_LOOKUP_FAILED = 4;
+    private static final int PACING_DEFERRED = 5;
+    private static final int SENT_TO_BIDDER = 6;
+    private static final int SENT_TO_BIDDER_AS_TOP_MATCH = 7;
+    private static final int RECEIVED_FROM_BIDDER_INVALIDATED = 8;
+    private static final int RECEIVED_FROM_BIDDER = 9;
+    private static final int SENT_TO_CLIENT = 10;
+    private static final int SENT_TO_CLIENT_AS_TOP_MATCH = 11;
+    private static final int WIN_EVENTS = 12;
+    private static final int FIRST_PLAN_TOKENS_SPENT = 13;
+
+    private static final int REPORT_WINDOW_START = 14;
+    private static final int REPORT_WINDOW_END = 15;
+    private static final int DATA_WINDOW_START = 16;
+    private static final int DATA_WINDOW_END = 17;
+    private static final int LINES = 18;
+    private static final int SLOTS = 19;
+
+    private final ConcurrentNavigableMap<Long, IntervalAggregate> intervals = new ConcurrentSkipListMap<>();
+
+    private final boolean enabled;
+
+    private final long intervalMillis;
+
+    private final long retainedIntervals;
+
+    private final long startedAtMillis;
+
+    public LineItemSummaryPreAggregator(ServerConfiguration configuration) {
+        this.enabled = configuration.isDeliverySummaryServicePreAggregationEnabled();
+        this.intervalMillis = TimeUnit.MINUTES.toMillis(
+                Math.max(1, configuration.getDeliverySummaryServiceAggregateInterval()));
+        this.retainedIntervals = Math.max(1, configuration.getDeliverySummaryServiceMaxAggregateIntervals()) + 1;
+        this.startedAtMillis = System.currentTimeMillis();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Add the counters of stored Delivery Report lines to the interval of their report timestamp. Lines of intervals
+     * that started before this instance did are skipped since those intervals can never be complete.
+     *
+     * @param deliveryReports
+     */
+    public void add(List<DeliveryReport> deliveryReports) {
+        if (!enabled) {
+            return;
+        }
+        for (DeliveryReport deliveryReport : deliveryReports) {
+            long interval = Math.floorDiv(deliveryReport.getReportTimestamp().getTime(), intervalMillis);
+            if (interval * intervalMillis < startedAtMillis) {
+                continue;
+            }
+            IntervalAggregate aggregate = intervals.get(interval);
+            if (aggregate == null) {
+                aggregate = intervals.computeIfAbsent(interval, key -> new IntervalAggregate());
+                // Intervals nobody asked for are dropped once they are too old to be summarized
+                intervals.headMap(interval - retainedIntervals).clear();
+            }
+            aggregate.add(deliveryReport);
+        }
+    }
+
+    /**
+     * Remove and return the sums for a summary interval along with those of any older interval still held.
+     *
+     * @param startTime
+     * @param endTime
+     * @return the interval's summaries, empty when the interval was not fully seen by this instance
+     */
+    public Optional<PreAggregatedInterval> takeInterval(Timestamp startTime, Timestamp endTime) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long startMillis = startTime.getTime();
+        long interval = Math.floorDiv(startMillis, intervalMillis);
+        IntervalAggregate aggregate = intervals.remove(interval);
+        intervals.headMap(interval).clear();
+        if (startMillis % intervalMillis != 0 || endTime.getTime() - startMillis != intervalMillis
+                || startMillis < startedAtMillis) {
+            return Optional.empty();
+        }
+        return Optional.of(aggregate == null
+                ? new PreAggregatedInterval(Collections.emptyList(), 0)
+                : aggregate.toPreAggregatedInterval());
+    }
+
+    private static class IntervalAggregate {
+        private final ConcurrentMap<String, LineAggregate> lines = new ConcurrentHashMap<>();
+
+        void add(DeliveryReport deliveryReport) {
+            lines.computeIfAbsent(deliveryReport.getLineItemId(), key -> new LineAggregate()).add(deliveryReport);
+        }
+
+        PreAggregatedInterval toPreAggregatedInterval() {
+            List<DeliveryReportSummary> summaries = new ArrayList<>(lines.size());
+            long lineCount = 0;
+            Instant now = Instant.now();
+            for (Map.Entry<String, LineAggregate> entry : lines.entrySet()) {
+                LineAggregate line = entry.getValue();
+                synchronized (line) {
+                    lineCount += line.values[LINES];
+                    summaries.add(line.toSummary(entry.getKey(), now));
+                }
+            }
+            return new PreAggregatedInterval(summaries, lineCount);
+        }
+    }
+
+    private static class LineAggregate {
+        private final long[] values = new long[SLOTS];
+        private String extLineItemId;
+        private String bidderCode;
+        private String firstPlanId;
+        private String secondPlanId;
+
+        synchronized void add(DeliveryReport deliveryReport) {
+            long reportTimestamp = deliveryReport.getReportTimestamp().getTime();
+            long dataWindowStart = deliveryReport.getDataWindowStartTimestamp().getTime();
+            long dataWindowEnd = deliveryReport.getDataWindowEndTimestamp().getTime();
+            LineItemStatusCounters counters = deliveryReport.getCounters() == null
+                    ? new LineItemStatusCounters() : deliveryReport.getCounters();
+            if (values[LINES] == 0) {
+                extLineItemId = deliveryReport.getExtLineItemId();
+                bidderCode = deliveryReport.getBidderCode();
+                firstPlanId = counters.getFirstPlanId();
+                secondPlanId = counters.getSecondPlanId();
+                values[REPORT_WINDOW_START] = reportTimestamp;
+                values[REPORT_WINDOW_END] = reportTimestamp;
+                values[DATA_WINDOW_START] = dataWindowStart;
+                values[DATA_WINDOW_END] = dataWindowEnd;
+            } else {
+                values[REPORT_WINDOW_START] = Math.min(values[REPORT_WINDOW_START], reportTimestamp);
+                values[REPORT_WINDOW_END] = Math.max(values[REPORT_WINDOW_END], reportTimestamp);
+                values[DATA_WINDOW_START] = Math.min(values[DATA_WINDOW_START], dataWindowStart);
+                values[DATA_WINDOW_END] = Math.max(values[DATA_WINDOW_END], dataWindowEnd);
+            }
+            values[LINES]++;
+            values[ACCOUNT_AUCTIONS] += counters.getAccountAuctions();
+            values[DOMAIN_MATCHED] += counters.getDomainMatched();
+            values[TARGET_MATCHED] += counters.getTargetMatched();
+            values[TARGET_MATCHED_BUT_FCAPPED] += counters.getTargetMatchedButFcapped();
+            values[TARGET_MATCHED_BUT_FCAP_LOOKUP_FAILED] += counters.getTargetMatchedButFcapLookupFailed();
+            values[PACING_DEFERRED] += counters.getPacingDeferred();
+            values[SENT_TO_BIDDER] += counters.getSentToBidder();
+            values[SENT_TO_BIDDER_AS_TOP_MATCH] += counters.getSentToBidderAsTopMatch();
+            values[RECEIVED_FROM_BIDDER_INVALIDATED] += counters.getReceivedFromBidderInvalidated();
+            values[RECEIVED_FROM_BIDDER] += counters.getReceivedFromBidder();
+            values[SENT_TO_CLIENT] += counters.getSentToClient();
+            values[SENT_TO_CLIENT_AS_TOP_MATCH] += counters.getSentToClientAsTopMatch();
+            values[WIN_EVENTS] += counters.getWinEvents();
+            values[FIRST_PLAN_TOKENS_SPENT] += counters.getFirstPlanTokensSpent();
+        }
+
+        DeliveryReportSummary toSummary(String lineItemId, Instant createdAt) {
+            // Same layout as the plan_data built by the SQL summary, which repeats the first plan's spend
+            String planData = String.format("%s,%d,%s,%d", firstPlanId == null ? "" : firstPlanId,
+                    values[FIRST_PLAN_TOKENS_SPENT], secondPlanId == null ? "" : secondPlanId,
+                    values[FIRST_PLAN_TOKENS_SPENT]);
+            return DeliveryReportSummary.builder()
+                    .reportWindowStartTimestamp(Instant.ofEpochMilli(values[REPORT_WINDOW_START]))
+                    .reportWindowEndTimestamp(Instant.ofEpochMilli(values[REPORT_WINDOW_END]))
+                    .dataWindowStartTimestamp(Instant.ofEpochMilli(values[DATA_WINDOW_START]))
+                    .dataWindowEndTimestamp(Instant.ofEpochMilli(values[DATA_WINDOW_END]))
+                    .lineItemId(lineItemId)
+                    .extLineItemId(extLineItemId)
+                    .bidderCode(bidderCode)
+                    .lineItemSource(bidderCode)
+                    .accountAuctions((int) values[ACCOUNT_AUCTIONS])
+                    .domainMatched((int) values[DOMAIN_MATCHED])
+                    .targetMatched((int) values[TARGET_MATCHED])
+                    .targetMatchedButFcapped((int) values[TARGET_MATCHED_BUT_FCAPPED])
+                    .targetMatchedButFcapLookupFailed((int) values[TARGET_MATCHED_BUT_FCAP_LOOKUP_FAILED])
+                    .pacingDeferred((int) values[PACING_DEFERRED])
+                    .sentToBidder((int) values[SENT_TO_BIDDER])
+                    .sentToBidderAsTopMatch((int) values[SENT_TO_BIDDER_AS_TOP_MATCH])
+                    .receivedFromBidderInvalidated((int) values[RECEIVED_FROM_BIDDER_INVALIDATED])
+                    .receivedFromBidder((int) values[RECEIVED_FROM_BIDDER])
+                    .sentToClient((int) values[SENT_TO_CLIENT])
+                    .sentToClientAsTopMatch((int) values[SENT_TO_CLIENT_AS_TOP_MATCH])
+                    .winEvents((int) values[WIN_EVENTS])
+                    .planData(planData)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+
+    /**
+     * Summaries of one interval with the number of lines summed, to check them against the stored lines.
+     */
+    @Value
+    public static class PreAggregatedInterval {
+        List<DeliveryReportSummary> summaries;
+        long lineCount;
+    }
+}
@@ -0,0 +1,131 @@
+package org.prebid.pg.delstats.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.alerts.AlertName;
+import org.prebid.pg.delstats.alerts.AlertPriority;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.repository.PartitionRepository;
+import org.prebid.pg.delstats.repository.PartitionRepository.Partition;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A Job running periodically to keep the time RANGE partitions of the Delivery Report and Delivery Report Summary
+ * tables. Partitions are created ahead of time by splitting them off the empty catch-all partition, and partitions
+ * holding only data older than the table's retention are dropped, so neither side touches individual rows. Should
+ * rows have reached the catch-all partition, no partitions are added and an alert is raised instead.
+ */
+@Service
+@Slf4j
+public class PartitionRotationService {
+
+    static final String DELIVERY_PROGRESS_REPORTS_TABLE = "delivery_progress_reports";
+
+    static final String DELIVERY_PROGRESS_REPORTS_SUMMARY_TABLE = "delivery_progress_reports_summary";
+
+    private static final DateTimeFormatter PARTITION_NAME_FORMATTER =
+            DateTimeFormatter.ofPattern("'p'yyyyMMddHH").withZone(ZoneOffset.UTC);
+
+    private final PartitionRepository partitionRepository;
+
+    private final ServerConfiguration serverConfig;
+
+    private final SystemService systemService;
+
+    private final AlertProxyHttpClient alertClient;
+
+    public PartitionRotationService(
+            PartitionRepository partitionRepository,
+            ServerConfiguration serverConfig,
+            SystemService systemService,
+            AlertProxyHttpClient alertClient
+    ) {
+        this.partitionRepository = partitionRepository;
+        this.serverConfig = serverConfig;
+        this.systemService = systemService;
+        this.alertClient = alertClient;
+    }
+
+    @Scheduled(cron = "${services.partition-rotation.cron}")
+    public void rotatePartitions() {
+        if (systemService.getShutdown().isInitiating()) {
+            log.info("PartitionRotationService::System is shutting down");
+            return;
+        }
+        if (!serverConfig.isPartitionRotationEnabled()) {
+            log.debug("PartitionRotationService is disabled");
+            return;
+        }
+        Instant now = Instant.now();
+        rotatePartitions(DELIVERY_PROGRESS_REPORTS_TABLE,
+                serverConfig.getPartitionRotationDeliveryProgressReportsRetentionHours(), now);
+        rotatePartitions(DELIVERY_PROGRESS_REPORTS_SUMMARY_TABLE,
+                serverConfig.getPartitionRotationDeliveryProgressReportsSummaryRetentionHours(), now);
+    }
+
+    void rotatePartitions(String tableName, long retentionHours, Instant now) {
+        try {
+            List<Partition> partitions = partitionRepository.findPartitions(tableName);
+            if (partitions.isEmpty()) {
+                log.warn("Table {} is not partitioned, skipping partition rotation", tableName);
+                return;
+            }
+            long partitionSeconds = TimeUnit.HOURS.toSeconds(
+                    Math.max(1, serverConfig.getPartitionRotationPartitionHours()));
+            List<Partition> bounded = partitions.stream()
+                    .filter(partition -> partition.getUpperBound() != null)
+                    .collect(Collectors.toList());
+
+            List<Partition> toAdd = partitionsToAdd(bounded, partitionSeconds, now);
+            if (!toAdd.isEmpty()) {
+                if (partitionRepository.isCatchAllPartitionEmpty(tableName)) {
+                    log.info("Adding partitions {} to {}", toAdd, tableName);
+                    partitionRepository.addPartitions(tableName, toAdd);
+                } else {
+                    // Splitting a catch-all partition holding rows copies them under a metadata lock on the table
+                    String msg = String.format("Not adding partitions %s to %s as its %s partition is not empty",
+                            toAdd, tableName, PartitionRepository.CATCH_ALL_PARTITION);
+                    alertClient.sendNotification(AlertName.PARTITION_ROTATION_ERROR, msg, AlertPriority.HIGH);
+                }
+            }
+
+            long expiredBefore = now.getEpochSecond() - TimeUnit.HOURS.toSeconds(retentionHours);
+            List<Partition> toDrop = bounded.stream()
+                    .filter(partition -> partition.getUpperBound() <= expiredBefore)
+                    .collect(Collectors.toList());
+            if (!toDrop.isEmpty()) {
+                log.info("Dropping expired partitions {} from {}", toDrop, tableName);
+                partitionRepository.dropPartitions(tableName, toDrop);
+            }
+        } catch (Exception ex) {
+            String msg = String.format("Exception rotating partitions of %s", tableName);
+            alertClient.raiseEventForExceptionAndLog(AlertName.PARTITION_ROTATION_ERROR, msg, AlertPriority.HIGH, ex);
+        }
+    }
+
+    private List<Partition> partitionsToAdd(List<Partition> bounded, long partitionSeconds, Instant now) {
+        long currentStart = Math.floorDiv(now.getEpochSecond(), partitionSeconds) * partitionSeconds;
+        long lastUpperBound = currentStart
+                + partitionSeconds * (1 + serverConfig.getPartitionRotationFuturePartitions());
+        long upperBound = bounded.stream()
+                .map(Partition::getUpperBound)
+                .max(Long::compare)
+                .map(newest -> newest + partitionSeconds)
+                .orElse(currentStart + partitionSeconds);
+        List<Partition> toAdd = new ArrayList<>();
+        for (; upperBound <= lastUpperBound; upperBound += partitionSeconds) {
+            String name = PARTITION_NAME_FORMATTER.format(Instant.ofEpochSecond(upperBound - partitionSeconds));
+            toAdd.add(new Partition(name, upperBound));
+        }
+        return toAdd;
+    }
+}
@@ -0,0 +1,195 @@
+package org.prebid.pg.delstats.services;
+
+import lombok.Value;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.model.dto.PbsInstanceStates;
+import org.prebid.pg.delstats.model.dto.PbsInstanceStates.PbsInstanceFreshness;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the last Delivery Progress Report received from each PBS instance, so that instances that stopped reporting
+ * or report late can be found without scanning delivery_progress_reports. Updated as reports are received, it also
+ * records the lag of each report, from the end of its data window until it was received, per vendor and region.
+ * Instances are listed until no report was received from them for the retention time. As vendor, region and instance
+ * id come from the clients, both the instances kept and the vendor and region pairs given a lag histogram are bounded,
+ * and expired instances are also removed as reports are recorded.
+ */
+@Component
+public class PbsInstanceRegistry {
+
+    static final String OTHER = "other";
+
+    private static final long EXPIRY_INTERVAL_MILLIS = 60_000L;
+
+    private final ServerConfiguration configuration;
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final Map<PbsInstanceKey, PbsInstanceState> instances = new ConcurrentHashMap<>();
+
+    private final Set<String> lagMetricSources = ConcurrentHashMap.newKeySet();
+
+    private Clock clock = Clock.systemUTC();
+
+    private volatile long lastExpiryMillis;
+
+    public PbsInstanceRegistry(ServerConfiguration configuration, SystemService systemService) {
+        this.configuration = configuration;
+        this.recorder = systemService.getRecorder();
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Record a Delivery Progress Report received from a PBS instance.
+     *
+     * @param deliveryReportFromPbsDto
+     * @param lineItemStatusCount
+     * @param bytesReceived size of the request body, or 0 if not known
+     */
+    public void recordReport(DeliveryReportFromPbsDto deliveryReportFromPbsDto, int lineItemStatusCount,
+                             long bytesReceived) {
+        if (!configuration.isPbsInstanceRegistryEnabled()) {
+            return;
+        }
+        Instant now = clock.instant();
+        Timestamp dataWindowEnd = deliveryReportFromPbsDto.getDataWindowEndTimeStamp();
+        long lagMillis = dataWindowEnd == null ? 0 : now.toEpochMilli() - dataWindowEnd.getTime();
+        if (dataWindowEnd != null) {
+            updateLagHistogram(deliveryReportFromPbsDto.getVendor(), deliveryReportFromPbsDto.getRegion(), lagMillis);
+        }
+        if (now.toEpochMilli() - lastExpiryMillis >= EXPIRY_INTERVAL_MILLIS) {
+            lastExpiryMillis = now.toEpochMilli();
+            removeExpired(now);
+        }
+        PbsInstanceKey key = new PbsInstanceKey(deliveryReportFromPbsDto.getVendor(),
+                deliveryReportFromPbsDto.getRegion(), deliveryReportFromPbsDto.getInstanceId());
+        if (instances.size() >= configuration.getPbsInstanceRegistryMaxInstances() && !instances.containsKey(key)) {
+            return;
+        }
+        instances.compute(key, (instance, previous) -> new PbsInstanceState(
+                deliveryReportFromPbsDto.getReportId(),
+                now,
+                dataWindowEnd == null ? null : dataWindowEnd.toInstant(),
+                lagMillis,
+                lineItemStatusCount,
+                bytesReceived,
+                previous == null ? 1 : previous.getReportsReceived() + 1,
+                previous == null ? bytesReceived : previous.getBytesReceived() + bytesReceived));
+    }
+
+    /**
+     * The PBS instances reports were received from within the retention time, optionally of one vendor or region,
+     * the ones that have not reported for the longest time first.
+     *
+     * @param vendor
+     * @param region
+     * @return
+     */
+    public PbsInstanceStates getPbsInstanceStates(String vendor, String region) {
+        Instant now = clock.instant();
+        removeExpired(now);
+        List<PbsInstanceFreshness> pbsInstances = instances.entrySet().stream()
+                .filter(entry -> StringUtils.isEmpty(vendor) || vendor.equals(entry.getKey().getVendor()))
+                .filter(entry -> StringUtils.isEmpty(region) || region.equals(entry.getKey().getRegion()))
+                .sorted(Comparator.comparing(entry -> entry.getValue().getLastReportReceived()))
+                .map(entry -> toFreshness(entry.getKey(), entry.getValue(), now))
+                .collect(Collectors.toList());
+        return PbsInstanceStates.builder()
+                .ts(now.toString())
+                .pbsInstances(pbsInstances)
+                .build();
+    }
+
+    public int size() {
+        return instances.size();
+    }
+
+    private void updateLagHistogram(String vendor, String region, long lagMillis) {
+        String source = vendor + '|' + region;
+        if (!lagMetricSources.contains(source)
+                && lagMetricSources.size() < configuration.getPbsInstanceRegistryMaxLagMetrics()) {
+            lagMetricSources.add(source);
+        }
+        if (lagMetricSources.contains(source)) {
+            recorder.updatePbsReportLagHistogram(vendor, region, lagMillis);
+        } else {
+            recorder.updatePbsReportLagHistogram(OTHER, OTHER, lagMillis);
+        }
+    }
+
+    private void removeExpired(Instant now) {
+        Instant retainedSince = now.minus(configuration.getPbsInstanceRegistryRetentionHours(), ChronoUnit.HOURS);
+        // Only removes an instance if no report was received from it since it was read
+        instances.forEach((key, state) -> {
+            if (state.getLastReportReceived().isBefore(retainedSince)) {
+                instances.remove(key, state);
+            }
+        });
+    }
+
+    private static PbsInstanceFreshness toFreshness(PbsInstanceKey key, PbsInstanceState state, Instant now) {
+        return PbsInstanceFreshness.builder()
+                .vendor(key.getVendor())
+                .region(key.getRegion())
+                .instanceId(key.getInstanceId())
+                .lastReportId(state.getLastReportId())
+                .lastReportTimestamp(state.getLastReportReceived().toString())
+                .lastDataWindowEndTimestamp(Objects.toString(state.getLastDataWindowEnd(), null))
+                .secondsSinceLastReport(Duration.between(state.getLastReportReceived(), now).getSeconds())
+                .lastReportLagMillis(state.getLastReportLagMillis())
+                .lastReportLines(state.getLastReportLines())
+                .lastReportBytes(state.getLastReportBytes())
+                .reportsReceived(state.getReportsReceived())
+                .bytesReceived(state.getBytesReceived())
+                .build();
+    }
+
+    @Value
+    private static class PbsInstanceKey {
+
+        private String vendor;
+
+        private String region;
+
+        private String instanceId;
+    }
+
+    @Value
+    private static class PbsInstanceState {
+
+        private String lastReportId;
+
+        private Instant lastReportReceived;
+
+        private Instant lastDataWindowEnd;
+
+        private long lastReportLagMillis;
+
+        private int lastReportLines;
+
+        private long lastReportBytes;
+
+        private long reportsReceived;
+
+        private long bytesReceived;
+    }
+}
@@ -0,0 +1,191 @@
+package org.prebid.pg.delstats.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.alerts.AlertName;
+import org.prebid.pg.delstats.alerts.AlertPriority;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsConstants;
+import org.prebid.pg.delstats.repository.RepositoryItem;
+import org.prebid.pg.delstats.repository.RetentionPurgeRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * A Job running periodically to delete expired Delivery Report lines, Token Spend Summaries and per line item
+ * summary states on deployments where the tables are not partitioned. Expired rows are deleted by primary key in
+ * small chunks in report timestamp order within a rows per second budget, pausing while the Delivery Report
+ * summarization runs or while Delivery Report store latency is high. A run stops after the configured time and
+ * continues on the next run.
+ */
+@Service
+@Slf4j
+public class RetentionPurgeService {
+
+    private final RetentionPurgeRepository retentionPurgeRepository;
+
+    private final ServerConfiguration serverConfig;
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final Shutdown shutdown;
+
+    private final AlertProxyHttpClient alertClient;
+
+    private final CronSequenceGenerator summarySchedule;
+
+    private final AtomicLong deliveryReportsLagSeconds = new AtomicLong();
+
+    private final AtomicLong latestTokenSpendSummariesLagSeconds = new AtomicLong();
+
+    private Clock clock = Clock.systemUTC();
+
+    public RetentionPurgeService(
+            RetentionPurgeRepository retentionPurgeRepository,
+            ServerConfiguration serverConfig,
+            SystemService systemService
+    ) {
+        this.retentionPurgeRepository = retentionPurgeRepository;
+        this.serverConfig = serverConfig;
+        this.recorder = systemService.getRecorder();
+        this.shutdown = systemService.getShutdown();
+        this.alertClient = systemService.getAlertProxyHttpClient();
+        this.summarySchedule = new CronSequenceGenerator(serverConfig.getDeliverySummaryServiceCron());
+        this.recorder.registerPurgeLagGauge(RepositoryItem.DELIVERY_REPORTS, deliveryReportsLagSeconds::get);
+        this.recorder.registerPurgeLagGauge(
+                RepositoryItem.LATEST_TOKEN_SPEND_SUMMARIES, latestTokenSpendSummariesLagSeconds::get);
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Scheduled(cron = "${services.purge.cron}")
+    public void purge() {
+        if (shutdown.isInitiating()) {
+            log.info("RetentionPurgeService::System is shutting down");
+            return;
+        }
+        if (!serverConfig.isPurgeEnabled()) {
+            log.debug("RetentionPurgeService is disabled");
+            return;
+        }
+
+        Instant now = clock.instant();
+        Instant deadline = now.plus(serverConfig.getPurgeMaxRunMinutes(), ChronoUnit.MINUTES);
+        Timestamp reportsExpired = expiredBefore(now, serverConfig.getPurgeDeliveryProgressReportsRetentionHours());
+        Timestamp tokenSpendExpired = expiredBefore(now, serverConfig.getPurgeLatestTokenSpendSummaryRetentionHours());
+        Timestamp stateExpired = expiredBefore(now, serverConfig.getPurgeSystemStateRetentionHours());
+        int chunkSize = Math.max(1, serverConfig.getPurgeChunkSize());
+        try {
+            long purged = purgeChunks(() -> retentionPurgeRepository.deleteDeliveryReports(
+                    retentionPurgeRepository.findExpiredDeliveryReportKeys(reportsExpired, chunkSize), reportsExpired),
+                    recorder::markDeliveryReportRecordsPurged, deadline);
+            log.info("Purged {} Delivery Report lines reported before {}", purged, reportsExpired);
+
+            purged = purgeChunks(() -> retentionPurgeRepository.deleteLatestTokenSpendSummaries(
+                    retentionPurgeRepository.findExpiredLatestTokenSpendSummaryKeys(tokenSpendExpired, chunkSize),
+                    tokenSpendExpired), recorder::markLatestTokenSpendSummariesPurged, deadline);
+            log.info("Purged {} Token Spend Summaries reported before {}", purged, tokenSpendExpired);
+
+            purged = purgeChunks(() -> retentionPurgeRepository.deleteLineStates(
+                    retentionPurgeRepository.findStaleLineStateTags(stateExpired, chunkSize), stateExpired),
+                    recorder::markSystemStatesPurged, deadline);
+            log.info("Purged {} line item summary states last updated before {}", purged, stateExpired);
+        } catch (InterruptedException ex) {
+            log.info("RetentionPurgeService interrupted");
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            String msg = "Exception purging expired records";
+            alertClient.raiseEventForExceptionAndLog(AlertName.PURGE_ERROR, msg, AlertPriority.HIGH, ex);
+        } finally {
+            updateLag(deliveryReportsLagSeconds,
+                    DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_TABLE_NAME, reportsExpired);
+            updateLag(latestTokenSpendSummariesLagSeconds, RetentionPurgeRepository.LATEST_TOKEN_SPEND_SUMMARY_TABLE,
+                    tokenSpendExpired);
+        }
+    }
+
+    private long purgeChunks(IntSupplier chunkPurger, IntConsumer purgedRecorder, Instant deadline)
+            throws InterruptedException {
+        long rowsPerSecond = Math.max(1, serverConfig.getPurgeRowsPerSecond());
+        long startMillis = clock.millis();
+        long purged = 0;
+        while (awaitQuietPeriod(deadline)) {
+            int deleted = chunkPurger.getAsInt();
+            if (deleted == 0) {
+                break;
+            }
+            purged += deleted;
+            purgedRecorder.accept(deleted);
+            long aheadOfBudgetMillis = purged * 1000 / rowsPerSecond - (clock.millis() - startMillis);
+            if (aheadOfBudgetMillis > 0) {
+                sleep(aheadOfBudgetMillis);
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Wait while the Delivery Report summarization is scheduled to run or Delivery Report store latency is high.
+     *
+     * @param deadline
+     * @return false when the run has to stop instead
+     * @throws InterruptedException
+     */
+    private boolean awaitQuietPeriod(Instant deadline) throws InterruptedException {
+        Duration guard = Duration.ofMinutes(serverConfig.getPurgeSummaryGuardMinutes());
+        while (!shutdown.isInitiating()) {
+            Instant now = clock.instant();
+            if (!now.isBefore(deadline)) {
+                log.info("RetentionPurgeService reached its run time limit, continuing on next run");
+                return false;
+            }
+            Instant summaryRun = summarySchedule.next(Date.from(now.minus(guard))).toInstant();
+            if (!guard.isZero() && !summaryRun.isAfter(now)) {
+                sleep(Duration.between(now, summaryRun.plus(guard)).toMillis());
+            } else if (isIngestLatencyHigh()) {
+                recorder.markPurgePaused();
+                sleep(serverConfig.getPurgeLatencyPauseMillis());
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isIngestLatencyHigh() {
+        return recorder.getDeliveryReportStoreLatencyMillis() > serverConfig.getPurgeMaxIngestLatencyMillis();
+    }
+
+    private void updateLag(AtomicLong lagSeconds, String tableName, Timestamp expired) {
+        try {
+            lagSeconds.set(retentionPurgeRepository.findOldestTimestamp(tableName, "report_timestamp")
+                    .map(oldest -> Math.max(0, Duration.between(oldest, expired.toInstant()).getSeconds()))
+                    .orElse(0L));
+        } catch (Exception ex) {
+            log.warn("Could not determine purge lag of {}", tableName, ex);
+        }
+    }
+
+    private static Timestamp expiredBefore(Instant now, long retentionHours) {
+        return Timestamp.from(now.minus(retentionHours, ChronoUnit.HOURS));
+    }
+
+    void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+}
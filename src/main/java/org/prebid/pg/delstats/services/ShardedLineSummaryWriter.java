@@ -0,0 +1,172 @@
+package org.prebid.pg.delstats.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.DeliveryReportProcessingException;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.repository.DeliveryReportSummaryRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Summarizes the stored lines of a Delivery Report summary interval in the DB. With more than one shard configured
+ * the line items of the interval are split into contiguous ranges of line item ids, and each range is summarized in
+ * its own short transaction on a pool sized to at most half of the DB connection pool, so ingest keeps connections
+ * while the summary runs. The caller must not hold a transaction of its own meanwhile. The shards commit
+ * independently, the interval only counts as summarized, and its summaries are only read, once the caller stores its
+ * system state markers after all of them succeeded. When a shard fails the summaries already committed for the
+ * interval are deleted again, so the next run summarizes the whole interval from scratch.
+ */
+@Slf4j
+@Service
+public class ShardedLineSummaryWriter {
+
+    private final DeliveryReportSummaryRepository deliveryReportSummaryRepository;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final ServerConfiguration configuration;
+
+    private final GraphiteMetricsRecorder recorder;
+
+    private final int shards;
+
+    private TransactionTemplate shardTransaction;
+
+    private ThreadPoolExecutor executor;
+
+    public ShardedLineSummaryWriter(DeliveryReportSummaryRepository deliveryReportSummaryRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    ServerConfiguration configuration, SystemService systemService) {
+        this.deliveryReportSummaryRepository = deliveryReportSummaryRepository;
+        this.transactionManager = transactionManager;
+        this.configuration = configuration;
+        this.recorder = systemService.getRecorder();
+        this.shards = Math.max(1, configuration.getDeliverySummaryServiceShards());
+    }
+
+    @PostConstruct
+    public void init() {
+        if (shards == 1) {
+            return;
+        }
+        this.shardTransaction = new TransactionTemplate(transactionManager);
+        shardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        shardTransaction.setTimeout(configuration.getDeliverySummaryServiceShardTimeoutSeconds());
+        int threads = Math.min(shards, Math.max(1, configuration.getDatasourceMaximumPoolSize() / 2));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(shards),
+                runnable -> new Thread(runnable, "delivery-summary-shard-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        log.info("Started {} Delivery Report summary threads for {} shards", threads, shards);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(configuration.getDeliverySummaryServiceShardTimeoutSeconds(),
+                    TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isSharded() {
+        return executor != null;
+    }
+
+    /**
+     * Summarize the stored lines of an interval, in the transaction of the caller when not sharded.
+     *
+     * @param startTime
+     * @param endTime
+     * @return number of summaries stored
+     */
+    public int insertLineSummaries(Timestamp startTime, Timestamp endTime) {
+        if (executor == null) {
+            return deliveryReportSummaryRepository.insertLineSummariesDirectly(startTime, endTime);
+        }
+        List<String> lineItemIds = deliveryReportSummaryRepository.findLineItemIdsByReportWindow(startTime, endTime);
+        if (lineItemIds.isEmpty()) {
+            return 0;
+        }
+        // Summaries left behind by an earlier run that failed before storing its markers
+        deleteLineSummaries(startTime, endTime);
+
+        int shardCount = Math.min(shards, lineItemIds.size());
+        List<Future<Integer>> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            String firstLineItemId = lineItemIds.get(shard * lineItemIds.size() / shardCount);
+            String lastLineItemId = lineItemIds.get((shard + 1) * lineItemIds.size() / shardCount - 1);
+            int shardNumber = shard + 1;
+            results.add(executor.submit(() ->
+                    insertShard(shardNumber, startTime, endTime, firstLineItemId, lastLineItemId)));
+        }
+        return collect(results, startTime, endTime);
+    }
+
+    private int insertShard(int shard, Timestamp startTime, Timestamp endTime,
+                            String firstLineItemId, String lastLineItemId) {
+        long startNanos = System.nanoTime();
+        try {
+            return shardTransaction.execute(status -> deliveryReportSummaryRepository
+                    .insertLineSummariesDirectlyForLineItems(startTime, endTime, firstLineItemId, lastLineItemId));
+        } finally {
+            recorder.updateDeliverySummaryShardTimer(shard, System.nanoTime() - startNanos);
+        }
+    }
+
+    private int collect(List<Future<Integer>> results, Timestamp startTime, Timestamp endTime) {
+        int summariesSaved = 0;
+        Throwable failure = null;
+        for (Future<Integer> result : results) {
+            try {
+                summariesSaved += result.get();
+            } catch (ExecutionException ex) {
+                failure = ex.getCause();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failure = ex;
+            }
+        }
+        if (failure == null) {
+            return summariesSaved;
+        }
+        log.error("Delivery Report summary shard failed for interval {} to {}, deleting the summaries of the other"
+                + " shards", startTime, endTime, failure);
+        deleteLineSummaries(startTime, endTime);
+        throw new DeliveryReportProcessingException(
+                String.format("Delivery Report summary shard failed: %s", failure.getMessage()));
+    }
+
+    private void deleteLineSummaries(Timestamp startTime, Timestamp endTime) {
+        Integer deleted = shardTransaction.execute(status ->
+                deliveryReportSummaryRepository.deleteLineSummaries(startTime, endTime));
+        if (deleted != null && deleted > 0) {
+            log.info("Deleted {} summaries of interval {} to {}", deleted, startTime, endTime);
+            recorder.markDeliverySummariesDeleted(deleted);
+        }
+    }
+}
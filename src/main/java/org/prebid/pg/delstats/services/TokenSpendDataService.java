@@ -9,6 +9,7 @@ import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
 import org.prebid.pg.delstats.config.ServerConfiguration;
 import org.prebid.pg.delstats.exception.DeliveryReportProcessingException;
 import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.metrics.TokenSpendAggregationEvent;
 import org.prebid.pg.delstats.model.dto.Shutdown;
 import org.prebid.pg.delstats.model.dto.TokenSpendSummaryDto;
 import org.prebid.pg.delstats.model.dto.TokenSpendSummaryLineDto;
@@ -189,8 +190,22 @@ public class TokenSpendDataService {
     }
 
     void doAggregationInDB(Timestamp startAggregateTimestamp, Timestamp endAggregateTimestamp) {
+        TokenSpendAggregationEvent event = new TokenSpendAggregationEvent();
+        event.begin();
+        event.setIntervalStart(startAggregateTimestamp.getTime());
+        event.setIntervalEnd(endAggregateTimestamp.getTime());
+        try {
+            aggregateInDB(startAggregateTimestamp, endAggregateTimestamp, event);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private void aggregateInDB(Timestamp startAggregateTimestamp, Timestamp endAggregateTimestamp,
+                               TokenSpendAggregationEvent event) {
         List<Object> distinctVendorRegion = deliveryReportSummariesRepository
                 .getDistinctVendorRegion(startAggregateTimestamp, endAggregateTimestamp);
+        event.setVendorRegions(distinctVendorRegion.size());
         TracerUtils.traceAsInfoOrlogAsInfo(log, tracer, String.format("Found %d vendor/regions for aggregation.",
                 distinctVendorRegion.size()));
         if (distinctVendorRegion.isEmpty()) {
@@ -213,6 +228,7 @@ public class TokenSpendDataService {
             int updatedCount = latestTokenSpendSummaryRepository.upsertTokenSummaries(vendorRegion.vendor,
                     vendorRegion.region, startAggregateTimestamp, endAggregateTimestamp);
             totalUpdatedCount += updatedCount;
+            event.setSummariesUpdated(totalUpdatedCount);
             TracerUtils.traceAsInfoOrlogAsInfo(log, tracer, String.format("Updated %d token summaries for "
                     + "vendor/region: %s/%s", updatedCount, vendorRegion.vendor, vendorRegion.region));
         }
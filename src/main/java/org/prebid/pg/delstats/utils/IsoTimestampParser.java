@@ -0,0 +1,177 @@
+package org.prebid.pg.delstats.utils;
+
+import java.sql.Timestamp;
+
+/**
+ * Parses the timestamp shapes Delivery Progress Reports and request parameters use in a single scan of the string,
+ * building the instant arithmetically instead of through a Calendar:
+ * <ul>
+ *     <li>yyyy-MM-dd, taken as midnight UTC</li>
+ *     <li>yyyy-MM-dd'T'HH:mm:ss, optionally followed by a fraction of up to 9 digits, truncated to milliseconds,
+ *     and by Z or a +hh:mm offset, UTC being assumed without one</li>
+ *     <li>yyyy-MM-dd HH:mm:ss, optionally followed by a fraction, in the default time zone as
+ *     {@link Timestamp#valueOf} reads it</li>
+ * </ul>
+ * Anything else, including field values out of range, which the lenient parsers roll over into the next field, is
+ * left to the caller by returning null. Stateless, so safe to use from any thread.
+ */
+final class IsoTimestampParser {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static final int DAYS_0000_TO_1970 = 719_468;
+
+    // Dates before the switch to the Gregorian calendar are left to the Calendar based parsers
+    private static final int MIN_YEAR = 1583;
+
+    private static final int DATE_LENGTH = 10;
+
+    private static final int DATE_TIME_LENGTH = 19;
+
+    private static final int MAX_FRACTION_DIGITS = 9;
+
+    private IsoTimestampParser() {
+    }
+
+    static Timestamp parse(String time) {
+        int length = time.length();
+        if (length < DATE_LENGTH || !isDate(time)) {
+            return null;
+        }
+        int year = digits(time, 0, 4);
+        int month = digits(time, 5, 2);
+        int day = digits(time, 8, 2);
+        if (year < MIN_YEAR || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return null;
+        }
+        if (length == DATE_LENGTH) {
+            return new Timestamp(epochDay(year, month, day) * MILLIS_PER_DAY);
+        }
+        char separator = time.charAt(DATE_LENGTH);
+        if ((separator != 'T' && separator != ' ') || length < DATE_TIME_LENGTH || !isTime(time)) {
+            return null;
+        }
+        int hour = digits(time, 11, 2);
+        int minute = digits(time, 14, 2);
+        int second = digits(time, 17, 2);
+        if (hour > 23 || minute > 59 || second > 59) {
+            return null;
+        }
+        if (separator == ' ') {
+            return isFraction(time, DATE_TIME_LENGTH, length) ? Timestamp.valueOf(time) : null;
+        }
+
+        int position = DATE_TIME_LENGTH;
+        int millis = 0;
+        if (position < length && time.charAt(position) == '.') {
+            int fractionEnd = position + 1;
+            while (fractionEnd < length && isDigit(time.charAt(fractionEnd))) {
+                fractionEnd++;
+            }
+            int fractionDigits = fractionEnd - position - 1;
+            if (fractionDigits == 0 || fractionDigits > MAX_FRACTION_DIGITS) {
+                return null;
+            }
+            for (int i = 0; i < 3; i++) {
+                millis = millis * 10 + (i < fractionDigits ? time.charAt(position + 1 + i) - '0' : 0);
+            }
+            position = fractionEnd;
+        }
+
+        int offsetMinutes = 0;
+        if (position < length) {
+            char zone = time.charAt(position);
+            if (zone == 'Z' && position + 1 == length) {
+                offsetMinutes = 0;
+            } else if ((zone == '+' || zone == '-') && position + 6 == length && isDigit(time, position + 1, 2)
+                    && time.charAt(position + 3) == ':' && isDigit(time, position + 4, 2)) {
+                int offsetHours = digits(time, position + 1, 2);
+                int offsetMinutesOfHour = digits(time, position + 4, 2);
+                if (offsetHours > 23 || offsetMinutesOfHour > 59) {
+                    return null;
+                }
+                offsetMinutes = (offsetHours * 60 + offsetMinutesOfHour) * (zone == '-' ? -1 : 1);
+            } else {
+                return null;
+            }
+        }
+
+        long epochMillis = epochDay(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute - offsetMinutes) * 60L + second) * 1000L + millis;
+        return new Timestamp(epochMillis);
+    }
+
+    private static boolean isDate(String time) {
+        return isDigit(time, 0, 4) && time.charAt(4) == '-' && isDigit(time, 5, 2) && time.charAt(7) == '-'
+                && isDigit(time, 8, 2);
+    }
+
+    private static boolean isTime(String time) {
+        return isDigit(time, 11, 2) && time.charAt(13) == ':' && isDigit(time, 14, 2) && time.charAt(16) == ':'
+                && isDigit(time, 17, 2);
+    }
+
+    /**
+     * Whether the rest of the string from start is empty or a fraction of up to 9 digits.
+     */
+    private static boolean isFraction(String time, int start, int end) {
+        if (start == end) {
+            return true;
+        }
+        int fractionDigits = end - start - 1;
+        return time.charAt(start) == '.' && fractionDigits > 0 && fractionDigits <= MAX_FRACTION_DIGITS
+                && isDigit(time, start + 1, fractionDigits);
+    }
+
+    private static boolean isDigit(String time, int start, int count) {
+        for (int i = start; i < start + count; i++) {
+            if (!isDigit(time.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int digits(String time, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            value = value * 10 + time.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /**
+     * Days from 1970-01-01 to a date of the proleptic Gregorian calendar, counting years from March so that the leap
+     * day falls at the end of a year.
+     */
+    private static long epochDay(int year, int month, int day) {
+        int marchYear = month <= 2 ? year - 1 : year;
+        int era = marchYear / 400;
+        int yearOfEra = marchYear - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - DAYS_0000_TO_1970;
+    }
+}
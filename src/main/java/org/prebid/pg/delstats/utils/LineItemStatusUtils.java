@@ -5,9 +5,25 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.prebid.pg.delstats.exception.InvalidLineItemIdFormatException;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
 import org.springframework.util.StringUtils;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 public class LineItemStatusUtils {
+
+    private static final String TIMESTAMP_SUFFIX = "timestamp";
+
+    /**
+     * Timestamp fields Line Item Status entries are known to carry, so the common case is a single hash lookup.
+     */
+    private static final Set<String> TIMESTAMP_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "startTimeStamp", "endTimeStamp", "updatedTimeStamp",
+            "planStartTimeStamp", "planExpirationTimeStamp", "planUpdatedTimeStamp")));
+
     private LineItemStatusUtils() {
     }
 
@@ -45,4 +61,39 @@ public class LineItemStatusUtils {
                             lineItemId, separator));
         }
     }
+
+    /**
+     * Set the counters kept for the first event and the first two delivery schedules of a Line Item Status entry.
+     *
+     * @param counters
+     * @param lineItemStatusJson
+     */
+    public static void setNestedCounters(LineItemStatusCounters counters, JsonNode lineItemStatusJson) {
+        JsonNode events = lineItemStatusJson.path(LineItemStatusCounters.EVENTS);
+        counters.setWinEvents(events.path(0).path(LineItemStatusCounters.COUNT).asInt());
+        JsonNode deliverySchedule = lineItemStatusJson.path(LineItemStatusCounters.DELIVERY_SCHEDULE);
+        counters.setFirstPlanId(getTextOrNull(deliverySchedule.path(0).path(LineItemStatusCounters.PLAN_ID)));
+        counters.setFirstPlanTokensSpent(deliverySchedule.path(0).path(LineItemStatusCounters.TOKENS).path(0)
+                .path(LineItemStatusCounters.SPENT).asInt());
+        counters.setSecondPlanId(getTextOrNull(deliverySchedule.path(1).path(LineItemStatusCounters.PLAN_ID)));
+    }
+
+    /**
+     * Whether a Line Item Status field holds a timestamp, that is its name ends with "timestamp" in any case. Names
+     * outside the known set are still checked by suffix, without allocating a lower cased copy.
+     *
+     * @param fieldName
+     * @return
+     */
+    public static boolean isTimestampField(String fieldName) {
+        if (TIMESTAMP_FIELDS.contains(fieldName)) {
+            return true;
+        }
+        int offset = fieldName.length() - TIMESTAMP_SUFFIX.length();
+        return offset >= 0 && fieldName.regionMatches(true, offset, TIMESTAMP_SUFFIX, 0, TIMESTAMP_SUFFIX.length());
+    }
+
+    private static String getTextOrNull(JsonNode node) {
+        return node.isValueNode() && !node.isNull() ? node.asText() : null;
+    }
 }
@@ -14,14 +14,16 @@ import java.util.Locale;
 import java.util.TimeZone;
 
 public class TimestampUtils {
+    // Creates a new SimpleDateFormat for every parse, so can be shared
     private static final DateFormatter ISO_DATE_FORMATTER = new DateFormatter();
-    private static final StdDateFormat STD_DATE_FORMAT = new StdDateFormat();
+    // StdDateFormat keeps the Calendar it parses into, so each thread gets its own
+    private static final ThreadLocal<StdDateFormat> STD_DATE_FORMAT =
+            ThreadLocal.withInitial(() -> new StdDateFormat().withTimeZone(TimeZone.getTimeZone("UTC")));
 
     static {
         ISO_DATE_FORMATTER.setIso(DateTimeFormat.ISO.DATE_TIME);
         ISO_DATE_FORMATTER.setLenient(true);
         ISO_DATE_FORMATTER.setTimeZone(TimeZone.getTimeZone("UTC"));
-        STD_DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
     }
 
     private TimestampUtils() {
@@ -32,12 +34,25 @@ public class TimestampUtils {
                 : TimestampUtils.convertStringTimeToTimestamp(time, paramName);
     }
 
+    /**
+     * Convert a timestamp string. The usual ISO-8601 and JDBC shapes are parsed directly; anything else goes through
+     * the lenient parsers in turn until one accepts it.
+     *
+     * @param time
+     * @param paramName
+     * @return
+     */
     public static Timestamp convertStringTimeToTimestamp(String time, String paramName) {
         if (time == null) {
             return null;
         }
+        Timestamp timestamp = IsoTimestampParser.parse(time);
+        return timestamp != null ? timestamp : convertUnusualStringTimeToTimestamp(time, paramName);
+    }
+
+    static Timestamp convertUnusualStringTimeToTimestamp(String time, String paramName) {
         try {
-            return Timestamp.from(STD_DATE_FORMAT.parse(time).toInstant());
+            return Timestamp.from(STD_DATE_FORMAT.get().parse(time).toInstant());
         } catch (Exception e) {
             // Try another conversion
         }
@@ -131,4 +131,15 @@ public class TracerUtils {
         }
 
     }
+
+    public static void logIfActiveMatchingOnLineItemStatus(Logger log, Tracer tracer, String message,
+                                                           DeliveryReportFromPbsDto deliveryReport,
+                                                           String lineItemSource, String lineItemId) {
+        if (tracer.isActive()
+                && tracer.isMatchingOn(deliveryReport.getVendor(), deliveryReport.getRegion(), lineItemSource,
+                lineItemId)
+                && log.isInfoEnabled()) {
+            log.info(TRACE_MSG_RAW_FORMAT, TRACER, message, deliveryReport);
+        }
+    }
 }
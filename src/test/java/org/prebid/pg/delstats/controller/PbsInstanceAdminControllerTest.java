@@ -0,0 +1,53 @@
+package org.prebid.pg.delstats.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.ApiNotActiveException;
+import org.prebid.pg.delstats.model.dto.PbsInstanceStates;
+import org.prebid.pg.delstats.services.PbsInstanceRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class PbsInstanceAdminControllerTest {
+
+    @Mock
+    private ServerConfiguration serverConfiguration;
+
+    @Mock
+    private PbsInstanceRegistry pbsInstanceRegistry;
+
+    private PbsInstanceAdminController pbsInstanceAdminController;
+
+    @BeforeEach
+    public void setup() {
+        pbsInstanceAdminController = new PbsInstanceAdminController(serverConfiguration, pbsInstanceRegistry);
+    }
+
+    @Test
+    void shouldGetPbsInstanceFreshness() {
+        PbsInstanceStates states = PbsInstanceStates.builder().build();
+        given(serverConfiguration.isPbsInstanceFreshnessApiEnabled()).willReturn(true);
+        given(pbsInstanceRegistry.getPbsInstanceStates("vendor", null)).willReturn(states);
+
+        assertSame(states, pbsInstanceAdminController.getPbsInstanceFreshness("vendor", null));
+    }
+
+    @Test
+    void shouldGetPbsInstanceFreshnessThrowsExceptionIfApiNotEnabled() {
+        given(serverConfiguration.isPbsInstanceFreshnessApiEnabled()).willReturn(false);
+        assertThrows(ApiNotActiveException.class, () -> {
+            pbsInstanceAdminController.getPbsInstanceFreshness(null, null);
+        });
+        verify(pbsInstanceRegistry, never()).getPbsInstanceStates(any(), any());
+    }
+}
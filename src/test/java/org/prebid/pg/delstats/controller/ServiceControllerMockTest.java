@@ -1,6 +1,11 @@
 package org.prebid.pg.delstats.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import org.assertj.core.api.SoftAssertions;
@@ -8,44 +13,86 @@ import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.prebid.pg.delstats.alerts.AlertName;
+import org.prebid.pg.delstats.alerts.AlertPriority;
+import org.prebid.pg.delstats.config.ApplicationConfiguration.BinaryMapperFactory;
 import org.prebid.pg.delstats.config.ApplicationConfiguration.CsvMapperFactory;
 import org.prebid.pg.delstats.config.DeploymentConfiguration;
 import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.controller.handler.RestResponseEntityExceptionHandler;
+import org.prebid.pg.delstats.exception.ApiNotActiveException;
 import org.prebid.pg.delstats.exception.DeliveryReportProcessingException;
+import org.prebid.pg.delstats.exception.DeliveryReportQueueFullException;
 import org.prebid.pg.delstats.exception.DeliveryReportValidationException;
+import org.prebid.pg.delstats.exception.InvalidRequestException;
+import org.prebid.pg.delstats.exception.PayloadTooLargeException;
+import org.prebid.pg.delstats.metrics.DeliveryReportQueryEvent;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.metrics.IngestPipelineTracer;
+import org.prebid.pg.delstats.metrics.IngestStage;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse.ReportResult;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse.Status;
 import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
-import org.prebid.pg.delstats.model.dto.DeliveryReportToPlannerAdapterDto;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReport;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReportToPlannerAdapter;
 import org.prebid.pg.delstats.model.dto.TokenSpendSummaryDto;
+import org.prebid.pg.delstats.services.DeliveryReportJsonWriter;
+import org.prebid.pg.delstats.services.DeliveryReportStreamingParser;
 import org.prebid.pg.delstats.services.DeliveryReportSummaryService;
 import org.prebid.pg.delstats.services.DeliveryReportsDataService;
+import org.prebid.pg.delstats.services.PbsInstanceRegistry;
 import org.prebid.pg.delstats.services.TokenSpendDataService;
 import org.prebid.pg.delstats.utils.MockSystemService;
+import org.prebid.pg.delstats.utils.ResourceUtil;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNotNull;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.same;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 public class ServiceControllerMockTest {
@@ -76,6 +123,17 @@ public class ServiceControllerMockTest {
     @Mock
     private DeploymentConfiguration deploymentConfiguration;
 
+    @Mock
+    private DeliveryReportStreamingParser deliveryReportStreamingParser;
+
+    @Mock
+    private DeliveryReportJsonWriter deliveryReportJsonWriter;
+
+    @Mock
+    private PbsInstanceRegistry pbsInstanceRegistry;
+
+    private BinaryMapperFactory binaryMapperFactory = new BinaryMapperFactory(new Jackson2ObjectMapperBuilder());
+
     private ServiceController serviceController;
 
     @BeforeEach
@@ -85,7 +143,9 @@ public class ServiceControllerMockTest {
         lenient().when(csvMapperFactory.getCsvMapper()).thenReturn(new CsvMapper());
 
         serviceController = new ServiceController(tokenSpendDataService, deliveryReportsDataService,
-                deliverySummaryService, csvMapperFactory, serverConfiguration, deploymentConfiguration,
+                deliverySummaryService, csvMapperFactory, binaryMapperFactory, serverConfiguration,
+                deploymentConfiguration, deliveryReportStreamingParser, deliveryReportJsonWriter, pbsInstanceRegistry,
+                new IngestPipelineTracer(serverConfiguration, mock(GraphiteMetricsRecorder.class)),
                 new MockSystemService());
     }
 
@@ -97,8 +157,9 @@ public class ServiceControllerMockTest {
 
         when(authentication.getPrincipal()).thenReturn(userValid, userValid, userInvalid, userValid, userValid, userInvalid);
 
-        when(deliveryReportsDataService.retrieveByBidderCode(anyString(), anyString(), anyString()))
-                .thenReturn(DeliveryReportToPlannerAdapterDto.builder().deliveryReports(Collections.emptyList()).build());
+        when(deliveryReportsDataService.streamByBidderCode(anyString(), anyString(), anyString()))
+                .thenReturn(StreamedDeliveryReportToPlannerAdapter.builder()
+                        .deliveryReports(Collections.emptyIterator()).build());
         DeliveryReportFromPbsDto deliveryReportFromPbsDto = makeReportBuider()
                         .reportId(UUID.randomUUID().toString())
                         .vendor("bidder")
@@ -116,11 +177,12 @@ public class ServiceControllerMockTest {
         softAssertions.assertThatCode(() -> serviceController.storeReport(null))
                 .isExactlyInstanceOf(DeliveryReportValidationException.class);
 
-        softAssertions.assertThatCode(() -> serviceController.getDeliveryReports(authentication, TEST_BIDDER_CODE, TEST_START_TIME, TEST_END_TIME))
+        softAssertions.assertThatCode(() -> serviceController.getDeliveryReports(authentication, TEST_BIDDER_CODE, TEST_START_TIME, TEST_END_TIME,
+                null))
                 .doesNotThrowAnyException();
-        softAssertions.assertThatCode(() -> serviceController.getDeliveryReports(authentication, TEST_BIDDER_CODE, "", ""))
+        softAssertions.assertThatCode(() -> serviceController.getDeliveryReports(authentication, TEST_BIDDER_CODE, "", "", null))
                 .doesNotThrowAnyException();
-        softAssertions.assertThatCode(() -> serviceController.getDeliveryReports(authentication, TEST_BIDDER_CODE, "", ""))
+        softAssertions.assertThatCode(() -> serviceController.getDeliveryReports(authentication, TEST_BIDDER_CODE, "", "", null))
                 .isInstanceOf(DeliveryReportValidationException.class);
 
 
@@ -136,9 +198,9 @@ public class ServiceControllerMockTest {
                 .storeReport(isNotNull());
 
         verify(deliveryReportsDataService, times(1))
-                .retrieveByBidderCode(eq(TEST_BIDDER_CODE), eq(TEST_START_TIME), eq(TEST_END_TIME));
+                .streamByBidderCode(eq(TEST_BIDDER_CODE), eq(TEST_START_TIME), eq(TEST_END_TIME));
         verify(deliveryReportsDataService, times(1))
-                .retrieveByBidderCode(eq(TEST_BIDDER_CODE), eq(""), eq(""));
+                .streamByBidderCode(eq(TEST_BIDDER_CODE), eq(""), eq(""));
     }
 
     @Test
@@ -284,7 +346,239 @@ public class ServiceControllerMockTest {
 
     }
 
+    @Test
+    public void shouldReadPostedReportWithStreamingParserWhenEnabled() throws Exception {
+        byte[] body = ResourceUtil.readBytesFromClasspath("DeliveryProgressReportValidExample.json");
+        StreamedDeliveryReport streamedDeliveryReport = StreamedDeliveryReport.builder()
+                .metadata(makeReportBuider()
+                        .reportId("test").instanceId("test").vendor("test").region("test")
+                        .reportTimeStamp(Timestamp.valueOf(TEST_END_TIME))
+                        .dataWindowStartTimeStamp(Timestamp.valueOf(TEST_START_TIME))
+                        .dataWindowEndTimeStamp(Timestamp.valueOf(TEST_END_TIME))
+                        .lineItemStatus(null)
+                        .build())
+                .lineItemStatus(Collections.emptyList())
+                .build();
+        given(serverConfiguration.isValidationEnabled()).willReturn(true);
+        given(serverConfiguration.isDeliveryReportStreamingIngestEnabled()).willReturn(true, false);
+        given(deliveryReportStreamingParser.parse(any(), any())).willReturn(streamedDeliveryReport);
+
+        softAssertions.assertThatCode(() -> serviceController.postDeliveryReport(new ByteArrayInputStream(body),
+                MediaType.APPLICATION_JSON_VALUE))
+                .as("Streaming ingest")
+                .doesNotThrowAnyException();
+        softAssertions.assertThatCode(() -> serviceController.postDeliveryReport(new ByteArrayInputStream(body),
+                MediaType.APPLICATION_JSON_VALUE))
+                .as("Bound to Dto")
+                .doesNotThrowAnyException();
+        softAssertions.assertAll();
+
+        verify(deliveryReportsDataService, times(1)).storeStreamedReport(streamedDeliveryReport);
+        verify(deliveryReportsDataService, times(1)).storeReport(any(DeliveryReportFromPbsDto.class));
+        verify(pbsInstanceRegistry, times(1)).recordReport(streamedDeliveryReport.getMetadata(), 0, 0);
+        verify(pbsInstanceRegistry, times(1)).recordReport(any(DeliveryReportFromPbsDto.class), anyInt(),
+                eq((long) body.length));
+    }
+
+    @Test
+    public void shouldTimeIngestStagesWhenEnabled() throws Exception {
+        byte[] body = ResourceUtil.readBytesFromClasspath("DeliveryProgressReportValidExample.json");
+        GraphiteMetricsRecorder recorder = mock(GraphiteMetricsRecorder.class);
+        given(serverConfiguration.isDeliveryReportStageTimingEnabled()).willReturn(true);
+        given(serverConfiguration.isValidationEnabled()).willReturn(true);
+        serviceController = new ServiceController(tokenSpendDataService, deliveryReportsDataService,
+                deliverySummaryService, csvMapperFactory, binaryMapperFactory, serverConfiguration,
+                deploymentConfiguration, deliveryReportStreamingParser, deliveryReportJsonWriter, pbsInstanceRegistry,
+                new IngestPipelineTracer(serverConfiguration, recorder), new MockSystemService());
+
+        serviceController.postDeliveryReport(new ByteArrayInputStream(body), MediaType.APPLICATION_JSON_VALUE);
+
+        verify(recorder, times(1)).updateIngestReportSizeHistograms(anyInt(), eq((long) body.length));
+        verify(recorder, times(1)).updateIngestStageTimer(eq(IngestStage.PARSE), eq(false), anyLong());
+        verify(recorder, times(1)).updateIngestStageTimer(eq(IngestStage.VALIDATE), eq(false), anyLong());
+        verify(recorder, never()).updateIngestStageTimer(eq(IngestStage.COMMIT), anyBoolean(), anyLong());
+    }
+
+    @Test
+    public void shouldReadNdjsonBatchAndReturnResultPerLine() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode report = (ObjectNode) objectMapper.readTree(
+                ResourceUtil.readFromClasspath("DeliveryProgressReportValidExample.json"));
+        String reportLine = objectMapper.writeValueAsString(report);
+        report.remove("reportId");
+        String body = String.join("\n", reportLine, "", "not a report", objectMapper.writeValueAsString(report));
+        given(serverConfiguration.isDeliveryReportBatchApiEnabled()).willReturn(true);
+        given(serverConfiguration.getDeliveryReportBatchApiMaxReports()).willReturn(10);
+        given(serverConfiguration.isValidationEnabled()).willReturn(true);
+        given(deliveryReportsDataService.storeReportBatch(anyList())).willAnswer(invocation -> {
+            List<DeliveryReportFromPbsDto> reports = invocation.getArgument(0);
+            return Collections.singletonList(ReportResult.builder()
+                    .reportId(reports.get(0).getReportId()).status(Status.STORED).build());
+        });
+
+        DeliveryReportBatchResponse response = serviceController.postDeliveryReportBatch(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        softAssertions.assertThat(response.getAccepted()).isEqualTo(1);
+        softAssertions.assertThat(response.getRejected()).isEqualTo(2);
+        softAssertions.assertThat(response.getResults()).extracting(ReportResult::getLine).containsExactly(1, 3, 4);
+        softAssertions.assertThat(response.getResults()).extracting(ReportResult::getStatus)
+                .containsExactly(Status.STORED, Status.REJECTED, Status.REJECTED);
+        softAssertions.assertThat(response.getResults().get(2).getMessage()).isEqualTo("Missing Report Id");
+        softAssertions.assertAll();
+
+        verify(pbsInstanceRegistry, times(1)).recordReport(any(DeliveryReportFromPbsDto.class), anyInt(),
+                eq((long) reportLine.length()));
+    }
+
+    @Test
+    public void shouldRejectBatchWithTooManyReports() {
+        byte[] body = "{}\n{}\n{}".getBytes(StandardCharsets.UTF_8);
+        given(serverConfiguration.isDeliveryReportBatchApiEnabled()).willReturn(true, false);
+        given(serverConfiguration.getDeliveryReportBatchApiMaxReports()).willReturn(2);
+
+        softAssertions.assertThatThrownBy(() -> serviceController.postDeliveryReportBatch(
+                new ByteArrayInputStream(body))).isInstanceOf(InvalidRequestException.class);
+        softAssertions.assertThatThrownBy(() -> serviceController.postDeliveryReportBatch(
+                new ByteArrayInputStream(body))).isInstanceOf(ApiNotActiveException.class);
+        softAssertions.assertAll();
+
+        verify(deliveryReportsDataService, never()).storeReportBatch(anyList());
+    }
+
+    @Test
+    public void shouldAcceptQueuedReportsAndPassOnFullQueue() throws Exception {
+        byte[] body = ResourceUtil.readBytesFromClasspath("DeliveryProgressReportValidExample.json");
+        given(serverConfiguration.isValidationEnabled()).willReturn(true);
+        given(serverConfiguration.isDeliveryReportAsyncIngestEnabled()).willReturn(false, true);
+
+        softAssertions.assertThat(serviceController.postDeliveryReport(new ByteArrayInputStream(body),
+                MediaType.APPLICATION_JSON_VALUE)
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+        softAssertions.assertThat(serviceController.postDeliveryReport(new ByteArrayInputStream(body),
+                MediaType.APPLICATION_JSON_VALUE)
+                .getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+
+        doThrow(new DeliveryReportQueueFullException("full")).when(deliveryReportsDataService)
+                .storeReport(any(DeliveryReportFromPbsDto.class));
+        softAssertions.assertThatCode(() -> serviceController.postDeliveryReport(new ByteArrayInputStream(body),
+                MediaType.APPLICATION_JSON_VALUE))
+                .isInstanceOf(DeliveryReportQueueFullException.class);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldReadPostedReportInFormatOfContentType() throws Exception {
+        byte[] body = ResourceUtil.readBytesFromClasspath("DeliveryProgressReportValidExample.json");
+        JsonNode report = new ObjectMapper().readTree(body);
+        byte[] smileBody = binaryMapperFactory.getSmileMapper().writeValueAsBytes(report);
+        byte[] cborBody = binaryMapperFactory.getCborMapper().writeValueAsBytes(report);
+        given(serverConfiguration.isValidationEnabled()).willReturn(true);
+
+        serviceController.postDeliveryReport(new ByteArrayInputStream(body), null);
+        serviceController.postDeliveryReport(new ByteArrayInputStream(smileBody),
+                BinaryMapperFactory.APPLICATION_SMILE_VALUE);
+        serviceController.postDeliveryReport(new ByteArrayInputStream(cborBody), "application/cbor;charset=UTF-8");
+
+        ArgumentCaptor<DeliveryReportFromPbsDto> storedReports = ArgumentCaptor.forClass(DeliveryReportFromPbsDto.class);
+        verify(deliveryReportsDataService, times(3)).storeReport(storedReports.capture());
+        DeliveryReportFromPbsDto jsonReport = storedReports.getAllValues().get(0);
+        softAssertions.assertThat(jsonReport.getLineItemStatus()).isNotEmpty();
+        softAssertions.assertThat(storedReports.getAllValues()).containsOnly(jsonReport);
+        softAssertions.assertAll();
+
+        verify(pbsInstanceRegistry, times(1)).recordReport(any(DeliveryReportFromPbsDto.class), anyInt(),
+                eq((long) smileBody.length));
+    }
+
+    @Test
+    public void shouldWriteDeliveryReportsInFormatAcceptedFirst() throws Exception {
+        StreamedDeliveryReportToPlannerAdapter deliveryReport = StreamedDeliveryReportToPlannerAdapter.builder()
+                .deliveryReports(Collections.emptyIterator()).build();
+        given(serverConfiguration.isPaApiEnabled()).willReturn(true);
+        given(deliveryReportsDataService.streamByBidderCode(anyString(), anyString(), anyString()))
+                .willReturn(deliveryReport);
+
+        ResponseEntity<StreamingResponseBody> cborResponse = serviceController.getDeliveryReports(null,
+                TEST_BIDDER_CODE, "", "", "application/json;q=0.5, application/cbor");
+        cborResponse.getBody().writeTo(new ByteArrayOutputStream());
+        ResponseEntity<StreamingResponseBody> smileResponse = serviceController.getDeliveryReports(null,
+                TEST_BIDDER_CODE, "", "", "application/x-jackson-smile, */*;q=0.1");
+        ResponseEntity<StreamingResponseBody> anyResponse = serviceController.getDeliveryReports(null,
+                TEST_BIDDER_CODE, "", "", "*/*");
+
+        softAssertions.assertThat(cborResponse.getHeaders().getContentType())
+                .isEqualTo(BinaryMapperFactory.APPLICATION_CBOR);
+        softAssertions.assertThat(smileResponse.getHeaders().getContentType())
+                .isEqualTo(BinaryMapperFactory.APPLICATION_SMILE);
+        softAssertions.assertThat(anyResponse.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        softAssertions.assertAll();
+
+        verify(deliveryReportJsonWriter, times(1)).write(eq(deliveryReport), any(),
+                same(binaryMapperFactory.getCborMapper()));
+    }
+
+    @Test
+    public void shouldRaiseAlertWhenWritingDeliveryReportsFails() throws Exception {
+        MockSystemService systemService = new MockSystemService();
+        serviceController = new ServiceController(tokenSpendDataService, deliveryReportsDataService,
+                deliverySummaryService, csvMapperFactory, binaryMapperFactory, serverConfiguration,
+                deploymentConfiguration, deliveryReportStreamingParser, deliveryReportJsonWriter, pbsInstanceRegistry,
+                new IngestPipelineTracer(serverConfiguration, systemService.getRecorder()), systemService);
+        StreamedDeliveryReportToPlannerAdapter deliveryReport = StreamedDeliveryReportToPlannerAdapter.builder()
+                .deliveryReports(Collections.emptyIterator()).build();
+        given(deliveryReportJsonWriter.write(eq(deliveryReport), any(), any()))
+                .willThrow(new IOException("Broken pipe"));
+
+        softAssertions.assertThatThrownBy(() -> serviceController.writeDeliveryReports(
+                deliveryReport, new ByteArrayOutputStream(), new ObjectMapper(), Optional.empty(),
+                new DeliveryReportQueryEvent()))
+                .isInstanceOf(IOException.class);
+        softAssertions.assertAll();
+
+        verify(systemService.getAlertProxyHttpClient()).raiseEventForExceptionAndLog(
+                eq(AlertName.ERROR), anyString(), eq(AlertPriority.HIGH), any(IOException.class));
+        verify(systemService.getRecorder(), never()).markDeliveryReportRecordsFetched(anyInt());
+    }
+
     DeliveryReportFromPbsDto.DeliveryReportFromPbsDtoBuilder makeReportBuider() {
         return DeliveryReportFromPbsDto.builder().lineItemStatus(Collections.emptyList());
     }
+
+    @Test
+    public void shouldAnswerUnreadableDeliveryReportsWithBadRequest() throws Exception {
+        GraphiteMetricsRecorder graphiteMetricsRecorder = mock(GraphiteMetricsRecorder.class);
+        MockMvc mockMvc = makeMockMvc(graphiteMetricsRecorder);
+
+        mockMvc.perform(post("/api/v1/report/delivery").contentType(MediaType.APPLICATION_JSON).content("{not json"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/report/delivery").contentType(MediaType.APPLICATION_JSON).content(""))
+                .andExpect(status().isBadRequest());
+        verify(graphiteMetricsRecorder, times(2)).markInvalidRequestMeter();
+        verify(deliveryReportsDataService, never()).storeReport(any(DeliveryReportFromPbsDto.class));
+    }
+
+    @Test
+    public void shouldAnswerUnreadableStreamedDeliveryReportsWithBadRequestUnlessTooLarge() throws Exception {
+        GraphiteMetricsRecorder graphiteMetricsRecorder = mock(GraphiteMetricsRecorder.class);
+        MockMvc mockMvc = makeMockMvc(graphiteMetricsRecorder);
+        given(serverConfiguration.isDeliveryReportStreamingIngestEnabled()).willReturn(true);
+        given(deliveryReportStreamingParser.parse(any(), any(JsonFactory.class)))
+                .willThrow(new JsonParseException(null, "Unexpected character"))
+                .willThrow(new PayloadTooLargeException("Request body inflates to more than 10 bytes"));
+
+        mockMvc.perform(post("/api/v1/report/delivery").contentType(MediaType.APPLICATION_JSON).content("{not json"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/report/delivery").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isPayloadTooLarge());
+        verify(graphiteMetricsRecorder).markInvalidRequestMeter();
+        verify(graphiteMetricsRecorder).markRequestTooLargeMeter();
+    }
+
+    private MockMvc makeMockMvc(GraphiteMetricsRecorder graphiteMetricsRecorder) {
+        return MockMvcBuilders.standaloneSetup(serviceController)
+                .addPlaceholderValue("services.base-url", "/api")
+                .setControllerAdvice(new RestResponseEntityExceptionHandler(graphiteMetricsRecorder))
+                .build();
+    }
 }
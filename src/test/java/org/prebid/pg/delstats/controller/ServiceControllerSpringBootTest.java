@@ -6,12 +6,14 @@ import org.assertj.core.api.SoftAssertions;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ApplicationConfiguration.BinaryMapperFactory;
 import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
 import org.prebid.pg.delstats.repository.DeliveryProgressReportsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayOutputStream;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -24,6 +26,9 @@ public class ServiceControllerSpringBootTest {
     @Autowired
     ServiceController serviceController;
 
+    @Autowired
+    BinaryMapperFactory binaryMapperFactory;
+
     @Autowired
     DeliveryProgressReportsRepository deliveryProgressReportsRepository;
 
@@ -64,10 +69,18 @@ public class ServiceControllerSpringBootTest {
         softAssertions.assertThatCode(() ->serviceController.storeReport(deliveryReportFromPbsDto))
                 .doesNotThrowAnyException();
 
-        softAssertions.assertThat(
-                serviceController.getDeliveryReports(null , "bidder", then16minsAgo.toString(),
-                        Timestamp.from(iNow.plusSeconds(60)).toString())
-                        .getDeliveryReports()).hasSize(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serviceController.getDeliveryReports(null , "bidder", then16minsAgo.toString(),
+                Timestamp.from(iNow.plusSeconds(60)).toString(), null).getBody().writeTo(out);
+        JsonNode deliveryReports = objectMapper.readTree(out.toByteArray()).get("deliveryReports");
+        softAssertions.assertThat(deliveryReports).hasSize(3);
+
+        ByteArrayOutputStream smileOut = new ByteArrayOutputStream();
+        serviceController.getDeliveryReports(null , "bidder", then16minsAgo.toString(),
+                Timestamp.from(iNow.plusSeconds(60)).toString(), BinaryMapperFactory.APPLICATION_SMILE_VALUE)
+                .getBody().writeTo(smileOut);
+        softAssertions.assertThat(binaryMapperFactory.getSmileMapper().readTree(smileOut.toByteArray())
+                .get("deliveryReports")).isEqualTo(deliveryReports);
         softAssertions.assertAll();
     }
 }
@@ -0,0 +1,223 @@
+package org.prebid.pg.delstats.controller.filter;
+
+import com.github.luben.zstd.Zstd;
+import org.apache.commons.io.IOUtils;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.PayloadTooLargeException;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.services.SystemService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RequestDecompressionFilterTest {
+
+    private static final String BODY = "{\"reportId\":\"report\",\"lineItemStatus\":[" + String.join(",",
+            Collections.nCopies(200, "{\"lineItemId\":\"bidderPG-1\",\"accountAuctions\":100}")) + "]}";
+
+    private ServerConfiguration configuration;
+
+    private GraphiteMetricsRecorder recorder;
+
+    private SystemService systemService;
+
+    @BeforeEach
+    public void setup() {
+        configuration = new ServerConfiguration();
+        configuration.setRequestDecompressionEnabled(true);
+        configuration.setRequestDecompressionBufferSize(16384);
+        configuration.setRequestDecompressionPoolSize(4);
+        configuration.setRequestDecompressionMaxInflatedBytes(1_000_000);
+        recorder = mock(GraphiteMetricsRecorder.class);
+        systemService = mock(SystemService.class);
+        when(systemService.getRecorder()).thenReturn(recorder);
+    }
+
+    @Test
+    public void shouldInflateGzipBodyWithPooledInflater() throws Exception {
+        SoftAssertions softAssertions = new SoftAssertions();
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(configuration, systemService);
+        byte[] compressed = gzip(BODY);
+
+        for (int i = 0; i < 2; i++) {
+            AtomicReference<HttpServletRequest> seen = new AtomicReference<>();
+            String body = filterBody(filter, request(RequestDecompressionFilter.GZIP, compressed), seen);
+
+            softAssertions.assertThat(body).isEqualTo(BODY);
+            softAssertions.assertThat(seen.get().getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+            softAssertions.assertThat(seen.get().getContentLength()).isEqualTo(-1);
+            softAssertions.assertThat(Collections.list(seen.get().getHeaderNames()))
+                    .containsExactly(HttpHeaders.CONTENT_TYPE);
+        }
+        softAssertions.assertThat(filter.getIdleInflaterCount()).isEqualTo(1);
+        softAssertions.assertAll();
+        verify(recorder, times(2)).markRequestBytesDecompressed(RequestDecompressionFilter.GZIP,
+                compressed.length, BODY.length());
+    }
+
+    @Test
+    public void shouldInflateGzipMembersWithOptionalHeaderFieldsThroughSmallBuffer() throws Exception {
+        configuration.setRequestDecompressionBufferSize(1);
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(configuration, systemService);
+        String half = BODY.substring(0, BODY.length() / 2);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressed.write(withFileName(gzip(half)));
+        compressed.write(gzip(BODY.substring(half.length())));
+
+        assertThat(filterBody(filter, request(RequestDecompressionFilter.X_GZIP, compressed.toByteArray()), null))
+                .isEqualTo(BODY);
+    }
+
+    @Test
+    public void shouldDecompressZstdBody() throws Exception {
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(configuration, systemService);
+        byte[] compressed = Zstd.compress(BODY.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(filterBody(filter, request("ZSTD", compressed), null)).isEqualTo(BODY);
+        verify(recorder).markRequestBytesDecompressed(RequestDecompressionFilter.ZSTD, compressed.length,
+                BODY.length());
+    }
+
+    @Test
+    public void shouldFailReadPastMaxInflatedBytes() throws Exception {
+        configuration.setRequestDecompressionMaxInflatedBytes(BODY.length() - 1);
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(configuration, systemService);
+
+        assertThatThrownBy(() -> filterBody(filter, request(RequestDecompressionFilter.GZIP, gzip(BODY)), null))
+                .isInstanceOf(PayloadTooLargeException.class);
+        assertThat(filter.getIdleInflaterCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFailReadOfCorruptOrTruncatedGzip() throws Exception {
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(configuration, systemService);
+        byte[] corrupt = gzip(BODY);
+        corrupt[corrupt.length - 5]++;
+        byte[] truncated = new byte[corrupt.length - 4];
+        System.arraycopy(gzip(BODY), 0, truncated, 0, truncated.length);
+
+        assertThatThrownBy(() -> filterBody(filter, request(RequestDecompressionFilter.GZIP, corrupt), null))
+                .isInstanceOf(ZipException.class);
+        assertThatThrownBy(() -> filterBody(filter, request(RequestDecompressionFilter.GZIP, truncated), null))
+                .isInstanceOf(EOFException.class);
+        assertThatThrownBy(() -> filterBody(filter, request(RequestDecompressionFilter.GZIP, bytes(BODY)), null))
+                .isInstanceOf(ZipException.class);
+    }
+
+    @Test
+    public void shouldRefuseUnsupportedEncoding() throws Exception {
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(configuration, systemService);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain filterChain = mock(FilterChain.class);
+
+        filter.doFilter(request("br", bytes(BODY)), response, filterChain);
+
+        assertThat(response.getStatus()).isEqualTo(415);
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    public void shouldPassThroughIdentityOrWhenDisabled() throws Exception {
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(configuration, systemService);
+        MockHttpServletRequest identityRequest = request(RequestDecompressionFilter.IDENTITY, bytes(BODY));
+        MockHttpServletRequest plainRequest = request(null, bytes(BODY));
+        AtomicReference<HttpServletRequest> seen = new AtomicReference<>();
+
+        SoftAssertions softAssertions = new SoftAssertions();
+        softAssertions.assertThat(filterBody(filter, identityRequest, seen)).isEqualTo(BODY);
+        softAssertions.assertThat(seen.get()).isSameAs(identityRequest);
+        softAssertions.assertThat(filterBody(filter, plainRequest, seen)).isEqualTo(BODY);
+        softAssertions.assertThat(seen.get()).isSameAs(plainRequest);
+
+        configuration.setRequestDecompressionEnabled(false);
+        MockHttpServletRequest gzipRequest = request(RequestDecompressionFilter.GZIP, gzip(BODY));
+        filterBody(filter, gzipRequest, seen);
+        softAssertions.assertThat(seen.get()).isSameAs(gzipRequest);
+        softAssertions.assertAll();
+        verify(recorder, never()).markRequestBytesDecompressed(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldEndIdleInflatersOnDestroy() throws Exception {
+        RequestDecompressionFilter filter = new RequestDecompressionFilter(configuration, systemService);
+        filterBody(filter, request(RequestDecompressionFilter.GZIP, gzip(BODY)), null);
+
+        filter.destroy();
+
+        assertThat(filter.getIdleInflaterCount()).isZero();
+        verify(recorder).markRequestBytesDecompressed(eq(RequestDecompressionFilter.GZIP), anyLong(), anyLong());
+    }
+
+    private static String filterBody(RequestDecompressionFilter filter, MockHttpServletRequest request,
+                                     AtomicReference<HttpServletRequest> seen) throws Exception {
+        AtomicReference<String> body = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (filtered, response) -> {
+            if (seen != null) {
+                seen.set((HttpServletRequest) filtered);
+            }
+            body.set(IOUtils.toString(filtered.getInputStream(), StandardCharsets.UTF_8));
+        });
+        return body.get();
+    }
+
+    private static MockHttpServletRequest request(String encoding, byte[] body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/del-stats/api/v1/report/delivery");
+        request.addHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+        if (encoding != null) {
+            request.addHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        request.setContent(body);
+        return request;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes(text));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Sets FNAME in the header of a gzip member and inserts a file name after the fixed header fields.
+     */
+    private static byte[] withFileName(byte[] member) {
+        byte[] name = bytes("report.json\0");
+        byte[] named = new byte[member.length + name.length];
+        System.arraycopy(member, 0, named, 0, 10);
+        named[3] |= 8;
+        System.arraycopy(name, 0, named, 10, name.length);
+        System.arraycopy(member, 10, named, 10 + name.length, member.length - 10);
+        return named;
+    }
+}
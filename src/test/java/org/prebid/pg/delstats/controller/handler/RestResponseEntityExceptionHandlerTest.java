@@ -98,6 +98,17 @@ public class RestResponseEntityExceptionHandlerTest {
                 .hasFieldOrPropertyWithValue("statusCode", HttpStatus.BAD_REQUEST)
                 .hasFieldOrPropertyWithValue("body", RestResponseEntityExceptionHandler.INVALID_JSON_PARSING_MESSAGE_PREFIX + "jsonParse");
 
+        softAssertions.assertThat(handler.handleJsonProcessingException(jsonMappingException, webRequest))
+                .hasFieldOrPropertyWithValue("statusCode", HttpStatus.BAD_REQUEST)
+                .hasFieldOrPropertyWithValue("body", RestResponseEntityExceptionHandler.INVALID_JSON_MAPPING_MESSAGE_PREFIX + "jsonMap");
+        softAssertions.assertThat(handler.handleJsonProcessingException(jsonParseException, webRequest))
+                .hasFieldOrPropertyWithValue("statusCode", HttpStatus.BAD_REQUEST)
+                .hasFieldOrPropertyWithValue("body", RestResponseEntityExceptionHandler.INVALID_JSON_PARSING_MESSAGE_PREFIX + "jsonParse");
+        softAssertions.assertThat(handler.handleJsonProcessingException(
+                new JsonMappingException(jsonParser, "jsonMap", new PayloadTooLargeException("test")), webRequest))
+                .hasFieldOrPropertyWithValue("statusCode", HttpStatus.PAYLOAD_TOO_LARGE)
+                .hasFieldOrPropertyWithValue("body", "test");
+
         softAssertions.assertThat(handler.handleFailedTimestampConversions(new NullPointerException(), webRequest))
                 .hasFieldOrPropertyWithValue("statusCode", HttpStatus.BAD_REQUEST)
                 .hasFieldOrPropertyWithValue("body", RestResponseEntityExceptionHandler.INVALID_TIMESTAMP_FORMAT_DEFAULT_MESSAGE);
@@ -116,6 +127,18 @@ public class RestResponseEntityExceptionHandlerTest {
                 .hasFieldOrPropertyWithValue("statusCode", HttpStatus.BAD_REQUEST)
                 .hasFieldOrPropertyWithValue("body", RestResponseEntityExceptionHandler.DELIVERY_REPORT_PROCESSING_DEFAULT_MESSAGE);
 
+        softAssertions.assertThat(handler.handleDeliveryReportQueueFullException(new DeliveryReportQueueFullException("test"), webRequest))
+                .hasFieldOrPropertyWithValue("statusCode", HttpStatus.TOO_MANY_REQUESTS)
+                .hasFieldOrPropertyWithValue("body", "test");
+
+        softAssertions.assertThat(handler.handleDeliveryReportInFlightException(new DeliveryReportInFlightException("test"), webRequest))
+                .hasFieldOrPropertyWithValue("statusCode", HttpStatus.SERVICE_UNAVAILABLE)
+                .hasFieldOrPropertyWithValue("body", "test");
+
+        softAssertions.assertThat(handler.handlePayloadTooLarge(new PayloadTooLargeException("test"), webRequest))
+                .hasFieldOrPropertyWithValue("statusCode", HttpStatus.PAYLOAD_TOO_LARGE)
+                .hasFieldOrPropertyWithValue("body", "test");
+
         softAssertions.assertAll();
     }
 }
@@ -0,0 +1,67 @@
+package org.prebid.pg.delstats.metrics;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentExpiringSetTest {
+
+    private static final Instant START = Instant.parse("2019-02-01T00:00:00Z");
+
+    @Test
+    public void shouldProvideAccurateSetCountsAndExpireEntries() {
+        SoftAssertions softAssertions = new SoftAssertions();
+
+        ConcurrentExpiringSet<Integer> expiringSet = new ConcurrentExpiringSet<>(1, ChronoUnit.HOURS);
+        expiringSet.setClock(clockAt(START));
+        softAssertions.assertThat(expiringSet.add(1)).isTrue();
+        softAssertions.assertThat(expiringSet.add(2)).isTrue();
+        softAssertions.assertThat(expiringSet.add(1)).isFalse();
+        softAssertions.assertThat(expiringSet.size()).isEqualTo(2);
+
+        expiringSet.setClock(clockAt(START.plus(45, ChronoUnit.MINUTES)));
+        softAssertions.assertThat(expiringSet.add(2)).isFalse();
+        softAssertions.assertThat(expiringSet.add(3)).isTrue();
+        softAssertions.assertThat(expiringSet.size()).isEqualTo(3);
+
+        expiringSet.setClock(clockAt(START.plus(90, ChronoUnit.MINUTES)));
+        softAssertions.assertThat(expiringSet.contains(1)).isFalse();
+        softAssertions.assertThat(expiringSet.contains(2)).isTrue();
+        softAssertions.assertThat(expiringSet.size()).isEqualTo(2);
+
+        expiringSet.setClock(clockAt(START.plus(4, ChronoUnit.HOURS)));
+        softAssertions.assertThat(expiringSet.isEmpty()).isTrue();
+        softAssertions.assertThat(expiringSet.add(1)).isTrue();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldCountEntriesAddedConcurrently() throws InterruptedException {
+        ConcurrentExpiringSet<String> expiringSet = new ConcurrentExpiringSet<>(1, ChronoUnit.HOURS);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    expiringSet.add("instance-" + (i % 500));
+                }
+            });
+        }
+        executor.shutdown();
+        SoftAssertions softAssertions = new SoftAssertions();
+        softAssertions.assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        softAssertions.assertThat(expiringSet.size()).isEqualTo(500);
+        softAssertions.assertAll();
+    }
+
+    private static Clock clockAt(Instant instant) {
+        return Clock.fixed(instant, ZoneOffset.UTC);
+    }
+
+}
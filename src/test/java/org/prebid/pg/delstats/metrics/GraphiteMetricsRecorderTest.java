@@ -19,6 +19,7 @@ import org.springframework.http.converter.HttpMessageNotReadableException;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -169,4 +170,129 @@ public class GraphiteMetricsRecorderTest {
 
         softAssertions.assertAll();
     }
+
+    @Test
+    public void shouldRecordAsyncIngestMetrics() {
+        recorder.registerAsyncIngestQueueDepthGauge(() -> 7);
+        recorder.markAsyncIngestReportsDrained(3);
+        recorder.markAsyncIngestReportRejected();
+        recorder.markDuplicateDeliveryReportsSuppressed();
+        recorder.updateAsyncIngestEnqueueToCommitTimer(TimeUnit.MILLISECONDS.toNanos(5));
+
+        softAssertions.assertThat(recorder.getRegistry().getGauges()
+                .get("delivery-report.async-ingest.queue-depth").getValue()).isEqualTo(7);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("delivery-report.drain.delivery-reports").getCount()).isEqualTo(3);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("delivery-report.reject.delivery-reports").getCount()).isEqualTo(1);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("delivery-report.suppress-duplicate.delivery-reports").getCount()).isEqualTo(1);
+        softAssertions.assertThat(recorder.getRegistry().getTimers()
+                .get("post-delivery-report.enqueue-to-commit").getCount()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRecordPreAggregationMetrics() {
+        recorder.markPreAggregatedDeliverySummariesStored(4);
+        recorder.markPreAggregateMismatch();
+
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("delivery-summary.pre-aggregate.delivery-summary-reports").getCount()).isEqualTo(4);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("error.delivery-summary.pre-aggregate-mismatch").getCount()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRecordPurgeMetrics() {
+        recorder.markDeliveryReportRecordsPurged(5);
+        recorder.markLatestTokenSpendSummariesPurged(2);
+        recorder.markSystemStatesPurged(3);
+        recorder.markPurgePaused();
+        recorder.registerPurgeLagGauge(RepositoryItem.DELIVERY_REPORTS, () -> 60L);
+
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("delivery-report.purge.delivery-reports").getCount()).isEqualTo(5);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("token-spend.purge.latest-token-spend-summaries").getCount()).isEqualTo(2);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("delivery-summary.purge.system-states").getCount()).isEqualTo(3);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("purge.paused").getCount()).isEqualTo(1);
+        softAssertions.assertThat(recorder.getRegistry().getGauges()
+                .get("purge.delivery-reports.lag-sec").getValue()).isEqualTo(60L);
+        softAssertions.assertThat(recorder.getDeliveryReportStoreLatencyMillis()).isZero();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRecordPbsReportLagPerVendorAndRegion() {
+        recorder.updatePbsReportLagHistogram("pbs", "us-east-1", 1500);
+        recorder.updatePbsReportLagHistogram("pbs", "us-east-1", 2500);
+        recorder.updatePbsReportLagHistogram("pbs.vendor", null, 100);
+
+        softAssertions.assertThat(recorder.getRegistry().getHistograms()
+                .get("pbs.pbs.us-east-1.report-lag-ms").getSnapshot().getMax()).isEqualTo(2500);
+        softAssertions.assertThat(recorder.getRegistry().getHistograms()
+                .get("pbs.pbs.us-east-1.report-lag-ms").getCount()).isEqualTo(2);
+        softAssertions.assertThat(recorder.getRegistry().getHistograms()
+                .get("pbs.pbs_vendor.unknown.report-lag-ms").getCount()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRecordRequestDecompressionMetrics() {
+        recorder.markRequestBytesDecompressed("gzip", 100, 1000);
+        recorder.markRequestBytesDecompressed("gzip", 50, 500);
+        recorder.markRequestBytesDecompressed("zstd", 10, 200);
+        recorder.markRequestTooLargeMeter();
+
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("request.decompression.gzip.bytes-in").getCount()).isEqualTo(150);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("request.decompression.gzip.bytes-inflated").getCount()).isEqualTo(1500);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("request.decompression.zstd.bytes-inflated").getCount()).isEqualTo(200);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("error.request.too-large").getCount()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRegisterOnlyMetricsInUseUnderTheirGraphiteNames() throws InterruptedException {
+        recorder.markPostRequestForDeliveryReport();
+        recorder.markDeliveryReportRecordsStored(3);
+        recorder.markDataAccessErrorMeter();
+        recorder.postDeliveryReportPerformanceTimer().ifPresent(Timer.Context::stop);
+        recorder.updateAsyncIngestEnqueueToCommitTimer(1000);
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    recorder.markGetRequestForTokenSpend();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        softAssertions.assertThat(recorder.getRegistry().getNames()).containsExactlyInAnyOrder(
+                "delivery-report.post-delivery-report.request",
+                "token-spend.get-token-spend-summary.request",
+                "delivery-report.store.delivery-reports",
+                "error.db.general",
+                "post-delivery-report.processing-time",
+                "post-delivery-report.enqueue-to-commit");
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("token-spend.get-token-spend-summary.request").getCount()).isEqualTo(4000);
+        softAssertions.assertThat(recorder.getRegistry().getCounters()
+                .get("delivery-report.store.delivery-reports").getCount()).isEqualTo(3);
+        softAssertions.assertThat(recorder.getRegistry().getTimers()
+                .get("post-delivery-report.enqueue-to-commit").getCount()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
 }
@@ -0,0 +1,57 @@
+package org.prebid.pg.delstats.metrics;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.within;
+
+public class HdrHistogramReservoirTest {
+
+    @Test
+    public void shouldGiveAllReadersOfAnIntervalTheSameSnapshot() {
+        SoftAssertions softAssertions = new SoftAssertions();
+        AtomicLong now = new AtomicLong();
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(60, TimeUnit.SECONDS, now::get);
+
+        for (int value = 1; value <= 1000; value++) {
+            reservoir.update(value * 1000L);
+        }
+        HdrHistogramReservoir.HdrSnapshot first = reservoir.getSnapshot();
+        softAssertions.assertThat(first.size()).isEqualTo(1000);
+        softAssertions.assertThat(first.get99thPercentile()).isCloseTo(990_000, within(10_000.0));
+        softAssertions.assertThat(first.get999thPercentile()).isCloseTo(999_000, within(10_000.0));
+        softAssertions.assertThat(first.getMax()).isCloseTo(1_000_000L, within(10_000L));
+        softAssertions.assertThat(first.getTotalCount()).isEqualTo(1000);
+        softAssertions.assertThat(first.getTotalSum()).isEqualTo(500_500_000L);
+
+        reservoir.update(5_000_000L);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        softAssertions.assertThat(reservoir.getSnapshot()).isSameAs(first);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        HdrHistogramReservoir.HdrSnapshot second = reservoir.getSnapshot();
+        softAssertions.assertThat(second.size()).isEqualTo(1);
+        softAssertions.assertThat(second.getMin()).isCloseTo(5_000_000L, within(50_000L));
+        softAssertions.assertThat(second.getTotalCount()).isEqualTo(1001);
+        softAssertions.assertThat(second.getValues()).hasSize(1);
+        softAssertions.assertThat(reservoir.getSnapshot()).isSameAs(second);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldTakeNewIntervalOnEveryReadWithoutInterval() {
+        SoftAssertions softAssertions = new SoftAssertions();
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(0, TimeUnit.SECONDS);
+
+        reservoir.update(10);
+        reservoir.update(-5);
+        softAssertions.assertThat(reservoir.size()).isEqualTo(2);
+        softAssertions.assertThat(reservoir.getSnapshot().getMin()).isZero();
+        softAssertions.assertThat(reservoir.size()).isZero();
+        softAssertions.assertThat(reservoir.getSnapshot().getTotalSum()).isEqualTo(10);
+        softAssertions.assertAll();
+    }
+}
@@ -0,0 +1,89 @@
+package org.prebid.pg.delstats.metrics;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.GraphiteConfig;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+public class IngestPipelineTracerTest {
+
+    private SoftAssertions softAssertions;
+
+    private ServerConfiguration serverConfiguration;
+
+    private GraphiteMetricsRecorder recorder;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        serverConfiguration = new ServerConfiguration();
+        serverConfiguration.setDeliveryReportStageTimingEnabled(true);
+        serverConfiguration.setDeliveryReportStageTimingSlowRequestThresholdMillis(1);
+        recorder = new GraphiteMetricsRecorder(new GraphiteConfig());
+    }
+
+    @Test
+    public void shouldTimeEachStageLappedOnTheRequestThread() throws Exception {
+        IngestPipelineTracer tracer = new IngestPipelineTracer(serverConfiguration, recorder);
+
+        IngestTrace trace = tracer.start(false);
+        IngestTrace.lap(IngestStage.PARSE);
+        trace.addReport("report-1", 3, 1024);
+        Thread.sleep(2);
+        IngestTrace.lap(IngestStage.VALIDATE);
+        Thread otherThread = new Thread(() -> IngestTrace.lap(IngestStage.COMMIT));
+        otherThread.start();
+        otherThread.join();
+        IngestTrace.lap(IngestStage.PERSIST);
+        tracer.finish(trace);
+        IngestTrace.lap(IngestStage.CONVERT);
+
+        softAssertions.assertThat(recorder.getRegistry().getTimers().keySet()).containsExactlyInAnyOrder(
+                "post-delivery-report.ingest-parse",
+                "post-delivery-report.ingest-validate",
+                "post-delivery-report.ingest-persist");
+        softAssertions.assertThat(recorder.getRegistry().getTimers().get("post-delivery-report.ingest-validate")
+                .getSnapshot().getMax()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(1));
+        softAssertions.assertThat(recorder.getRegistry().getHistograms()
+                .get("delivery-report.ingest.line-items").getSnapshot().getMax()).isEqualTo(3);
+        softAssertions.assertThat(recorder.getRegistry().getHistograms()
+                .get("delivery-report.ingest.size-bytes").getSnapshot().getMax()).isEqualTo(1024);
+        softAssertions.assertThat(trace.getStageNanos(IngestStage.CONVERT)).isZero();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldAddUpLapsOfTheSameStageAndDescribeThem() {
+        IngestTrace trace = new IngestTrace(recorder, true, 0);
+
+        trace.addReport("report-1", 2, 100);
+        trace.addReport("report-2", 3, 200);
+        trace.lapAt(IngestStage.PARSE, TimeUnit.MILLISECONDS.toNanos(2));
+        trace.lapAt(IngestStage.VALIDATE, TimeUnit.MILLISECONDS.toNanos(3));
+        trace.lapAt(IngestStage.PARSE, TimeUnit.MILLISECONDS.toNanos(7));
+
+        softAssertions.assertThat(trace.getStageNanos(IngestStage.PARSE)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(6));
+        softAssertions.assertThat(trace.describe(TimeUnit.MILLISECONDS.toNanos(10))).isEqualTo(
+                "Delivery Report batch starting with report-1 (2 report(s), 5 line item status entries, 300 bytes)"
+                        + " took 10.000 ms: parse=6.000 validate=1.000 other=3.000");
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRecordNothingWhenDisabled() {
+        serverConfiguration.setDeliveryReportStageTimingEnabled(false);
+        IngestPipelineTracer tracer = new IngestPipelineTracer(serverConfiguration, recorder);
+
+        IngestTrace trace = tracer.start(true);
+        IngestTrace.lap(IngestStage.PARSE);
+        trace.addReport("report-1", 3, 1024);
+        tracer.finish(trace);
+
+        softAssertions.assertThat(trace).isSameAs(IngestTrace.DISABLED);
+        softAssertions.assertThat(recorder.getRegistry().getMetrics()).isEmpty();
+        softAssertions.assertAll();
+    }
+}
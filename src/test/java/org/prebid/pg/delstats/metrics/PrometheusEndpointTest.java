@@ -0,0 +1,62 @@
+package org.prebid.pg.delstats.metrics;
+
+import com.codahale.metrics.Timer;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.GraphiteConfig;
+
+import java.util.concurrent.TimeUnit;
+
+public class PrometheusEndpointTest {
+
+    @Test
+    public void shouldExposeMetricsInPrometheusTextFormat() {
+        SoftAssertions softAssertions = new SoftAssertions();
+        GraphiteConfig graphiteConfig = new GraphiteConfig("localhost", 3000, "pg.del-stats", false, 60);
+        GraphiteMetricsRecorder recorder = new GraphiteMetricsRecorder(graphiteConfig);
+        PrometheusEndpoint endpoint = new PrometheusEndpoint(recorder, graphiteConfig);
+
+        recorder.markPostRequestForDeliveryReport();
+        recorder.markPostRequestForDeliveryReport();
+        recorder.registerAsyncIngestQueueDepthGauge(() -> 7);
+        recorder.updateAsyncIngestEnqueueToCommitTimer(TimeUnit.MILLISECONDS.toNanos(20));
+        recorder.updateAsyncIngestEnqueueToCommitTimer(TimeUnit.MILLISECONDS.toNanos(40));
+        recorder.updatePbsReportLagHistogram("pbs", "us-east-1", 1500);
+        // Graphite reading, and resetting, the counter
+        recorder.getRegistry().getCounters().get("delivery-report.post-delivery-report.request").getCount();
+
+        String scrape = endpoint.scrape();
+
+        softAssertions.assertThat(scrape).contains(
+                "# TYPE pg_del_stats_delivery_report_post_delivery_report_request_total counter\n"
+                        + "pg_del_stats_delivery_report_post_delivery_report_request_total 2\n",
+                "# TYPE pg_del_stats_delivery_report_async_ingest_queue_depth gauge\n"
+                        + "pg_del_stats_delivery_report_async_ingest_queue_depth 7.0\n",
+                "# TYPE pg_del_stats_post_delivery_report_enqueue_to_commit_seconds summary\n",
+                "pg_del_stats_post_delivery_report_enqueue_to_commit_seconds_sum 0.06\n",
+                "pg_del_stats_post_delivery_report_enqueue_to_commit_seconds_count 2\n",
+                "pg_del_stats_pbs_pbs_us_east_1_report_lag_ms_count 1\n");
+        softAssertions.assertThat(scrape)
+                .containsPattern("pg_del_stats_post_delivery_report_enqueue_to_commit_seconds\\{quantile=\"0.99\"} 0.040");
+        softAssertions.assertThat(scrape)
+                .containsPattern("pg_del_stats_pbs_pbs_us_east_1_report_lag_ms\\{quantile=\"0.5\"} 15[0-9][0-9]\\.0");
+        softAssertions.assertThat(PrometheusTextFormat.toMetricName(null, "5xx.count")).isEqualTo("_5xx_count");
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldGiveGraphiteAndPrometheusTheSameTimerInterval() {
+        GraphiteConfig graphiteConfig = new GraphiteConfig("localhost", 3000, "", false, 60);
+        GraphiteMetricsRecorder recorder = new GraphiteMetricsRecorder(graphiteConfig);
+
+        recorder.postDeliveryReportPerformanceTimer().ifPresent(Timer.Context::stop);
+        Timer timer = recorder.getRegistry().getTimers().get("post-delivery-report.processing-time");
+
+        SoftAssertions softAssertions = new SoftAssertions();
+        softAssertions.assertThat(timer.getSnapshot().size()).isEqualTo(1);
+        softAssertions.assertThat(new PrometheusEndpoint(recorder, graphiteConfig).scrape())
+                .contains("post_delivery_report_processing_time_seconds_count 1\n");
+        softAssertions.assertThat(timer.getSnapshot().size()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
+}
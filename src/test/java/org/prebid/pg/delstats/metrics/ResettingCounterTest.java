@@ -20,4 +20,21 @@ public class ResettingCounterTest {
 
         softAssertions.assertAll();
     }
+
+    @Test
+    public void shouldKeepTotalAcrossResets() {
+        SoftAssertions softAssertions = new SoftAssertions();
+        ResettingCounter counter = new ResettingCounter();
+
+        counter.inc();
+        counter.inc(3);
+        softAssertions.assertThat(counter.getCount()).isEqualTo(4);
+        counter.inc(2);
+        counter.dec();
+        softAssertions.assertThat(counter.getTotal()).isEqualTo(5);
+        softAssertions.assertThat(counter.getCount()).isEqualTo(1);
+        softAssertions.assertThat(counter.getTotal()).isEqualTo(5);
+
+        softAssertions.assertAll();
+    }
 }
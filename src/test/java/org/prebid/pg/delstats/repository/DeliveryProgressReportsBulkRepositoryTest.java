@@ -0,0 +1,139 @@
+package org.prebid.pg.delstats.repository;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+public class DeliveryProgressReportsBulkRepositoryTest {
+    private SoftAssertions softAssertions;
+
+    @Autowired
+    private DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository;
+
+    @Autowired
+    private DeliveryReportSummaryRepository deliveryReportSummaryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Timestamp now;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        now = Timestamp.from(Instant.now());
+    }
+
+    @Test
+    public void shouldBuildMultiRowInsert() {
+        String sql = DeliveryProgressReportsBulkRepository.bulkInsertSql(3);
+        softAssertions.assertThat(sql)
+                .startsWith(DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_BULK_INSERT_SQL_PREFIX)
+                .endsWith(DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_BULK_INSERT_SQL_SUFFIX);
+        softAssertions.assertThat(sql.split("\\?", -1)).hasSize(3 * 28 + 1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldInsertAllRowsAndLeaveDuplicatesAsIs() {
+        String reportId = UUID.randomUUID().toString();
+        List<DeliveryReport> deliveryReports = Arrays.asList(
+                makeDeliveryReport(reportId, "bidderPG-1", "{\"v\": 1}"),
+                makeDeliveryReport(reportId, "bidderPG-2", "{\"v\": 2}"));
+
+        deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(deliveryReports);
+        softAssertions.assertThatCode(() -> deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(
+                Arrays.asList(makeDeliveryReport(reportId, "bidderPG-1", "{\"v\": 3}"))))
+                .doesNotThrowAnyException();
+
+        softAssertions.assertThat(countRows(reportId)).isEqualTo(2);
+        softAssertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT line_item_status FROM delivery_progress_reports WHERE report_id = ? AND line_item_id = ?",
+                String.class, reportId, "bidderPG-1")).contains("1");
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldInsertInChunks() {
+        ServerConfiguration configuration = mock(ServerConfiguration.class);
+        when(configuration.getDeliveryReportBulkInsertChunkSize()).thenReturn(2);
+        DeliveryProgressReportsBulkRepository chunkingRepository =
+                new DeliveryProgressReportsBulkRepository(jdbcTemplate, configuration);
+        String reportId = UUID.randomUUID().toString();
+        List<DeliveryReport> deliveryReports = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            deliveryReports.add(makeDeliveryReport(reportId, "bidderPG-" + i, "{}"));
+        }
+
+        softAssertions.assertThat(chunkingRepository.insertIgnoringDuplicates(deliveryReports)).isEqualTo(5);
+        softAssertions.assertThat(countRows(reportId)).isEqualTo(5);
+        softAssertions.assertThat(chunkingRepository.insertIgnoringDuplicates(new ArrayList<>())).isZero();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldStoreCountersInTypedColumns() {
+        String reportId = UUID.randomUUID().toString();
+        DeliveryReport deliveryReport = makeDeliveryReport(reportId, "bidderPG-1", "{}");
+        LineItemStatusCounters counters = new LineItemStatusCounters();
+        counters.setTargetMatched(5);
+        counters.setWinEvents(2);
+        counters.setFirstPlanId("plan1");
+        deliveryReport.setCounters(counters);
+
+        deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(
+                Arrays.asList(deliveryReport, makeDeliveryReport(reportId, "bidderPG-2", "{}")));
+
+        softAssertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT SUM(target_matched) + SUM(win_events) FROM delivery_progress_reports WHERE report_id = ?",
+                Integer.class, reportId)).isEqualTo(7);
+        softAssertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT first_plan_id FROM delivery_progress_reports WHERE report_id = ? AND line_item_id = ?",
+                String.class, reportId, "bidderPG-1")).isEqualTo("plan1");
+        softAssertions.assertThat(deliveryReportSummaryRepository.countLinesByReportWindow(
+                now, Timestamp.from(now.toInstant().plusSeconds(1)))).isEqualTo(2);
+        softAssertions.assertAll();
+    }
+
+    private int countRows(String reportId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM delivery_progress_reports WHERE report_id = ?",
+                Integer.class, reportId);
+    }
+
+    private DeliveryReport makeDeliveryReport(String reportId, String lineItemId, String lineItemStatus) {
+        return DeliveryReport.builder()
+                .reportId(reportId)
+                .lineItemId(lineItemId)
+                .extLineItemId(lineItemId.substring(lineItemId.indexOf('-') + 1))
+                .bidderCode("bidderPG")
+                .vendor("vendor")
+                .region("region")
+                .instanceId("instance")
+                .dataWindowStartTimestamp(now)
+                .dataWindowEndTimestamp(now)
+                .reportTimestamp(now)
+                .lineItemStatus(lineItemStatus)
+                .build();
+    }
+}
@@ -16,10 +16,13 @@ import javax.persistence.EntityManager;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @SpringBootTest
 public class DeliveryProgressReportsRepositoryTest {
@@ -119,6 +122,58 @@ public class DeliveryProgressReportsRepositoryTest {
         softAssertions.assertAll();
     }
 
+    @Test
+    @Transactional
+    public void shouldReadBidderLinesInKeyOrderThroughKeysetCursor() {
+        List<DeliveryReport> expected = new ArrayList<>(Arrays.asList(
+                makeDeliveryReport("bidder", "1", "{}", then15minsAgo),
+                makeDeliveryReport("bidder", "2", "{}", then15minsAgo),
+                makeDeliveryReport("bidder", "3", "{}", then15minsAgo)));
+        expected.sort(Comparator.comparing(DeliveryReport::getReportId));
+        expected.add(0, makeDeliveryReport("bidder", "4", "{}", then30minsAgo));
+        expected.forEach(entityManager::persist);
+        entityManager.persist(makeDeliveryReport("other", "5", "{}", then15minsAgo));
+        entityManager.persist(makeDeliveryReport("bidder", "6", "{}", now));
+
+        List<DeliveryReport> deliveryReports = new ArrayList<>();
+        new KeysetCursor<DeliveryReport, ReportLineKey>(ReportLineKey.startingAt(then30minsAgo), 2,
+                ReportLineKey::ofReportTimestamp,
+                (after, limit) -> deliveryProgressReportsRepository.findByBidderCodeAndReportTimestampRangeAfter(
+                        "bidder", then30minsAgo, now,
+                        after.getTimestamp(), after.getReportId(), after.getLineItemId(), limit))
+                .forEachRemaining(deliveryReports::add);
+
+        softAssertions.assertThat(deliveryReports).extracting(DeliveryReport::getLineItemId)
+                .containsExactlyElementsOf(
+                        expected.stream().map(DeliveryReport::getLineItemId).collect(Collectors.toList()));
+        softAssertions.assertAll();
+    }
+
+    @Transactional
+    @Test
+    void shouldReadLineItemReportsInKeyOrderThroughKeysetCursor() {
+        entityManager.persist(makeDeliveryReportForLineItemSummaries("bidder", "1", "{}", then15minsAgo, then, then));
+        entityManager.persist(makeDeliveryReportForLineItemSummaries("bidder", "2", "{}", then29minsAgo, then, then));
+        entityManager.persist(makeDeliveryReportForLineItemSummaries("bidder", "3", "{}", then14minsAgo, then, then));
+        entityManager.persist(makeDeliveryReportForLineItemSummaries("bidder", "4", "{}", now, then, then));
+
+        List<DeliveryReport> deliveryReports = new ArrayList<>();
+        new KeysetCursor<DeliveryReport, ReportLineKey>(ReportLineKey.startingAt(then30minsAgo), 1,
+                ReportLineKey::ofDataWindowEnd,
+                (after, limit) -> deliveryProgressReportsRepository.getLineItemReportsWithTimeRangeAfter(
+                        then30minsAgo.toInstant(), now.toInstant(),
+                        after.getTimestamp(), after.getReportId(), after.getLineItemId(), limit))
+                .forEachRemaining(deliveryReports::add);
+        softAssertions.assertThat(deliveryReports).extracting(DeliveryReport::getLineItemId)
+                .containsExactly("2", "1", "3");
+
+        List<String> lineItemIds = Arrays.asList("1", "2", "4");
+        softAssertions.assertThat(deliveryProgressReportsRepository.getLineItemReportsByLineIdsWithTimeRangeAfter(
+                lineItemIds, then30minsAgo.toInstant(), now.toInstant(), then29minsAgo, "", "", PageRequest.of(0, 10)))
+                .extracting(DeliveryReport::getLineItemId).containsExactly("2", "1");
+        softAssertions.assertAll();
+    }
+
     @Transactional
     @Test
     void shouldGetLineItemReportsWithTimeRange() {
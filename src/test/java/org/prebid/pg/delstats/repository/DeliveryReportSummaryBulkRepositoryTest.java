@@ -0,0 +1,84 @@
+package org.prebid.pg.delstats.repository;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+public class DeliveryReportSummaryBulkRepositoryTest {
+    private SoftAssertions softAssertions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Instant windowStart;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        windowStart = Instant.parse("2031-01-01T00:00:00.000Z");
+    }
+
+    @Test
+    public void shouldBuildMultiRowInsert() {
+        String sql = DeliveryReportSummaryBulkRepository.bulkInsertSql(3);
+        softAssertions.assertThat(sql).startsWith(DeliveryReportSummaryConstants.LINE_SUMMARY_BULK_INSERT_SQL_PREFIX);
+        softAssertions.assertThat(sql.split("\\?", -1)).hasSize(3 * 23 + 1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldInsertSummariesInChunks() {
+        ServerConfiguration configuration = mock(ServerConfiguration.class);
+        when(configuration.getDeliveryReportBulkInsertChunkSize()).thenReturn(2);
+        DeliveryReportSummaryBulkRepository chunkingRepository =
+                new DeliveryReportSummaryBulkRepository(jdbcTemplate, configuration);
+        List<DeliveryReportSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            summaries.add(makeSummary("bidderPG-" + i, i));
+        }
+
+        softAssertions.assertThat(chunkingRepository.insert(summaries)).isEqualTo(5);
+        softAssertions.assertThat(chunkingRepository.insert(new ArrayList<>())).isZero();
+        softAssertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT SUM(win_events) FROM delivery_progress_reports_summary"
+                        + " WHERE report_window_start_timestamp >= ?",
+                Integer.class, Timestamp.from(windowStart))).isEqualTo(0 + 1 + 2 + 3 + 4);
+        softAssertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT plan_data FROM delivery_progress_reports_summary"
+                        + " WHERE report_window_start_timestamp >= ? AND line_item_id = ?",
+                String.class, Timestamp.from(windowStart), "bidderPG-3")).isEqualTo("plan1,3,,3");
+        softAssertions.assertAll();
+    }
+
+    private DeliveryReportSummary makeSummary(String lineItemId, int winEvents) {
+        return DeliveryReportSummary.builder()
+                .reportWindowStartTimestamp(windowStart)
+                .reportWindowEndTimestamp(windowStart.plus(4, ChronoUnit.MINUTES))
+                .dataWindowStartTimestamp(windowStart)
+                .dataWindowEndTimestamp(windowStart.plus(4, ChronoUnit.MINUTES))
+                .lineItemId(lineItemId)
+                .extLineItemId(lineItemId.substring(lineItemId.indexOf('-') + 1))
+                .bidderCode("bidderPG")
+                .lineItemSource("bidderPG")
+                .winEvents(winEvents)
+                .planData(String.format("plan1,%d,,%d", winEvents, winEvents))
+                .build();
+    }
+}
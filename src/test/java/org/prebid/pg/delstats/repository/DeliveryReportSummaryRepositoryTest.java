@@ -0,0 +1,132 @@
+package org.prebid.pg.delstats.repository;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.groups.Tuple.tuple;
+
+@SpringBootTest
+public class DeliveryReportSummaryRepositoryTest {
+    private SoftAssertions softAssertions;
+
+    @Autowired
+    private DeliveryReportSummaryRepository deliveryReportSummaryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Instant hour;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        // Far enough back to not pick up rows other tests leave behind
+        hour = Instant.now().minus(900, ChronoUnit.DAYS).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    @Test
+    @Transactional
+    public void shouldReadHourlyLineSummariesInKeyOrder() {
+        Instant nextHour = hour.plus(1, ChronoUnit.HOURS);
+        insertSummary("l2", hour.plusSeconds(300), 1);
+        insertSummary("l1", hour.plusSeconds(600), 2);
+        insertSummary("l1", hour.plusSeconds(60), 3);
+        insertSummary("l3", hour.plusSeconds(60), 4);
+        insertSummary("l2", nextHour.plusSeconds(60), 5);
+        insertSummary("l1", nextHour.plusSeconds(60), 6);
+
+        List<DeliveryReportSummary> summaries = readAll(Arrays.asList(), hour, nextHour.plus(1, ChronoUnit.HOURS));
+
+        softAssertions.assertThat(summaries)
+                .extracting(DeliveryReportSummary::getReportWindowStartTimestamp, DeliveryReportSummary::getLineItemId,
+                        DeliveryReportSummary::getWinEvents)
+                .containsExactly(
+                        tuple(hour.plusSeconds(60), "l1", 5),
+                        tuple(hour.plusSeconds(300), "l2", 1),
+                        tuple(hour.plusSeconds(60), "l3", 4),
+                        tuple(nextHour.plusSeconds(60), "l1", 6),
+                        tuple(nextHour.plusSeconds(60), "l2", 5));
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldReadHourlySummariesOfGivenLinesOnly() {
+        Instant nextHour = hour.plus(1, ChronoUnit.HOURS);
+        insertSummary("l1", hour.plusSeconds(60), 1);
+        insertSummary("l2", hour.plusSeconds(60), 2);
+        insertSummary("l3", hour.plusSeconds(60), 3);
+        insertSummary("l3", nextHour.plusSeconds(60), 4);
+
+        List<DeliveryReportSummary> summaries = readAll(Arrays.asList("l1", "l3"), hour, nextHour);
+
+        softAssertions.assertThat(summaries).extracting(DeliveryReportSummary::getLineItemId)
+                .containsExactly("l1", "l3");
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldSummarizeTheLinesOfALineItemRangeOnly() {
+        Timestamp startTime = Timestamp.from(hour);
+        Timestamp endTime = Timestamp.from(hour.plusSeconds(300));
+        insertReport("r1", "l1", hour.plusSeconds(60));
+        insertReport("r1", "l2", hour.plusSeconds(60));
+        insertReport("r2", "l2", hour.plusSeconds(120));
+        insertReport("r1", "l3", hour.plusSeconds(60));
+        insertReport("r3", "l4", hour.plusSeconds(300));
+
+        List<String> lineItemIds = deliveryReportSummaryRepository.findLineItemIdsByReportWindow(startTime, endTime);
+        int summariesSaved = deliveryReportSummaryRepository.insertLineSummariesDirectlyForLineItems(
+                startTime, endTime, "l2", "l3");
+
+        softAssertions.assertThat(lineItemIds).containsExactly("l1", "l2", "l3");
+        softAssertions.assertThat(summariesSaved).isEqualTo(2);
+        softAssertions.assertThat(deliveryReportSummaryRepository.countByReportWindow(startTime, endTime))
+                .isEqualTo(2);
+        softAssertions.assertAll();
+    }
+
+    private List<DeliveryReportSummary> readAll(List<String> lineItemIds, Instant startTime, Instant endTime) {
+        List<DeliveryReportSummary> summaries = new ArrayList<>();
+        new KeysetCursor<DeliveryReportSummary, HourLineKey>(HourLineKey.startingAt(startTime), 2, HourLineKey::of,
+                (after, limit) -> lineItemIds.isEmpty()
+                        ? deliveryReportSummaryRepository.findByReportWindowHourAfter(startTime, endTime,
+                                after.getHour(), after.getHourEnd(), after.getLineItemId(), limit)
+                        : deliveryReportSummaryRepository.findByLineIdAndReportWindowHourAfter(lineItemIds,
+                                startTime, endTime, after.getHour(), after.getHourEnd(), after.getLineItemId(), limit))
+                .forEachRemaining(summaries::add);
+        return summaries;
+    }
+
+    private void insertSummary(String lineItemId, Instant reportWindowStart, int winEvents) {
+        Timestamp start = Timestamp.from(reportWindowStart);
+        Timestamp end = Timestamp.from(reportWindowStart.plusSeconds(60));
+        jdbcTemplate.update("INSERT INTO delivery_progress_reports_summary (report_window_start_timestamp,"
+                + " report_window_end_timestamp, data_window_start_timestamp, data_window_end_timestamp,"
+                + " line_item_id, ext_line_item_id, bidder_code, line_item_source, plan_data, win_events)"
+                + " VALUES (?, ?, ?, ?, ?, ?, 'bidder', 'bidder', '', ?)",
+                start, end, start, end, lineItemId, lineItemId, winEvents);
+    }
+
+    private void insertReport(String reportId, String lineItemId, Instant reportTimestamp) {
+        Timestamp timestamp = Timestamp.from(reportTimestamp);
+        jdbcTemplate.update("INSERT INTO delivery_progress_reports (vendor, region, instance_id, bidder_code,"
+                + " line_item_id, ext_line_item_id, report_id, report_timestamp, line_item_status, win_events)"
+                + " VALUES ('vendor', 'region', 'instance', 'bidder', ?, ?, ?, ?, '{}', 1)",
+                lineItemId, lineItemId, reportId, timestamp);
+    }
+}
@@ -0,0 +1,68 @@
+package org.prebid.pg.delstats.repository;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class KeysetCursorTest {
+    private SoftAssertions softAssertions;
+
+    private List<Integer> keysRead;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        keysRead = new ArrayList<>();
+    }
+
+    @Test
+    public void shouldReadPagesAfterLastKeyUntilShortPage() {
+        KeysetCursor<Integer, Integer> cursor = new KeysetCursor<>(0, 2, row -> row, this::readRows);
+
+        softAssertions.assertThat(cursor.stream().collect(Collectors.toList())).containsExactly(1, 2, 3, 4, 5);
+        softAssertions.assertThat(keysRead).containsExactly(0, 2, 4);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldReadEmptyPageAfterFullLastPage() {
+        KeysetCursor<Integer, Integer> cursor = new KeysetCursor<>(1, 2, row -> row, this::readRows);
+
+        softAssertions.assertThat(cursor.stream().collect(Collectors.toList())).containsExactly(2, 3, 4, 5);
+        softAssertions.assertThat(keysRead).containsExactly(1, 3, 5);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldNotReadBeforeRowsAreConsumed() {
+        KeysetCursor<Integer, Integer> cursor = new KeysetCursor<>(0, 2, row -> row, this::readRows);
+
+        softAssertions.assertThat(keysRead).isEmpty();
+        softAssertions.assertThat(cursor.next()).isEqualTo(1);
+        softAssertions.assertThat(keysRead).containsExactly(0);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldThrowWhenExhausted() {
+        KeysetCursor<Integer, Integer> cursor =
+                new KeysetCursor<>(0, 2, row -> row, (after, limit) -> Collections.emptyList());
+
+        softAssertions.assertThat(cursor.hasNext()).isFalse();
+        softAssertions.assertThatThrownBy(cursor::next).isInstanceOf(NoSuchElementException.class);
+        softAssertions.assertAll();
+    }
+
+    private List<Integer> readRows(Integer after, Pageable limit) {
+        keysRead.add(after);
+        return IntStream.rangeClosed(after + 1, 5).limit(limit.getPageSize()).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,131 @@
+package org.prebid.pg.delstats.repository;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+@SpringBootTest
+public class RetentionPurgeRepositoryTest {
+    private SoftAssertions softAssertions;
+
+    @Autowired
+    private RetentionPurgeRepository retentionPurgeRepository;
+
+    @Autowired
+    private DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Timestamp now;
+
+    private Timestamp expired;
+
+    private Timestamp old;
+
+    private Timestamp older;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        now = Timestamp.from(Instant.now());
+        // Far enough back to not pick up rows other tests leave behind
+        expired = Timestamp.from(now.toInstant().minus(999, ChronoUnit.DAYS));
+        old = Timestamp.from(now.toInstant().minus(1000, ChronoUnit.DAYS));
+        older = Timestamp.from(now.toInstant().minus(1001, ChronoUnit.DAYS));
+    }
+
+    @Test
+    public void shouldBuildDeleteByKeys() {
+        softAssertions.assertThat(RetentionPurgeRepository.deleteByKeysSql("t", "ts", "k = ?", 3))
+                .isEqualTo("DELETE FROM t WHERE ts < ? AND (k = ? OR k = ? OR k = ?)");
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldDeleteExpiredDeliveryReportsInChunks() {
+        String reportId = UUID.randomUUID().toString();
+        deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(Arrays.asList(
+                makeDeliveryReport(reportId, "bidderPG-1", old),
+                makeDeliveryReport(reportId, "bidderPG-2", old),
+                makeDeliveryReport(UUID.randomUUID().toString(), "bidderPG-3", older),
+                makeDeliveryReport(UUID.randomUUID().toString(), "bidderPG-1", now)));
+
+        List<ReportLineKey> chunk = retentionPurgeRepository.findExpiredDeliveryReportKeys(expired, 2);
+        softAssertions.assertThat(chunk).extracting(ReportLineKey::getLineItemId)
+                .containsExactly("bidderPG-3", "bidderPG-1");
+        softAssertions.assertThat(retentionPurgeRepository.deleteDeliveryReports(chunk, expired)).isEqualTo(2);
+        softAssertions.assertThat(retentionPurgeRepository.findExpiredDeliveryReportKeys(expired, 2))
+                .containsExactly(new ReportLineKey(old, reportId, "bidderPG-2"));
+        softAssertions.assertThat(retentionPurgeRepository.findOldestTimestamp(
+                DeliveryProgressReportsConstants.DELIVERY_PROGRESS_REPORT_TABLE_NAME, "report_timestamp"))
+                .contains(old.toInstant());
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldDeleteExpiredTokenSpendSummariesOnly() {
+        jdbcTemplate.update("INSERT INTO latest_token_spend_summary (instance_id, vendor, region, bidder_code,"
+                + " line_item_id, ext_line_item_id, report_timestamp, service_instance_id, summary_data)"
+                + " VALUES ('i1', 'v', 'r', 'b', 'l1', 'e1', ?, 's', '{}'),"
+                + " ('i1', 'v', 'r', 'b', 'l2', 'e2', ?, 's', '{}')", old, now);
+
+        List<LatestTokenSpendSummaryKey> chunk =
+                retentionPurgeRepository.findExpiredLatestTokenSpendSummaryKeys(expired, 10);
+        softAssertions.assertThat(chunk).containsExactly(new LatestTokenSpendSummaryKey("i1", "v", "r", "b", "l1"));
+        softAssertions.assertThat(retentionPurgeRepository.deleteLatestTokenSpendSummaries(chunk, expired))
+                .isEqualTo(1);
+        softAssertions.assertThat(retentionPurgeRepository.findExpiredLatestTokenSpendSummaryKeys(expired, 10))
+                .isEmpty();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    @Transactional
+    public void shouldDeleteStaleLineStatesOnly() {
+        String lineTag = "svc-bidderPG-1-" + SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_SUFFIX;
+        String recreateTag = "svc-bidderPG-1-" + SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_RECREATE_SUFFIX;
+        String freshTag = "svc-bidderPG-2-" + SystemStateConstants.SYSTEM_STATE_TAG_SUMMARY_REPORT_SUFFIX;
+        jdbcTemplate.update("INSERT INTO system_state (tag, val, updated_at) VALUES (?, 'x', ?), (?, 'x', ?),"
+                + " (?, 'x', ?), (?, 'x', ?)", lineTag, old, recreateTag, old, freshTag, now,
+                SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY, old);
+
+        List<String> tags = retentionPurgeRepository.findStaleLineStateTags(expired, 10);
+        softAssertions.assertThat(tags).containsExactly(recreateTag, lineTag);
+        softAssertions.assertThat(retentionPurgeRepository.deleteLineStates(tags, expired)).isEqualTo(2);
+        softAssertions.assertThat(jdbcTemplate.queryForList("SELECT tag FROM system_state", String.class))
+                .contains(freshTag, SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY)
+                .doesNotContain(lineTag, recreateTag);
+        softAssertions.assertAll();
+    }
+
+    private DeliveryReport makeDeliveryReport(String reportId, String lineItemId, Timestamp reportTimestamp) {
+        return DeliveryReport.builder()
+                .reportId(reportId)
+                .lineItemId(lineItemId)
+                .extLineItemId(lineItemId.substring(lineItemId.indexOf('-') + 1))
+                .bidderCode("bidderPG")
+                .vendor("vendor")
+                .region("region")
+                .instanceId("instance")
+                .dataWindowStartTimestamp(reportTimestamp)
+                .dataWindowEndTimestamp(reportTimestamp)
+                .reportTimestamp(reportTimestamp)
+                .lineItemStatus("{}")
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.services.DeliveryReportIdempotencyFilter.Reservation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+public class DeliveryReportIdempotencyFilterTest {
+
+    private SoftAssertions softAssertions;
+
+    private ServerConfiguration configuration;
+
+    private DeliveryReportIdempotencyFilter filter;
+
+    private Instant now;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        configuration = new ServerConfiguration();
+        configuration.setDeliveryReportIdempotencyEnabled(true);
+        configuration.setDeliveryReportIdempotencyTtlSeconds(60);
+        configuration.setDeliveryReportIdempotencyMaxReportIds(100);
+        filter = new DeliveryReportIdempotencyFilter(configuration);
+        now = Instant.now();
+        filter.setClock(Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void shouldRememberStoredReportIdsForAtLeastTheTtl() {
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.RESERVED);
+        filter.markStored("r1");
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.STORED);
+
+        advanceSeconds(60);
+        store("r2");
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.STORED);
+
+        advanceSeconds(60);
+        softAssertions.assertThat(filter.reserve("r2")).isEqualTo(Reservation.STORED);
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.RESERVED);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldAskForRetryWhileReportIdIsInFlight() {
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.RESERVED);
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.IN_FLIGHT);
+        filter.markStored("r1");
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.STORED);
+        softAssertions.assertThat(filter.size()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldLetAReleasedReportIdBeReservedAgain() {
+        filter.reserve("r1");
+        filter.release("r1");
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.RESERVED);
+
+        // Queued, then dropped by the writer
+        filter.markStored("r1");
+        advanceSeconds(60);
+        store("r2");
+        filter.release("r1");
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.RESERVED);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldForgetOldestReportIdsWhenBoundIsReached() {
+        configuration.setDeliveryReportIdempotencyMaxReportIds(4);
+        for (int i = 0; i < 5; i++) {
+            store("r" + i);
+        }
+        softAssertions.assertThat(filter.size()).isLessThanOrEqualTo(4);
+        softAssertions.assertThat(filter.reserve("r0")).isEqualTo(Reservation.RESERVED);
+        softAssertions.assertThat(filter.reserve("r4")).isEqualTo(Reservation.STORED);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldLetEverythingThroughWhenDisabled() {
+        store("r1");
+        softAssertions.assertThat(filter.reserve("")).isEqualTo(Reservation.RESERVED);
+        softAssertions.assertThat(filter.reserve("")).isEqualTo(Reservation.RESERVED);
+        softAssertions.assertThat(filter.reserve(null)).isEqualTo(Reservation.RESERVED);
+        configuration.setDeliveryReportIdempotencyEnabled(false);
+        softAssertions.assertThat(filter.reserve("r1")).isEqualTo(Reservation.RESERVED);
+        store("r2");
+        configuration.setDeliveryReportIdempotencyEnabled(true);
+        softAssertions.assertThat(filter.reserve("r2")).isEqualTo(Reservation.RESERVED);
+        softAssertions.assertAll();
+    }
+
+    private void store(String reportId) {
+        filter.reserve(reportId);
+        filter.markStored(reportId);
+    }
+
+    private void advanceSeconds(long seconds) {
+        now = now.plusSeconds(seconds);
+        filter.setClock(Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,135 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ApplicationConfiguration.BinaryMapperFactory;
+import org.prebid.pg.delstats.model.dto.DeliveryReportLineDto;
+import org.prebid.pg.delstats.model.dto.DeliveryReportToPlannerAdapterDto;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReportToPlannerAdapter;
+import org.prebid.pg.delstats.utils.MockSystemService;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+public class DeliveryReportJsonWriterTest {
+    private SoftAssertions softAssertions;
+
+    private ObjectMapper objectMapper;
+
+    private DeliveryReportJsonWriter deliveryReportJsonWriter;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        MockSystemService systemService = new MockSystemService();
+        objectMapper = systemService.getObjectMapper();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        objectMapper.setDateFormat(dateFormat);
+        deliveryReportJsonWriter = new DeliveryReportJsonWriter(systemService);
+    }
+
+    @Test
+    public void shouldWriteSameJsonAsSerializedDto() throws Exception {
+        Timestamp now = Timestamp.from(Instant.parse("2020-06-10T12:00:00.123Z"));
+        List<DeliveryReportLineDto> lines = Arrays.asList(
+                makeLine("bidderPG-1", "{\"lineItemId\":\"bidderPG-1\",\"events\":[{\"type\":\"win\",\"count\":2}]}",
+                        now),
+                makeLine("bidderPG-2", "{\"lineItemId\":\"bidderPG-2\"}", now),
+                DeliveryReportLineDto.builder().build());
+        DeliveryReportToPlannerAdapterDto dto = DeliveryReportToPlannerAdapterDto.builder()
+                .reportId("report")
+                .reportTimeStamp(now)
+                .dataWindowStartTimeStamp(Timestamp.from(now.toInstant().minusSeconds(60)))
+                .dataWindowEndTimeStamp(now)
+                .deliveryReports(lines)
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = deliveryReportJsonWriter.write(streamed(dto), out);
+
+        softAssertions.assertThat(written).isEqualTo(3);
+        softAssertions.assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(dto));
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldWriteEmptyReport() throws Exception {
+        DeliveryReportToPlannerAdapterDto dto = DeliveryReportToPlannerAdapterDto.builder()
+                .reportId("report")
+                .reportTimeStamp(Timestamp.from(Instant.now()))
+                .deliveryReports(Collections.emptyList())
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = deliveryReportJsonWriter.write(streamed(dto), out);
+
+        softAssertions.assertThat(written).isZero();
+        softAssertions.assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(dto));
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldWriteSameStructureInBinaryFormats() throws Exception {
+        Timestamp now = Timestamp.from(Instant.parse("2020-06-10T12:00:00.123Z"));
+        DeliveryReportToPlannerAdapterDto dto = DeliveryReportToPlannerAdapterDto.builder()
+                .reportId("report")
+                .reportTimeStamp(now)
+                .deliveryReports(Arrays.asList(
+                        makeLine("bidderPG-1", "{\"lineItemId\":\"bidderPG-1\",\"events\":[{\"count\":2}]}", now),
+                        DeliveryReportLineDto.builder().build()))
+                .build();
+        Jackson2ObjectMapperBuilder objectMapperBuilder = new Jackson2ObjectMapperBuilder()
+                .dateFormat(objectMapper.getDateFormat());
+        BinaryMapperFactory binaryMapperFactory = new BinaryMapperFactory(objectMapperBuilder);
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsString(dto));
+
+        for (ObjectMapper binaryMapper : Arrays.asList(binaryMapperFactory.getSmileMapper(),
+                binaryMapperFactory.getCborMapper())) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int written = deliveryReportJsonWriter.write(streamed(dto), out, binaryMapper);
+
+            softAssertions.assertThat(written).isEqualTo(2);
+            softAssertions.assertThat(binaryMapper.readTree(out.toByteArray())).isEqualTo(expected);
+        }
+        softAssertions.assertAll();
+    }
+
+    private StreamedDeliveryReportToPlannerAdapter streamed(DeliveryReportToPlannerAdapterDto dto) {
+        return StreamedDeliveryReportToPlannerAdapter.builder()
+                .reportId(dto.getReportId())
+                .reportTimeStamp(dto.getReportTimeStamp())
+                .dataWindowStartTimeStamp(dto.getDataWindowStartTimeStamp())
+                .dataWindowEndTimeStamp(dto.getDataWindowEndTimeStamp())
+                .deliveryReports(dto.getDeliveryReports().iterator())
+                .build();
+    }
+
+    private DeliveryReportLineDto makeLine(String lineItemId, String lineItemStatus, Timestamp now) {
+        return DeliveryReportLineDto.builder()
+                .vendor("vendor")
+                .region("region")
+                .instanceId("instance")
+                .bidderCode("bidder")
+                .lineItemId(lineItemId)
+                .dataWindowStartTimestamp(Timestamp.from(now.toInstant().minusSeconds(60)))
+                .dataWindowEndTimestamp(now)
+                .reportId("report")
+                .lineItemStatus(lineItemStatus)
+                .reportTimestamp(now)
+                .build();
+    }
+}
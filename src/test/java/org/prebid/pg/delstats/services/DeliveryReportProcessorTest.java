@@ -8,7 +8,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.prebid.pg.delstats.config.ServerConfiguration;
 import org.prebid.pg.delstats.exception.DeliveryReportValidationException;
+import org.prebid.pg.delstats.exception.InvalidTimestampFormatException;
 import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.model.dto.RawLineItemStatus;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
 import org.prebid.pg.delstats.utils.MockSystemService;
 import org.prebid.pg.delstats.utils.ResourceUtil;
 
@@ -89,6 +92,88 @@ public class DeliveryReportProcessorTest {
         softAssertions.assertAll();
     }
 
+    @Test
+    public void shouldValidateAndConvertLineItemStatusInOnePass() throws Exception {
+        List<Exception> caughtExceptions = new LinkedList<>();
+        JsonNode lineItemStatus = objectMapper.readTree("{\"lineItemId\":\"bidderPG-1\",\"lineItemSource\":\"bidderPG\","
+                + "\"accountAuctions\":10,\"targetMatched\":4,\"events\":[{\"type\":\"win\",\"count\":2}],"
+                + "\"deliverySchedule\":[{\"planId\":\"p1\",\"planStartTimeStamp\":\"2019-02-01T07:00:00.000Z\","
+                + "\"tokens\":[{\"class\":1,\"spent\":8}]}]}");
+        DeliveryReportFromPbsDto deliveryReportFromPbsDto = makeDeliveryReportFromPbsDto("R", "V", "I",
+                Timestamp.from(Instant.now().minusSeconds(60)), Timestamp.from(Instant.now()));
+        Timestamp now = Timestamp.from(Instant.now());
+
+        List<DeliveryReport> deliveryReports = deliveryReportProcessor.processLineItemStatus(deliveryReportFromPbsDto,
+                lineItemStatus, now, caughtExceptions);
+        softAssertions.assertThat(caughtExceptions).isEmpty();
+        softAssertions.assertThat(deliveryReports).hasSize(1);
+        DeliveryReport deliveryReport = deliveryReports.get(0);
+        softAssertions.assertThat(deliveryReport.getLineItemId()).isEqualTo("bidderPG-1");
+        softAssertions.assertThat(deliveryReport.getExtLineItemId()).isEqualTo("1");
+        softAssertions.assertThat(deliveryReport.getBidderCode()).isEqualTo("bidderPG");
+        softAssertions.assertThat(deliveryReport.getReportTimestamp()).isEqualTo(now);
+        softAssertions.assertThat(deliveryReport.getCounters().getAccountAuctions()).isEqualTo(10);
+        softAssertions.assertThat(deliveryReport.getCounters().getTargetMatched()).isEqualTo(4);
+        softAssertions.assertThat(deliveryReport.getCounters().getDomainMatched()).isZero();
+        softAssertions.assertThat(deliveryReport.getCounters().getWinEvents()).isEqualTo(2);
+        softAssertions.assertThat(deliveryReport.getCounters().getFirstPlanId()).isEqualTo("p1");
+        softAssertions.assertThat(deliveryReport.getCounters().getFirstPlanTokensSpent()).isEqualTo(8);
+        softAssertions.assertThat(deliveryReport.getCounters().getSecondPlanId()).isNull();
+        softAssertions.assertThat(objectMapper.readTree(deliveryReport.getLineItemStatus())).isEqualTo(lineItemStatus);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRejectReportWithInvalidLineItemStatusTimestamp() throws Exception {
+        List<Exception> caughtExceptions = new LinkedList<>();
+        JsonNode lineItemStatus = objectMapper.readTree("{\"lineItemId\":\"bidderPG-1\",\"lineItemSource\":\"bidderPG\","
+                + "\"deliverySchedule\":[{\"planId\":\"p1\",\"planStartTimeStamp\":\"yesterday\"}]}");
+        DeliveryReportFromPbsDto deliveryReportFromPbsDto = makeDeliveryReportFromPbsDto("R", "V", "I",
+                Timestamp.from(Instant.now().minusSeconds(60)), Timestamp.from(Instant.now()));
+        Timestamp now = Timestamp.from(Instant.now());
+
+        softAssertions.assertThatCode(() -> deliveryReportProcessor.processLineItemStatus(deliveryReportFromPbsDto,
+                lineItemStatus, now, caughtExceptions)).isInstanceOf(InvalidTimestampFormatException.class);
+        softAssertions.assertThat(caughtExceptions).isEmpty();
+
+        when(configuration.isValidationEnabled()).thenReturn(false);
+        softAssertions.assertThat(deliveryReportProcessor.processLineItemStatus(deliveryReportFromPbsDto,
+                lineItemStatus, now, caughtExceptions)).hasSize(1);
+        softAssertions.assertThat(caughtExceptions).isEmpty();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldProcessRawLineItemStatus() throws Exception {
+        List<Exception> caughtExceptions = new LinkedList<>();
+        DeliveryReportFromPbsDto validDeliveryProgressReport =
+                objectMapper.readValue(ResourceUtil.readFromClasspath("DeliveryProgressReportValidExample.json"),
+                        DeliveryReportFromPbsDto.class);
+        String json = objectMapper.writeValueAsString(validDeliveryProgressReport.getLineItemStatus().get(0));
+        RawLineItemStatus rawLineItemStatus = RawLineItemStatus.builder()
+                .lineItemId("bidderPG-1").lineItemSource("bidderPG").json(json).build();
+        RawLineItemStatus noSourceLineItemStatus = RawLineItemStatus.builder()
+                .lineItemId("bidderPG-1").lineItemSource("").json("{}").build();
+        Timestamp now = Timestamp.from(Instant.now());
+
+        List<DeliveryReport> deliveryReports = deliveryReportProcessor.processRawLineItemStatus(
+                validDeliveryProgressReport, rawLineItemStatus, now, caughtExceptions);
+        softAssertions.assertThat(caughtExceptions).isEmpty();
+        softAssertions.assertThat(deliveryReports).hasSize(1);
+        DeliveryReport deliveryReport = deliveryReports.get(0);
+        softAssertions.assertThat(deliveryReport.getLineItemStatus()).isSameAs(json);
+        softAssertions.assertThat(deliveryReport.getLineItemId()).isEqualTo("bidderPG-1");
+        softAssertions.assertThat(deliveryReport.getExtLineItemId()).isEqualTo("1");
+        softAssertions.assertThat(deliveryReport.getBidderCode()).isEqualTo("bidderPG");
+        softAssertions.assertThat(deliveryReport.getReportId()).isEqualTo(validDeliveryProgressReport.getReportId());
+        softAssertions.assertThat(deliveryReport.getReportTimestamp()).isEqualTo(now);
+
+        softAssertions.assertThat(deliveryReportProcessor.processRawLineItemStatus(
+                validDeliveryProgressReport, noSourceLineItemStatus, now, caughtExceptions)).isEmpty();
+        softAssertions.assertThat(caughtExceptions).hasSize(1);
+        softAssertions.assertAll();
+    }
+
     @Test
     public void shouldParseValidDeliveryProgressReportToDto() throws Exception {
         when(configuration.getLineItemBidderCodeSeparator()).thenReturn("-");
@@ -105,10 +190,12 @@ public class DeliveryReportProcessorTest {
     @Test
     public void validateDeliveryReport() {
         when(configuration.getLineItemBidderCodeSeparator()).thenReturn("-");
+        when(configuration.getValidationMaxFutureSkewSec()).thenReturn(600L);
 
         Instant baseTime = Instant.now();
         Timestamp start = Timestamp.from(baseTime.minusSeconds(360));
         Timestamp end = Timestamp.from(baseTime.plusSeconds(360));
+        Timestamp farEnd = Timestamp.from(baseTime.plusSeconds(1200));
 
         softAssertions.assertThatCode(() -> deliveryReportProcessor
                 .validateDeliveryReport(makeDeliveryReportFromPbsDto("R", "V", "I", start, end)))
@@ -119,6 +206,10 @@ public class DeliveryReportProcessorTest {
         softAssertions.assertThatCode(() -> deliveryReportProcessor
                 .validateDeliveryReport(makeDeliveryReportFromPbsDto("", "V", "I", start, end)))
                 .doesNotThrowAnyException();
+        softAssertions.assertThatCode(() -> deliveryReportProcessor
+                .validateDeliveryReport(makeDeliveryReportFromPbsDto("R", "V", "I", start, farEnd)))
+                .isInstanceOf(DeliveryReportValidationException.class)
+                .hasMessage("DataWindowEndTimeStamp is in the future");
 
         softAssertions.assertAll();
     }
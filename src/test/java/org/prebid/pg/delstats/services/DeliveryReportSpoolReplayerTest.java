@@ -0,0 +1,127 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsBulkRepository;
+import org.prebid.pg.delstats.utils.MockSystemService;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeliveryReportSpoolReplayerTest {
+    private SoftAssertions softAssertions;
+
+    private DeliveryReportSpool deliveryReportSpool;
+
+    private DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository;
+
+    private Shutdown shutdown;
+
+    private DeliveryReportSpoolReplayer replayer;
+
+    private final Path segment1 = Paths.get("spool-1.seg");
+
+    private final Path segment2 = Paths.get("spool-2.seg");
+
+    @BeforeEach
+    public void setUpBeforeEach() throws Exception {
+        softAssertions = new SoftAssertions();
+        deliveryReportSpool = mock(DeliveryReportSpool.class);
+        deliveryProgressReportsBulkRepository = mock(DeliveryProgressReportsBulkRepository.class);
+        ServerConfiguration configuration = mock(ServerConfiguration.class);
+        shutdown = new Shutdown();
+        lenient().when(configuration.getDeliveryReportSpoolReplayBatchReports()).thenReturn(2);
+        lenient().when(deliveryReportSpool.isEnabled()).thenReturn(true);
+        lenient().when(deliveryReportSpool.segmentsToReplay()).thenReturn(Arrays.asList(segment1, segment2));
+        lenient().when(deliveryReportSpool.read(any(Path.class))).thenReturn(Arrays.asList(
+                DeliveryReportSpoolTest.makeLines("r1", 2),
+                DeliveryReportSpoolTest.makeLines("r2", 1),
+                DeliveryReportSpoolTest.makeLines("r3", 1)));
+        replayer = new DeliveryReportSpoolReplayer(deliveryReportSpool, deliveryProgressReportsBulkRepository,
+                configuration, new MockSystemService(shutdown));
+    }
+
+    @Test
+    public void shouldReplaySegmentsInBatchesAndDeleteThem() throws Exception {
+        replayer.replay();
+
+        // Two segments of three records each, written two records at a time
+        verify(deliveryProgressReportsBulkRepository, times(4)).insertIgnoringDuplicates(anyList());
+        verify(deliveryReportSpool).delete(segment1);
+        verify(deliveryReportSpool).delete(segment2);
+    }
+
+    @Test
+    public void shouldKeepSegmentsWhileDbIsUnavailable() throws Exception {
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        replayer.replay();
+
+        verify(deliveryProgressReportsBulkRepository, times(1)).insertIgnoringDuplicates(anyList());
+        verify(deliveryReportSpool, never()).delete(any(Path.class));
+    }
+
+    @Test
+    public void shouldQuarantineRecordsTheDbRejectsAndReplayTheRest() throws Exception {
+        List<DeliveryReport> badRecord = DeliveryReportSpoolTest.makeLines("r2", 1);
+        when(deliveryReportSpool.read(segment1)).thenReturn(Arrays.asList(
+                DeliveryReportSpoolTest.makeLines("r1", 2), badRecord, DeliveryReportSpoolTest.makeLines("r3", 1)));
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            List<DeliveryReport> lines = invocation.getArgument(0);
+            if (lines.stream().anyMatch(line -> line.getReportId().equals("r2"))) {
+                throw new DataIntegrityViolationException("bad data");
+            }
+            return lines.size();
+        });
+
+        softAssertions.assertThat(replayer.replaySegment(segment1)).isTrue();
+        softAssertions.assertThat(badRecord.get(0).getReportTimestamp())
+                .isAfter(Timestamp.from(Instant.parse("2020-01-01T00:00:00.000Z")));
+        softAssertions.assertAll();
+        // r1 and r2 as a batch, then one at a time, then r3
+        verify(deliveryProgressReportsBulkRepository, times(4)).insertIgnoringDuplicates(anyList());
+        verify(deliveryReportSpool).quarantine(badRecord);
+        verify(deliveryReportSpool).delete(segment1);
+    }
+
+    @Test
+    public void shouldNotReplayWhenDisabledOrShuttingDown() {
+        when(deliveryReportSpool.isEnabled()).thenReturn(false);
+        replayer.replay();
+        when(deliveryReportSpool.isEnabled()).thenReturn(true);
+        shutdown.setInitiating(true);
+        replayer.replay();
+
+        verify(deliveryReportSpool, never()).segmentsToReplay();
+    }
+
+    @Test
+    public void shouldReportWhetherSegmentWasReplayed() throws Exception {
+        when(deliveryReportSpool.read(segment1)).thenReturn(Collections.emptyList());
+
+        softAssertions.assertThat(replayer.replaySegment(segment1)).isTrue();
+        softAssertions.assertAll();
+        verify(deliveryProgressReportsBulkRepository, never()).insertIgnoringDuplicates(anyList());
+    }
+}
@@ -0,0 +1,217 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.SystemInitializationException;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.utils.MockSystemService;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TypeMismatchDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeliveryReportSpoolTest {
+    private SoftAssertions softAssertions;
+
+    private ServerConfiguration configuration;
+
+    private MockSystemService systemService;
+
+    @TempDir
+    Path spoolDirectory;
+
+    @BeforeEach
+    public void setUpBeforeEach() {
+        softAssertions = new SoftAssertions();
+        configuration = mock(ServerConfiguration.class);
+        systemService = new MockSystemService();
+        lenient().when(configuration.isDeliveryReportSpoolEnabled()).thenReturn(true);
+        lenient().when(configuration.getDeliveryReportSpoolDirectory()).thenReturn(spoolDirectory.toString());
+        lenient().when(configuration.getDeliveryReportSpoolSegmentSizeBytes()).thenReturn(4096);
+    }
+
+    @Test
+    public void shouldReadBackAppendedRecordsAfterRestart() throws Exception {
+        DeliveryReportSpool spool = makeSpool();
+        spool.append(makeLines("r1", 2));
+        spool.append(makeLines("r2", 1));
+        long size = spool.sizeBytes();
+
+        DeliveryReportSpool restarted = makeSpool();
+        List<Path> segments = restarted.segmentsToReplay();
+        softAssertions.assertThat(segments).hasSize(1);
+        List<List<DeliveryReport>> records = restarted.read(segments.get(0));
+        softAssertions.assertThat(records).hasSize(2);
+        softAssertions.assertThat(records.get(0)).isEqualTo(makeLines("r1", 2));
+        softAssertions.assertThat(records.get(0).get(0).getDataWindowStartTimestamp())
+                .isEqualTo(makeLines("r1", 1).get(0).getDataWindowStartTimestamp());
+        softAssertions.assertThat(records.get(1)).isEqualTo(makeLines("r2", 1));
+        softAssertions.assertThat(restarted.sizeBytes()).isEqualTo(size).isPositive();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRotateSegmentsWhenFull() throws Exception {
+        DeliveryReportSpool spool = makeSpool();
+        for (int i = 0; i < 20; i++) {
+            spool.append(makeLines("r" + i, 2));
+        }
+
+        List<Path> segments = spool.segmentsToReplay();
+        softAssertions.assertThat(segments.size()).isGreaterThan(1);
+        // The active segment is only handed out once the older ones are gone
+        int records = 0;
+        while (!segments.isEmpty()) {
+            for (Path segment : segments) {
+                records += spool.read(segment).size();
+                spool.delete(segment);
+            }
+            segments = spool.segmentsToReplay();
+        }
+        softAssertions.assertThat(records).isEqualTo(20);
+        softAssertions.assertThatCode(() -> spool.append(makeLines("huge", 100)))
+                .isInstanceOf(IOException.class);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldSkipTornTailOnRecovery() throws Exception {
+        DeliveryReportSpool spool = makeSpool();
+        spool.append(makeLines("r1", 1));
+        spool.append(makeLines("r2", 1));
+        Path segment = spool.segmentsToReplay().get(0);
+        long firstRecordEnd = recordEnd(segment);
+        // Damage the payload of the second record as a crash part way through a write would
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), firstRecordEnd + DeliveryReportSpool.RECORD_HEADER_SIZE);
+        }
+
+        DeliveryReportSpool recovered = makeSpool();
+        List<Path> segments = recovered.segmentsToReplay();
+        softAssertions.assertThat(segments).hasSize(1);
+        softAssertions.assertThat(recovered.read(segments.get(0))).containsExactly(makeLines("r1", 1));
+        softAssertions.assertAll();
+        verify(systemService.getRecorder(), atLeastOnce()).markSpoolCorruptRecord();
+    }
+
+    @Test
+    public void shouldTrackReplayLagAndDeleteReplayedSegments() throws Exception {
+        DeliveryReportSpool spool = makeSpool();
+        softAssertions.assertThat(spool.replayLagSeconds(System.currentTimeMillis())).isZero();
+        spool.append(makeLines("r1", 1));
+        softAssertions.assertThat(spool.replayLagSeconds(System.currentTimeMillis() + 5000))
+                .isBetween(4L, 5L);
+
+        Path segment = spool.segmentsToReplay().get(0);
+        spool.delete(segment);
+        softAssertions.assertThat(segment).doesNotExist();
+        softAssertions.assertThat(spool.segmentsToReplay()).isEmpty();
+        softAssertions.assertThat(spool.sizeBytes()).isZero();
+        softAssertions.assertThat(spool.replayLagSeconds(System.currentTimeMillis())).isZero();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldOnlySpoolWhenEnabled() throws Exception {
+        DeliveryReportSpool spool = makeSpool();
+        DataAccessResourceFailureException cause = new DataAccessResourceFailureException("down");
+        softAssertions.assertThat(spool.trySpool("r1", makeLines("r1", 1), cause)).isTrue();
+
+        when(configuration.isDeliveryReportSpoolEnabled()).thenReturn(false);
+        softAssertions.assertThat(spool.trySpool("r2", makeLines("r2", 1), cause)).isFalse();
+        softAssertions.assertThat(spool.segmentsToReplay()).hasSize(1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldOnlySpoolTransientFailures() throws Exception {
+        DeliveryReportSpool spool = makeSpool();
+
+        softAssertions.assertThat(spool.trySpool("r1", makeLines("r1", 1),
+                new CannotGetJdbcConnectionException("no connection"))).isTrue();
+        softAssertions.assertThat(spool.trySpool("r2", makeLines("r2", 1),
+                new QueryTimeoutException("timed out"))).isTrue();
+        softAssertions.assertThat(spool.trySpool("r3", makeLines("r3", 1),
+                new DataIntegrityViolationException("bad data"))).isFalse();
+        softAssertions.assertThat(spool.trySpool("r4", makeLines("r4", 1),
+                new TypeMismatchDataAccessException("bad type"))).isFalse();
+        softAssertions.assertThat(spool.read(spool.segmentsToReplay().get(0))).hasSize(2);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldAppendQuarantinedRecordsAsJsonLines() throws Exception {
+        DeliveryReportSpool spool = makeSpool();
+
+        spool.quarantine(makeLines("r1", 1));
+        spool.quarantine(makeLines("r2", 2));
+
+        List<String> lines = Files.readAllLines(spoolDirectory.resolve("quarantine.ndjson"));
+        softAssertions.assertThat(lines).hasSize(2);
+        softAssertions.assertThat(lines.get(1)).contains("\"reportId\":\"r2\"");
+        softAssertions.assertThat(spool.segmentsToReplay()).isEmpty();
+        softAssertions.assertAll();
+        verify(systemService.getRecorder(), times(2)).markSpoolQuarantinedDeliveryReports(1);
+    }
+
+    @Test
+    public void shouldRequireAnAbsoluteDirectory() {
+        when(configuration.getDeliveryReportSpoolDirectory()).thenReturn("spool");
+
+        softAssertions.assertThatThrownBy(this::makeSpool).isInstanceOf(SystemInitializationException.class);
+        softAssertions.assertAll();
+    }
+
+    private DeliveryReportSpool makeSpool() throws IOException {
+        DeliveryReportSpool spool = new DeliveryReportSpool(configuration, systemService);
+        spool.init();
+        return spool;
+    }
+
+    private long recordEnd(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(length, 0);
+            length.flip();
+            return DeliveryReportSpool.RECORD_HEADER_SIZE + length.getInt();
+        }
+    }
+
+    static List<DeliveryReport> makeLines(String reportId, int count) {
+        Timestamp timestamp = Timestamp.from(Instant.parse("2020-01-01T00:00:00.000Z"));
+        List<DeliveryReport> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add(DeliveryReport.builder()
+                    .reportId(reportId)
+                    .lineItemId("bidderPG-" + i)
+                    .lineItemStatus("{\"lineItemId\":\"" + i + "\"}")
+                    .dataWindowStartTimestamp(timestamp)
+                    .dataWindowEndTimestamp(timestamp)
+                    .reportTimestamp(timestamp)
+                    .build());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,192 @@
+package org.prebid.pg.delstats.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.DeliveryReportValidationException;
+import org.prebid.pg.delstats.exception.InvalidTimestampFormatException;
+import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.model.dto.RawLineItemStatus;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReport;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
+import org.prebid.pg.delstats.utils.MockSystemService;
+import org.prebid.pg.delstats.utils.ResourceUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+class DeliveryReportStreamingParserTest {
+    private SoftAssertions softAssertions;
+
+    private ServerConfiguration configuration;
+
+    private ObjectMapper objectMapper;
+
+    private DeliveryReportStreamingParser deliveryReportStreamingParser;
+
+    private DeliveryReportProcessor deliveryReportProcessor;
+
+    @BeforeEach
+    void setUpBeforeEach() {
+        softAssertions = new SoftAssertions();
+        configuration = mock(ServerConfiguration.class);
+        lenient().when(configuration.isValidationEnabled()).thenReturn(true);
+        lenient().when(configuration.getLineItemBidderCodeSeparator()).thenReturn("-");
+        MockSystemService systemService = new MockSystemService();
+        objectMapper = systemService.getObjectMapper();
+        deliveryReportStreamingParser = new DeliveryReportStreamingParser(configuration, systemService);
+        deliveryReportProcessor = new DeliveryReportProcessor(configuration, systemService);
+    }
+
+    @Test
+    void shouldParseReportTheSameAsDtoBinding() throws Exception {
+        String json = ResourceUtil.readFromClasspath("DeliveryProgressReportTestExample.json");
+        DeliveryReportFromPbsDto expected = objectMapper.readValue(json, DeliveryReportFromPbsDto.class);
+
+        StreamedDeliveryReport streamed = deliveryReportStreamingParser.parse(toStream(json));
+        DeliveryReportFromPbsDto metadata = streamed.getMetadata();
+
+        softAssertions.assertThat(metadata.getReportId()).isEqualTo(expected.getReportId());
+        softAssertions.assertThat(metadata.getReportTimeStamp()).isEqualTo(expected.getReportTimeStamp());
+        softAssertions.assertThat(metadata.getDataWindowStartTimeStamp())
+                .isEqualTo(expected.getDataWindowStartTimeStamp());
+        softAssertions.assertThat(metadata.getDataWindowEndTimeStamp()).isEqualTo(expected.getDataWindowEndTimeStamp());
+        softAssertions.assertThat(metadata.getVendor()).isEqualTo(expected.getVendor());
+        softAssertions.assertThat(metadata.getRegion()).isEqualTo(expected.getRegion());
+        softAssertions.assertThat(metadata.getInstanceId()).isEqualTo(expected.getInstanceId());
+        softAssertions.assertThat(metadata.getClientAuctions()).isEqualTo(expected.getClientAuctions());
+        softAssertions.assertThat(metadata.getLineItemStatus()).isNull();
+        softAssertions.assertThat(streamed.getLineItemStatus()).hasSize(expected.getLineItemStatus().size());
+        for (int i = 0; i < expected.getLineItemStatus().size(); i++) {
+            RawLineItemStatus raw = streamed.getLineItemStatus().get(i);
+            softAssertions.assertThat(raw.getJson())
+                    .isEqualTo(objectMapper.writeValueAsString(expected.getLineItemStatus().get(i)));
+            softAssertions.assertThat(raw.getLineItemId())
+                    .isEqualTo(expected.getLineItemStatus().get(i).get("lineItemId").asText());
+            softAssertions.assertThat(raw.getLineItemSource())
+                    .isEqualTo(expected.getLineItemStatus().get(i).get("lineItemSource").asText());
+            softAssertions.assertThat(raw.getCounters())
+                    .isEqualTo(convertedCounters(expected, expected.getLineItemStatus().get(i)));
+        }
+        softAssertions.assertAll();
+    }
+
+    @Test
+    void shouldParseBinaryFormatsTheSameAsJson() throws Exception {
+        String json = ResourceUtil.readFromClasspath("DeliveryProgressReportTestExample.json");
+        StreamedDeliveryReport expected = deliveryReportStreamingParser.parse(toStream(json));
+        JsonNode report = objectMapper.readTree(json);
+
+        for (ObjectMapper binaryMapper : Arrays.asList(new ObjectMapper(new SmileFactory()),
+                new ObjectMapper(new CBORFactory()))) {
+            StreamedDeliveryReport streamed = deliveryReportStreamingParser.parse(
+                    new ByteArrayInputStream(binaryMapper.writeValueAsBytes(report)), binaryMapper.getFactory());
+
+            softAssertions.assertThat(streamed).isEqualTo(expected);
+        }
+        softAssertions.assertAll();
+    }
+
+    @Test
+    void shouldPickUpCountersForTypedColumns() throws Exception {
+        String json = "{\"reportId\":\"r\",\"lineItemStatus\":[{\"lineItemId\":\"bidderPG-1\",\"targetMatched\":7,"
+                + "\"nested\":{\"sentToBidder\":99},\"events\":[{\"type\":\"win\",\"count\":3},{\"count\":4}],"
+                + "\"deliverySchedule\":[{\"planId\":\"p1\",\"tokens\":[{\"class\":1,\"spent\":11},{\"spent\":12}]},"
+                + "{\"planId\":\"p2\",\"tokens\":[{\"spent\":21}]},{\"planId\":\"p3\"}],"
+                + "\"sentToClient\":5}]}";
+
+        RawLineItemStatus raw = deliveryReportStreamingParser.parse(toStream(json)).getLineItemStatus().get(0);
+
+        softAssertions.assertThat(raw.getCounters().getTargetMatched()).isEqualTo(7);
+        softAssertions.assertThat(raw.getCounters().getSentToClient()).isEqualTo(5);
+        softAssertions.assertThat(raw.getCounters().getSentToBidder()).isZero();
+        softAssertions.assertThat(raw.getCounters().getWinEvents()).isEqualTo(3);
+        softAssertions.assertThat(raw.getCounters().getFirstPlanId()).isEqualTo("p1");
+        softAssertions.assertThat(raw.getCounters().getFirstPlanTokensSpent()).isEqualTo(11);
+        softAssertions.assertThat(raw.getCounters().getSecondPlanId()).isEqualTo("p2");
+        softAssertions.assertAll();
+    }
+
+    @Test
+    void shouldOnlyPickUpTopLevelLineItemFields() throws Exception {
+        String json = "{\"reportId\":\"r\",\"unknown\":{\"lineItemId\":\"x\"},\"lineItemStatus\":["
+                + "{\"nested\":{\"lineItemId\":\"nested-1\",\"lineItemSource\":\"nested\"},\"lineItemId\":7},"
+                + "{\"lineItemSource\":\"bidder\"},"
+                + "\"notAnObject\"]}";
+
+        StreamedDeliveryReport streamed = deliveryReportStreamingParser.parse(toStream(json));
+
+        softAssertions.assertThat(streamed.getMetadata().getReportId()).isEqualTo("r");
+        softAssertions.assertThat(streamed.getLineItemStatus()).extracting(RawLineItemStatus::getLineItemId)
+                .containsExactly("7", "", "");
+        softAssertions.assertThat(streamed.getLineItemStatus()).extracting(RawLineItemStatus::getLineItemSource)
+                .containsExactly("", "bidder", "");
+        softAssertions.assertThat(streamed.getLineItemStatus()).extracting(RawLineItemStatus::getJson)
+                .containsExactly("{\"nested\":{\"lineItemId\":\"nested-1\",\"lineItemSource\":\"nested\"},"
+                        + "\"lineItemId\":7}", "{\"lineItemSource\":\"bidder\"}", "\"notAnObject\"");
+        softAssertions.assertAll();
+    }
+
+    @Test
+    void shouldValidateLineItemTimestampsOnlyWhenEnabled() throws Exception {
+        String json = "{\"reportId\":\"r\",\"lineItemStatus\":[{\"lineItemSource\":\"bidder\","
+                + "\"deliverySchedule\":[{\"planStartTimeStamp\":\"not a time\"}]}]}";
+
+        softAssertions.assertThatCode(() -> deliveryReportStreamingParser.parse(toStream(json)))
+                .isInstanceOf(InvalidTimestampFormatException.class);
+
+        lenient().when(configuration.isValidationEnabled()).thenReturn(false);
+        softAssertions.assertThatCode(() -> deliveryReportStreamingParser.parse(toStream(json)))
+                .doesNotThrowAnyException();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    void shouldRejectMissingOrMalformedReports() throws Exception {
+        softAssertions.assertThatCode(() -> deliveryReportStreamingParser.parse(toStream("")))
+                .isInstanceOf(DeliveryReportValidationException.class);
+        softAssertions.assertThatCode(() -> deliveryReportStreamingParser.parse(toStream("[]")))
+                .isInstanceOf(DeliveryReportValidationException.class);
+        softAssertions.assertThatCode(() -> deliveryReportStreamingParser.parse(toStream("{\"lineItemStatus\":{}}")))
+                .isInstanceOf(DeliveryReportValidationException.class);
+        softAssertions.assertThatCode(() -> deliveryReportStreamingParser.parse(toStream("{\"lineItemStatus\":[{")))
+                .isInstanceOf(IOException.class);
+        softAssertions.assertThat(deliveryReportStreamingParser.parse(toStream("{\"lineItemStatus\":null}"))
+                .getLineItemStatus()).isEmpty();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    void shouldRecognizeTimestampFieldNames() {
+        softAssertions.assertThat(DeliveryReportStreamingParser.isTimestampField("planStartTimeStamp")).isTrue();
+        softAssertions.assertThat(DeliveryReportStreamingParser.isTimestampField("timestamp")).isTrue();
+        softAssertions.assertThat(DeliveryReportStreamingParser.isTimestampField("TIMESTAMP")).isTrue();
+        softAssertions.assertThat(DeliveryReportStreamingParser.isTimestampField("stamp")).isFalse();
+        softAssertions.assertThat(DeliveryReportStreamingParser.isTimestampField("timestamps")).isFalse();
+        softAssertions.assertAll();
+    }
+
+    private static ByteArrayInputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Counters of a line item status entry as converted by the DTO ingest path.
+     */
+    private LineItemStatusCounters convertedCounters(DeliveryReportFromPbsDto report, JsonNode lineItemStatus) {
+        return deliveryReportProcessor.processLineItemStatus(report, lineItemStatus,
+                new Timestamp(System.currentTimeMillis()), new LinkedList<>()).get(0).getCounters();
+    }
+}
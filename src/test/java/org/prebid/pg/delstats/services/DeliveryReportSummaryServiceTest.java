@@ -5,6 +5,7 @@ import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.prebid.pg.delstats.config.ServerConfiguration;
@@ -15,13 +16,17 @@ import org.prebid.pg.delstats.model.dto.PlanDataSummary;
 import org.prebid.pg.delstats.persistence.DeliveryReport;
 import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
 import org.prebid.pg.delstats.persistence.SystemState;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsBulkRepository;
 import org.prebid.pg.delstats.repository.DeliveryProgressReportsRepository;
+import org.prebid.pg.delstats.repository.DeliveryReportSummaryBulkRepository;
 import org.prebid.pg.delstats.repository.DeliveryReportSummaryRepository;
+import org.prebid.pg.delstats.repository.SystemStateConstants;
 import org.prebid.pg.delstats.repository.SystemStateRepository;
 import org.prebid.pg.delstats.utils.MockSystemService;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.File;
 import java.nio.file.Files;
@@ -33,6 +38,7 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -40,7 +46,10 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -53,6 +62,9 @@ public class DeliveryReportSummaryServiceTest {
     @Mock
     private DeliveryReportSummaryRepository deliveryReportSummaryRepositoryMock;
 
+    @Mock
+    private DeliveryReportSummaryBulkRepository deliveryReportSummaryBulkRepositoryMock;
+
     @Mock
     private DeliveryReportProcessor deliveryReportProcessorMock;
 
@@ -62,6 +74,21 @@ public class DeliveryReportSummaryServiceTest {
     @Mock
     private DeliveryProgressReportsRepository deliveryProgressReportsRepositoryMock;
 
+    @Mock
+    private DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepositoryMock;
+
+    @Mock
+    private DeliveryReportWriteBehindQueue deliveryReportWriteBehindQueueMock;
+
+    @Mock
+    private DeliveryReportSpool deliveryReportSpoolMock;
+
+    @Mock
+    private LineItemSummaryPreAggregator lineItemSummaryPreAggregatorMock;
+
+    @Mock
+    private DeliveryReportIdempotencyFilter deliveryReportIdempotencyFilterMock;
+
     @Mock
     private ServerConfiguration configMock;
 
@@ -88,8 +115,16 @@ public class DeliveryReportSummaryServiceTest {
 
         SystemService systemService = new MockSystemService();
 
-        deliveryDataService = new DeliveryReportsDataService(deliveryProgressReportsRepositoryMock, deliveryReportProcessorMock, configMock, systemService);
-        reportSummaryService = new DeliveryReportSummaryService(deliveryReportSummaryRepositoryMock, deliveryDataService, systemStateRepositoryMock, configMock, systemService);
+        deliveryDataService = new DeliveryReportsDataService(deliveryProgressReportsRepositoryMock,
+                deliveryProgressReportsBulkRepositoryMock, deliveryReportProcessorMock,
+                deliveryReportWriteBehindQueueMock, deliveryReportSpoolMock, lineItemSummaryPreAggregatorMock,
+                deliveryReportIdempotencyFilterMock, configMock, systemService);
+        ShardedLineSummaryWriter shardedLineSummaryWriter = new ShardedLineSummaryWriter(
+                deliveryReportSummaryRepositoryMock, mock(PlatformTransactionManager.class), configMock, systemService);
+        reportSummaryService = new DeliveryReportSummaryService(deliveryReportSummaryRepositoryMock,
+                deliveryReportSummaryBulkRepositoryMock, deliveryDataService, lineItemSummaryPreAggregatorMock,
+                shardedLineSummaryWriter, systemStateRepositoryMock, mock(PlatformTransactionManager.class),
+                configMock, systemService);
     }
 
     @Test
@@ -112,9 +147,10 @@ public class DeliveryReportSummaryServiceTest {
     void shouldNotThrowExceptionRetrievingLineItemSummariesFromMocks() {
         String lineItemIds = "lineX";
         Set<String> metrics = Collections.singleton("winEvents");
-        Page<DeliveryReportSummary> mockPage = buildSummaryPage(lineItemIds, now);
-        when(deliveryReportSummaryRepositoryMock.findByLineIdAndReportWindowHour(anyList(), any(), any(), any()))
-                .thenReturn(mockPage);
+        List<DeliveryReportSummary> mockSummaries = buildSummaries(lineItemIds, now);
+        when(deliveryReportSummaryRepositoryMock.findByLineIdAndReportWindowHourAfter(
+                anyList(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(mockSummaries);
         softAssertions.assertThatCode(() ->
                 reportSummaryService.getLineItemSummaryReport(lineItemIds, now.minusSeconds(120), now, metrics, 5))
                 .doesNotThrowAnyException();
@@ -167,6 +203,71 @@ public class DeliveryReportSummaryServiceTest {
                 .saveDeliverySummaryReportStates(any(), any(), any(), any(), any());
     }
 
+    @Test
+    void shouldStorePreAggregatedSummariesWhenTheyMatchStoredLines() {
+        Timestamp end = Timestamp.from(Instant.now());
+        Timestamp start = Timestamp.from(end.toInstant().minusSeconds(300));
+        List<DeliveryReportSummary> summaries = Collections.singletonList(new DeliveryReportSummary());
+        given(lineItemSummaryPreAggregatorMock.takeInterval(start, end)).willReturn(Optional.of(
+                new LineItemSummaryPreAggregator.PreAggregatedInterval(summaries, 4)));
+        given(deliveryReportSummaryRepositoryMock.countLinesByReportWindow(start, end)).willReturn(4L);
+
+        assertThat(reportSummaryService.runDeliveryReportSummary(start, end, true)).isEqualTo(1);
+        verify(deliveryReportSummaryBulkRepositoryMock).insert(summaries);
+        verify(deliveryReportSummaryRepositoryMock, never()).saveAll(anyList());
+        verify(deliveryReportSummaryRepositoryMock, never()).insertLineSummariesDirectly(any(), any());
+    }
+
+    @Test
+    void shouldSummarizeStoredLinesWhenPreAggregationDoesNotMatch() {
+        Timestamp end = Timestamp.from(Instant.now());
+        Timestamp start = Timestamp.from(end.toInstant().minusSeconds(300));
+        given(lineItemSummaryPreAggregatorMock.takeInterval(start, end)).willReturn(Optional.of(
+                new LineItemSummaryPreAggregator.PreAggregatedInterval(Collections.emptyList(), 3)));
+        given(deliveryReportSummaryRepositoryMock.countLinesByReportWindow(start, end)).willReturn(4L);
+        given(deliveryReportSummaryRepositoryMock.insertLineSummariesDirectly(start, end)).willReturn(2);
+
+        assertThat(reportSummaryService.runDeliveryReportSummary(start, end, true)).isEqualTo(2);
+        verify(deliveryReportSummaryBulkRepositoryMock, never()).insert(anyList());
+    }
+
+    @Test
+    void shouldStoreMarkersAfterAllShardsCommitted() {
+        ShardedLineSummaryWriter shardedLineSummaryWriter = mock(ShardedLineSummaryWriter.class);
+        given(shardedLineSummaryWriter.isSharded()).willReturn(true);
+        given(shardedLineSummaryWriter.insertLineSummaries(any(), any())).willReturn(6);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        DeliveryReportSummaryService shardedSummaryService = new DeliveryReportSummaryService(
+                deliveryReportSummaryRepositoryMock, deliveryReportSummaryBulkRepositoryMock, deliveryDataService,
+                lineItemSummaryPreAggregatorMock, shardedLineSummaryWriter, systemStateRepositoryMock,
+                transactionManager, configMock, new MockSystemService());
+        Timestamp end = Timestamp.from(Instant.now());
+        Timestamp start = Timestamp.from(end.toInstant().minusSeconds(300));
+
+        assertThat(shardedSummaryService.runDeliveryReportSummary(start, end, true)).isEqualTo(6);
+        InOrder inOrder = inOrder(shardedLineSummaryWriter, transactionManager, systemStateRepositoryMock);
+        inOrder.verify(shardedLineSummaryWriter).insertLineSummaries(start, end);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(systemStateRepositoryMock)
+                .store(SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY, end.toString());
+        verify(deliveryReportSummaryRepositoryMock, never()).insertLineSummariesDirectly(any(), any());
+    }
+
+    @Test
+    void shouldOnlyReadSummariesOfIntervalsWithTheirMarkersStored() {
+        Instant summarizedEnd = Instant.parse("2020-09-17T00:05:00.000Z");
+        given(systemStateRepositoryMock.retrieveByTag(SystemStateConstants.SYSTEM_STATE_TAG_DELIVERY_SUMMARY))
+                .willReturn(SystemState.builder().val(Timestamp.from(summarizedEnd).toString()).build());
+        Instant start = summarizedEnd.minus(5, ChronoUnit.MINUTES);
+
+        reportSummaryService.retrieveLineToPlanTokensSpent(start, summarizedEnd.plus(10, ChronoUnit.MINUTES));
+        reportSummaryService.retrieveLineToPlanTokensSpent(start, summarizedEnd.minus(1, ChronoUnit.MINUTES));
+
+        verify(deliveryReportSummaryRepositoryMock).findPlanDataByReportWindowHour(start, summarizedEnd);
+        verify(deliveryReportSummaryRepositoryMock)
+                .findPlanDataByReportWindowHour(start, summarizedEnd.minus(1, ChronoUnit.MINUTES));
+    }
+
     @Test
     void shouldRunDeliveryReportSummaryThrowsDeliveryReportProcessingException() {
         given(deliveryReportSummaryRepositoryMock.insertLineSummariesDirectly(any(), any()))
@@ -232,9 +333,9 @@ public class DeliveryReportSummaryServiceTest {
             summaries.add(new PlanDataSummary(String.valueOf(i), "10,20,30,40"));
         }
         given(systemStateRepositoryMock.retrieveByTag(any())).willReturn(state);
-        Page<DeliveryReportSummary> page =  buildSummaryPage("1,2,3", now);
-        given(deliveryReportSummaryRepositoryMock.findByReportWindowHour(any(), any(), any()))
-                .willReturn(page);
+        List<DeliveryReportSummary> reportSummaries = buildSummaries("1,2,3", now);
+        given(deliveryReportSummaryRepositoryMock.findByReportWindowHourAfter(any(), any(), any(), any(), any(), any()))
+                .willReturn(reportSummaries);
         given(deliveryReportSummaryRepositoryMock.findPlanDataByReportWindowHour(any(), any())).willReturn(summaries);
         DeliveryReportSummaryToPlannerAdapterDto dto = reportSummaryService.getDeliverySummaryReport(start, end);
         assertThat(dto.getLineDeliverySummaries().size()).isEqualTo(3);
@@ -251,9 +352,8 @@ public class DeliveryReportSummaryServiceTest {
 
     @Test
     void shouldGetLineItemSummaryReport() {
-        Page<DeliveryReportSummary> page = new PageImpl<>(Collections.emptyList());
-        given(deliveryReportSummaryRepositoryMock.findByReportWindowHour(any(), any(), any()))
-                .willReturn(page);
+        given(deliveryReportSummaryRepositoryMock.findByReportWindowHourAfter(any(), any(), any(), any(), any(), any()))
+                .willReturn(Collections.emptyList());
         Instant end = Instant.now();
         Instant start = end.minusSeconds(300);
         List<Map<String, Object>> result =
@@ -263,8 +363,7 @@ public class DeliveryReportSummaryServiceTest {
 
     @Test
     void shouldGetLineItemSummaryReportReturnEmptyIfThrowsException() {
-        Page<DeliveryReportSummary> page = new PageImpl<>(Collections.emptyList());
-        given(deliveryReportSummaryRepositoryMock.findByReportWindowHour(any(), any(), any()))
+        given(deliveryReportSummaryRepositoryMock.findByReportWindowHourAfter(any(), any(), any(), any(), any(), any()))
                 .willThrow(new IllegalArgumentException());
         Instant end = Instant.now();
         Instant start = end.minusSeconds(300);
@@ -273,11 +372,11 @@ public class DeliveryReportSummaryServiceTest {
         assertThat(result.isEmpty()).isTrue();
     }
 
-    private Page<DeliveryReportSummary> buildSummaryPage(String lineItemIds, Instant now) {
+    private List<DeliveryReportSummary> buildSummaries(String lineItemIds, Instant now) {
         List<DeliveryReportSummary> mockResults = new LinkedList<>();
         for (String lineItemId : lineItemIds.split(","))
             mockResults.add(buildDeliveryReportSummary(lineItemId, now));
-        return new PageImpl<>(mockResults);
+        return mockResults;
     }
 
     private DeliveryReportSummary buildDeliveryReportSummary(String lineItemId, Instant now) {
@@ -0,0 +1,221 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.alerts.AlertName;
+import org.prebid.pg.delstats.alerts.AlertPriority;
+import org.prebid.pg.delstats.exception.DeliveryReportQueueFullException;
+import org.prebid.pg.delstats.exception.SystemInitializationException;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsBulkRepository;
+import org.prebid.pg.delstats.utils.MockSystemService;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TypeMismatchDataAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeliveryReportWriteBehindQueueTest {
+    private SoftAssertions softAssertions;
+
+    private DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository;
+
+    private DeliveryReportSpool deliveryReportSpool;
+
+    private DeliveryReportIdempotencyFilter deliveryReportIdempotencyFilter;
+
+    private LineItemSummaryPreAggregator lineItemSummaryPreAggregator;
+
+    private ServerConfiguration configuration;
+
+    private MockSystemService systemService;
+
+    @BeforeEach
+    public void setUpBeforeEach() {
+        softAssertions = new SoftAssertions();
+        deliveryProgressReportsBulkRepository = mock(DeliveryProgressReportsBulkRepository.class);
+        deliveryReportSpool = mock(DeliveryReportSpool.class);
+        deliveryReportIdempotencyFilter = mock(DeliveryReportIdempotencyFilter.class);
+        lineItemSummaryPreAggregator = mock(LineItemSummaryPreAggregator.class);
+        configuration = mock(ServerConfiguration.class);
+        systemService = new MockSystemService();
+        lenient().when(configuration.getDeliveryReportAsyncIngestQueueCapacity()).thenReturn(2);
+        lenient().when(configuration.getDeliveryReportAsyncIngestMaxBatchReports()).thenReturn(2);
+        lenient().when(configuration.getDeliveryReportAsyncIngestWriterThreads()).thenReturn(1);
+        lenient().when(configuration.getDeliveryReportAsyncIngestBackPressure())
+                .thenReturn(ServerConfiguration.BackPressurePolicy.REJECT);
+        lenient().when(configuration.getDeliveryReportAsyncIngestShutdownTimeoutSeconds()).thenReturn(5L);
+        lenient().when(configuration.getDeliveryReportAsyncIngestMaxRetries()).thenReturn(2);
+        lenient().when(configuration.getDeliveryReportAsyncIngestRetryBackoffMillis()).thenReturn(1L);
+        lenient().when(configuration.isDeliveryReportSpoolEnabled()).thenReturn(true);
+        lenient().when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenAnswer(invocationOnMock -> ((List<?>) invocationOnMock.getArguments()[0]).size());
+    }
+
+    @Test
+    public void shouldRejectWhenQueueIsFull() {
+        DeliveryReportWriteBehindQueue queue = makeQueue();
+
+        queue.enqueue("r1", "source", makeLines(1), 1);
+        queue.enqueue("r2", "source", makeLines(1), 1);
+        softAssertions.assertThatCode(() -> queue.enqueue("r3", "source", makeLines(1), 1))
+                .isInstanceOf(DeliveryReportQueueFullException.class);
+        softAssertions.assertThat(queue.size()).isEqualTo(2);
+        softAssertions.assertAll();
+        verify(systemService.getRecorder()).markAsyncIngestReportRejected();
+    }
+
+    @Test
+    public void shouldWaitForSpaceBeforeRejectingWhenBlocking() {
+        when(configuration.getDeliveryReportAsyncIngestBackPressure())
+                .thenReturn(ServerConfiguration.BackPressurePolicy.BLOCK);
+        when(configuration.getDeliveryReportAsyncIngestBlockTimeoutMillis()).thenReturn(20L);
+        DeliveryReportWriteBehindQueue queue = makeQueue();
+
+        queue.enqueue("r1", "source", makeLines(1), 1);
+        queue.enqueue("r2", "source", makeLines(1), 1);
+        long start = System.nanoTime();
+        softAssertions.assertThatCode(() -> queue.enqueue("r3", "source", makeLines(1), 1))
+                .isInstanceOf(DeliveryReportQueueFullException.class);
+        softAssertions.assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(20_000_000L);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldMergeQueuedReportsIntoOneInsert() throws Exception {
+        when(configuration.getDeliveryReportAsyncIngestQueueCapacity()).thenReturn(10);
+        DeliveryReportWriteBehindQueue queue = makeQueue();
+        GraphiteMetricsRecorder recorder = systemService.getRecorder();
+
+        queue.enqueue("r1", "source", makeLines(2), 2);
+        queue.enqueue("r2", "source", makeLines(3), 3);
+        queue.enqueue("r3", "source", makeLines(1), 1);
+
+        softAssertions.assertThat(queue.drainOnce()).isEqualTo(2);
+        softAssertions.assertThat(queue.drainOnce()).isEqualTo(1);
+        softAssertions.assertThat(queue.size()).isZero();
+        softAssertions.assertAll();
+        verify(deliveryProgressReportsBulkRepository, times(2)).insertIgnoringDuplicates(anyList());
+        verify(recorder).markAsyncIngestReportsDrained(2);
+        verify(recorder).markAsyncIngestReportsDrained(1);
+        verify(recorder, times(3)).markDeliveryReportRecordsStored(anyInt());
+        verify(recorder, times(3)).updateAsyncIngestEnqueueToCommitTimer(anyLong());
+        verify(lineItemSummaryPreAggregator, times(2)).add(anyList());
+    }
+
+    @Test
+    public void shouldStoreReportsOneAtATimeWhenBatchFails() throws Exception {
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenThrow(new TypeMismatchDataAccessException("batch"))
+                .thenThrow(new TypeMismatchDataAccessException("single"))
+                .thenReturn(1);
+        DeliveryReportWriteBehindQueue queue = makeQueue();
+        GraphiteMetricsRecorder recorder = systemService.getRecorder();
+
+        queue.enqueue("r1", "source", makeLines(1), 1);
+        queue.enqueue("r2", "source", makeLines(1), 1);
+
+        softAssertions.assertThat(queue.drainOnce()).isEqualTo(2);
+        softAssertions.assertAll();
+        verify(deliveryProgressReportsBulkRepository, times(3)).insertIgnoringDuplicates(anyList());
+        verify(recorder, times(1)).markDeliveryReportRecordsStored(1);
+        verify(recorder, times(1)).markExceptionMeter(any(TypeMismatchDataAccessException.class));
+        verify(deliveryReportIdempotencyFilter).release("r1");
+        verify(deliveryReportIdempotencyFilter, never()).release("r2");
+        verify(lineItemSummaryPreAggregator, times(1)).add(anyList());
+    }
+
+    @Test
+    public void shouldRetryTransientFailuresBeforeGivingUp() throws Exception {
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(2);
+        DeliveryReportWriteBehindQueue queue = makeQueue();
+
+        queue.enqueue("r1", "source", makeLines(1), 1);
+        queue.enqueue("r2", "source", makeLines(1), 1);
+
+        softAssertions.assertThat(queue.drainOnce()).isEqualTo(2);
+        softAssertions.assertAll();
+        verify(deliveryProgressReportsBulkRepository, times(3)).insertIgnoringDuplicates(anyList());
+        verify(systemService.getRecorder(), times(2)).markDeliveryReportRecordsStored(1);
+        verify(deliveryReportSpool, never()).trySpool(anyString(), anyList(), any());
+    }
+
+    @Test
+    public void shouldSpoolOrDropReportsWhenRetriesAreExhausted() throws Exception {
+        QueryTimeoutException timeout = new QueryTimeoutException("timeout");
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList())).thenThrow(timeout);
+        when(deliveryReportSpool.trySpool("r1", makeLines(1), timeout)).thenReturn(true);
+        DeliveryReportWriteBehindQueue queue = makeQueue();
+
+        queue.enqueue("r1", "source", makeLines(1), 1);
+        queue.enqueue("r2", "source", makeLines(1), 1);
+
+        softAssertions.assertThat(queue.drainOnce()).isEqualTo(2);
+        softAssertions.assertAll();
+        // The batch is not split up for transient failures, each report would be retried all over again
+        verify(deliveryProgressReportsBulkRepository, times(3)).insertIgnoringDuplicates(anyList());
+        verify(deliveryReportSpool).trySpool("r2", makeLines(1), timeout);
+        verify(deliveryReportIdempotencyFilter, never()).release("r1");
+        verify(deliveryReportIdempotencyFilter).release("r2");
+        verify(lineItemSummaryPreAggregator, never()).add(anyList());
+        verify(systemService.getAlertProxyHttpClient()).raiseEventForExceptionAndLog(
+                eq(AlertName.STORE_ERROR), anyString(), eq(AlertPriority.HIGH), eq(timeout));
+    }
+
+    @Test
+    public void shouldNotStartWithoutSpool() {
+        when(configuration.isDeliveryReportAsyncIngestEnabled()).thenReturn(true);
+        when(configuration.isDeliveryReportSpoolEnabled()).thenReturn(false);
+
+        softAssertions.assertThatCode(this::makeQueue).isInstanceOf(SystemInitializationException.class);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldStoreQueuedReportsBeforeShuttingDown() {
+        when(configuration.isDeliveryReportAsyncIngestEnabled()).thenReturn(true);
+        DeliveryReportWriteBehindQueue queue = makeQueue();
+
+        queue.enqueue("r1", "source", makeLines(1), 1);
+        queue.enqueue("r2", "source", makeLines(1), 1);
+        queue.shutdown();
+
+        softAssertions.assertThat(queue.size()).isZero();
+        softAssertions.assertAll();
+    }
+
+    private DeliveryReportWriteBehindQueue makeQueue() {
+        DeliveryReportWriteBehindQueue queue =
+                new DeliveryReportWriteBehindQueue(deliveryProgressReportsBulkRepository, deliveryReportSpool,
+                        deliveryReportIdempotencyFilter, lineItemSummaryPreAggregator, configuration, systemService);
+        queue.init();
+        return queue;
+    }
+
+    private static List<DeliveryReport> makeLines(int count) {
+        List<DeliveryReport> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add(DeliveryReport.builder().lineItemId("bidderPG-" + i).build());
+        }
+        return lines;
+    }
+}
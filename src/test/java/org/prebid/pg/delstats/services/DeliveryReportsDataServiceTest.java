@@ -8,28 +8,37 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.prebid.pg.delstats.config.DeploymentConfiguration;
 import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.DeliveryReportInFlightException;
+import org.prebid.pg.delstats.exception.DeliveryReportQueueFullException;
 import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse.ReportResult;
+import org.prebid.pg.delstats.model.dto.DeliveryReportBatchResponse.Status;
 import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
 import org.prebid.pg.delstats.model.dto.DeliveryReportLineStatsDto;
 import org.prebid.pg.delstats.model.dto.LineItemSummaryReport;
+import org.prebid.pg.delstats.model.dto.StreamedDeliveryReport;
 import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.repository.DeliveryProgressReportsBulkRepository;
 import org.prebid.pg.delstats.repository.DeliveryProgressReportsRepository;
 import org.prebid.pg.delstats.utils.LineItemStatusUtilsTest;
 import org.prebid.pg.delstats.utils.MockSystemService;
 import org.prebid.pg.delstats.utils.ResourceUtil;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.TypeMismatchDataAccessException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -37,11 +46,15 @@ import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -51,6 +64,16 @@ class DeliveryReportsDataServiceTest {
 
     private DeliveryProgressReportsRepository deliveryProgressReportsRepository;
 
+    private DeliveryProgressReportsBulkRepository deliveryProgressReportsBulkRepository;
+
+    private DeliveryReportWriteBehindQueue deliveryReportWriteBehindQueue;
+
+    private DeliveryReportSpool deliveryReportSpool;
+
+    private LineItemSummaryPreAggregator lineItemSummaryPreAggregator;
+
+    private DeliveryReportIdempotencyFilter deliveryReportIdempotencyFilter;
+
     private DeliveryReportProcessor deliveryReportProcessor;
 
     private DeliveryReportsDataService deliveryReportsDataService;
@@ -61,6 +84,8 @@ class DeliveryReportsDataServiceTest {
 
     private GraphiteMetricsRecorder graphiteMetricsRecorder;
 
+    private SystemService dataServiceSystemService;
+
     private ObjectMapper objectMapper;
 
     private int saveAllCounter;
@@ -72,7 +97,12 @@ class DeliveryReportsDataServiceTest {
         softAssertions = new SoftAssertions();
 
         deliveryProgressReportsRepository = mock(DeliveryProgressReportsRepository.class);
+        deliveryProgressReportsBulkRepository = mock(DeliveryProgressReportsBulkRepository.class);
+        deliveryReportWriteBehindQueue = mock(DeliveryReportWriteBehindQueue.class);
+        deliveryReportSpool = mock(DeliveryReportSpool.class);
+        lineItemSummaryPreAggregator = mock(LineItemSummaryPreAggregator.class);
         configuration = mock(ServerConfiguration.class);
+        deliveryReportIdempotencyFilter = new DeliveryReportIdempotencyFilter(configuration);
         deploymentConfiguration = mock(DeploymentConfiguration.class);
         graphiteMetricsRecorder = mock(GraphiteMetricsRecorder.class);
 
@@ -86,18 +116,24 @@ class DeliveryReportsDataServiceTest {
         lenient().when(configuration.getLineItemSummaryMaxTimeRangeSeconds()).thenReturn(86400);
         lenient().when(configuration.getBidderAliasMappingString()).thenReturn("A:B");
         lenient().when(deploymentConfiguration.getProfile()).thenReturn(DeploymentConfiguration.ProfileType.PROD);
-        lenient().when(deliveryProgressReportsRepository.saveAll(anyIterable())).thenAnswer(invocationOnMock -> {
-            List<DeliveryReport> iterable = ((List<DeliveryReport>) invocationOnMock.getArguments()[0]);
-            saveAllCounter += iterable.size();
-            return iterable;
-        });
-
+        lenient().when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenAnswer(invocationOnMock -> {
+                    List<DeliveryReport> iterable = ((List<DeliveryReport>) invocationOnMock.getArguments()[0]);
+                    saveAllCounter += iterable.size();
+                    return iterable.size();
+                });
+
+        dataServiceSystemService = new MockSystemService(deploymentConfiguration);
         deliveryReportsDataService =
-                new DeliveryReportsDataService(deliveryProgressReportsRepository, deliveryReportProcessor,
-                        configuration, new MockSystemService(deploymentConfiguration));
-
-        when(deliveryProgressReportsRepository.findByBidderCodeAndReportTimestampRange(anyString(), any(Timestamp.class), any(Timestamp.class), any(Pageable.class)))
-                .thenReturn(Page.empty());
+                new DeliveryReportsDataService(deliveryProgressReportsRepository,
+                        deliveryProgressReportsBulkRepository, deliveryReportProcessor, deliveryReportWriteBehindQueue,
+                        deliveryReportSpool, lineItemSummaryPreAggregator, deliveryReportIdempotencyFilter,
+                        configuration, dataServiceSystemService);
+
+        when(deliveryProgressReportsRepository.findByBidderCodeAndReportTimestampRangeAfter(anyString(),
+                any(Timestamp.class), any(Timestamp.class), any(Timestamp.class), anyString(), anyString(),
+                any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
         lenient().when(graphiteMetricsRecorder.repositoryFetchDeliveryReportLinesTimer())
                 .thenReturn(Optional.empty());
         lenient().when(graphiteMetricsRecorder.getDeliveryReportsPerformanceTimer())
@@ -138,7 +174,7 @@ class DeliveryReportsDataServiceTest {
                         .dataWindowEndTimeStamp(now)
                         .build());
 
-        verify(deliveryProgressReportsRepository, times(2)).saveAll(anyIterable());
+        verify(deliveryProgressReportsBulkRepository, times(2)).insertIgnoringDuplicates(anyList());
     }
 
     @Test
@@ -172,6 +208,238 @@ class DeliveryReportsDataServiceTest {
         softAssertions.assertAll();
     }
 
+    @Test
+    public void shouldStoreStreamedReport() throws Exception {
+        String json = ResourceUtil.readFromClasspath("DeliveryProgressReportTestExample.json");
+        DeliveryReportStreamingParser parser = new DeliveryReportStreamingParser(configuration, new MockSystemService());
+        StreamedDeliveryReport streamedDeliveryReport =
+                parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        int savesSoFar = saveAllCounter;
+
+        softAssertions.assertThatCode(() -> deliveryReportsDataService.storeStreamedReport(streamedDeliveryReport))
+                .doesNotThrowAnyException();
+        softAssertions.assertThat(saveAllCounter - savesSoFar)
+                .isEqualTo(streamedDeliveryReport.getLineItemStatus().size());
+        softAssertions.assertAll();
+        verify(lineItemSummaryPreAggregator).add(anyList());
+    }
+
+    @Test
+    public void shouldQueueReportsWhenAsyncIngestEnabled() throws Exception {
+        String json = ResourceUtil.readFromClasspath("DeliveryProgressReportTestExample.json");
+        DeliveryReportFromPbsDto deliveryReportFromPbsDto = objectMapper.readValue(json, DeliveryReportFromPbsDto.class);
+        DeliveryReportStreamingParser parser = new DeliveryReportStreamingParser(configuration, new MockSystemService());
+        StreamedDeliveryReport streamedDeliveryReport =
+                parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        when(configuration.isDeliveryReportAsyncIngestEnabled()).thenReturn(true);
+
+        deliveryReportsDataService.storeReport(deliveryReportFromPbsDto);
+        deliveryReportsDataService.storeStreamedReport(streamedDeliveryReport);
+        verify(deliveryReportWriteBehindQueue, times(2)).enqueue(eq(deliveryReportFromPbsDto.getReportId()),
+                anyString(), anyList(), eq(deliveryReportFromPbsDto.getLineItemStatus().size()));
+        verify(deliveryProgressReportsBulkRepository, never()).insertIgnoringDuplicates(anyList());
+        verify(lineItemSummaryPreAggregator, never()).add(anyList());
+
+        // Simulation time reports are always stored before returning
+        deliveryReportsDataService.storeReport(deliveryReportFromPbsDto, Timestamp.from(Instant.now()).toString(), "");
+        verify(deliveryProgressReportsBulkRepository, times(1)).insertIgnoringDuplicates(anyList());
+    }
+
+    @Test
+    public void shouldAcknowledgeRetriedReportsWithoutStoringThemAgain() throws Exception {
+        String json = ResourceUtil.readFromClasspath("DeliveryProgressReportTestExample.json");
+        DeliveryReportFromPbsDto deliveryReportFromPbsDto = objectMapper.readValue(json, DeliveryReportFromPbsDto.class);
+        DeliveryReportStreamingParser parser = new DeliveryReportStreamingParser(configuration, new MockSystemService());
+        StreamedDeliveryReport streamedDeliveryReport =
+                parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        when(configuration.isDeliveryReportIdempotencyEnabled()).thenReturn(true);
+        when(configuration.getDeliveryReportIdempotencyTtlSeconds()).thenReturn(900L);
+        when(configuration.getDeliveryReportIdempotencyMaxReportIds()).thenReturn(1000);
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenThrow(new RuntimeException("DB down")).thenReturn(1);
+
+        softAssertions.assertThatCode(() -> deliveryReportsDataService.storeReport(deliveryReportFromPbsDto))
+                .isInstanceOf(RuntimeException.class);
+        // Not stored the first time, so the retry goes through, as does the next
+        deliveryReportsDataService.storeReport(deliveryReportFromPbsDto);
+        deliveryReportsDataService.storeReport(deliveryReportFromPbsDto);
+        deliveryReportsDataService.storeStreamedReport(streamedDeliveryReport);
+        softAssertions.assertAll();
+
+        verify(deliveryProgressReportsBulkRepository, times(2)).insertIgnoringDuplicates(anyList());
+        verify(dataServiceSystemService.getRecorder(), times(2)).markDuplicateDeliveryReportsSuppressed();
+    }
+
+    @Test
+    public void shouldReleaseReportIdsOfBatchNotStored() throws Exception {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp earlier = Timestamp.from(now.toInstant().minusSeconds(60));
+        List<JsonNode> lineItemStatus = Collections.singletonList(makeLineItemStatusDto(1));
+        List<DeliveryReportFromPbsDto> batch = Arrays.asList(
+                makeBatchReport("r1", earlier, now, lineItemStatus),
+                makeBatchReport("r2", now, earlier, lineItemStatus));
+        when(configuration.isDeliveryReportIdempotencyEnabled()).thenReturn(true);
+        when(configuration.getDeliveryReportIdempotencyTtlSeconds()).thenReturn(900L);
+        when(configuration.getDeliveryReportIdempotencyMaxReportIds()).thenReturn(1000);
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenThrow(new RuntimeException("DB down")).thenReturn(1);
+
+        softAssertions.assertThatCode(() -> deliveryReportsDataService.storeReportBatch(batch))
+                .isInstanceOf(RuntimeException.class);
+        softAssertions.assertThat(deliveryReportsDataService.storeReportBatch(batch))
+                .extracting(ReportResult::getStatus).containsExactly(Status.STORED, Status.REJECTED);
+        softAssertions.assertThat(deliveryReportsDataService.storeReportBatch(batch))
+                .extracting(ReportResult::getStatus).containsExactly(Status.DUPLICATE, Status.REJECTED);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldAskForRetryOfReportsStillBeingStored() throws Exception {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp earlier = Timestamp.from(now.toInstant().minusSeconds(60));
+        List<JsonNode> lineItemStatus = Collections.singletonList(makeLineItemStatusDto(1));
+        String json = ResourceUtil.readFromClasspath("DeliveryProgressReportTestExample.json");
+        DeliveryReportFromPbsDto deliveryReportFromPbsDto = objectMapper.readValue(json, DeliveryReportFromPbsDto.class);
+        when(configuration.isDeliveryReportIdempotencyEnabled()).thenReturn(true);
+        when(configuration.getDeliveryReportIdempotencyTtlSeconds()).thenReturn(900L);
+        when(configuration.getDeliveryReportIdempotencyMaxReportIds()).thenReturn(1000);
+        // Earlier deliveries of both reports are still being stored
+        deliveryReportIdempotencyFilter.reserve(deliveryReportFromPbsDto.getReportId());
+        deliveryReportIdempotencyFilter.reserve("r1");
+
+        softAssertions.assertThatCode(() -> deliveryReportsDataService.storeReport(deliveryReportFromPbsDto))
+                .isInstanceOf(DeliveryReportInFlightException.class);
+        softAssertions.assertThat(deliveryReportsDataService.storeReportBatch(
+                Collections.singletonList(makeBatchReport("r1", earlier, now, lineItemStatus))))
+                .extracting(ReportResult::getStatus).containsExactly(Status.IN_FLIGHT);
+
+        // Once the earlier deliveries are settled, retries are stored or acknowledged
+        deliveryReportIdempotencyFilter.release(deliveryReportFromPbsDto.getReportId());
+        deliveryReportIdempotencyFilter.markStored("r1");
+        deliveryReportsDataService.storeReport(deliveryReportFromPbsDto);
+        softAssertions.assertThat(deliveryReportsDataService.storeReportBatch(
+                Collections.singletonList(makeBatchReport("r1", earlier, now, lineItemStatus))))
+                .extracting(ReportResult::getStatus).containsExactly(Status.DUPLICATE);
+        softAssertions.assertAll();
+
+        verify(deliveryProgressReportsBulkRepository, times(1)).insertIgnoringDuplicates(anyList());
+    }
+
+    @Test
+    public void shouldStoreReportBatchWithOneInsertAndResultPerReport() throws Exception {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp earlier = Timestamp.from(now.toInstant().minusSeconds(60));
+        List<JsonNode> lineItemStatus = Arrays.asList(makeLineItemStatusDto(1), makeLineItemStatusDto(2));
+        List<JsonNode> partlyInvalidLineItemStatus =
+                Arrays.asList(makeLineItemStatusDto(3), objectMapper.readTree("{\"lineItemId\":\"PG-4\"}"));
+        List<DeliveryReportFromPbsDto> batch = Arrays.asList(
+                makeBatchReport("r1", earlier, now, lineItemStatus),
+                makeBatchReport("r2", now, earlier, lineItemStatus),
+                makeBatchReport("r1", earlier, now, lineItemStatus),
+                makeBatchReport("r3", earlier, now, partlyInvalidLineItemStatus),
+                makeBatchReport("r4", earlier, now, Collections.emptyList()));
+
+        List<ReportResult> results = deliveryReportsDataService.storeReportBatch(batch);
+
+        softAssertions.assertThat(results).extracting(ReportResult::getReportId)
+                .containsExactly("r1", "r2", "r1", "r3", "r4");
+        softAssertions.assertThat(results).extracting(ReportResult::getStatus)
+                .containsExactly(Status.STORED, Status.REJECTED, Status.DUPLICATE, Status.STORED, Status.STORED);
+        softAssertions.assertThat(results.get(1).getMessage())
+                .isEqualTo("DataWindowEndTimeStamp before DataWindowStartTimeStamp");
+        softAssertions.assertThat(results.get(3).getMessage())
+                .isEqualTo("1 of 2 line item status entries were not valid");
+        softAssertions.assertThat(saveAllCounter).isEqualTo(3);
+        softAssertions.assertAll();
+
+        verify(deliveryProgressReportsBulkRepository, times(1)).insertIgnoringDuplicates(anyList());
+        verify(lineItemSummaryPreAggregator, times(2)).add(anyList());
+        verify(dataServiceSystemService.getRecorder()).markDeliveryReportRecordsStored(4);
+    }
+
+    @Test
+    public void shouldStoreReportsOfBatchOneByOneWhenBulkInsertFails() throws Exception {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp earlier = Timestamp.from(now.toInstant().minusSeconds(60));
+        List<JsonNode> lineItemStatus = Collections.singletonList(makeLineItemStatusDto(1));
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenThrow(new TypeMismatchDataAccessException("batch"))
+                .thenReturn(1)
+                .thenThrow(new TypeMismatchDataAccessException("r2"));
+
+        List<ReportResult> results = deliveryReportsDataService.storeReportBatch(Arrays.asList(
+                makeBatchReport("r1", earlier, now, lineItemStatus),
+                makeBatchReport("r2", earlier, now, lineItemStatus)));
+
+        softAssertions.assertThat(results).extracting(ReportResult::getStatus)
+                .containsExactly(Status.STORED, Status.FAILED);
+        softAssertions.assertThat(results.get(1).getMessage()).isEqualTo("r2");
+        softAssertions.assertAll();
+        verify(deliveryProgressReportsBulkRepository, times(3)).insertIgnoringDuplicates(anyList());
+        verify(lineItemSummaryPreAggregator, times(1)).add(anyList());
+    }
+
+    @Test
+    public void shouldSpoolEachReportOfBatchWhenDbIsUnavailable() throws Exception {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp earlier = Timestamp.from(now.toInstant().minusSeconds(60));
+        List<JsonNode> lineItemStatus = Collections.singletonList(makeLineItemStatusDto(1));
+        DataAccessResourceFailureException unavailable = new DataAccessResourceFailureException("down");
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList())).thenThrow(unavailable);
+        when(deliveryReportSpool.trySpool(eq("r1"), anyList(), eq(unavailable))).thenReturn(true);
+
+        List<ReportResult> results = deliveryReportsDataService.storeReportBatch(Arrays.asList(
+                makeBatchReport("r1", earlier, now, lineItemStatus),
+                makeBatchReport("r2", earlier, now, lineItemStatus)));
+
+        softAssertions.assertThat(results).extracting(ReportResult::getStatus)
+                .containsExactly(Status.SPOOLED, Status.FAILED);
+        softAssertions.assertAll();
+        verify(deliveryProgressReportsBulkRepository, times(1)).insertIgnoringDuplicates(anyList());
+        verify(lineItemSummaryPreAggregator, never()).add(anyList());
+    }
+
+    @Test
+    public void shouldQueueEachReportOfBatchWhenAsyncIngestEnabled() throws Exception {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp earlier = Timestamp.from(now.toInstant().minusSeconds(60));
+        List<JsonNode> lineItemStatus = Collections.singletonList(makeLineItemStatusDto(1));
+        when(configuration.isDeliveryReportAsyncIngestEnabled()).thenReturn(true);
+        doNothing().doThrow(new DeliveryReportQueueFullException("full")).when(deliveryReportWriteBehindQueue)
+                .enqueue(anyString(), anyString(), anyList(), anyInt());
+
+        List<ReportResult> results = deliveryReportsDataService.storeReportBatch(Arrays.asList(
+                makeBatchReport("r1", earlier, now, lineItemStatus),
+                makeBatchReport("r2", earlier, now, lineItemStatus)));
+
+        softAssertions.assertThat(results).extracting(ReportResult::getStatus)
+                .containsExactly(Status.QUEUED, Status.REJECTED);
+        softAssertions.assertThat(results.get(1).getMessage()).isEqualTo("full");
+        softAssertions.assertAll();
+
+        verify(deliveryProgressReportsBulkRepository, never()).insertIgnoringDuplicates(anyList());
+        // Queued lines are pre-aggregated by the writer thread once committed
+        verify(lineItemSummaryPreAggregator, never()).add(anyList());
+    }
+
+    @Test
+    public void shouldSpoolLinesWhenDbIsUnavailable() throws Exception {
+        Timestamp now = Timestamp.from(Instant.now());
+        String json = ResourceUtil.readFromClasspath("DeliveryProgressReportTestExample.json");
+        DeliveryReportFromPbsDto deliveryReportFromPbsDto = objectMapper.readValue(json, DeliveryReportFromPbsDto.class);
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
+                .thenThrow(new TypeMismatchDataAccessException("down"));
+        when(deliveryReportSpool.trySpool(eq(deliveryReportFromPbsDto.getReportId()), anyList(),
+                any(TypeMismatchDataAccessException.class))).thenReturn(true, false);
+
+        softAssertions.assertThatCode(() -> deliveryReportsDataService.storeLines(deliveryReportFromPbsDto, now))
+                .doesNotThrowAnyException();
+        softAssertions.assertThatCode(() -> deliveryReportsDataService.storeLines(deliveryReportFromPbsDto, now))
+                .isExactlyInstanceOf(TypeMismatchDataAccessException.class);
+        softAssertions.assertAll();
+        verify(lineItemSummaryPreAggregator, never()).add(anyList());
+    }
+
     @Test
     public void shouldThrowExceptionFromStoreLineWhenRepoThrowsExceptions() throws Exception {
         Timestamp now = Timestamp.from(Instant.now());
@@ -181,7 +449,7 @@ class DeliveryReportsDataServiceTest {
         DeliveryReportFromPbsDto deliveryReportFromPbsDto = DeliveryReportProcessorTest.
                 makeDeliveryReportFromPbsDtoWithLineItemStatus("reportId", "vendor", "instanceId",
                         Timestamp.from(Instant.now().minusSeconds(60)), now, lineItemStatusDtos);
-        when(deliveryProgressReportsRepository.saveAll(anyIterable()))
+        when(deliveryProgressReportsBulkRepository.insertIgnoringDuplicates(anyList()))
                 .thenThrow(new TypeMismatchDataAccessException("first"))
                 .thenThrow(new RuntimeException("second"));
         softAssertions.assertThatCode(() -> deliveryReportsDataService.storeLines(deliveryReportFromPbsDto, now))
@@ -218,14 +486,14 @@ class DeliveryReportsDataServiceTest {
         Timestamp startTime = Timestamp.from(baseTime.minusSeconds(180));
         Timestamp endTime = Timestamp.from(baseTime.plusSeconds(180));
         given(configuration.getLineItemSummaryPagerSize()).willReturn(100);
-        given(deliveryProgressReportsRepository.getLineItemReportsByLineIdsWithTimeRange(any(), any(), any(), any()))
-                .willReturn(buildReportPage(startTime, endTime));
+        given(deliveryProgressReportsRepository.getLineItemReportsByLineIdsWithTimeRangeAfter(any(), any(), any(), any(), any(), any(), any()))
+                .willReturn(buildReports(startTime, endTime));
 
         List<Map<String, Object>> result = deliveryReportsDataService.getLineItemSummaryReport(
                 "bidderPG-1111", start, end, LineItemSummaryReport.getMetricsFields(), 60, 0);
 
         verify(deliveryProgressReportsRepository, times(1))
-                .getLineItemReportsByLineIdsWithTimeRange(any(), any(), any(), any());
+                .getLineItemReportsByLineIdsWithTimeRangeAfter(any(), any(), any(), any(), any(), any(), any());
         assertLineItemSummaries(result.get(0));
         softAssertions.assertAll();
     }
@@ -239,14 +507,14 @@ class DeliveryReportsDataServiceTest {
         Timestamp endTime = Timestamp.from(baseTime.plusSeconds(180));
 
         given(configuration.getLineItemSummaryPagerSize()).willReturn(100);
-        given(deliveryProgressReportsRepository.getLineItemReportsWithTimeRange(any(), any(), any()))
-                .willReturn(buildReportPage(startTime, endTime));
+        given(deliveryProgressReportsRepository.getLineItemReportsWithTimeRangeAfter(any(), any(), any(), any(), any(), any()))
+                .willReturn(buildReports(startTime, endTime));
 
         List<Map<String, Object>> result = deliveryReportsDataService.getLineItemSummaryReport(
                 null, start, end, LineItemSummaryReport.getMetricsFields(), 60, 0);
         softAssertions.assertThat(result).hasSize(1);
         verify(deliveryProgressReportsRepository, times(1))
-                .getLineItemReportsWithTimeRange(any(), any(),any());
+                .getLineItemReportsWithTimeRangeAfter(any(), any(), any(), any(), any(), any());
         assertLineItemSummaries(result.get(0));
         softAssertions.assertAll();
     }
@@ -260,13 +528,13 @@ class DeliveryReportsDataServiceTest {
         Timestamp endTime = Timestamp.from(baseTime.plusSeconds(180));
 
         given(configuration.getLineItemSummaryPagerSize()).willReturn(100);
-        given(deliveryProgressReportsRepository.getLineItemReportsWithTimeRange(any(), any(), any()))
-                .willReturn(buildReportPage(startTime, endTime));
+        given(deliveryProgressReportsRepository.getLineItemReportsWithTimeRangeAfter(any(), any(), any(), any(), any(), any()))
+                .willReturn(buildReports(startTime, endTime));
 
         List<Map<String, Object>> summaryList = deliveryReportsDataService.getLineItemSummaryReport(
                 null, start, end, LineItemSummaryReport.getMetricsFields(), 2, 0);
         verify(deliveryProgressReportsRepository, times(1))
-                .getLineItemReportsWithTimeRange(any(), any(),any());
+                .getLineItemReportsWithTimeRangeAfter(any(), any(), any(), any(), any(), any());
 
         softAssertions.assertThat(summaryList.get(0).size()).isEqualTo(1);
         softAssertions.assertThat(summaryList.get(0).get(LineItemSummaryReport.INTERVAL)).isEqualTo(0);
@@ -279,7 +547,7 @@ class DeliveryReportsDataServiceTest {
         return new String(Files.readAllBytes(resource1.toPath()));
     }
 
-    private Page<DeliveryReport> buildReportPage(Timestamp startTime, Timestamp endTime) throws Exception {
+    private List<DeliveryReport> buildReports(Timestamp startTime, Timestamp endTime) throws Exception {
         DeliveryReport report1 = DeliveryReport.builder()
                 .reportId("11")
                 .lineItemId("bidderPG-1111")
@@ -297,7 +565,20 @@ class DeliveryReportsDataServiceTest {
         List<DeliveryReport> reports = new ArrayList<>();
         reports.add(report1);
         reports.add(report2);
-        return new PageImpl<>(reports);
+        return reports;
+    }
+
+    private static DeliveryReportFromPbsDto makeBatchReport(String reportId, Timestamp dataWindowStart,
+                                                            Timestamp dataWindowEnd, List<JsonNode> lineItemStatus) {
+        return DeliveryReportFromPbsDto.builder()
+                .reportId(reportId)
+                .vendor("vendor")
+                .region("region")
+                .instanceId("instance")
+                .dataWindowStartTimeStamp(dataWindowStart)
+                .dataWindowEndTimeStamp(dataWindowEnd)
+                .lineItemStatus(lineItemStatus)
+                .build();
     }
 
     private JsonNode makeLineItemStatusDto(Integer lineId) throws Exception {
@@ -0,0 +1,83 @@
+package org.prebid.pg.delstats.services;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.InvalidRequestException;
+import org.prebid.pg.delstats.metrics.DeliveryReportStoreEvent;
+import org.prebid.pg.delstats.model.dto.FlightRecordingState;
+import org.prebid.pg.delstats.utils.MockSystemService;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FlightRecordingServiceTest {
+
+    private SoftAssertions softAssertions;
+
+    private FlightRecordingService flightRecordingService;
+
+    @TempDir
+    Path recordingDirectory;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        ServerConfiguration configuration = new ServerConfiguration();
+        configuration.setFlightRecordingSettings("default");
+        configuration.setFlightRecordingDirectory(recordingDirectory.resolve("recordings").toString());
+        configuration.setFlightRecordingMaxAgeMinutes(10);
+        configuration.setFlightRecordingMaxSizeBytes(1024 * 1024);
+        flightRecordingService = new FlightRecordingService(configuration, new MockSystemService());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        flightRecordingService.close();
+    }
+
+    @Test
+    public void shouldRecordCustomEventsAndDumpThemWhenStopped() throws Exception {
+        FlightRecordingState started = flightRecordingService.start(null);
+        DeliveryReportStoreEvent event = new DeliveryReportStoreEvent();
+        event.begin();
+        event.setReportId("report-1");
+        event.setLineItemStatusCount(3);
+        event.commit();
+        FlightRecordingState dumped = flightRecordingService.dump();
+        FlightRecordingState stopped = flightRecordingService.stop();
+
+        softAssertions.assertThat(started.isRunning()).isTrue();
+        softAssertions.assertThat(started.getSettings()).isEqualTo("default");
+        softAssertions.assertThat(started.getMaxAgeMinutes()).isEqualTo(10);
+        softAssertions.assertThat(dumped.isRunning()).isTrue();
+        softAssertions.assertThat(stopped.isRunning()).isFalse();
+        softAssertions.assertThat(stopped.getLastDumpFile()).isNotEqualTo(dumped.getLastDumpFile());
+        List<RecordedEvent> storeEvents = RecordingFile.readAllEvents(Paths.get(stopped.getLastDumpFile())).stream()
+                .filter(recorded -> recorded.getEventType().getName()
+                        .equals("org.prebid.pg.delstats.DeliveryReportStore"))
+                .collect(Collectors.toList());
+        softAssertions.assertThat(storeEvents).hasSize(1);
+        softAssertions.assertThat(storeEvents.get(0).getString("reportId")).isEqualTo("report-1");
+        softAssertions.assertThat(storeEvents.get(0).getInt("lineItemStatusCount")).isEqualTo(3);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRejectStartingTwiceOrStoppingWithoutRecording() {
+        assertThatThrownBy(() -> flightRecordingService.stop()).isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> flightRecordingService.start("no-such-settings"))
+                .isInstanceOf(InvalidRequestException.class);
+        flightRecordingService.start("profile");
+        assertThatThrownBy(() -> flightRecordingService.start(null)).isInstanceOf(InvalidRequestException.class);
+    }
+}
@@ -0,0 +1,108 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.persistence.DeliveryReport;
+import org.prebid.pg.delstats.persistence.DeliveryReportSummary;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+public class LineItemSummaryPreAggregatorTest {
+    private static final long INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private SoftAssertions softAssertions;
+
+    private ServerConfiguration configuration;
+
+    private long nextIntervalStart;
+
+    @BeforeEach
+    public void setUpBeforeEach() {
+        softAssertions = new SoftAssertions();
+        configuration = mock(ServerConfiguration.class);
+        lenient().when(configuration.isDeliverySummaryServicePreAggregationEnabled()).thenReturn(true);
+        lenient().when(configuration.getDeliverySummaryServiceAggregateInterval()).thenReturn(5);
+        lenient().when(configuration.getDeliverySummaryServiceMaxAggregateIntervals()).thenReturn(3L);
+        nextIntervalStart = (System.currentTimeMillis() / INTERVAL_MILLIS + 1) * INTERVAL_MILLIS;
+    }
+
+    @Test
+    public void shouldSumCountersPerLineItem() {
+        LineItemSummaryPreAggregator aggregator = new LineItemSummaryPreAggregator(configuration);
+        aggregator.add(Arrays.asList(
+                makeLine("bidderPG-1", nextIntervalStart + 1000, 10, 2, "plan1", 5),
+                makeLine("bidderPG-2", nextIntervalStart + 1000, 1, 0, null, 0)));
+        aggregator.add(Arrays.asList(makeLine("bidderPG-1", nextIntervalStart + 5000, 20, 1, "plan1", 7)));
+
+        Optional<LineItemSummaryPreAggregator.PreAggregatedInterval> interval = aggregator.takeInterval(
+                new Timestamp(nextIntervalStart), new Timestamp(nextIntervalStart + INTERVAL_MILLIS));
+
+        softAssertions.assertThat(interval).isPresent();
+        LineItemSummaryPreAggregator.PreAggregatedInterval preAggregated = interval.get();
+        softAssertions.assertThat(preAggregated.getLineCount()).isEqualTo(3);
+        DeliveryReportSummary summary = preAggregated.getSummaries().stream()
+                .filter(s -> s.getLineItemId().equals("bidderPG-1")).findFirst().get();
+        softAssertions.assertThat(summary.getTargetMatched()).isEqualTo(30);
+        softAssertions.assertThat(summary.getWinEvents()).isEqualTo(3);
+        softAssertions.assertThat(summary.getPlanData()).isEqualTo("plan1,12,,12");
+        softAssertions.assertThat(summary.getLineItemSource()).isEqualTo("bidderPG");
+        softAssertions.assertThat(summary.getReportWindowStartTimestamp().toEpochMilli())
+                .isEqualTo(nextIntervalStart + 1000);
+        softAssertions.assertThat(summary.getReportWindowEndTimestamp().toEpochMilli())
+                .isEqualTo(nextIntervalStart + 5000);
+        softAssertions.assertThat(aggregator.takeInterval(new Timestamp(nextIntervalStart),
+                new Timestamp(nextIntervalStart + INTERVAL_MILLIS)).get().getSummaries()).isEmpty();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldNotHandOutIntervalsNotFullySeen() {
+        LineItemSummaryPreAggregator aggregator = new LineItemSummaryPreAggregator(configuration);
+        long currentIntervalStart = nextIntervalStart - INTERVAL_MILLIS;
+        aggregator.add(Arrays.asList(makeLine("bidderPG-1", currentIntervalStart + 1, 1, 1, null, 0)));
+
+        softAssertions.assertThat(aggregator.takeInterval(new Timestamp(currentIntervalStart),
+                new Timestamp(nextIntervalStart))).isEmpty();
+        softAssertions.assertThat(aggregator.takeInterval(new Timestamp(nextIntervalStart),
+                new Timestamp(nextIntervalStart + 2 * INTERVAL_MILLIS))).isEmpty();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldDoNothingWhenDisabled() {
+        lenient().when(configuration.isDeliverySummaryServicePreAggregationEnabled()).thenReturn(false);
+        LineItemSummaryPreAggregator aggregator = new LineItemSummaryPreAggregator(configuration);
+        aggregator.add(Arrays.asList(makeLine("bidderPG-1", nextIntervalStart + 1, 1, 1, null, 0)));
+
+        softAssertions.assertThat(aggregator.takeInterval(new Timestamp(nextIntervalStart),
+                new Timestamp(nextIntervalStart + INTERVAL_MILLIS))).isEmpty();
+        softAssertions.assertAll();
+    }
+
+    private static DeliveryReport makeLine(String lineItemId, long reportTimestamp, int targetMatched,
+                                           int winEvents, String planId, int spent) {
+        LineItemStatusCounters counters = new LineItemStatusCounters();
+        counters.setTargetMatched(targetMatched);
+        counters.setWinEvents(winEvents);
+        counters.setFirstPlanId(planId);
+        counters.setFirstPlanTokensSpent(spent);
+        return DeliveryReport.builder()
+                .lineItemId(lineItemId)
+                .extLineItemId(lineItemId.substring(lineItemId.indexOf('-') + 1))
+                .bidderCode("bidderPG")
+                .reportTimestamp(new Timestamp(reportTimestamp))
+                .dataWindowStartTimestamp(new Timestamp(reportTimestamp - 60000))
+                .dataWindowEndTimestamp(new Timestamp(reportTimestamp))
+                .counters(counters)
+                .build();
+    }
+}
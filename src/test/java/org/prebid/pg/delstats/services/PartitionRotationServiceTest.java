@@ -0,0 +1,159 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.prebid.pg.delstats.alerts.AlertName;
+import org.prebid.pg.delstats.alerts.AlertPriority;
+import org.prebid.pg.delstats.alerts.AlertProxyHttpClient;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.repository.PartitionRepository;
+import org.prebid.pg.delstats.repository.PartitionRepository.Partition;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class PartitionRotationServiceTest {
+
+    private static final String TABLE = PartitionRotationService.DELIVERY_PROGRESS_REPORTS_TABLE;
+
+    private static final long DAY = 86400L;
+
+    // 2020-06-10T12:00:00Z
+    private static final Instant NOW = Instant.ofEpochSecond(1591790400L);
+
+    private static final long TODAY = 1591747200L;
+
+    @Mock
+    private PartitionRepository partitionRepositoryMock;
+
+    @Mock
+    private SystemService systemServiceMock;
+
+    @Mock
+    private AlertProxyHttpClient alertClientMock;
+
+    private ServerConfiguration serverConfig;
+
+    private PartitionRotationService partitionRotationService;
+
+    private SoftAssertions softAssertions;
+
+    @BeforeEach
+    void setup() {
+        serverConfig = new ServerConfiguration();
+        serverConfig.setPartitionRotationEnabled(true);
+        serverConfig.setPartitionRotationPartitionHours(24);
+        serverConfig.setPartitionRotationFuturePartitions(2);
+        softAssertions = new SoftAssertions();
+        partitionRotationService = new PartitionRotationService(
+                partitionRepositoryMock, serverConfig, systemServiceMock, alertClientMock);
+    }
+
+    @Test
+    void shouldAddFuturePartitionsAndDropExpiredOnes() {
+        given(partitionRepositoryMock.findPartitions(TABLE)).willReturn(Arrays.asList(
+                new Partition("p2020060700", TODAY - 2 * DAY),
+                new Partition("p2020060800", TODAY - DAY),
+                new Partition("p2020060900", TODAY),
+                new Partition("p2020061000", TODAY + DAY),
+                new Partition(PartitionRepository.CATCH_ALL_PARTITION, null)));
+        given(partitionRepositoryMock.isCatchAllPartitionEmpty(TABLE)).willReturn(true);
+
+        partitionRotationService.rotatePartitions(TABLE, 36, NOW);
+
+        ArgumentCaptor<List<Partition>> addCaptor = ArgumentCaptor.forClass(List.class);
+        verify(partitionRepositoryMock).addPartitions(eq(TABLE), addCaptor.capture());
+        softAssertions.assertThat(addCaptor.getValue()).containsExactly(
+                new Partition("p2020061100", TODAY + 2 * DAY),
+                new Partition("p2020061200", TODAY + 3 * DAY));
+
+        ArgumentCaptor<List<Partition>> dropCaptor = ArgumentCaptor.forClass(List.class);
+        verify(partitionRepositoryMock).dropPartitions(eq(TABLE), dropCaptor.capture());
+        softAssertions.assertThat(dropCaptor.getValue()).containsExactly(
+                new Partition("p2020060700", TODAY - 2 * DAY),
+                new Partition("p2020060800", TODAY - DAY));
+        softAssertions.assertAll();
+    }
+
+    @Test
+    void shouldStartFromCurrentPartitionWhenOnlyCatchAllExists() {
+        given(partitionRepositoryMock.findPartitions(TABLE)).willReturn(
+                Collections.singletonList(new Partition(PartitionRepository.CATCH_ALL_PARTITION, null)));
+        given(partitionRepositoryMock.isCatchAllPartitionEmpty(TABLE)).willReturn(true);
+
+        partitionRotationService.rotatePartitions(TABLE, 720, NOW);
+
+        ArgumentCaptor<List<Partition>> addCaptor = ArgumentCaptor.forClass(List.class);
+        verify(partitionRepositoryMock).addPartitions(eq(TABLE), addCaptor.capture());
+        softAssertions.assertThat(addCaptor.getValue()).containsExactly(
+                new Partition("p2020061000", TODAY + DAY),
+                new Partition("p2020061100", TODAY + 2 * DAY),
+                new Partition("p2020061200", TODAY + 3 * DAY));
+        softAssertions.assertAll();
+        verify(partitionRepositoryMock, never()).dropPartitions(anyString(), anyList());
+    }
+
+    @Test
+    void shouldNotSplitCatchAllPartitionHoldingRows() {
+        given(partitionRepositoryMock.findPartitions(TABLE)).willReturn(Arrays.asList(
+                new Partition("p2020060800", TODAY - DAY),
+                new Partition("p2020060900", TODAY),
+                new Partition(PartitionRepository.CATCH_ALL_PARTITION, null)));
+        given(partitionRepositoryMock.isCatchAllPartitionEmpty(TABLE)).willReturn(false);
+
+        partitionRotationService.rotatePartitions(TABLE, 36, NOW);
+
+        verify(partitionRepositoryMock, never()).addPartitions(anyString(), anyList());
+        verify(alertClientMock).sendNotification(
+                eq(AlertName.PARTITION_ROTATION_ERROR), anyString(), eq(AlertPriority.HIGH));
+        verify(partitionRepositoryMock).dropPartitions(TABLE,
+                Collections.singletonList(new Partition("p2020060800", TODAY - DAY)));
+    }
+
+    @Test
+    void shouldSkipTableThatIsNotPartitioned() {
+        given(partitionRepositoryMock.findPartitions(TABLE)).willReturn(Collections.emptyList());
+
+        partitionRotationService.rotatePartitions(TABLE, 720, NOW);
+
+        verify(partitionRepositoryMock, never()).addPartitions(anyString(), anyList());
+        verify(partitionRepositoryMock, never()).dropPartitions(anyString(), anyList());
+    }
+
+    @Test
+    void shouldRaiseAlertWhenRotationFails() {
+        given(partitionRepositoryMock.findPartitions(TABLE)).willThrow(new RuntimeException("no access"));
+
+        partitionRotationService.rotatePartitions(TABLE, 720, NOW);
+
+        verify(alertClientMock).raiseEventForExceptionAndLog(
+                eq(AlertName.PARTITION_ROTATION_ERROR), anyString(), eq(AlertPriority.HIGH), any());
+    }
+
+    @Test
+    void shouldNotRotateIfDisabled() {
+        given(systemServiceMock.getShutdown()).willReturn(new Shutdown());
+        serverConfig.setPartitionRotationEnabled(false);
+
+        partitionRotationService.rotatePartitions();
+
+        verify(partitionRepositoryMock, never()).findPartitions(anyString());
+    }
+}
@@ -0,0 +1,149 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.model.dto.DeliveryReportFromPbsDto;
+import org.prebid.pg.delstats.model.dto.PbsInstanceStates;
+import org.prebid.pg.delstats.model.dto.PbsInstanceStates.PbsInstanceFreshness;
+import org.prebid.pg.delstats.utils.MockSystemService;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class PbsInstanceRegistryTest {
+
+    private SoftAssertions softAssertions;
+
+    private ServerConfiguration configuration;
+
+    private MockSystemService systemService;
+
+    private PbsInstanceRegistry registry;
+
+    private Instant now;
+
+    @BeforeEach
+    public void setup() {
+        softAssertions = new SoftAssertions();
+        configuration = new ServerConfiguration();
+        configuration.setPbsInstanceRegistryEnabled(true);
+        configuration.setPbsInstanceRegistryRetentionHours(24);
+        configuration.setPbsInstanceRegistryMaxInstances(100);
+        configuration.setPbsInstanceRegistryMaxLagMetrics(10);
+        systemService = new MockSystemService();
+        registry = new PbsInstanceRegistry(configuration, systemService);
+        now = Instant.parse("2019-02-01T07:00:00Z");
+        registry.setClock(Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void shouldKeepLastReportOfEachInstance() {
+        registry.recordReport(makeReport("r1", "us-east-1", "i1", now.minusSeconds(30)), 10, 1000);
+        registry.recordReport(makeReport("r2", "us-east-1", "i2", now.minusSeconds(5)), 20, 2000);
+        advanceSeconds(60);
+        registry.recordReport(makeReport("r3", "us-east-1", "i1", now.minusSeconds(2)), 30, 3000);
+
+        PbsInstanceStates states = registry.getPbsInstanceStates(null, null);
+        softAssertions.assertThat(states.getTs()).isEqualTo(now.toString());
+        softAssertions.assertThat(states.getPbsInstances()).extracting(PbsInstanceFreshness::getInstanceId)
+                .containsExactly("i2", "i1");
+        PbsInstanceFreshness i1 = states.getPbsInstances().get(1);
+        softAssertions.assertThat(i1.getLastReportId()).isEqualTo("r3");
+        softAssertions.assertThat(i1.getLastReportTimestamp()).isEqualTo(now.toString());
+        softAssertions.assertThat(i1.getLastDataWindowEndTimestamp()).isEqualTo(now.minusSeconds(2).toString());
+        softAssertions.assertThat(i1.getLastReportLagMillis()).isEqualTo(2000);
+        softAssertions.assertThat(i1.getLastReportLines()).isEqualTo(30);
+        softAssertions.assertThat(i1.getLastReportBytes()).isEqualTo(3000);
+        softAssertions.assertThat(i1.getReportsReceived()).isEqualTo(2);
+        softAssertions.assertThat(i1.getBytesReceived()).isEqualTo(4000);
+        softAssertions.assertThat(states.getPbsInstances().get(0).getSecondsSinceLastReport()).isEqualTo(60);
+        softAssertions.assertAll();
+
+        verify(systemService.getRecorder()).updatePbsReportLagHistogram("vendor", "us-east-1", 30000);
+        verify(systemService.getRecorder()).updatePbsReportLagHistogram("vendor", "us-east-1", 5000);
+        verify(systemService.getRecorder()).updatePbsReportLagHistogram("vendor", "us-east-1", 2000);
+    }
+
+    @Test
+    public void shouldFilterByRegionAndDropInstancesSilentForRetentionTime() {
+        registry.recordReport(makeReport("r1", "us-east-1", "i1", now), 1, 100);
+        advanceSeconds(3600);
+        registry.recordReport(makeReport("r2", "us-west-1", "i2", now), 1, 100);
+
+        softAssertions.assertThat(registry.getPbsInstanceStates("vendor", "us-west-1").getPbsInstances())
+                .extracting(PbsInstanceFreshness::getInstanceId).containsExactly("i2");
+        softAssertions.assertThat(registry.getPbsInstanceStates("other", null).getPbsInstances()).isEmpty();
+
+        advanceSeconds(23 * 3600 + 1);
+        softAssertions.assertThat(registry.getPbsInstanceStates(null, null).getPbsInstances())
+                .extracting(PbsInstanceFreshness::getInstanceId).containsExactly("i2");
+        softAssertions.assertThat(registry.size()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldExpireInstancesWhileRecording() {
+        registry.recordReport(makeReport("r1", "us-east-1", "i1", now), 1, 100);
+        advanceSeconds(24 * 3600 + 1);
+        registry.recordReport(makeReport("r2", "us-east-1", "i2", now), 1, 100);
+
+        softAssertions.assertThat(registry.size()).isEqualTo(1);
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldBoundInstancesAndLagHistograms() {
+        configuration.setPbsInstanceRegistryMaxInstances(2);
+        configuration.setPbsInstanceRegistryMaxLagMetrics(1);
+        registry.recordReport(makeReport("r1", "us-east-1", "i1", now.minusSeconds(1)), 1, 100);
+        registry.recordReport(makeReport("r2", "us-west-1", "i2", now.minusSeconds(2)), 1, 100);
+        registry.recordReport(makeReport("r3", "us-west-1", "i3", now.minusSeconds(3)), 1, 100);
+        registry.recordReport(makeReport("r4", "us-east-1", "i1", now.minusSeconds(4)), 1, 100);
+
+        softAssertions.assertThat(registry.getPbsInstanceStates(null, null).getPbsInstances())
+                .extracting(PbsInstanceFreshness::getLastReportId).containsExactlyInAnyOrder("r4", "r2");
+        softAssertions.assertAll();
+        verify(systemService.getRecorder()).updatePbsReportLagHistogram("vendor", "us-east-1", 1000);
+        verify(systemService.getRecorder()).updatePbsReportLagHistogram(
+                PbsInstanceRegistry.OTHER, PbsInstanceRegistry.OTHER, 2000);
+        verify(systemService.getRecorder()).updatePbsReportLagHistogram(
+                PbsInstanceRegistry.OTHER, PbsInstanceRegistry.OTHER, 3000);
+        verify(systemService.getRecorder()).updatePbsReportLagHistogram("vendor", "us-east-1", 4000);
+    }
+
+    @Test
+    public void shouldNotRecordReportsWhenDisabled() {
+        configuration.setPbsInstanceRegistryEnabled(false);
+        registry.recordReport(makeReport("r1", "us-east-1", "i1", now), 1, 100);
+
+        softAssertions.assertThat(registry.size()).isZero();
+        softAssertions.assertAll();
+        verify(systemService.getRecorder(), never()).updatePbsReportLagHistogram(anyString(), anyString(), anyLong());
+    }
+
+    private void advanceSeconds(long seconds) {
+        now = now.plusSeconds(seconds);
+        registry.setClock(Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static DeliveryReportFromPbsDto makeReport(String reportId, String region, String instanceId,
+                                                       Instant dataWindowEnd) {
+        return DeliveryReportFromPbsDto.builder()
+                .reportId(reportId)
+                .vendor("vendor")
+                .region(region)
+                .instanceId(instanceId)
+                .dataWindowStartTimeStamp(Timestamp.from(dataWindowEnd.minusSeconds(60)))
+                .dataWindowEndTimeStamp(Timestamp.from(dataWindowEnd))
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.prebid.pg.delstats.alerts.AlertName;
+import org.prebid.pg.delstats.alerts.AlertPriority;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.model.dto.Shutdown;
+import org.prebid.pg.delstats.repository.ReportLineKey;
+import org.prebid.pg.delstats.repository.RetentionPurgeRepository;
+import org.prebid.pg.delstats.utils.MockSystemService;
+import org.springframework.scheduling.support.CronSequenceGenerator;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class RetentionPurgeServiceTest {
+
+    private static final String SUMMARY_CRON = "0 1/5 * * * ?";
+
+    @Mock
+    private RetentionPurgeRepository retentionPurgeRepositoryMock;
+
+    private ServerConfiguration serverConfig;
+
+    private MockSystemService systemService;
+
+    private GraphiteMetricsRecorder recorderMock;
+
+    private List<Long> sleeps;
+
+    private Instant now;
+
+    private SoftAssertions softAssertions;
+
+    @BeforeEach
+    void setup() {
+        serverConfig = new ServerConfiguration();
+        serverConfig.setPurgeEnabled(true);
+        serverConfig.setDeliverySummaryServiceCron(SUMMARY_CRON);
+        serverConfig.setPurgeMaxRunMinutes(60);
+        serverConfig.setPurgeChunkSize(2);
+        serverConfig.setPurgeRowsPerSecond(2);
+        serverConfig.setPurgeSummaryGuardMinutes(0);
+        serverConfig.setPurgeMaxIngestLatencyMillis(500);
+        serverConfig.setPurgeLatencyPauseMillis(10000);
+        serverConfig.setPurgeDeliveryProgressReportsRetentionHours(720);
+        serverConfig.setPurgeLatestTokenSpendSummaryRetentionHours(720);
+        serverConfig.setPurgeSystemStateRetentionHours(720);
+        systemService = new MockSystemService(new Shutdown());
+        recorderMock = systemService.getRecorder();
+        sleeps = new ArrayList<>();
+        now = Instant.now();
+        softAssertions = new SoftAssertions();
+    }
+
+    @Test
+    void shouldPurgeInChunksWithinRowBudget() {
+        ReportLineKey key = ReportLineKey.startingAt(new Timestamp(0));
+        given(retentionPurgeRepositoryMock.findExpiredDeliveryReportKeys(any(), eq(2)))
+                .willReturn(Arrays.asList(key, key));
+        given(retentionPurgeRepositoryMock.deleteDeliveryReports(anyList(), any())).willReturn(2, 2, 0);
+        given(retentionPurgeRepositoryMock.findStaleLineStateTags(any(), eq(2))).willReturn(Arrays.asList("a", "b"));
+        given(retentionPurgeRepositoryMock.deleteLineStates(anyList(), any())).willReturn(2, 0);
+
+        makeService().purge();
+
+        // 2 rows a second: the first chunk of 2 takes a second, the second is due after 2 seconds in total
+        softAssertions.assertThat(sleeps).containsExactly(1000L, 1000L, 1000L);
+        softAssertions.assertAll();
+        verify(recorderMock, times(2)).markDeliveryReportRecordsPurged(2);
+        verify(recorderMock, never()).markLatestTokenSpendSummariesPurged(anyInt());
+        verify(recorderMock).markSystemStatesPurged(2);
+    }
+
+    @Test
+    void shouldPauseWhileIngestLatencyIsHigh() {
+        given(recorderMock.getDeliveryReportStoreLatencyMillis()).willReturn(900.0, 100.0);
+
+        makeService().purge();
+
+        softAssertions.assertThat(sleeps).containsExactly(10000L);
+        softAssertions.assertAll();
+        verify(recorderMock).markPurgePaused();
+    }
+
+    @Test
+    void shouldWaitForSummaryRunToPass() {
+        serverConfig.setPurgeSummaryGuardMinutes(2);
+        now = new CronSequenceGenerator(SUMMARY_CRON).next(Date.from(now)).toInstant().plusSeconds(30);
+
+        makeService().purge();
+
+        softAssertions.assertThat(sleeps).containsExactly(90000L);
+        softAssertions.assertAll();
+        verify(retentionPurgeRepositoryMock).findExpiredDeliveryReportKeys(any(), anyInt());
+    }
+
+    @Test
+    void shouldStopAtRunTimeLimit() {
+        serverConfig.setPurgeMaxRunMinutes(0);
+
+        makeService().purge();
+
+        verify(retentionPurgeRepositoryMock, never()).findExpiredDeliveryReportKeys(any(), anyInt());
+        verify(retentionPurgeRepositoryMock, never()).findExpiredLatestTokenSpendSummaryKeys(any(), anyInt());
+        verify(retentionPurgeRepositoryMock, never()).findStaleLineStateTags(any(), anyInt());
+    }
+
+    @Test
+    void shouldNotPurgeIfDisabled() {
+        serverConfig.setPurgeEnabled(false);
+
+        makeService().purge();
+
+        verify(retentionPurgeRepositoryMock, never()).findExpiredDeliveryReportKeys(any(), anyInt());
+    }
+
+    @Test
+    void shouldRaiseAlertWhenPurgeFails() {
+        given(retentionPurgeRepositoryMock.findExpiredDeliveryReportKeys(any(), anyInt()))
+                .willThrow(new RuntimeException("lock wait timeout"));
+
+        makeService().purge();
+
+        verify(systemService.getAlertProxyHttpClient()).raiseEventForExceptionAndLog(
+                eq(AlertName.PURGE_ERROR), anyString(), eq(AlertPriority.HIGH), any());
+    }
+
+    private RetentionPurgeService makeService() {
+        lenient().when(retentionPurgeRepositoryMock.findOldestTimestamp(anyString(), anyString()))
+                .thenReturn(Optional.empty());
+        RetentionPurgeService service = new RetentionPurgeService(retentionPurgeRepositoryMock, serverConfig,
+                systemService) {
+            @Override
+            void sleep(long millis) {
+                sleeps.add(millis);
+                now = now.plusMillis(millis);
+                setClock(Clock.fixed(now, ZoneOffset.UTC));
+            }
+        };
+        service.setClock(Clock.fixed(now, ZoneOffset.UTC));
+        return service;
+    }
+}
@@ -0,0 +1,119 @@
+package org.prebid.pg.delstats.services;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.prebid.pg.delstats.config.ServerConfiguration;
+import org.prebid.pg.delstats.exception.DeliveryReportProcessingException;
+import org.prebid.pg.delstats.metrics.GraphiteMetricsRecorder;
+import org.prebid.pg.delstats.repository.DeliveryReportSummaryRepository;
+import org.prebid.pg.delstats.utils.MockSystemService;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ShardedLineSummaryWriterTest {
+
+    private static final Timestamp START_TIME = Timestamp.from(Instant.parse("2020-09-17T00:00:00.000Z"));
+
+    private static final Timestamp END_TIME = Timestamp.from(Instant.parse("2020-09-17T00:05:00.000Z"));
+
+    private SoftAssertions softAssertions;
+
+    private DeliveryReportSummaryRepository repository;
+
+    private ServerConfiguration configuration;
+
+    private MockSystemService systemService;
+
+    private ShardedLineSummaryWriter writer;
+
+    @BeforeEach
+    public void setUpBeforeEach() {
+        softAssertions = new SoftAssertions();
+        repository = mock(DeliveryReportSummaryRepository.class);
+        configuration = new ServerConfiguration();
+        configuration.setDeliverySummaryServiceShards(3);
+        configuration.setDeliverySummaryServiceShardTimeoutSeconds(5);
+        configuration.setDatasourceMaximumPoolSize(4);
+        systemService = new MockSystemService();
+        when(repository.findLineItemIdsByReportWindow(START_TIME, END_TIME))
+                .thenReturn(Arrays.asList("bidder-1", "bidder-2", "bidder-3", "bidder-4", "bidder-5"));
+    }
+
+    @AfterEach
+    public void tearDownAfterEach() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldSummarizeEachLineItemRangeInItsOwnShard() {
+        when(repository.insertLineSummariesDirectlyForLineItems(eq(START_TIME), eq(END_TIME), any(), any()))
+                .thenReturn(2);
+        writer = makeWriter();
+
+        int summariesSaved = writer.insertLineSummaries(START_TIME, END_TIME);
+
+        softAssertions.assertThat(summariesSaved).isEqualTo(6);
+        softAssertions.assertAll();
+        verify(repository).insertLineSummariesDirectlyForLineItems(START_TIME, END_TIME, "bidder-1", "bidder-1");
+        verify(repository).insertLineSummariesDirectlyForLineItems(START_TIME, END_TIME, "bidder-2", "bidder-3");
+        verify(repository).insertLineSummariesDirectlyForLineItems(START_TIME, END_TIME, "bidder-4", "bidder-5");
+        verify(repository, never()).insertLineSummariesDirectly(any(), any());
+        GraphiteMetricsRecorder recorder = systemService.getRecorder();
+        verify(recorder).updateDeliverySummaryShardTimer(eq(1), anyLong());
+        verify(recorder).updateDeliverySummaryShardTimer(eq(2), anyLong());
+        verify(recorder).updateDeliverySummaryShardTimer(eq(3), anyLong());
+    }
+
+    @Test
+    public void shouldDeleteTheSummariesOfTheIntervalWhenAShardFails() {
+        when(repository.insertLineSummariesDirectlyForLineItems(eq(START_TIME), eq(END_TIME), any(), any()))
+                .thenReturn(2);
+        when(repository.insertLineSummariesDirectlyForLineItems(START_TIME, END_TIME, "bidder-2", "bidder-3"))
+                .thenThrow(new QueryTimeoutException("timed out"));
+        writer = makeWriter();
+
+        assertThrows(DeliveryReportProcessingException.class,
+                () -> writer.insertLineSummaries(START_TIME, END_TIME));
+        // once for leftovers of an earlier run and once for the shards that succeeded
+        verify(repository, times(2)).deleteLineSummaries(START_TIME, END_TIME);
+        verify(systemService.getRecorder(), times(3)).updateDeliverySummaryShardTimer(anyInt(), anyLong());
+    }
+
+    @Test
+    public void shouldSummarizeInASingleQueryWhenNotSharded() {
+        configuration.setDeliverySummaryServiceShards(1);
+        when(repository.insertLineSummariesDirectly(START_TIME, END_TIME)).thenReturn(5);
+        writer = makeWriter();
+
+        softAssertions.assertThat(writer.insertLineSummaries(START_TIME, END_TIME)).isEqualTo(5);
+        softAssertions.assertAll();
+        verify(repository, never()).findLineItemIdsByReportWindow(any(), any());
+        verify(repository, never()).deleteLineSummaries(any(), any());
+    }
+
+    private ShardedLineSummaryWriter makeWriter() {
+        ShardedLineSummaryWriter shardedLineSummaryWriter = new ShardedLineSummaryWriter(repository,
+                mock(PlatformTransactionManager.class), configuration, systemService);
+        shardedLineSummaryWriter.init();
+        return shardedLineSummaryWriter;
+    }
+}
@@ -0,0 +1,25 @@
+package org.prebid.pg.delstats.utils;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+
+/**
+ * MySQL functions used by native queries, registered with the H2 test database in schema.sql.
+ */
+public final class H2Functions {
+
+    private H2Functions() {
+    }
+
+    /**
+     * MySQL DATE_FORMAT for the %Y, %m, %d, %H, %i and %s specifiers.
+     */
+    public static String dateFormat(Timestamp timestamp, String format) {
+        if (timestamp == null) {
+            return null;
+        }
+        String pattern = format.replace("%Y", "yyyy").replace("%m", "MM").replace("%d", "dd")
+                .replace("%H", "HH").replace("%i", "mm").replace("%s", "ss");
+        return new SimpleDateFormat(pattern).format(timestamp);
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.platform.commons.util.StringUtils;
 import org.prebid.pg.delstats.exception.InvalidLineItemIdFormatException;
+import org.prebid.pg.delstats.persistence.LineItemStatusCounters;
 
 import java.io.InputStream;
 import java.util.List;
@@ -57,4 +58,30 @@ public class LineItemStatusUtilsTest {
                 .isInstanceOf(InvalidLineItemIdFormatException.class);
         softAssertions.assertAll();
     }
+
+    @Test
+    public void shouldSetNestedCountersForTypedColumns() throws Exception {
+        LineItemStatusCounters counters = new LineItemStatusCounters();
+        LineItemStatusUtils.setNestedCounters(counters, om.readTree(
+                "{\"accountAuctions\":10,\"targetMatched\":4,\"lineItemSource\":\"bidder\","
+                        + "\"events\":[{\"type\":\"win\",\"count\":2}],"
+                        + "\"deliverySchedule\":[{\"planId\":\"p1\",\"tokens\":[{\"class\":1,\"spent\":8}]}]}"));
+
+        softAssertions.assertThat(counters.getAccountAuctions()).isZero();
+        softAssertions.assertThat(counters.getWinEvents()).isEqualTo(2);
+        softAssertions.assertThat(counters.getFirstPlanId()).isEqualTo("p1");
+        softAssertions.assertThat(counters.getFirstPlanTokensSpent()).isEqualTo(8);
+        softAssertions.assertThat(counters.getSecondPlanId()).isNull();
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRecogniseTimestampFields() {
+        softAssertions.assertThat(LineItemStatusUtils.isTimestampField("planStartTimeStamp")).isTrue();
+        softAssertions.assertThat(LineItemStatusUtils.isTimestampField("lastSeenTimestamp")).isTrue();
+        softAssertions.assertThat(LineItemStatusUtils.isTimestampField("TIMESTAMP")).isTrue();
+        softAssertions.assertThat(LineItemStatusUtils.isTimestampField("planId")).isFalse();
+        softAssertions.assertThat(LineItemStatusUtils.isTimestampField("timestamps")).isFalse();
+        softAssertions.assertAll();
+    }
 }
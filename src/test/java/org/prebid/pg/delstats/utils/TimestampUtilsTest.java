@@ -8,7 +8,12 @@ import org.junit.jupiter.api.Test;
 import org.prebid.pg.delstats.exception.InvalidTimestampFormatException;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class TimestampUtilsTest {
     private static final String TEST_TIME = "2019-01-01 00:00:00";
@@ -17,6 +22,32 @@ public class TimestampUtilsTest {
     private static final String TEST_ISOZ_TIME = "2019-01-01T00:00:00.000Z";
     private static final String TEST_ISOZ_TIME_NO_MILLIS = "2019-01-01T00:00:00Z";
 
+    // Shapes parsed directly, each matching what the fallback parsers make of it
+    private static final String[] DIRECT_TIMES = {
+            "2019-01-01", "2020-02-29", "1970-01-01", "1969-12-31", "1600-03-01", "9999-12-31",
+            "2019-02-01T06:59:59.999Z", "2019-01-31T22:16:44.000Z", "2019-01-01T00:00:00Z", "2019-01-01T00:00:00",
+            "2019-01-01T00:00:00.1Z", "2019-01-01T00:00:00.12Z", "2019-01-01T00:00:00.123456789Z",
+            "2019-01-01T00:00:00.000-00:00", "2019-01-01T00:00:00.000-05:00", "2019-01-01T23:59:59.999+05:30",
+            "2016-12-31T23:59:59.999+14:00", "2019-01-01T12:00:00-12:00", "2019-01-01T00:00:00.5",
+            "2019-01-01 00:00:00", "2019-07-01 12:34:56", "2019-07-01 12:34:56.7", "2019-07-01 12:34:56.123456789"
+    };
+
+    // Accepted, but left to the fallback parsers
+    private static final String[] FALLBACK_TIMES = {
+            "2019-1-1", "2019-7-1 12:34:56", "2019-02-30T00:00:00.000Z", "2019-13-01T00:00:00.000Z",
+            "2019-01-01T25:00:00.000Z", "2019-01-01T00:00:60.000Z", "2019-01-01T00:00", "2019-01-01T00:00:00.000+0530",
+            "2019-01-01T00:00:00.000+05", " 2019-01-01T00:00:00Z", "2019-01-01T00:00:00.000Z ", "1546300800000",
+            "Tue, 01 Jan 2019 00:00:00 GMT", "0000-01-01T00:00:00.000Z", "1582-10-15T00:00:00.000Z"
+    };
+
+    // Rejected by every parser
+    private static final String[] INVALID_TIMES = {
+            "", "yesterday", "2019-01-01T00:00:00.000z", "2019-01-01T00:00:00.Z", "+2019-01-01T00:00:00Z",
+            "2019-01-01X00:00:00Z", "2019-01-01T00:00:00.0000000000Z"
+    };
+
+    private static final String[] TIME_ZONES = {"UTC", "America/New_York", "Asia/Kolkata"};
+
     private SoftAssertions softAssertions;
 
     private static TimeZone localTZ;
@@ -74,4 +105,61 @@ public class TimestampUtilsTest {
                 .isInstanceOf(InvalidTimestampFormatException.class);
         softAssertions.assertAll();
     }
+
+    @Test
+    public void shouldParseUsualShapesDirectlyAsTheFallbackParsersDo() {
+        for (String timeZone : TIME_ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(timeZone));
+            for (String time : DIRECT_TIMES) {
+                softAssertions.assertThat(IsoTimestampParser.parse(time)).as("%s in %s", time, timeZone)
+                        .isNotNull()
+                        .isEqualTo(TimestampUtils.convertUnusualStringTimeToTimestamp(time, "test"));
+            }
+        }
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldLeaveUnusualShapesToTheFallbackParsers() {
+        for (String timeZone : TIME_ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(timeZone));
+            for (String time : FALLBACK_TIMES) {
+                softAssertions.assertThat(IsoTimestampParser.parse(time)).as("%s in %s", time, timeZone).isNull();
+                softAssertions.assertThat(TimestampUtils.convertStringTimeToTimestamp(time, "test"))
+                        .as("%s in %s", time, timeZone)
+                        .isNotNull()
+                        .isEqualTo(TimestampUtils.convertUnusualStringTimeToTimestamp(time, "test"));
+            }
+        }
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldRejectInvalidShapes() {
+        for (String time : INVALID_TIMES) {
+            softAssertions.assertThat(IsoTimestampParser.parse(time)).as(time).isNull();
+            softAssertions.assertThatCode(() -> TimestampUtils.convertStringTimeToTimestamp(time, "test")).as(time)
+                    .isInstanceOf(InvalidTimestampFormatException.class);
+        }
+        softAssertions.assertAll();
+    }
+
+    @Test
+    public void shouldConvertTimestampsConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Timestamp>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String time = i % 2 == 0 ? "2019-01-01T00:00:00.000+0000" : "2019-07-01T00:00:00.000+0000";
+                results.add(executor.submit(() -> TimestampUtils.convertStringTimeToTimestamp(time, "test")));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                softAssertions.assertThat(results.get(i).get().toInstant().toString())
+                        .isEqualTo(i % 2 == 0 ? "2019-01-01T00:00:00Z" : "2019-07-01T00:00:00Z");
+            }
+        } finally {
+            executor.shutdown();
+        }
+        softAssertions.assertAll();
+    }
 }
@@ -13,6 +13,22 @@ CREATE TABLE `delivery_progress_reports` (
   `report_timestamp` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
   `client_auctions` int(11) NOT NULL DEFAULT '0',
   `line_item_status` json NOT NULL,
+  `account_auctions` int(11) NOT NULL DEFAULT '0',
+  `domain_matched` int(11) NOT NULL DEFAULT '0',
+  `target_matched` int(11) NOT NULL DEFAULT '0',
+  `target_matched_but_fcapped` int(11) NOT NULL DEFAULT '0',
+  `target_matched_but_fcap_lookup_failed` int(11) NOT NULL DEFAULT '0',
+  `pacing_deferred` int(11) NOT NULL DEFAULT '0',
+  `sent_to_bidder` int(11) NOT NULL DEFAULT '0',
+  `sent_to_bidder_as_top_match` int(11) NOT NULL DEFAULT '0',
+  `received_from_bidder_invalidated` int(11) NOT NULL DEFAULT '0',
+  `received_from_bidder` int(11) NOT NULL DEFAULT '0',
+  `sent_to_client` int(11) NOT NULL DEFAULT '0',
+  `sent_to_client_as_top_match` int(11) NOT NULL DEFAULT '0',
+  `win_events` int(11) NOT NULL DEFAULT '0',
+  `first_plan_id` varchar(64) DEFAULT NULL,
+  `first_plan_tokens_spent` int(11) NOT NULL DEFAULT '0',
+  `second_plan_id` varchar(64) DEFAULT NULL,
   `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
 PRIMARY KEY (`report_id`,`line_item_id`),
 KEY `delivery_progress_reports_report_timestamp` (`report_timestamp`),
@@ -78,4 +94,8 @@ PRIMARY KEY (`id`),
 KEY `delivery_progress_reports_summaryreport_timestamp` (`created_at`),
 KEY `delivery_progress_reports_summaryreport_window` (`report_window_start_timestamp`,`report_window_end_timestamp`) USING BTREE,
 KEY `delivery_progress_reports_summaryreport_window_line` (`report_window_start_timestamp`,`report_window_end_timestamp`,`line_item_id`) USING BTREE
-) ENGINE=InnoDB AUTO_INCREMENT=240637 DEFAULT CHARSET=utf8mb4;
\ No newline at end of file
+) ENGINE=InnoDB AUTO_INCREMENT=240637 DEFAULT CHARSET=utf8mb4;
+
+-- MySQL functions used by native queries that H2 does not provide
+
+CREATE ALIAS IF NOT EXISTS DATE_FORMAT FOR "org.prebid.pg.delstats.utils.H2Functions.dateFormat";